@@ -0,0 +1,45 @@
+package com.medicalapp.loadharness;
+
+/**
+ * Command line options: --name value pairs, every one optional.
+ */
+class HarnessOptions {
+
+    String url = "ws://localhost:8080/ws";
+    String adminUrl = "http://localhost:8080";
+    // Default matches application.yaml; must equal the server's JWT_SECRET
+    String jwtSecret = "MedicalAppSecretKeyForauthTokenGeneration2024ChangeThisInProduction";
+    String adminToken;
+    String userPrefix = "load-user-";
+
+    int sessions = 1000;
+    int connectConcurrency = 200;
+    int topics = 0;              // extra /topic/load-{n} subscriptions spread over the sessions, published to in turn
+    int broadcasts = 50;
+    long broadcastIntervalMs = 200;
+    long settleMs = 3000;
+    long drainMs = 5000;
+
+    static HarnessOptions parse(String[] args) {
+        HarnessOptions options = new HarnessOptions();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url" -> options.url = value;
+                case "--admin-url" -> options.adminUrl = value;
+                case "--jwt-secret" -> options.jwtSecret = value;
+                case "--admin-token" -> options.adminToken = value;
+                case "--user-prefix" -> options.userPrefix = value;
+                case "--sessions" -> options.sessions = Integer.parseInt(value);
+                case "--connect-concurrency" -> options.connectConcurrency = Integer.parseInt(value);
+                case "--topics" -> options.topics = Integer.parseInt(value);
+                case "--broadcasts" -> options.broadcasts = Integer.parseInt(value);
+                case "--broadcast-interval-ms" -> options.broadcastIntervalMs = Long.parseLong(value);
+                case "--settle-ms" -> options.settleMs = Long.parseLong(value);
+                case "--drain-ms" -> options.drainMs = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,82 @@
+package com.medicalapp.loadharness;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in microseconds. Values below 16us are exact;
+ * above that each power of two is split into 8 buckets (~12% resolution),
+ * which is plenty for p50/p99 over hundreds of thousands of samples.
+ */
+class LatencyRecorder {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = LINEAR + (64 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >> (exponent - 3)) & (SUB_BUCKETS - 1));
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) sub << (exponent - 3));
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long percentileMicros(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return max.get();
+    }
+
+    String summary() {
+        long total = count.sum();
+        if (total == 0) {
+            return "no samples";
+        }
+        return String.format("n=%d avg=%s p50=%s p90=%s p99=%s p99.9=%s max=%s",
+            total, format(sum.sum() / total), format(percentileMicros(50)), format(percentileMicros(90)),
+            format(percentileMicros(99)), format(percentileMicros(99.9)), format(max.get()));
+    }
+
+    private static String format(long micros) {
+        return micros >= 10_000 ? String.format("%.1fms", micros / 1000.0) : micros + "us";
+    }
+}
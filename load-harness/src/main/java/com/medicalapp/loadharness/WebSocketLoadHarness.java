@@ -0,0 +1,256 @@
+package com.medicalapp.loadharness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opens N authenticated STOMP sessions against a running instance, subscribes
+ * each to the echo broadcast topic (plus its user queue and optional extra
+ * topics), drives broadcasts through /app/echo and reports:
+ *
+ * - handshake latency (HTTP upgrade + JWT check + STOMP CONNECTED)
+ * - broadcast delivery latency percentiles and delivery ratio
+ * - the same for the extra topics, which the driver publishes to directly
+ *   (a client SEND to a /topic destination goes straight to the broker)
+ * - server heap per session, when --admin-token is given
+ *
+ * Tokens are minted locally with the server's JWT secret, so no users need to
+ * exist. Sending and receiving happen in this JVM, so the sentAt nanoTime in
+ * each broadcast is directly comparable on receipt.
+ */
+public class WebSocketLoadHarness {
+
+    private static final String ECHO_TOPIC = "/topic/echo";
+
+    private final HarnessOptions options;
+    private final SecretKey signingKey;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private final LatencyRecorder handshake = new LatencyRecorder();
+    private final LatencyRecorder delivery = new LatencyRecorder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LatencyRecorder topicDelivery = new LatencyRecorder();
+    private final LongAdder topicReceived = new LongAdder();
+    private final LongAdder[] topicSubscribers;
+    private final ConcurrentLinkedQueue<StompSession> sessions = new ConcurrentLinkedQueue<>();
+
+    public WebSocketLoadHarness(HarnessOptions options) {
+        this.options = options;
+        this.signingKey = Keys.hmacShaKeyFor(options.jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.topicSubscribers = new LongAdder[options.topics];
+        for (int n = 0; n < options.topics; n++) {
+            topicSubscribers[n] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new WebSocketLoadHarness(HarnessOptions.parse(args)).run();
+    }
+
+    void run() throws Exception {
+        ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        StandardWebSocketClient webSocketClient = new StandardWebSocketClient();
+        webSocketClient.setTaskExecutor(new TaskExecutorAdapter(virtualThreads));
+        WebSocketStompClient stompClient = new WebSocketStompClient(webSocketClient);
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setDefaultHeartbeat(new long[] {0, 0});
+
+        long heapBefore = serverHeapUsed();
+        System.out.printf("Opening %d sessions to %s (concurrency %d)%n",
+            options.sessions, options.url, options.connectConcurrency);
+
+        long connectStart = System.nanoTime();
+        connectAll(stompClient, virtualThreads);
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+        System.out.printf("Connected %d/%d in %.1fs (%.0f/s), %d failed%n", sessions.size(), options.sessions,
+            connectSeconds, sessions.size() / connectSeconds, connectFailures.sum());
+        System.out.println("Handshake: " + handshake.summary());
+
+        Thread.sleep(options.settleMs);
+        long heapAfter = serverHeapUsed();
+
+        broadcast();
+        Thread.sleep(options.drainMs);
+
+        long expected = (long) options.broadcasts * sessions.size();
+        System.out.printf("Delivery: %d/%d (%.2f%%), transport errors %d%n", received.sum(), expected,
+            expected == 0 ? 0 : received.sum() * 100.0 / expected, transportErrors.sum());
+        System.out.println("Delivery latency: " + delivery.summary());
+        if (options.topics > 0) {
+            long topicExpected = 0;
+            for (int k = 0; k < options.broadcasts; k++) {
+                topicExpected += topicSubscribers[k % options.topics].sum();
+            }
+            System.out.printf("Topic delivery (%d topics): %d/%d (%.2f%%)%n", options.topics, topicReceived.sum(),
+                topicExpected, topicExpected == 0 ? 0 : topicReceived.sum() * 100.0 / topicExpected);
+            System.out.println("Topic delivery latency: " + topicDelivery.summary());
+        }
+        if (heapBefore > 0 && heapAfter > 0 && !sessions.isEmpty()) {
+            System.out.printf("Server heap: %d MB -> %d MB, ~%d KB per session (GC noise applies; repeat runs)%n",
+                heapBefore >> 20, heapAfter >> 20, (heapAfter - heapBefore) / sessions.size() >> 10);
+        }
+
+        for (StompSession session : sessions) {
+            session.disconnect();
+        }
+        stompClient.stop();
+        virtualThreads.shutdown();
+    }
+
+    private void connectAll(WebSocketStompClient stompClient, ExecutorService virtualThreads) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.connectConcurrency);
+        for (int i = 0; i < options.sessions; i++) {
+            int index = i;
+            inFlight.acquire();
+            virtualThreads.execute(() -> {
+                try {
+                    connect(stompClient, index);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(options.connectConcurrency);
+        inFlight.release(options.connectConcurrency);
+    }
+
+    private void connect(WebSocketStompClient stompClient, int index) {
+        String username = options.userPrefix + index;
+        String url = options.url + "?token=" + token(username);
+        long start = System.nanoTime();
+        try {
+            StompSession session = stompClient.connectAsync(url, new StompSessionHandlerAdapter() {
+                @Override
+                public void handleTransportError(StompSession session, Throwable exception) {
+                    transportErrors.increment();
+                }
+            }).get(30, TimeUnit.SECONDS);
+            handshake.recordNanos(System.nanoTime() - start);
+
+            session.subscribe(ECHO_TOPIC, new DeliveryHandler(delivery, received));
+            session.subscribe("/user/queue/notifications", new DeliveryHandler(delivery, received));
+            if (options.topics > 0) {
+                session.subscribe(loadTopic(index), new DeliveryHandler(topicDelivery, topicReceived));
+                topicSubscribers[index % options.topics].increment();
+            }
+            sessions.add(session);
+        } catch (Exception e) {
+            connectFailures.increment();
+            if (connectFailures.sum() <= 5) {
+                System.out.printf("Connect %s failed: %s%n", username, e.getMessage());
+            }
+        }
+    }
+
+    private void broadcast() throws InterruptedException {
+        StompSession driver = sessions.peek();
+        if (driver == null || options.broadcasts == 0) {
+            return;
+        }
+        System.out.printf("Sending %d broadcasts to %d subscribers every %dms%n",
+            options.broadcasts, sessions.size(), options.broadcastIntervalMs);
+        for (int k = 0; k < options.broadcasts; k++) {
+            driver.send("/app/echo", Map.of("sentAt", System.nanoTime(), "k", k));
+            if (options.topics > 0) {
+                // One extra topic per round, in turn
+                driver.send(loadTopic(k), Map.of("sentAt", System.nanoTime(), "k", k));
+            }
+            Thread.sleep(options.broadcastIntervalMs);
+        }
+    }
+
+    private String loadTopic(int n) {
+        return "/topic/load-" + (n % options.topics);
+    }
+
+    private String token(String username) {
+        Date now = new Date();
+        return Jwts.builder()
+            .setSubject(username)
+            .setIssuedAt(now)
+            .setExpiration(new Date(now.getTime() + TimeUnit.HOURS.toMillis(1)))
+            .signWith(signingKey, SignatureAlgorithm.HS256)
+            .compact();
+    }
+
+    /**
+     * Lowest of three heap readings from the admin metrics endpoint, or 0 without an admin token
+     */
+    private long serverHeapUsed() {
+        if (options.adminToken == null) {
+            return 0;
+        }
+        long lowest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(options.adminUrl + "/api/admin/websocket/metrics"))
+                    .header("Authorization", "Bearer " + options.adminToken)
+                    .GET()
+                    .build();
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                JsonNode heap = objectMapper.readTree(response.body()).path("heap").path("usedBytes");
+                if (heap.isNumber()) {
+                    lowest = Math.min(lowest, heap.asLong());
+                }
+                Thread.sleep(1000);
+            } catch (Exception e) {
+                System.out.println("Heap sample failed: " + e.getMessage());
+            }
+        }
+        return lowest == Long.MAX_VALUE ? 0 : lowest;
+    }
+
+    private static class DeliveryHandler implements StompFrameHandler {
+
+        private final LatencyRecorder latency;
+        private final LongAdder count;
+
+        DeliveryHandler(LatencyRecorder latency, LongAdder count) {
+            this.latency = latency;
+            this.count = count;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            if (payload instanceof Map<?, ?> map && map.get("sentAt") instanceof Number sentAt) {
+                latency.recordNanos(System.nanoTime() - sentAt.longValue());
+                count.increment();
+            }
+        }
+    }
+}
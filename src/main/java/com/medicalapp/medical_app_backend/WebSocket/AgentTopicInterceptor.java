@@ -0,0 +1,72 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps topics meant for support agents (patient names, message previews) away
+ * from everyone else. SUBSCRIBE to a destination that matches one of them -
+ * including broker patterns such as /topic/** - needs a DOCTOR or ADMIN
+ * session; clients may never SEND to them, only the server publishes there.
+ */
+public class AgentTopicInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentTopicInterceptor.class);
+
+    private static final Set<String> AGENT_AUTHORITIES = Set.of("ROLE_DOCTOR", "ROLE_ADMIN");
+
+    private final List<String> agentTopics;
+    // The simple broker matches subscriptions with the same matcher
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public AgentTopicInterceptor(List<String> agentTopics) {
+        this.agentTopics = agentTopics;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !isAgentTopic(accessor.getDestination())) {
+            return message;
+        }
+        if (StompCommand.SEND.equals(accessor.getCommand())) {
+            logger.warn("❌ Client SEND to agent topic {} rejected (session {})",
+                accessor.getDestination(), accessor.getSessionId());
+            return null;
+        }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) && !isAgent(accessor)) {
+            logger.warn("❌ SUBSCRIBE to {} rejected for non-agent session {}",
+                accessor.getDestination(), accessor.getSessionId());
+            return null;
+        }
+        return message;
+    }
+
+    private boolean isAgentTopic(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String topic : agentTopics) {
+            if (matcher.match(destination, topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAgent(StompHeaderAccessor accessor) {
+        return accessor.getUser() instanceof Authentication authentication
+            && authentication.getAuthorities().stream().anyMatch(a -> AGENT_AUTHORITIES.contains(a.getAuthority()));
+    }
+}
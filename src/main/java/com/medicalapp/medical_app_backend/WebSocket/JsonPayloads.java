@@ -0,0 +1,55 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes a WebSocket payload to JSON once so the same bytes can go to many
+ * users, the broker and the cluster relay without running the message converter
+ * again for each. Dates are written as ISO strings, like the STOMP converter does.
+ */
+final class JsonPayloads {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private JsonPayloads() {
+    }
+
+    static byte[] encode(Object payload) throws JsonProcessingException {
+        return MAPPER.writeValueAsBytes(payload);
+    }
+
+    /**
+     * {"seq":n,"epoch":"e", + the rest of an encoded object - per-user sequencing
+     * without re-encoding the shared body. The body must not already have those keys.
+     */
+    static byte[] withSequence(byte[] json, long seq, String epoch) {
+        byte[] prefix = ("{\"seq\":" + seq + ",\"epoch\":\"" + epoch + "\"" + (json.length > 2 ? "," : ""))
+            .getBytes(StandardCharsets.US_ASCII);
+        byte[] framed = new byte[prefix.length + json.length - 1];
+        System.arraycopy(prefix, 0, framed, 0, prefix.length);
+        System.arraycopy(json, 1, framed, prefix.length, json.length - 1);
+        return framed;
+    }
+
+    /**
+     * Ready-to-send MESSAGE; SimpMessagingTemplate.send() passes it through without conversion
+     */
+    static Message<byte[]> message(byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+}
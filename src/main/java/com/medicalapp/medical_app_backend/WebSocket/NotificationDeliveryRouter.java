@@ -0,0 +1,338 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import com.medicalapp.medical_app_backend.entity.Notification;
+import com.medicalapp.medical_app_backend.repository.NotificationRepository;
+import com.medicalapp.medical_app_backend.websocket.cluster.ClusterRelayService;
+import com.medicalapp.medical_app_backend.websocket.cluster.RelayEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single entry point for per-user real-time messages.
+ *
+ * Every message gets a per-user sequence number and goes into the replay buffer;
+ * it is then sent once, and only if the user has a live STOMP session. Clients
+ * that were offline (or dropped) ask for /app/notifications/replay with the last
+ * seq they saw and get the gap back, or their DB history when the buffer no
+ * longer covers it.
+ *
+ * When the user's socket is on another node, the message is handed to that node
+ * through the cluster relay, which sequences and sends it there.
+ */
+@Component
+@Lazy(false) // must exist at startup to receive messages relayed from other nodes
+public class NotificationDeliveryRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDeliveryRouter.class);
+
+    private static final String USER_PREFIX = "/user/";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private UserSessionRegistry sessionRegistry;
+
+    @Autowired
+    private NotificationReplayBuffer replayBuffer;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private ClusterRelayService clusterRelay;
+
+    @Autowired
+    private SseNotificationStreams sseStreams;
+
+    // How many stored notifications to return when the replay buffer has a gap
+    @Value("${app.websocket.replay.history-limit:50}")
+    private int historyLimit;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder bufferedOffline = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder relayed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        clusterRelay.setInboundHandler(this::onRelayed);
+    }
+
+    /**
+     * Deliver to the user's notification stream (queue or topic, whichever their client subscribed to)
+     */
+    public boolean deliver(Long userId, Map<String, Object> payload) {
+        return deliver(userId, null, payload);
+    }
+
+    /**
+     * Deliver to a specific user destination such as /topic/results. Returns true
+     * if it was sent now, false if it was only buffered for replay.
+     */
+    public boolean deliver(Long userId, String destination, Map<String, Object> payload) {
+        return route(userId, destination, payload, null);
+    }
+
+    /**
+     * Same message to many users (system-wide announcements). The payload is
+     * encoded to JSON once; each user's frame is that body with their seq spliced
+     * in, and remote users get the same bytes through the relay. Returns how many
+     * were sent live.
+     */
+    public int deliverToUsers(Collection<Long> userIds, String destination, Map<String, Object> payload) {
+        byte[] json = null;
+        if (!payload.containsKey("seq") && !payload.containsKey("epoch")) {
+            try {
+                json = JsonPayloads.encode(payload);
+            } catch (Exception e) {
+                logger.warn("Could not pre-encode fan-out payload, converting per user: {}", e.getMessage());
+            }
+        }
+        int live = 0;
+        for (Long userId : userIds) {
+            if (route(userId, destination, payload, json)) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private boolean route(Long userId, String destination, Map<String, Object> payload, byte[] json) {
+        if (userId == null) {
+            return false;
+        }
+        // The user may have sockets on another node as well as streams here (an SSE
+        // tab next to a STOMP app elsewhere): relay whenever a remote node holds them
+        String owner = clusterRelay.findOwner(userId);
+        if (owner != null) {
+            clusterRelay.publish(RelayEnvelope.toUser(owner, userId, destination, payload,
+                json != null ? new String(json, StandardCharsets.UTF_8) : null));
+            relayed.increment();
+            if (!sessionRegistry.isOnline(userId)) {
+                return true; // nothing here; the owner keeps it for replay
+            }
+        }
+        return deliverLocal(userId, destination, payload, json) || owner != null;
+    }
+
+    private boolean deliverLocal(Long userId, String destination, Map<String, Object> payload, byte[] json) {
+        NotificationReplayBuffer.BufferedMessage message = replayBuffer.append(
+            userId, destination != null ? destination : UserSessionRegistry.QUEUE_NOTIFICATIONS, payload);
+
+        boolean streamed = sseStreams.hasStreams(userId) && streamToSse(userId, message, json);
+
+        String username = sessionRegistry.getUsername(userId);
+        if (username == null) {
+            if (streamed) {
+                delivered.increment();
+                return true;
+            }
+            bufferedOffline.increment();
+            logger.debug("User {} offline - message #{} kept for replay", userId, message.seq());
+            return false;
+        }
+
+        String target = destination != null ? destination : sessionRegistry.getNotificationDestination(userId);
+        try {
+            if (json != null) {
+                // Same as convertAndSendToUser, minus the conversion
+                String userDestination = USER_PREFIX + username.replace("/", "%2F") + target;
+                messagingTemplate.send(userDestination,
+                    JsonPayloads.message(JsonPayloads.withSequence(json, message.seq(), message.epoch())));
+            } else {
+                messagingTemplate.convertAndSendToUser(username, target, message.sequencedPayload());
+            }
+            delivered.increment();
+            return true;
+        } catch (Exception e) {
+            failed.increment();
+            logger.error("❌ Failed to deliver message #{} to user {}: {}", message.seq(), userId, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean streamToSse(Long userId, NotificationReplayBuffer.BufferedMessage message, byte[] json) {
+        try {
+            String data = json != null
+                ? new String(JsonPayloads.withSequence(json, message.seq(), message.epoch()), StandardCharsets.UTF_8)
+                : new String(JsonPayloads.encode(message.sequencedPayload()), StandardCharsets.UTF_8);
+            return sseStreams.send(userId, eventName(message.destination()), eventId(message), data);
+        } catch (Exception e) {
+            failed.increment();
+            logger.error("❌ Failed to stream message #{} to user {}: {}", message.seq(), userId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Open an SSE stream for the user. With a Last-Event-ID ("epoch:seq") the
+     * missed messages are sent first, plus a "history" event from the DB when the
+     * replay buffer no longer covers the gap.
+     */
+    public SseNotificationStreams.Stream openStream(Long userId, String username, String lastEventId) {
+        // Registered before replaying so nothing delivered in between is lost (at worst it comes twice)
+        SseNotificationStreams.Stream stream = sseStreams.open(userId, username);
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return stream;
+        }
+
+        String epoch = null;
+        long lastSeq = 0;
+        int separator = lastEventId.lastIndexOf(':');
+        try {
+            if (separator > 0) {
+                epoch = lastEventId.substring(0, separator);
+                lastSeq = Long.parseLong(lastEventId.substring(separator + 1));
+            }
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed Last-Event-ID '{}'", lastEventId);
+        }
+
+        NotificationReplayBuffer.ReplayResult result = replayBuffer.replayAfter(userId, lastSeq, epoch);
+        try {
+            if (!result.complete()) {
+                sseStreams.send(stream, "history", null,
+                    new String(JsonPayloads.encode(loadHistory(userId)), StandardCharsets.UTF_8));
+            }
+            for (NotificationReplayBuffer.BufferedMessage message : result.messages()) {
+                sseStreams.send(stream, eventName(message.destination()), eventId(message),
+                    new String(JsonPayloads.encode(message.sequencedPayload()), StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            logger.error("❌ Failed to replay SSE stream for user {}: {}", userId, e.getMessage());
+        }
+        return stream;
+    }
+
+    private static String eventId(NotificationReplayBuffer.BufferedMessage message) {
+        return message.epoch() + ":" + message.seq();
+    }
+
+    /**
+     * /queue/notifications -> "notification", /topic/results -> "results"
+     */
+    private static String eventName(String destination) {
+        if (destination == null || destination.endsWith("/notifications")) {
+            return "notification";
+        }
+        return destination.substring(destination.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Send to a shared destination (e.g. /topic/notifications) on every node.
+     * Encoded once; the broker and the relay both reuse the bytes.
+     */
+    public void broadcast(String destination, Map<String, Object> payload) {
+        byte[] json;
+        try {
+            json = JsonPayloads.encode(payload);
+        } catch (Exception e) {
+            logger.warn("Could not pre-encode broadcast for [{}], using the converter: {}", destination, e.getMessage());
+            messagingTemplate.convertAndSend(destination, payload);
+            clusterRelay.publish(RelayEnvelope.broadcast(destination, payload, null));
+            return;
+        }
+        messagingTemplate.send(destination, JsonPayloads.message(json));
+        if (clusterRelay.isClustered()) {
+            clusterRelay.publish(RelayEnvelope.broadcast(destination, payload, new String(json, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void onRelayed(RelayEnvelope envelope) {
+        try {
+            byte[] json = envelope.json() != null ? envelope.json().getBytes(StandardCharsets.UTF_8) : null;
+            if (envelope.userId() == null) {
+                if (json != null) {
+                    messagingTemplate.send(envelope.destination(), JsonPayloads.message(json));
+                } else {
+                    messagingTemplate.convertAndSend(envelope.destination(), envelope.payload());
+                }
+            } else {
+                // If the user moved on meanwhile this just buffers it for replay here
+                deliverLocal(envelope.userId(), envelope.destination(), envelope.payload(), json);
+            }
+        } catch (Exception e) {
+            failed.increment();
+            logger.error("❌ Failed to deliver relayed message for [{}]: {}", envelope.destination(), e.getMessage());
+        }
+    }
+
+    /**
+     * Everything the user missed after lastSeq. When the buffer cannot prove
+     * there is no gap, the recent DB notifications are included as "history".
+     */
+    public Map<String, Object> replay(Long userId, long lastSeq, String epoch) {
+        NotificationReplayBuffer.ReplayResult result = replayBuffer.replayAfter(userId, lastSeq, epoch);
+
+        List<Map<String, Object>> messages = new ArrayList<>(result.messages().size());
+        for (NotificationReplayBuffer.BufferedMessage message : result.messages()) {
+            Map<String, Object> entry = message.sequencedPayload();
+            entry.put("destination", message.destination());
+            messages.add(entry);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("epoch", replayBuffer.getEpoch());
+        response.put("lastSeq", result.lastSeq());
+        response.put("complete", result.complete());
+        response.put("messages", messages);
+        if (!result.complete()) {
+            response.put("history", loadHistory(userId));
+        }
+        return response;
+    }
+
+    private List<Map<String, Object>> loadHistory(Long userId) {
+        List<Notification> notifications = notificationRepository.findByUserId(
+            userId, PageRequest.of(0, historyLimit, Sort.by(Sort.Direction.DESC, "createdAt"))).getContent();
+
+        List<Map<String, Object>> history = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", notification.getId());
+            item.put("type", notification.getType());
+            item.put("title", notification.getTitle());
+            item.put("message", notification.getMessage());
+            item.put("priority", notification.getPriority() != null ? notification.getPriority().name() : null);
+            item.put("isRead", notification.isRead());
+            item.put("createdAt", notification.getCreatedAt() != null ? notification.getCreatedAt().toString() : null);
+            item.put("referenceType", notification.getReferenceType());
+            item.put("referenceId", notification.getReferenceId());
+            history.add(item);
+        }
+        return history;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("onlineUsers", sessionRegistry.getOnlineUserCount());
+        stats.put("sessions", sessionRegistry.getSessionCount());
+        stats.put("delivered", delivered.sum());
+        stats.put("bufferedOffline", bufferedOffline.sum());
+        stats.put("failed", failed.sum());
+        stats.put("relayed", relayed.sum());
+        stats.put("replayStreams", replayBuffer.getTrackedUserCount());
+        stats.put("epoch", replayBuffer.getEpoch());
+        stats.put("cluster", clusterRelay.getStats());
+        stats.put("sse", sseStreams.getStats());
+        return stats;
+    }
+}
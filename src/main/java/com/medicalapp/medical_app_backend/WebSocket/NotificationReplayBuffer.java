@@ -0,0 +1,147 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user, monotonically sequenced record of recent real-time messages, kept in
+ * a bounded ring buffer so a reconnecting client can ask for everything after
+ * the last sequence number it saw.
+ *
+ * Sequence numbers come from one process-wide counter, so they keep increasing
+ * for a user even after an idle stream is pruned and recreated; they are not
+ * contiguous per user. They live in memory and restart with the server; the
+ * epoch (fixed per process) tells clients when their lastSeq no longer applies.
+ */
+@Component
+public class NotificationReplayBuffer {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Value("${app.websocket.replay.capacity:100}")
+    private int capacity;
+
+    @Value("${app.websocket.replay.idle-hours:24}")
+    private int idleHours;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ConcurrentHashMap<Long, UserStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Assign the next sequence number and remember the message. The payload is
+     * stored as is (one fan-out shares a single map), so it must not be modified
+     * afterwards; seq and epoch are added by sequencedPayload().
+     */
+    public BufferedMessage append(Long userId, String destination, Map<String, Object> payload) {
+        UserStream stream = streams.computeIfAbsent(userId, id -> new UserStream(capacity, sequence.get()));
+        synchronized (stream) {
+            long seq = sequence.incrementAndGet();
+            BufferedMessage message = new BufferedMessage(seq, epoch, destination, payload, System.currentTimeMillis());
+            stream.add(message);
+            return message;
+        }
+    }
+
+    /**
+     * Messages after afterSeq, oldest first. complete is false unless the buffer
+     * holds everything after afterSeq: messages were evicted, the stream was
+     * pruned (or never existed here), or the client's epoch is stale. History
+     * must then come from the DB.
+     */
+    public ReplayResult replayAfter(Long userId, long afterSeq, String clientEpoch) {
+        UserStream stream = streams.get(userId);
+        boolean sameEpoch = epoch.equals(clientEpoch);
+        if (stream == null) {
+            return new ReplayResult(List.of(), false, sequence.get());
+        }
+        synchronized (stream) {
+            long from = sameEpoch ? afterSeq : 0;
+            List<BufferedMessage> messages = stream.after(from);
+            boolean complete = sameEpoch && from >= stream.floor;
+            return new ReplayResult(messages, complete, stream.lastSeq());
+        }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public int getTrackedUserCount() {
+        return streams.size();
+    }
+
+    /**
+     * Forget streams nobody has written to for a while
+     */
+    @Scheduled(fixedDelayString = "${app.websocket.replay.prune-interval-ms:3600000}")
+    public void pruneIdle() {
+        long cutoff = System.currentTimeMillis() - idleHours * 3_600_000L;
+        streams.values().removeIf(stream -> stream.lastWriteMillis() < cutoff);
+    }
+
+    public record BufferedMessage(long seq, String epoch, String destination, Map<String, Object> payload,
+                                  long createdAtMillis) {
+
+        public Map<String, Object> sequencedPayload() {
+            Map<String, Object> sequenced = new HashMap<>(payload);
+            sequenced.put("seq", seq);
+            sequenced.put("epoch", epoch);
+            return sequenced;
+        }
+    }
+
+    public record ReplayResult(List<BufferedMessage> messages, boolean complete, long lastSeq) {}
+
+    private static class UserStream {
+        private final BufferedMessage[] ring;
+        private int head; // index of the oldest entry
+        private int size;
+        // Newest sequence number this stream no longer holds (or was created after)
+        private long floor;
+
+        UserStream(int capacity, long floor) {
+            this.ring = new BufferedMessage[Math.max(1, capacity)];
+            this.floor = floor;
+        }
+
+        void add(BufferedMessage message) {
+            int tail = (head + size) % ring.length;
+            if (size == ring.length) {
+                floor = ring[tail].seq();
+                ring[tail] = message;
+                head = (head + 1) % ring.length;
+            } else {
+                ring[tail] = message;
+                size++;
+            }
+        }
+
+        long lastSeq() {
+            return size == 0 ? floor : ring[(head + size - 1) % ring.length].seq();
+        }
+
+        List<BufferedMessage> after(long seq) {
+            List<BufferedMessage> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                BufferedMessage message = ring[(head + i) % ring.length];
+                if (message.seq() > seq) {
+                    result.add(message);
+                }
+            }
+            return result;
+        }
+
+        synchronized long lastWriteMillis() {
+            return size == 0 ? 0 : ring[(head + size - 1) % ring.length].createdAtMillis();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-session outbound state and slow-consumer policy for STOMP MESSAGE frames.
+ *
+ * Each destination class has a policy:
+ * - COALESCE: only the newest value is worth sending (badge counts); while one
+ *   frame for the destination is queued, newer ones replace it instead of queuing.
+ * - DROP_WHEN_SLOW: transient events (presence, typing); skipped once the session
+ *   already has slow-threshold frames queued.
+ * - NEVER_DROP: everything else, including result-ready notifications.
+ *
+ * A session with more than max-pending frames queued is evicted (closed), as is
+ * one the transport closes for exceeding the send buffer / time limits.
+ */
+@Component
+public class OutboundFlowControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundFlowControl.class);
+
+    private static final int POLICY_CACHE_LIMIT = 10_000;
+
+    public enum Policy { COALESCE, DROP_WHEN_SLOW, NEVER_DROP }
+
+    @Value("${app.websocket.outbound.max-pending-per-session:1000}")
+    private int maxPendingPerSession;
+
+    @Value("${app.websocket.outbound.slow-threshold:50}")
+    private int slowThreshold;
+
+    @Value("${app.websocket.outbound.policies.coalesce:/queue/badge,/topic/badge,/queue/unread-count}")
+    private String coalescePrefixes;
+
+    @Value("${app.websocket.outbound.policies.drop-when-slow:/topic/presence,/topic/typing,/topic/pong}")
+    private String dropWhenSlowPrefixes;
+
+    private final List<String[]> prefixRules = new ArrayList<>(); // [prefix, policy]
+    private final ConcurrentHashMap<String, Policy> policyCache = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, WebSocketSession> transportSessions = new ConcurrentHashMap<>();
+
+    private final Map<Policy, LongAdder> skipped = new EnumMap<>(Policy.class);
+    private final LongAdder evictedBacklog = new LongAdder();
+    private final LongAdder evictedTransport = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (String prefix : coalescePrefixes.split(",")) {
+            addRule(prefix, Policy.COALESCE);
+        }
+        for (String prefix : dropWhenSlowPrefixes.split(",")) {
+            addRule(prefix, Policy.DROP_WHEN_SLOW);
+        }
+        for (Policy policy : Policy.values()) {
+            skipped.put(policy, new LongAdder());
+        }
+    }
+
+    private void addRule(String prefix, Policy policy) {
+        if (!prefix.isBlank()) {
+            prefixRules.add(new String[] {prefix.trim(), policy.name()});
+        }
+    }
+
+    /**
+     * Policy for a destination as the client subscribed to it (/user prefix ignored)
+     */
+    public Policy policyFor(String destination) {
+        if (destination == null) {
+            return Policy.NEVER_DROP;
+        }
+        Policy cached = policyCache.get(destination);
+        if (cached != null) {
+            return cached;
+        }
+        String path = destination.startsWith("/user/") ? destination.substring(5) : destination;
+        Policy policy = Policy.NEVER_DROP;
+        for (String[] rule : prefixRules) {
+            if (path.startsWith(rule[0])) {
+                policy = Policy.valueOf(rule[1]);
+                break;
+            }
+        }
+        if (policyCache.size() < POLICY_CACHE_LIMIT) {
+            policyCache.put(destination, policy);
+        }
+        return policy;
+    }
+
+    /**
+     * State for a live session; null once the transport is gone, so frames still
+     * in flight for a closed session do not recreate it.
+     */
+    SessionState state(String sessionId) {
+        SessionState state = sessions.get(sessionId);
+        if (state == null && transportSessions.containsKey(sessionId)) {
+            state = sessions.computeIfAbsent(sessionId, id -> new SessionState());
+        }
+        return state;
+    }
+
+    int getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    int getMaxPendingPerSession() {
+        return maxPendingPerSession;
+    }
+
+    void recordSkipped(Policy policy) {
+        skipped.get(policy).increment();
+    }
+
+    /**
+     * Close a session whose backlog keeps growing. Frames already queued for it are discarded.
+     */
+    void evict(String sessionId, int pending) {
+        SessionState state = sessions.get(sessionId);
+        if (state == null || state.evicted) {
+            return;
+        }
+        state.evicted = true;
+        evictedBacklog.increment();
+        logger.warn("⚠️ Evicting slow WebSocket session {} ({} frames pending)", sessionId, pending);
+
+        WebSocketSession session = transportSessions.get(sessionId);
+        if (session != null) {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                logger.debug("Closing slow session {} failed: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Decorator for the STOMP WebSocket handler: tracks transport sessions so they
+     * can be evicted, and counts closes caused by the send buffer / time limits.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                transportSessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                transportSessions.remove(session.getId());
+                SessionState state = sessions.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus) && (state == null || !state.evicted)) {
+                    evictedTransport.increment();
+                    logger.warn("⚠️ WebSocket session {} closed for exceeding send limits", session.getId());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public Map<String, Object> getStats() {
+        int pending = 0;
+        int backlogged = 0;
+        for (SessionState state : sessions.values()) {
+            int sessionPending = state.pending.get();
+            pending += sessionPending;
+            if (sessionPending >= slowThreshold) {
+                backlogged++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingFrames", pending);
+        stats.put("backloggedSessions", backlogged);
+        Map<String, Long> skippedByPolicy = new LinkedHashMap<>();
+        skipped.forEach((policy, count) -> skippedByPolicy.put(policy.name(), count.sum()));
+        stats.put("skipped", skippedByPolicy);
+        stats.put("evictedBacklog", evictedBacklog.sum());
+        stats.put("evictedSendLimits", evictedTransport.sum());
+        return stats;
+    }
+
+    static class SessionState {
+        final AtomicInteger pending = new AtomicInteger();
+        // COALESCE destinations with a frame queued, and the newest value waiting behind it
+        final Map<String, Message<?>> latest = new ConcurrentHashMap<>();
+        final Set<String> queued = ConcurrentHashMap.newKeySet();
+        volatile boolean evicted;
+    }
+}
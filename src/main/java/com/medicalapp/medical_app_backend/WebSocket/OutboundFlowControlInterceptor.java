@@ -0,0 +1,132 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+/**
+ * Applies OutboundFlowControl on the client outbound channel. A frame counts as
+ * pending for its session from preSend until the transport has taken it
+ * (afterMessageHandled); only MESSAGE frames are subject to the policies.
+ */
+public class OutboundFlowControlInterceptor implements ExecutorChannelInterceptor {
+
+    private final OutboundFlowControl flowControl;
+
+    public OutboundFlowControlInterceptor(OutboundFlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        OutboundFlowControl.SessionState state = stateOf(headers);
+        if (state == null) {
+            return message;
+        }
+        String destination = destinationOf(headers);
+        OutboundFlowControl.Policy policy = flowControl.policyFor(destination);
+
+        if (state.evicted) {
+            flowControl.recordSkipped(policy);
+            return null;
+        }
+        if (policy == OutboundFlowControl.Policy.COALESCE) {
+            synchronized (state) {
+                if (!state.queued.add(destination)) {
+                    // One is already queued; it will go out with this newer value instead
+                    state.latest.put(destination, message);
+                    flowControl.recordSkipped(policy);
+                    return null;
+                }
+            }
+        } else if (policy == OutboundFlowControl.Policy.DROP_WHEN_SLOW
+                && state.pending.get() >= flowControl.getSlowThreshold()) {
+            flowControl.recordSkipped(policy);
+            return null;
+        }
+
+        int pending = state.pending.incrementAndGet();
+        if (pending > flowControl.getMaxPendingPerSession()) {
+            release(state, destination, policy);
+            flowControl.evict(SimpMessageHeaderAccessor.getSessionId(headers), pending);
+            return null;
+        }
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        MessageHeaders headers = message.getHeaders();
+        OutboundFlowControl.SessionState state = stateOf(headers);
+        if (state == null) {
+            return message;
+        }
+        String destination = destinationOf(headers);
+        OutboundFlowControl.Policy policy = flowControl.policyFor(destination);
+
+        if (state.evicted) {
+            // afterMessageHandled is not called for a frame dropped here
+            release(state, destination, policy);
+            return null;
+        }
+        if (policy == OutboundFlowControl.Policy.COALESCE) {
+            Message<?> newer = state.latest.remove(destination);
+            return newer != null ? newer : message;
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        MessageHeaders headers = message.getHeaders();
+        OutboundFlowControl.SessionState state = stateOf(headers);
+        if (state == null) {
+            return;
+        }
+        String destination = destinationOf(headers);
+        OutboundFlowControl.Policy policy = flowControl.policyFor(destination);
+        Message<?> newer = release(state, destination, policy);
+        if (newer != null && !state.evicted) {
+            // Arrived while this one was being written; send it on its own turn
+            channel.send(newer);
+        }
+    }
+
+    /**
+     * Mark one frame as no longer pending; for COALESCE also returns a newer value
+     * that was parked behind it, if any.
+     */
+    private static Message<?> release(OutboundFlowControl.SessionState state, String destination,
+                                      OutboundFlowControl.Policy policy) {
+        state.pending.decrementAndGet();
+        if (policy != OutboundFlowControl.Policy.COALESCE) {
+            return null;
+        }
+        synchronized (state) {
+            state.queued.remove(destination);
+            return state.latest.remove(destination);
+        }
+    }
+
+    private OutboundFlowControl.SessionState stateOf(MessageHeaders headers) {
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        return sessionId != null ? flowControl.state(sessionId) : null;
+    }
+
+    /**
+     * User destinations arrive as /queue/x-user{session}; policies are keyed by
+     * what the client subscribed to (/user/queue/x).
+     */
+    private static String destinationOf(MessageHeaders headers) {
+        Object original = headers.get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        return original instanceof String value ? value : SimpMessageHeaderAccessor.getDestination(headers);
+    }
+}
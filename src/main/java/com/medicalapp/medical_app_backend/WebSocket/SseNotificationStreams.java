@@ -0,0 +1,220 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open Server-Sent Events notification streams (GET /api/notifications/stream).
+ *
+ * A stream is an async servlet response: no thread is held while it is idle.
+ * Events are queued per stream and written by a virtual thread, so a slow client
+ * never blocks the code that produced the notification; a stream whose queue
+ * passes max-pending is closed (the client reconnects with Last-Event-ID).
+ */
+@Component
+public class SseNotificationStreams {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseNotificationStreams.class);
+
+    @Autowired
+    private UserSessionRegistry sessionRegistry;
+
+    @Value("${app.notification.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.notification.stream.max-pending:200}")
+    private int maxPending;
+
+    @Value("${app.notification.stream.max-streams-per-user:5}")
+    private int maxStreamsPerUser;
+
+    private final ExecutorService writer = Executors.newVirtualThreadPerTaskExecutor();
+    // Each user's streams in the order they were opened
+    private final ConcurrentHashMap<Long, Deque<Stream>> streamsByUser = new ConcurrentHashMap<>();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public Stream open(Long userId, String username) {
+        Deque<Stream> userStreams = streamsByUser.get(userId);
+        Stream oldest;
+        while (userStreams != null && userStreams.size() >= maxStreamsPerUser && (oldest = userStreams.pollFirst()) != null) {
+            // Usually tabs that were closed without the connection noticing
+            oldest.emitter.complete();
+            close(oldest);
+        }
+
+        Stream stream = new Stream("sse-" + UUID.randomUUID(), userId, new SseEmitter(timeoutMs));
+        stream.emitter.onCompletion(() -> close(stream));
+        stream.emitter.onTimeout(stream.emitter::complete);
+        stream.emitter.onError(e -> close(stream));
+
+        // Re-read under the map lock: evicting the last stream above removes the user's deque
+        streamsByUser.compute(userId, (id, current) -> {
+            Deque<Stream> streams = current != null ? current : new ConcurrentLinkedDeque<>();
+            streams.addLast(stream);
+            return streams;
+        });
+        sessionRegistry.registerStream(stream.id, userId, username);
+        opened.increment();
+        return stream;
+    }
+
+    private void close(Stream stream) {
+        if (!stream.closed.compareAndSet(false, true)) {
+            return;
+        }
+        streamsByUser.computeIfPresent(stream.userId, (id, userStreams) -> {
+            userStreams.remove(stream);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+        sessionRegistry.remove(stream.id);
+    }
+
+    public boolean hasStreams(Long userId) {
+        return streamsByUser.containsKey(userId);
+    }
+
+    /**
+     * Queue one JSON event for every stream the user has open. Returns false if there are none.
+     */
+    public boolean send(Long userId, String eventName, String eventId, String json) {
+        Deque<Stream> userStreams = streamsByUser.get(userId);
+        if (userStreams == null || userStreams.isEmpty()) {
+            return false;
+        }
+        for (Stream stream : userStreams) {
+            send(stream, eventName, eventId, json);
+        }
+        return true;
+    }
+
+    public void send(Stream stream, String eventName, String eventId, String json) {
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(eventName).data(json, MediaType.APPLICATION_JSON);
+        if (eventId != null) {
+            event.id(eventId);
+        }
+        enqueue(stream, event);
+    }
+
+    /**
+     * Keeps proxies from timing out idle streams and finds dead connections
+     */
+    @Scheduled(fixedDelayString = "${app.notification.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Deque<Stream> userStreams : streamsByUser.values()) {
+            for (Stream stream : userStreams) {
+                enqueue(stream, SseEmitter.event().comment("keepalive"));
+            }
+        }
+    }
+
+    private void enqueue(Stream stream, SseEmitter.SseEventBuilder event) {
+        if (stream.closed.get()) {
+            return;
+        }
+        if (stream.pending.incrementAndGet() > maxPending) {
+            evicted.increment();
+            logger.warn("⚠️ Closing slow SSE stream {} of user {} ({} events pending)",
+                stream.id, stream.userId, stream.pending.get());
+            stream.emitter.complete();
+            close(stream);
+            return;
+        }
+        stream.queue.add(event);
+        if (stream.writing.compareAndSet(false, true)) {
+            writer.execute(() -> drain(stream));
+        }
+    }
+
+    private void drain(Stream stream) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            while ((event = stream.queue.poll()) != null) {
+                stream.pending.decrementAndGet();
+                if (stream.closed.get()) {
+                    continue;
+                }
+                try {
+                    stream.emitter.send(event);
+                    eventsSent.increment();
+                } catch (Exception e) {
+                    logger.debug("SSE stream {} gone: {}", stream.id, e.getMessage());
+                    stream.emitter.completeWithError(e);
+                    close(stream);
+                }
+            }
+            stream.writing.set(false);
+            // Something may have been queued after the last poll but before the flag was cleared
+            if (stream.queue.isEmpty() || !stream.writing.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Deque<Stream> userStreams : streamsByUser.values()) {
+            for (Stream stream : userStreams) {
+                stream.emitter.complete();
+            }
+        }
+        writer.shutdown();
+    }
+
+    public Map<String, Object> getStats() {
+        int open = 0;
+        for (Deque<Stream> userStreams : streamsByUser.values()) {
+            open += userStreams.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openStreams", open);
+        stats.put("users", streamsByUser.size());
+        stats.put("opened", opened.sum());
+        stats.put("eventsSent", eventsSent.sum());
+        stats.put("evictedSlow", evicted.sum());
+        return stats;
+    }
+
+    public static class Stream {
+        private final String id;
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Stream(String id, Long userId, SseEmitter emitter) {
+            this.id = id;
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        public SseEmitter getEmitter() {
+            return emitter;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import com.medicalapp.medical_app_backend.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for STOMP traffic, keyed by command and
+ * destination, plus the set of live sessions and their subscriptions.
+ *
+ * Destinations are normalized (numeric / id-like path segments become {id}) so
+ * per-user and per-ticket topics share one entry; the normalized form is cached,
+ * so a frame for a known destination records without allocating.
+ */
+@Component
+public class StompMetrics {
+
+    private static final String NO_DESTINATION = "-";
+    private static final String OVERFLOW_DESTINATION = "other";
+    private static final int NORMALIZE_CACHE_LIMIT = 10_000;
+
+    @Value("${app.websocket.metrics.max-destinations:500}")
+    private int maxDestinations;
+
+    // command -> normalized destination -> stats, one map per direction
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, FrameStats>> inbound = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, FrameStats>> outbound = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, String> normalizedDestinations = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> subscriptionsByDestination = new ConcurrentHashMap<>();
+    private final AtomicInteger activeSubscriptions = new AtomicInteger();
+    private final LongAdder rejectedConnects = new LongAdder();
+
+    public FrameStats inbound(String command, String destination) {
+        return stats(inbound, command, destination);
+    }
+
+    public FrameStats outbound(String command, String destination) {
+        return stats(outbound, command, destination);
+    }
+
+    private FrameStats stats(ConcurrentHashMap<String, ConcurrentHashMap<String, FrameStats>> direction,
+                             String command, String destination) {
+        ConcurrentHashMap<String, FrameStats> byDestination = direction.get(command);
+        if (byDestination == null) {
+            byDestination = direction.computeIfAbsent(command, key -> new ConcurrentHashMap<>());
+        }
+        String key = normalize(destination);
+        FrameStats stats = byDestination.get(key);
+        if (stats == null) {
+            if (byDestination.size() >= maxDestinations) {
+                key = OVERFLOW_DESTINATION;
+            }
+            stats = byDestination.computeIfAbsent(key, k -> new FrameStats());
+        }
+        return stats;
+    }
+
+    /**
+     * /user/42/queue/notifications -> /user/{id}/queue/notifications
+     */
+    String normalize(String destination) {
+        if (destination == null) {
+            return NO_DESTINATION;
+        }
+        String cached = normalizedDestinations.get(destination);
+        if (cached != null) {
+            return cached;
+        }
+
+        String[] segments = destination.split("/", -1);
+        StringBuilder normalized = new StringBuilder(destination.length());
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                normalized.append('/');
+            }
+            normalized.append(isIdSegment(segments[i]) ? "{id}" : segments[i]);
+        }
+        String result = normalized.toString();
+
+        if (normalizedDestinations.size() < NORMALIZE_CACHE_LIMIT) {
+            normalizedDestinations.put(destination, result);
+        }
+        return result;
+    }
+
+    private static boolean isIdSegment(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        boolean hasDigit = false;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (Character.isDigit(c)) {
+                hasDigit = true;
+            } else if (!(c == '-' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        // Plain numbers, UUIDs and hex ids; words like "feed" or "add" stay as they are
+        return hasDigit;
+    }
+
+    // ==================== SESSIONS ====================
+
+    public void sessionConnected(String sessionId) {
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new SessionInfo());
+        }
+    }
+
+    public void sessionClosed(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        SessionInfo session = sessions.remove(sessionId);
+        if (session != null) {
+            for (String destination : session.subscriptions.values()) {
+                releaseSubscription(destination);
+            }
+        }
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        SessionInfo session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null || subscriptionId == null) {
+            return;
+        }
+        String key = normalize(destination);
+        if (session.subscriptions.put(subscriptionId, key) == null) {
+            activeSubscriptions.incrementAndGet();
+            subscriptionsByDestination.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        SessionInfo session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null || subscriptionId == null) {
+            return;
+        }
+        String destination = session.subscriptions.remove(subscriptionId);
+        if (destination != null) {
+            releaseSubscription(destination);
+        }
+    }
+
+    private void releaseSubscription(String destination) {
+        activeSubscriptions.decrementAndGet();
+        AtomicInteger count = subscriptionsByDestination.get(destination);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    public void connectRejected() {
+        rejectedConnects.increment();
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    // ==================== SNAPSHOT ====================
+
+    public Map<String, Object> getSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("activeSessions", sessions.size());
+        snapshot.put("activeSubscriptions", activeSubscriptions.get());
+        snapshot.put("rejectedConnects", rejectedConnects.sum());
+
+        Map<String, Integer> subscriptions = new TreeMap<>();
+        subscriptionsByDestination.forEach((destination, count) -> {
+            if (count.get() > 0) {
+                subscriptions.put(destination, count.get());
+            }
+        });
+        snapshot.put("subscriptionsByDestination", subscriptions);
+        snapshot.put("inbound", toMap(inbound));
+        snapshot.put("outbound", toMap(outbound));
+        return snapshot;
+    }
+
+    private static Map<String, Object> toMap(ConcurrentHashMap<String, ConcurrentHashMap<String, FrameStats>> direction) {
+        Map<String, Object> commands = new TreeMap<>();
+        direction.forEach((command, byDestination) -> {
+            Map<String, Object> destinations = new TreeMap<>();
+            byDestination.forEach((destination, stats) -> destinations.put(destination, stats.toMap()));
+            commands.put(command, destinations);
+        });
+        return commands;
+    }
+
+    /**
+     * Per command + destination counters
+     */
+    public static class FrameStats {
+        private final LongAdder frames = new LongAdder();
+        private final LongAdder payloadBytes = new LongAdder();
+        private final LatencyHistogram handling = new LatencyHistogram();
+
+        public void recordFrame(int bytes) {
+            frames.increment();
+            payloadBytes.add(bytes);
+        }
+
+        public void recordHandling(long nanos) {
+            handling.record(nanos);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("frames", frames.sum());
+            map.put("payloadBytes", payloadBytes.sum());
+            if (handling.getCount() > 0) {
+                map.put("handling", handling.toMap());
+            }
+            return map;
+        }
+    }
+
+    private static class SessionInfo {
+        // subscription id -> normalized destination
+        final ConcurrentHashMap<String, String> subscriptions = new ConcurrentHashMap<>();
+    }
+}
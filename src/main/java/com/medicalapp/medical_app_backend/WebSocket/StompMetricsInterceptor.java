@@ -0,0 +1,119 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every STOMP frame on the client inbound or outbound channel into
+ * StompMetrics: frame/byte counts per command and destination, handler latency,
+ * and session/subscription lifecycle.
+ *
+ * Headers are read with the static accessor getters (no accessor instance is
+ * created), and the optional trace log is sampled: with trace-sample-every = 0
+ * the tracing path is a single int comparison.
+ */
+public class StompMetricsInterceptor implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompMetricsInterceptor.class);
+
+    // Same key as StompHeaderAccessor.COMMAND_HEADER, which is private
+    private static final String STOMP_COMMAND_HEADER = "stompCommand";
+
+    private static final ThreadLocal<long[]> HANDLE_START = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final StompMetrics metrics;
+    private final boolean inbound;
+    private final int traceSampleEvery;
+    private final AtomicLong traceCounter = new AtomicLong();
+
+    public StompMetricsInterceptor(StompMetrics metrics, boolean inbound, int traceSampleEvery) {
+        this.metrics = metrics;
+        this.inbound = inbound;
+        this.traceSampleEvery = traceSampleEvery;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String command = commandOf(headers);
+        String destination = destinationOf(headers);
+        int bytes = message.getPayload() instanceof byte[] payload ? payload.length : 0;
+
+        (inbound ? metrics.inbound(command, destination) : metrics.outbound(command, destination)).recordFrame(bytes);
+
+        if (inbound) {
+            trackLifecycle(headers);
+        }
+        if (traceSampleEvery > 0) {
+            trace(command, destination, headers, bytes);
+        }
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        HANDLE_START.get()[0] = System.nanoTime();
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        long elapsed = System.nanoTime() - HANDLE_START.get()[0];
+        MessageHeaders headers = message.getHeaders();
+        String command = commandOf(headers);
+        String destination = destinationOf(headers);
+        (inbound ? metrics.inbound(command, destination) : metrics.outbound(command, destination)).recordHandling(elapsed);
+    }
+
+    private void trackLifecycle(MessageHeaders headers) {
+        if (!(headers.get(STOMP_COMMAND_HEADER) instanceof StompCommand command)) {
+            return;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        switch (command) {
+            case CONNECT, STOMP -> metrics.sessionConnected(sessionId);
+            case SUBSCRIBE -> metrics.subscribed(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(headers),
+                SimpMessageHeaderAccessor.getDestination(headers));
+            case UNSUBSCRIBE -> metrics.unsubscribed(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(headers));
+            case DISCONNECT -> metrics.sessionClosed(sessionId);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Outbound user messages carry the resolved /queue/x-user{session}; count them
+     * under what the client subscribed to (/user/queue/x), one key for all sessions.
+     */
+    private static String destinationOf(MessageHeaders headers) {
+        Object original = headers.get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        return original instanceof String value ? value : SimpMessageHeaderAccessor.getDestination(headers);
+    }
+
+    private static String commandOf(MessageHeaders headers) {
+        if (headers.get(STOMP_COMMAND_HEADER) instanceof StompCommand command) {
+            return command.name();
+        }
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        return type != null ? type.name() : "UNKNOWN";
+    }
+
+    private void trace(String command, String destination, MessageHeaders headers, int bytes) {
+        if (traceCounter.incrementAndGet() % traceSampleEvery != 0 || !logger.isDebugEnabled()) {
+            return;
+        }
+        // Payloads can contain patient data, so only their size is traced
+        logger.debug("STOMP {} {} {} session={} bytes={}", inbound ? "IN" : "OUT", command, destination,
+            SimpMessageHeaderAccessor.getSessionId(headers), bytes);
+    }
+}
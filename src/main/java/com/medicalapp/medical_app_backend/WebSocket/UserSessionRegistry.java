@@ -0,0 +1,181 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Which users are connected right now, through which STOMP sessions, and which
+ * notification destination each session subscribed to. Fed by WebSocketEventListener.
+ * SSE notification streams are registered here too, so presence covers both.
+ * Presence listeners hear when a user's first session opens or last one closes.
+ */
+@Component
+public class UserSessionRegistry {
+
+    public static final String QUEUE_NOTIFICATIONS = "/queue/notifications";
+    public static final String TOPIC_NOTIFICATIONS = "/topic/notifications";
+
+    private final ConcurrentHashMap<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    // (userId, online) on a user's first session opening / last session closing
+    private final List<BiConsumer<Long, Boolean>> presenceListeners = new CopyOnWriteArrayList<>();
+
+    public void register(String sessionId, Long userId, String username) {
+        if (sessionId == null || userId == null) {
+            return;
+        }
+        sessions.put(sessionId, new SessionEntry(userId, username, true));
+        addSession(userId, sessionId);
+    }
+
+    /**
+     * An SSE stream: counts as online, but is not a STOMP destination
+     */
+    public void registerStream(String streamId, Long userId, String username) {
+        sessions.put(streamId, new SessionEntry(userId, username, false));
+        addSession(userId, streamId);
+    }
+
+    public void remove(String sessionId) {
+        SessionEntry entry = sessionId == null ? null : sessions.remove(sessionId);
+        if (entry == null) {
+            return;
+        }
+        boolean[] wentOffline = new boolean[1];
+        sessionsByUser.computeIfPresent(entry.userId, (id, userSessions) -> {
+            userSessions.remove(sessionId);
+            wentOffline[0] = userSessions.isEmpty();
+            return wentOffline[0] ? null : userSessions;
+        });
+        if (wentOffline[0]) {
+            notifyPresence(entry.userId, false);
+        }
+    }
+
+    public void addPresenceListener(BiConsumer<Long, Boolean> listener) {
+        presenceListeners.add(listener);
+    }
+
+    private void addSession(Long userId, String sessionId) {
+        boolean[] cameOnline = new boolean[1];
+        sessionsByUser.compute(userId, (id, userSessions) -> {
+            if (userSessions == null) {
+                userSessions = ConcurrentHashMap.newKeySet();
+                cameOnline[0] = true;
+            }
+            userSessions.add(sessionId);
+            return userSessions;
+        });
+        if (cameOnline[0]) {
+            notifyPresence(userId, true);
+        }
+    }
+
+    private void notifyPresence(Long userId, boolean online) {
+        for (BiConsumer<Long, Boolean> listener : presenceListeners) {
+            try {
+                listener.accept(userId, online);
+            } catch (Exception e) {
+                // A listener must not break session bookkeeping
+            }
+        }
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        SessionEntry entry = sessionId == null ? null : sessions.get(sessionId);
+        if (entry != null && subscriptionId != null && destination != null) {
+            entry.subscriptions.put(subscriptionId, destination);
+        }
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        SessionEntry entry = sessionId == null ? null : sessions.get(sessionId);
+        if (entry != null && subscriptionId != null) {
+            entry.subscriptions.remove(subscriptionId);
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        return userId != null && sessionsByUser.containsKey(userId);
+    }
+
+    public Long getUserId(String sessionId) {
+        SessionEntry entry = sessionId == null ? null : sessions.get(sessionId);
+        return entry != null ? entry.userId : null;
+    }
+
+    /**
+     * Principal name to use with convertAndSendToUser, or null when the user has no STOMP session
+     */
+    public String getUsername(Long userId) {
+        Set<String> userSessions = userId == null ? null : sessionsByUser.get(userId);
+        if (userSessions == null) {
+            return null;
+        }
+        for (String sessionId : userSessions) {
+            SessionEntry entry = sessions.get(sessionId);
+            if (entry != null && entry.stomp) {
+                return entry.username;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The notification destination the user's clients actually listen on. Older
+     * clients subscribe to the topic variant only; everyone else gets the queue.
+     */
+    public String getNotificationDestination(Long userId) {
+        Set<String> userSessions = sessionsByUser.get(userId);
+        boolean topicOnly = false;
+        if (userSessions != null) {
+            for (String sessionId : userSessions) {
+                SessionEntry entry = sessions.get(sessionId);
+                if (entry == null) {
+                    continue;
+                }
+                for (String destination : entry.subscriptions.values()) {
+                    if (destination.endsWith(QUEUE_NOTIFICATIONS)) {
+                        return QUEUE_NOTIFICATIONS;
+                    }
+                    if (destination.endsWith(TOPIC_NOTIFICATIONS)) {
+                        topicOnly = true;
+                    }
+                }
+            }
+        }
+        return topicOnly ? TOPIC_NOTIFICATIONS : QUEUE_NOTIFICATIONS;
+    }
+
+    public Set<Long> getOnlineUserIds() {
+        return Set.copyOf(sessionsByUser.keySet());
+    }
+
+    public int getOnlineUserCount() {
+        return sessionsByUser.size();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private static class SessionEntry {
+        final Long userId;
+        final String username;
+        final boolean stomp;
+        // subscription id -> destination
+        final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+        SessionEntry(Long userId, String username, boolean stomp) {
+            this.userId = userId;
+            this.username = username;
+            this.stomp = stomp;
+        }
+    }
+}
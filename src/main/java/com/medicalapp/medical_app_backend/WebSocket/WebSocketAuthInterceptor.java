@@ -34,7 +34,7 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
             if (request instanceof ServletServerHttpRequest servletRequest) {
                 HttpServletRequest httpRequest = servletRequest.getServletRequest();
                 URI uri = request.getURI();
-                logger.info("🔥 Handshake interceptor triggered for request: {}", uri);
+                logger.debug("Handshake interceptor triggered for request: {}", uri.getPath());
 
                 // Extract token and userId from query parameters
                 String query = uri.getQuery();
@@ -63,7 +63,7 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
                     return false;
                 }
 
-                logger.info("✅ Handshake authorized for user: {} (userId={})", username, userId);
+                logger.debug("Handshake authorized for user: {} (userId={})", username, userId);
                 attributes.put("username", username);
                 attributes.put("userId", userId);
 
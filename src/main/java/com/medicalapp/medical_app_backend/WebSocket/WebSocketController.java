@@ -2,10 +2,12 @@ package com.medicalapp.medical_app_backend.websocket;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
@@ -17,6 +19,12 @@ public class WebSocketController {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketController.class);
 
+    @Autowired
+    private NotificationDeliveryRouter deliveryRouter;
+
+    @Autowired
+    private UserSessionRegistry sessionRegistry;
+
     /**
      * ✅ Handle ping messages from client for health checks.
      * Clients send to: /app/ping
@@ -60,6 +68,31 @@ public class WebSocketController {
         return response;
     }
 
+    /**
+     * ✅ Replay messages missed while offline.
+     * Clients send {"lastSeq": n, "epoch": "..."} to: /app/notifications/replay
+     * Server responds to: /user/queue/notifications/replay
+     */
+    @MessageMapping("/notifications/replay")
+    @SendToUser("/queue/notifications/replay")
+    public Map<String, Object> handleReplay(Map<String, Object> request, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = sessionRegistry.getUserId(headerAccessor.getSessionId());
+        if (userId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Session is not linked to a user");
+            return response;
+        }
+
+        long lastSeq = request.get("lastSeq") instanceof Number n ? n.longValue() : 0;
+        String epoch = request.get("epoch") != null ? request.get("epoch").toString() : null;
+        logger.debug("Replay requested by user {} after #{} (epoch {})", userId, lastSeq, epoch);
+
+        Map<String, Object> response = deliveryRouter.replay(userId, lastSeq, epoch);
+        response.put("success", true);
+        return response;
+    }
+
     /**
      * Optional: Handle echo/test messages for debugging.
      * Clients can send JSON to /app/echo and receive the same payload back.
@@ -1,12 +1,18 @@
 package com.medicalapp.medical_app_backend.websocket;
 
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.Principal;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -16,23 +22,53 @@ public class WebSocketEventListener {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketEventListener.class);
     private static final Set<String> connectedUsers = new CopyOnWriteArraySet<>();
     
+    @Autowired
+    private StompMetrics stompMetrics;
+    
+    @Autowired
+    private UserSessionRegistry sessionRegistry;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
         String sessionId = event.getMessage().getHeaders().get("simpSessionId").toString();
         connectedUsers.add(sessionId);
-        logger.info("✅ WebSocket client connected: {}", sessionId);
-        logger.info("   Total connected users: {}", connectedUsers.size());
+        
+        // The principal is the JWT username set at CONNECT; resolve the id from it
+        // rather than trusting the userId query parameter
+        Principal user = event.getUser();
+        if (user != null) {
+            userRepository.findByUsername(user.getName())
+                .ifPresent(u -> sessionRegistry.register(sessionId, u.getId(), user.getName()));
+        }
+        logger.debug("WebSocket client connected: {} ({} connected)", sessionId, connectedUsers.size());
+    }
+    
+    @EventListener
+    public void handleSubscribeListener(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        sessionRegistry.subscribed(accessor.getSessionId(), accessor.getSubscriptionId(), accessor.getDestination());
+    }
+    
+    @EventListener
+    public void handleUnsubscribeListener(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        sessionRegistry.unsubscribed(accessor.getSessionId(), accessor.getSubscriptionId());
     }
     
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
         String sessionId = event.getMessage().getHeaders().get("simpSessionId").toString();
         connectedUsers.remove(sessionId);
-        logger.info("❌ WebSocket client disconnected: {}", sessionId);
-        logger.info("   Total connected users: {}", connectedUsers.size());
+        // Covers dropped connections that never sent a DISCONNECT frame
+        stompMetrics.sessionClosed(sessionId);
+        sessionRegistry.remove(sessionId);
+        logger.debug("WebSocket client disconnected: {} ({} connected)", sessionId, connectedUsers.size());
     }
     
     public int getConnectedUsersCount() {
         return connectedUsers.size();
     }
-}
\ No newline at end of file
+}
@@ -3,10 +3,10 @@ package com.medicalapp.medical_app_backend.websocket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,23 +20,36 @@ public class WebSocketNotificationService {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketNotificationService.class);
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private NotificationDeliveryRouter deliveryRouter;
 
     /**
-     * Send a structured WebSocket payload to a specific destination.
+     * Send a structured WebSocket payload to a shared destination, on every node.
      */
     private void sendToDestination(String destination, Map<String, Object> payload) {
         try {
-            messagingTemplate.convertAndSend(destination, payload);
+            deliveryRouter.broadcast(destination, payload);
             logger.info("📨 Sent to [{}]: {}", destination, payload);
         } catch (Exception e) {
             logger.error("❌ Failed to send WebSocket message to [{}]: {}", destination, e.getMessage(), e);
         }
     }
 
+    /**
+     * Per-user messages go through the router: sent once if the user is online,
+     * otherwise kept for replay.
+     */
+    private void sendToUser(Long userId, String destination, Map<String, Object> payload) {
+        try {
+            deliveryRouter.deliver(userId, destination, payload);
+            logger.debug("📨 Routed to user {} [{}]", userId, destination != null ? destination : "notifications");
+        } catch (Exception e) {
+            logger.error("❌ Failed to route WebSocket message to user {}: {}", userId, e.getMessage(), e);
+        }
+    }
+
     /**
      * ✅ Send notification to a specific user.
-     * Sends to: /user/{userId}/topic/notifications
+     * Sends to: the user's notification stream (/user/queue/notifications or /user/topic/notifications)
      */
     public void notifyUser(Long userId, String title, String message, String type) {
         Map<String, Object> payload = new HashMap<>();
@@ -46,7 +59,27 @@ public class WebSocketNotificationService {
         payload.put("message", message);
         payload.put("timestamp", LocalDateTime.now());
 
-        sendToDestination("/user/" + userId + "/topic/notifications", payload);
+        sendToUser(userId, null, payload);
+    }
+
+    /**
+     * ✅ Send the same notification to many users.
+     * The payload is encoded once and shared by every recipient.
+     */
+    public void notifyUsers(Collection<Long> userIds, String title, String message, String type) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("event", "user_notification");
+        payload.put("type", type);
+        payload.put("title", title);
+        payload.put("message", message);
+        payload.put("timestamp", LocalDateTime.now());
+
+        try {
+            int live = deliveryRouter.deliverToUsers(userIds, null, payload);
+            logger.info("📨 Fan-out to {} users ({} online)", userIds.size(), live);
+        } catch (Exception e) {
+            logger.error("❌ Failed to fan out WebSocket notification: {}", e.getMessage(), e);
+        }
     }
 
     /**
@@ -66,7 +99,7 @@ public class WebSocketNotificationService {
 
     /**
      * ✅ Notify a patient that a new test result is available.
-     * Sends to: /user/{patientId}/topic/results
+     * Sends to: /user/topic/results
      */
     public void notifyNewTestResult(Long patientId, Map<String, Object> resultData) {
         Map<String, Object> payload = new HashMap<>();
@@ -75,12 +108,12 @@ public class WebSocketNotificationService {
         payload.put("message", "Your " + resultData.getOrDefault("testName", "medical test") + " results are ready.");
         payload.put("timestamp", LocalDateTime.now());
 
-        sendToDestination("/user/" + patientId + "/topic/results", payload);
+        sendToUser(patientId, "/topic/results", payload);
     }
 
     /**
      * ✅ Notify a patient of a new appointment.
-     * Sends to: /user/{patientId}/topic/appointments
+     * Sends to: /user/topic/appointments
      */
     public void notifyNewAppointment(Long patientId, Map<String, Object> appointmentData) {
         Map<String, Object> payload = new HashMap<>();
@@ -89,12 +122,12 @@ public class WebSocketNotificationService {
         payload.put("message", "You have a new appointment scheduled.");
         payload.put("timestamp", LocalDateTime.now());
 
-        sendToDestination("/user/" + patientId + "/topic/appointments", payload);
+        sendToUser(patientId, "/topic/appointments", payload);
     }
 
     /**
      * ✅ Notify a patient when their appointment status changes.
-     * Sends to: /user/{patientId}/topic/appointments
+     * Sends to: /user/topic/appointments
      */
     public void notifyAppointmentStatusChange(Long patientId, String status, String appointmentId) {
         Map<String, Object> payload = new HashMap<>();
@@ -104,7 +137,7 @@ public class WebSocketNotificationService {
         payload.put("message", "Your appointment status has been updated to: " + status);
         payload.put("timestamp", LocalDateTime.now());
 
-        sendToDestination("/user/" + patientId + "/topic/appointments", payload);
+        sendToUser(patientId, "/topic/appointments", payload);
     }
 
     /**
@@ -116,6 +149,6 @@ public class WebSocketNotificationService {
         payload.put("data", data);
         payload.put("timestamp", LocalDateTime.now());
 
-        sendToDestination("/user/" + userId + "/topic/notifications", payload);
+        sendToUser(userId, null, payload);
     }
 }
@@ -0,0 +1,35 @@
+package com.medicalapp.medical_app_backend.websocket.cluster;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Transport between application nodes for WebSocket traffic, plus the shared
+ * record of which node each connected user's socket lives on. Selected with
+ * app.websocket.cluster.relay.
+ */
+public interface ClusterRelay {
+
+    String getName();
+
+    /**
+     * Begin receiving messages addressed to nodeId (or to every node)
+     */
+    void start(String nodeId, Consumer<RelayEnvelope> inbound);
+
+    void publish(RelayEnvelope envelope);
+
+    /**
+     * Heartbeat: the full set of users connected to this node right now
+     */
+    void updatePresence(Set<Long> localUserIds);
+
+    /**
+     * userId -> node for users connected to other nodes that heartbeated after cutoff
+     */
+    Map<Long, String> loadRemoteOwners(LocalDateTime cutoff);
+
+    void stop();
+}
@@ -0,0 +1,196 @@
+package com.medicalapp.medical_app_backend.websocket.cluster;
+
+import com.medicalapp.medical_app_backend.websocket.UserSessionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Picks the configured ClusterRelay, gives this process a node id and keeps the
+ * shared presence table and the local copy of "which node owns which user" fresh.
+ *
+ * With the default "local" relay every call is a no-op and the app behaves as a
+ * single node.
+ */
+@Component
+public class ClusterRelayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterRelayService.class);
+
+    @Autowired
+    private List<ClusterRelay> relays;
+
+    @Autowired
+    private UserSessionRegistry sessionRegistry;
+
+    @Value("${app.websocket.cluster.relay:local}")
+    private String relayName;
+
+    @Value("${app.websocket.cluster.node-id:}")
+    private String configuredNodeId;
+
+    // A node that has not heartbeated for this long is treated as gone
+    @Value("${app.websocket.cluster.presence-ttl-ms:20000}")
+    private long presenceTtlMs;
+
+    private ClusterRelay relay;
+    private String nodeId;
+    private volatile Consumer<RelayEnvelope> inboundHandler;
+    private volatile Map<Long, String> remoteOwners = Map.of();
+    private final List<BiConsumer<Long, Boolean>> presenceListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        relay = relays.stream()
+            .filter(r -> r.getName().equalsIgnoreCase(relayName))
+            .findFirst()
+            .orElseGet(() -> {
+                logger.warn("⚠️ Unknown WebSocket cluster relay '{}', running single-node", relayName);
+                return relays.stream().filter(r -> "local".equals(r.getName())).findFirst().orElseThrow();
+            });
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank() ? configuredNodeId : defaultNodeId();
+
+        relay.start(nodeId, this::onInbound);
+        logger.info("✅ WebSocket cluster relay '{}' started as node {}", relay.getName(), nodeId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.stop();
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        // Suffix keeps two instances on one host apart
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Where messages arriving from other nodes are handed over
+     */
+    public void setInboundHandler(Consumer<RelayEnvelope> handler) {
+        this.inboundHandler = handler;
+    }
+
+    private void onInbound(RelayEnvelope envelope) {
+        Consumer<RelayEnvelope> handler = inboundHandler;
+        if (handler == null) {
+            dropped.increment();
+            return;
+        }
+        received.increment();
+        handler.accept(envelope);
+    }
+
+    public boolean isClustered() {
+        return !"local".equals(relay.getName());
+    }
+
+    /**
+     * Node currently holding a socket for the user, or null if none (or it is this node)
+     */
+    public String findOwner(Long userId) {
+        return remoteOwners.get(userId);
+    }
+
+    /**
+     * Users connected to other nodes, as of the last heartbeat
+     */
+    public Set<Long> getRemoteUserIds() {
+        return Collections.unmodifiableSet(remoteOwners.keySet());
+    }
+
+    /**
+     * Called with (userId, true) when a user shows up on another node and
+     * (userId, false) when they no longer are on any other node; noticed on the heartbeat
+     */
+    public void addPresenceListener(BiConsumer<Long, Boolean> listener) {
+        presenceListeners.add(listener);
+    }
+
+    public void publish(RelayEnvelope envelope) {
+        if (!isClustered()) {
+            return;
+        }
+        relay.publish(envelope);
+        published.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.cluster.heartbeat-ms:5000}")
+    public void heartbeat() {
+        if (!isClustered()) {
+            return;
+        }
+        try {
+            relay.updatePresence(sessionRegistry.getOnlineUserIds());
+            Map<Long, String> previous = remoteOwners;
+            remoteOwners = relay.loadRemoteOwners(LocalDateTime.now().minusNanos(presenceTtlMs * 1_000_000));
+            if (!presenceListeners.isEmpty()) {
+                notifyPresence(previous, remoteOwners);
+            }
+        } catch (Exception e) {
+            logger.warn("WebSocket cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void notifyPresence(Map<Long, String> previous, Map<Long, String> current) {
+        for (Long userId : current.keySet()) {
+            if (!previous.containsKey(userId)) {
+                notifyPresence(userId, true);
+            }
+        }
+        for (Long userId : previous.keySet()) {
+            if (!current.containsKey(userId)) {
+                notifyPresence(userId, false);
+            }
+        }
+    }
+
+    private void notifyPresence(Long userId, boolean online) {
+        for (BiConsumer<Long, Boolean> listener : presenceListeners) {
+            try {
+                listener.accept(userId, online);
+            } catch (Exception e) {
+                logger.warn("Cluster presence listener failed for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("relay", relay.getName());
+        stats.put("nodeId", nodeId);
+        stats.put("remoteUsers", remoteOwners.size());
+        stats.put("published", published.sum());
+        stats.put("received", received.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,211 @@
+package com.medicalapp.medical_app_backend.websocket.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medicalapp.medical_app_backend.entity.WsPresence;
+import com.medicalapp.medical_app_backend.entity.WsRelayMessage;
+import com.medicalapp.medical_app_backend.repository.WsPresenceRepository;
+import com.medicalapp.medical_app_backend.repository.WsRelayMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Relay through the shared MySQL database, so a multi-node deployment needs no
+ * extra infrastructure. Messages are rows in ws_relay_messages that every node
+ * polls for; presence is ws_presence.
+ *
+ * The poll pages through rows by id after the highest id it has seen, so a
+ * burst larger than one page is drained and no node's clock is involved. Rows
+ * whose transaction committed after a higher id was already read fall below
+ * that cursor; a second query re-reads the last few seconds below it (by
+ * created_at) to catch them, de-duplicated by id.
+ */
+@Component
+public class JdbcClusterRelay implements ClusterRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcClusterRelay.class);
+
+    private static final int SEEN_IDS_LIMIT = 10_000;
+    private static final long PRUNE_INTERVAL_MS = 60_000;
+
+    @Autowired
+    private WsRelayMessageRepository messageRepository;
+
+    @Autowired
+    private WsPresenceRepository presenceRepository;
+
+    @Value("${app.websocket.cluster.jdbc.poll-ms:100}")
+    private long pollMs;
+
+    @Value("${app.websocket.cluster.jdbc.lookback-ms:2000}")
+    private long lookbackMs;
+
+    @Value("${app.websocket.cluster.jdbc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.websocket.cluster.jdbc.retention-minutes:5}")
+    private int retentionMinutes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private ScheduledExecutorService poller;
+    private String nodeId;
+    private Consumer<RelayEnvelope> inbound;
+
+    // Only touched from the poller thread
+    private long lastSeenId;
+    private long lastPruneMillis;
+    private final Map<Long, Boolean> seenIds = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > SEEN_IDS_LIMIT;
+        }
+    };
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<RelayEnvelope> inbound) {
+        this.nodeId = nodeId;
+        this.inbound = inbound;
+        this.lastSeenId = messageRepository.findMaxId();
+
+        // Rows left behind by a previous run under the same node id are stale
+        presenceRepository.deleteByNodeId(nodeId);
+
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ws-relay-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void publish(RelayEnvelope envelope) {
+        try {
+            String json = envelope.json() != null ? envelope.json() : objectMapper.writeValueAsString(envelope.payload());
+            messageRepository.save(new WsRelayMessage(
+                nodeId, envelope.targetNode(), envelope.userId(), envelope.destination(), json));
+        } catch (Exception e) {
+            logger.error("❌ Failed to publish relay message to {}: {}",
+                envelope.targetNode() != null ? envelope.targetNode() : "all nodes", e.getMessage());
+        }
+    }
+
+    private void poll() {
+        try {
+            // New rows, page by page until a short page
+            List<WsRelayMessage> page;
+            do {
+                page = messageRepository.findInboundAfter(nodeId, lastSeenId, PageRequest.of(0, batchSize));
+                for (WsRelayMessage message : page) {
+                    lastSeenId = Math.max(lastSeenId, message.getId());
+                    accept(message);
+                }
+            } while (page.size() == batchSize);
+
+            // Rows that committed late, below the cursor
+            LocalDateTime since = LocalDateTime.now().minusNanos(lookbackMs * 1_000_000);
+            for (WsRelayMessage message : messageRepository.findInboundUpTo(
+                    nodeId, lastSeenId, since, PageRequest.of(0, batchSize))) {
+                accept(message);
+            }
+
+            if (System.currentTimeMillis() - lastPruneMillis > PRUNE_INTERVAL_MS) {
+                lastPruneMillis = System.currentTimeMillis();
+                messageRepository.deleteOlderThan(LocalDateTime.now().minusMinutes(retentionMinutes));
+            }
+        } catch (Exception e) {
+            logger.warn("WebSocket relay poll failed: {}", e.getMessage());
+        }
+    }
+
+    private void accept(WsRelayMessage message) {
+        if (seenIds.put(message.getId(), Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            Map<String, Object> payload = objectMapper.readValue(message.getPayload(), new TypeReference<>() {});
+            inbound.accept(new RelayEnvelope(message.getTargetNode(), message.getUserId(),
+                message.getDestination(), payload, message.getPayload()));
+        } catch (Exception e) {
+            logger.warn("Skipping unreadable relay message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void updatePresence(Set<Long> localUserIds) {
+        List<Long> recorded = presenceRepository.findUserIdsByNodeId(nodeId);
+
+        List<Long> gone = new ArrayList<>();
+        for (Long userId : recorded) {
+            if (!localUserIds.contains(userId)) {
+                gone.add(userId);
+            }
+        }
+        if (!gone.isEmpty()) {
+            presenceRepository.deleteByNodeIdAndUserIdIn(nodeId, gone);
+        }
+        presenceRepository.touchNode(nodeId, LocalDateTime.now());
+
+        Set<Long> known = new HashSet<>(recorded);
+        List<WsPresence> added = new ArrayList<>();
+        for (Long userId : localUserIds) {
+            if (!known.contains(userId)) {
+                added.add(new WsPresence(userId, nodeId));
+            }
+        }
+        if (!added.isEmpty()) {
+            presenceRepository.saveAll(added);
+        }
+    }
+
+    @Override
+    public Map<Long, String> loadRemoteOwners(LocalDateTime cutoff) {
+        // Rows of nodes that stopped heartbeating are cleaned up by whichever node sees them first
+        presenceRepository.deleteStale(cutoff);
+
+        Map<Long, String> owners = new HashMap<>();
+        for (Object[] row : presenceRepository.findRemoteOwners(nodeId, cutoff)) {
+            owners.put((Long) row[0], (String) row[1]);
+        }
+        return owners;
+    }
+
+    @Override
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        try {
+            presenceRepository.deleteByNodeId(nodeId);
+        } catch (Exception e) {
+            logger.warn("Could not clear presence for node {}: {}", nodeId, e.getMessage());
+        }
+    }
+}
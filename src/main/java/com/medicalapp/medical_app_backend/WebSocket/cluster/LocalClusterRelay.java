@@ -0,0 +1,41 @@
+package com.medicalapp.medical_app_backend.websocket.cluster;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Single-node default: nothing leaves the process.
+ */
+@Component
+public class LocalClusterRelay implements ClusterRelay {
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<RelayEnvelope> inbound) {
+    }
+
+    @Override
+    public void publish(RelayEnvelope envelope) {
+    }
+
+    @Override
+    public void updatePresence(Set<Long> localUserIds) {
+    }
+
+    @Override
+    public Map<Long, String> loadRemoteOwners(LocalDateTime cutoff) {
+        return Map.of();
+    }
+
+    @Override
+    public void stop() {
+    }
+}
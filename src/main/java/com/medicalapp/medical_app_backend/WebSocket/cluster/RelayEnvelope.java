@@ -0,0 +1,24 @@
+package com.medicalapp.medical_app_backend.websocket.cluster;
+
+import java.util.Map;
+
+/**
+ * A message crossing nodes. userId == null means a plain broadcast to destination;
+ * otherwise it is a user message and destination == null means the user's
+ * notification stream. targetNode == null means every node.
+ *
+ * json is the payload already encoded, when the sender has it; relays reuse it
+ * instead of serializing the map again.
+ */
+public record RelayEnvelope(String targetNode, Long userId, String destination, Map<String, Object> payload,
+                            String json) {
+
+    public static RelayEnvelope toUser(String node, Long userId, String destination, Map<String, Object> payload,
+                                       String json) {
+        return new RelayEnvelope(node, userId, destination, payload, json);
+    }
+
+    public static RelayEnvelope broadcast(String destination, Map<String, Object> payload, String json) {
+        return new RelayEnvelope(null, null, destination, payload, json);
+    }
+}
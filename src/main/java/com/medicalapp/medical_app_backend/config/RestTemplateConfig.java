@@ -1,14 +1,26 @@
 package com.medicalapp.medical_app_backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
     
+    @Value("${app.http.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+    
+    @Value("${app.http.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+    
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        // Without timeouts a hung third-party call holds the request thread indefinitely
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
     }
-}
\ No newline at end of file
+}
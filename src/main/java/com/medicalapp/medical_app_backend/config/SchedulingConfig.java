@@ -0,0 +1,35 @@
+package com.medicalapp.medical_app_backend.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Enables @Scheduled background jobs (rule counter flushes, reminder sweeps, etc.)
+ *
+ * The app uses lazy initialization, so a bean nothing injects would never be
+ * created and its jobs and startup listeners would never run. Our beans with
+ * @Scheduled or @EventListener methods are therefore created at startup.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter scheduledAndListenerBeans() {
+        return (beanName, beanDefinition, beanType) -> {
+            Class<?> type = ClassUtils.getUserClass(beanType);
+            return type.getName().startsWith("com.medicalapp.")
+                && !MethodIntrospector.selectMethods(type, (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                    AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                        || AnnotatedElementUtils.hasAnnotation(method, EventListener.class) ? Boolean.TRUE : null)
+                    .isEmpty();
+        };
+    }
+}
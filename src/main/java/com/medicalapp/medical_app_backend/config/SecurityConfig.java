@@ -1,5 +1,6 @@
 package com.medicalapp.medical_app_backend.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -123,6 +124,10 @@ public class SecurityConfig {
                 // ✅ OPTIONS preflight requests - MUST come FIRST
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 
+                // ✅ Async re-dispatch of an already authorized request (SSE streams);
+                // the stateless context is gone by then, so it must not be re-checked
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // ✅ Auth endpoints
                 .requestMatchers(HttpMethod.POST, "/api/auth/login").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/auth/signup").permitAll()
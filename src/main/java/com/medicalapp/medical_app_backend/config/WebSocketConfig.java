@@ -1,6 +1,17 @@
 package com.medicalapp.medical_app_backend.config;
 
 import com.medicalapp.medical_app_backend.config.JwtTokenUtil;
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.service.AgentInbox;
+import com.medicalapp.medical_app_backend.service.ResponseSlaService;
+import com.medicalapp.medical_app_backend.websocket.AgentTopicInterceptor;
+import com.medicalapp.medical_app_backend.websocket.OutboundFlowControl;
+import com.medicalapp.medical_app_backend.websocket.OutboundFlowControlInterceptor;
+import com.medicalapp.medical_app_backend.websocket.StompMetrics;
+import com.medicalapp.medical_app_backend.websocket.StompMetricsInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
@@ -16,42 +27,60 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Date;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
-    
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StompMetrics stompMetrics;
+
+    @Autowired
+    private OutboundFlowControl outboundFlowControl;
+
     @Value("${app.security.cors.allowed-origins}")
     private String allowedOrigins;
-    
+
+    // Log every Nth frame at DEBUG (0 = tracing off)
+    @Value("${app.websocket.trace-sample-every:0}")
+    private int traceSampleEvery;
+
+    // A session whose socket cannot take a frame within this time, or that has more
+    // than this many bytes buffered, is closed instead of holding up its sender
+    @Value("${app.websocket.outbound.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.outbound.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        System.out.println("\n========== CONFIGURING MESSAGE BROKER ==========");
-        
         config.enableSimpleBroker("/topic", "/queue");
-        System.out.println("✅ Simple broker enabled for: /topic, /queue");
-        
         config.setApplicationDestinationPrefixes("/app");
-        System.out.println("✅ Application destination prefix set: /app");
-        
         config.setUserDestinationPrefix("/user");
-        System.out.println("✅ User destination prefix set: /user");
-        
-        System.out.println("========== MESSAGE BROKER CONFIGURED ==========\n");
+
+        logger.info("✅ Message broker configured (broker: /topic, /queue; app: /app; user: /user)");
     }
 
     private HandshakeInterceptor createAuthInterceptor() {
@@ -62,62 +91,50 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     ServerHttpResponse response,
                     WebSocketHandler wsHandler,
                     Map<String, Object> attributes) throws Exception {
-                
-                System.out.println("\n========== WEBSOCKET HANDSHAKE ==========");
-                System.out.println("Request URI: " + request.getURI());
-                System.out.println("Origin: " + request.getHeaders().getOrigin());
-                
+
                 if (request instanceof ServletServerHttpRequest) {
                     ServletServerHttpRequest servletRequest = (ServletServerHttpRequest) request;
-                    
+
                     String token = servletRequest.getServletRequest().getParameter("token");
                     String userId = servletRequest.getServletRequest().getParameter("userId");
-                    
-                    System.out.println("🔑 Token from query: " + (token != null ? "Present" : "Missing"));
-                    System.out.println("👤 UserId from query: " + userId);
-                    
+
                     if (token != null) {
                         try {
                             String username = jwtTokenUtil.getUsernameFromToken(token);
-                            System.out.println("✅ Token validated for user: " + username);
-                            
+
                             attributes.put("token", token);
                             attributes.put("username", username);
-                            
+
                             if (userId != null) {
                                 attributes.put("userId", userId);
-                                System.out.println("✅ UserId stored: " + userId);
                             }
-                            
-                            System.out.println("========== HANDSHAKE SUCCESSFUL ==========\n");
+
+                            logger.debug("WebSocket handshake accepted for {} (userId={})", username, userId);
                             return true;
-                            
+
                         } catch (Exception e) {
-                            System.err.println("❌ Token validation failed: " + e.getMessage());
-                            e.printStackTrace();
+                            logger.warn("❌ WebSocket token validation failed: {}", e.getMessage());
                             return false;
                         }
                     } else {
-                        System.err.println("❌ No token provided in WebSocket URL");
+                        logger.warn("❌ No token provided in WebSocket URL (origin: {})", request.getHeaders().getOrigin());
                         return false;
                     }
                 }
-                
-                System.err.println("❌ Invalid request type");
+
+                logger.warn("❌ Invalid WebSocket handshake request type");
                 return false;
             }
-            
+
             @Override
             public void afterHandshake(
                     ServerHttpRequest request,
                     ServerHttpResponse response,
                     WebSocketHandler wsHandler,
                     Exception exception) {
-                
+
                 if (exception != null) {
-                    System.err.println("❌ Handshake failed: " + exception.getMessage());
-                } else {
-                    System.out.println("✅ WebSocket handshake completed successfully");
+                    logger.warn("❌ Handshake failed: {}", exception.getMessage());
                 }
             }
         };
@@ -125,140 +142,75 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        System.out.println("\n========== REGISTERING STOMP ENDPOINTS ==========");
-        System.out.println("🌐 Allowed origins: " + allowedOrigins);
-        
         String[] origins = allowedOrigins.split(",");
-        System.out.println("🌐 Parsed origins: " + Arrays.toString(origins));
-        
+
         // FIXED: Use setAllowedOriginPatterns instead of setAllowedOrigins
         // This allows wildcards (*) to work with credentials
-        
+
         // Register native WebSocket endpoint with CORS
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns(origins)  // Changed from setAllowedOrigins
                 .addInterceptors(createAuthInterceptor());
-        
-        System.out.println("✅ Native WebSocket endpoint registered: /ws");
-        
+
         // Register SockJS fallback endpoint with CORS
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns(origins)  // Changed from setAllowedOrigins
                 .addInterceptors(createAuthInterceptor())
                 .withSockJS();
-        
-        System.out.println("✅ SockJS fallback endpoint registered: /ws");
-        System.out.println("✅ WebSocket CORS configured with allowedOriginPatterns");
-        System.out.println("📋 Configured for origins: " + Arrays.toString(origins));
-        System.out.println("====================================================\n");
+
+        logger.info("✅ STOMP endpoint /ws registered (native + SockJS) for origins {}", Arrays.toString(origins));
     }
-    
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authentication, then agent-topic access; metrics only see frames that were let through
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
-                
-                System.out.println("\n🔵🔵🔵 INCOMING MESSAGE 🔵🔵🔵");
-                System.out.println("Timestamp: " + new Date());
-                System.out.println("Message Type: " + (message != null ? message.getClass().getSimpleName() : "null"));
-                
-                if (message != null && message.getPayload() != null) {
-                    System.out.println("Payload Type: " + message.getPayload().getClass().getSimpleName());
-                    String payload = String.valueOf(message.getPayload());
-                    System.out.println("Payload (first 200 chars): " + 
-                        payload.substring(0, Math.min(200, payload.length())));
-                }
-                
                 StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
-                
-                if (accessor != null) {
-                    StompCommand command = accessor.getCommand();
-                    
-                    System.out.println("📨 STOMP Command: " + command);
-                    System.out.println("Session ID: " + accessor.getSessionId());
-                    System.out.println("Subscription ID: " + accessor.getSubscriptionId());
-                    System.out.println("Destination: " + accessor.getDestination());
-                    System.out.println("Native Headers: " + accessor.toNativeHeaderMap());
-                    
-                    if (StompCommand.CONNECT.equals(command)) {
-                        System.out.println("\n========== STOMP CONNECT FRAME RECEIVED ==========");
-                        
-                        String username = null;
-                        String userId = null;
-                        
-                        if (accessor.getSessionAttributes() != null) {
-                            username = (String) accessor.getSessionAttributes().get("username");
-                            userId = (String) accessor.getSessionAttributes().get("userId");
-                            
-                            System.out.println("📦 Session attributes: " + accessor.getSessionAttributes().keySet());
-                            System.out.println("👤 Username from session: " + username);
-                            System.out.println("🆔 UserId from session: " + userId);
-                        } else {
-                            System.err.println("⚠️ No session attributes found!");
-                        }
-                        
-                        if (username != null) {
-                            UsernamePasswordAuthenticationToken authentication = 
-                                new UsernamePasswordAuthenticationToken(
-                                    username, 
-                                    null, 
-                                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
-                                );
-                            
-                            accessor.setUser(authentication);
-                            System.out.println("✅ User principal set: " + username);
-                            System.out.println("🔑 Session ID: " + accessor.getSessionId());
-                            System.out.println("========== STOMP CONNECTION AUTHENTICATED ==========\n");
-                            
-                        } else {
-                            System.err.println("❌ No username in session attributes - REJECTING CONNECTION");
-                            System.err.println("💡 This usually means the WebSocket session wasn't properly initialized");
-                            System.out.println("==========================================\n");
-                            return null;
-                        }
-                    }
-                    
-                    if (StompCommand.SUBSCRIBE.equals(command)) {
-                        String destination = accessor.getDestination();
-                        String username = accessor.getUser() != null ? accessor.getUser().getName() : "unknown";
-                        System.out.println("\n📬 ========== SUBSCRIBE ==========");
-                        System.out.println("User: " + username);
-                        System.out.println("Destination: " + destination);
-                        System.out.println("Subscription ID: " + accessor.getSubscriptionId());
-                        System.out.println("==================================\n");
-                    }
-                    
-                    if (StompCommand.SEND.equals(command)) {
-                        System.out.println("\n📤 ========== SEND ==========");
-                        System.out.println("Destination: " + accessor.getDestination());
-                        System.out.println("=============================\n");
-                    }
-                    
-                    if (StompCommand.DISCONNECT.equals(command)) {
-                        String username = accessor.getUser() != null ? accessor.getUser().getName() : "unknown";
-                        System.out.println("\n👋 ========== DISCONNECT ==========");
-                        System.out.println("User: " + username);
-                        System.out.println("===================================\n");
-                    }
-                    
-                } else {
-                    System.err.println("\n⚠️⚠️⚠️ NO STOMP HEADER ACCESSOR! ⚠️⚠️⚠️");
-                    System.err.println("This means the message is not a valid STOMP message");
-                    System.err.println("The STOMP protocol layer is not parsing the WebSocket frames");
-                    if (message != null) {
-                        System.err.println("Raw message class: " + message.getClass().getName());
-                        System.err.println("Headers: " + message.getHeaders());
+
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String username = accessor.getSessionAttributes() != null
+                        ? (String) accessor.getSessionAttributes().get("username")
+                        : null;
+
+                    if (username == null) {
+                        logger.warn("❌ STOMP CONNECT without an authenticated handshake - rejecting session {}",
+                            accessor.getSessionId());
+                        stompMetrics.connectRejected();
+                        return null;
                     }
-                    System.err.println("==========================================\n");
+
+                    // The user's role, so agent-only topics can be checked on SUBSCRIBE
+                    Collection<? extends GrantedAuthority> authorities = userRepository.findByUsername(username)
+                        .<Collection<? extends GrantedAuthority>>map(User::getAuthorities)
+                        .orElse(List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+                    UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(username, null, authorities);
+
+                    accessor.setUser(authentication);
+                    logger.debug("STOMP session {} authenticated as {}", accessor.getSessionId(), username);
                 }
-                
-                System.out.println("==========================================\n");
-                
+
                 return message;
             }
-        });
-        
-        System.out.println("✅ Client inbound channel interceptor configured with FULL LOGGING");
+        }, new AgentTopicInterceptor(List.of(AgentInbox.INBOX_TOPIC, ResponseSlaService.SLA_TOPIC)),
+            new StompMetricsInterceptor(stompMetrics, true, traceSampleEvery));
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .addDecoratorFactory(outboundFlowControl::decorate);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Flow control first so skipped frames never reach the metrics
+        registration.interceptors(
+            new OutboundFlowControlInterceptor(outboundFlowControl),
+            new StompMetricsInterceptor(stompMetrics, false, traceSampleEvery));
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,18 @@ package com.medicalapp.medical_app_backend.controller;
 
 import com.medicalapp.medical_app_backend.service.AdminService;
 import com.medicalapp.medical_app_backend.service.AppointmentService;
+import com.medicalapp.medical_app_backend.service.AutoNotificationRuleEngine;
 import com.medicalapp.medical_app_backend.service.AutoNotificationService;
+import com.medicalapp.medical_app_backend.service.DeferredDeliveryQueue;
+import com.medicalapp.medical_app_backend.service.ExpoPushClient;
 import com.medicalapp.medical_app_backend.service.NotificationService;
+import com.medicalapp.medical_app_backend.service.OutboundChannels;
+import com.medicalapp.medical_app_backend.service.PushReceiptService;
 import com.medicalapp.medical_app_backend.service.TestResultService;
+import com.medicalapp.medical_app_backend.service.sms.SmsDispatcher;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
+import com.medicalapp.medical_app_backend.websocket.OutboundFlowControl;
+import com.medicalapp.medical_app_backend.websocket.StompMetrics;
 import com.medicalapp.medical_app_backend.dto.*;
 import com.medicalapp.medical_app_backend.entity.AutoNotification;
 import com.medicalapp.medical_app_backend.entity.Notification;
@@ -14,8 +23,10 @@ import com.medicalapp.medical_app_backend.repository.NotificationRepository;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
 import com.medicalapp.medical_app_backend.entity.Appointment;
 import com.medicalapp.medical_app_backend.entity.TestResult;
+import com.medicalapp.medical_app_backend.util.KeysetCursor;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,6 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.validation.Valid;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
 import java.util.Map;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -50,6 +63,33 @@ public class AdminController {
     @Autowired
     private AutoNotificationService autoNotificationService;
 
+    @Autowired
+    private AutoNotificationRuleEngine autoNotificationRuleEngine;
+
+    @Autowired
+    private ExpoPushClient expoPushClient;
+
+    @Autowired
+    private PushReceiptService pushReceiptService;
+
+    @Autowired
+    private OutboundChannels outboundChannels;
+
+    @Autowired
+    private DeferredDeliveryQueue deferredDeliveryQueue;
+
+    @Autowired
+    private SmsDispatcher smsDispatcher;
+
+    @Autowired
+    private StompMetrics stompMetrics;
+
+    @Autowired
+    private NotificationDeliveryRouter deliveryRouter;
+
+    @Autowired
+    private OutboundFlowControl outboundFlowControl;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -636,10 +676,22 @@ public ResponseEntity<?> addTestResult(
     }
 
     /**
-     * Get all sent notifications
+     * Get sent notifications (keyset-paginated, newest first)
+     *
+     * Optional filters: type, read, sent, recipientId, from/to (ISO date-time on createdAt).
+     * Pass the returned nextCursor back as "cursor" to load the next page.
      */
     @GetMapping("/notifications")
-    public ResponseEntity<?> getAllNotifications(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getAllNotifications(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false, defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Boolean read,
+            @RequestParam(required = false) Boolean sent,
+            @RequestParam(required = false) Long recipientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         try {
             logger.info("=== GET NOTIFICATIONS REQUEST ===");
             
@@ -647,24 +699,31 @@ public ResponseEntity<?> addTestResult(
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Unauthorized"));
             }
 
-            List<Notification> notifications = notificationRepository.findAll();
-            
-            List<Map<String, Object>> notificationList = new ArrayList<>();
-            for (Notification notif : notifications) {
-                Map<String, Object> notifData = new HashMap<>();
-                notifData.put("id", notif.getId());
-                notifData.put("title", notif.getTitle());
-                notifData.put("message", notif.getMessage());
-                notifData.put("type", notif.getType());
-                notifData.put("recipientId", notif.getUser().getId());
-                notifData.put("recipientName", notif.getUser().getFirstName() + " " + notif.getUser().getLastName());
-                notifData.put("read", notif.isRead());
-                notifData.put("sent", notif.isSent());
-                notifData.put("createdAt", notif.getCreatedAt());
-                notificationList.add(notifData);
+            int pageSize = Math.max(1, Math.min(size, 200));
+            KeysetCursor after = KeysetCursor.decode(cursor);
+
+            // Fetch one extra row to know whether another page exists
+            List<AdminNotificationLogDto> rows = notificationRepository.findAdminLog(
+                type, read, sent, recipientId, from, to,
+                after != null ? after.createdAt() : null,
+                after != null ? after.id() : null,
+                pageSize + 1);
+
+            boolean hasMore = rows.size() > pageSize;
+            List<AdminNotificationLogDto> notificationList = hasMore ? rows.subList(0, pageSize) : rows;
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("notifications", notificationList);
+            response.put("hasMore", hasMore);
+            if (hasMore) {
+                AdminNotificationLogDto last = notificationList.get(notificationList.size() - 1);
+                response.put("nextCursor", KeysetCursor.encode(last.getCreatedAt(), last.getId()));
             }
 
-            return ResponseEntity.ok(Map.of("success", true, "notifications", notificationList));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error getting notifications: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
@@ -723,6 +782,7 @@ public ResponseEntity<?> addTestResult(
             autoNotif.setCreatedBy(userDetails.getUsername());
 
             autoNotificationRepository.save(autoNotif);
+            autoNotificationRuleEngine.reload();
             
             logger.info("✅ Auto-notification created: {}", trigger);
 
@@ -789,6 +849,7 @@ public ResponseEntity<?> addTestResult(
             Boolean enabled = (Boolean) payload.get("enabled");
             autoNotif.setEnabled(enabled);
             autoNotificationRepository.save(autoNotif);
+            autoNotificationRuleEngine.reload();
             
             logger.info("✅ Auto-notification {} {}", id, enabled ? "enabled" : "disabled");
 
@@ -811,6 +872,7 @@ public ResponseEntity<?> addTestResult(
             }
 
             autoNotificationRepository.deleteById(id);
+            autoNotificationRuleEngine.reload();
             
             logger.info("✅ Auto-notification {} deleted", id);
 
@@ -843,6 +905,14 @@ public ResponseEntity<?> addTestResult(
             stats.put("totalAutoRules", totalAutoRules);
             stats.put("activeAutoRules", activeAutoRules);
             stats.put("totalTriggered", totalTriggered);
+            stats.put("ruleEngine", autoNotificationRuleEngine.getEngineStats());
+
+            Map<String, Object> push = new HashMap<>(expoPushClient.getStats());
+            push.putAll(pushReceiptService.getStats());
+            stats.put("push", push);
+            stats.put("channels", outboundChannels.getStats());
+            stats.put("deferredDeliveries", deferredDeliveryQueue.getStats());
+            stats.put("sms", smsDispatcher.getStats());
 
             return ResponseEntity.ok(Map.of("success", true, "stats", stats));
         } catch (Exception e) {
@@ -851,6 +921,32 @@ public ResponseEntity<?> addTestResult(
         }
     }
 
+    /**
+     * Live STOMP metrics: sessions, subscriptions, frame counts and handler latency per destination
+     */
+    @GetMapping("/websocket/metrics")
+    public ResponseEntity<?> getWebSocketMetrics(@AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            if (userDetails == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "message", "Unauthorized"));
+            }
+
+            // Heap is read here so load runs (load-harness/) can work out memory per session
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "metrics", stompMetrics.getSnapshot(),
+                "delivery", deliveryRouter.getStats(),
+                "outbound", outboundFlowControl.getStats(),
+                "heap", Map.of("usedBytes", heap.getUsed(), "committedBytes", heap.getCommitted(), "maxBytes", heap.getMax())
+            ));
+        } catch (Exception e) {
+            logger.error("Error getting WebSocket metrics: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
     // ==================== REPORTS & SEARCH ====================
 
     /**
@@ -893,13 +989,16 @@ public ResponseEntity<?> addTestResult(
     }
 
     /**
-     * Search patients, appointments, or results
+     * Search patients, appointments, test results and medical results; one
+     * relevance-ranked page across the requested types, with highlights
      */
     @GetMapping("/search")
     public ResponseEntity<?> globalSearch(
             @AuthenticationPrincipal UserDetails userDetails,
             @RequestParam String query,
-            @RequestParam(required = false, defaultValue = "all") String type) {
+            @RequestParam(required = false, defaultValue = "all") String type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         
         try {
             logger.info("=== ADMIN SEARCH REQUEST ===");
@@ -912,13 +1011,18 @@ public ResponseEntity<?> addTestResult(
                 ));
             }
 
-            Map<String, Object> searchResults = adminService.globalSearch(query, type, userDetails);
+            Map<String, Object> searchResults = adminService.globalSearch(query, type, page, size, userDetails);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "results", searchResults
             ));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             logger.error("Error performing search: {}", e.getMessage());
             return ResponseEntity.status(500).body(Map.of(
@@ -4,10 +4,12 @@ import com.medicalapp.medical_app_backend.service.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.Map;
@@ -368,6 +370,54 @@ public ResponseEntity<?> getNotifications(@AuthenticationPrincipal UserDetails u
         }
     }
 
+    // Unregister a device (e.g. on logout) so it stops receiving pushes
+    @DeleteMapping("/device-token")
+    public ResponseEntity<?> removeDeviceToken(@RequestBody Map<String, String> tokenData,
+                                               @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            if (userDetails == null) {
+                return ResponseEntity.status(401).body("Authentication required");
+            }
+            
+            String deviceToken = tokenData.get("deviceToken");
+            if (deviceToken == null) {
+                return ResponseEntity.badRequest().body("Device token is required");
+            }
+
+            Map<String, Object> response = notificationService.removeDeviceToken(deviceToken, userDetails);
+            
+            if ((Boolean) response.get("success")) {
+                return ResponseEntity.ok(response);
+            } else {
+                return ResponseEntity.badRequest().body(response);
+            }
+        } catch (Exception e) {
+            logger.error("Exception in removeDeviceToken: ", e);
+            return ResponseEntity.badRequest().body("Error removing device token: " + e.getMessage());
+        }
+    }
+
+    // One-way notification feed over Server-Sent Events (EventSource can pass the JWT as ?token=)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamNotifications(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        if (userDetails == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        // Browsers send the header on automatic reconnects; the parameter covers manual ones
+        SseEmitter emitter = notificationService.openNotificationStream(
+            userDetails, lastEventId != null ? lastEventId : lastEventIdParam);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .header("X-Accel-Buffering", "no") // let nginx pass events through immediately
+            .body(emitter);
+    }
+
     // Get notification preferences summary
     @GetMapping("/preferences-summary")
     public ResponseEntity<?> getPreferencesSummary(@AuthenticationPrincipal UserDetails userDetails) {
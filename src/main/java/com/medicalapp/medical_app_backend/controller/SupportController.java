@@ -28,11 +28,12 @@ public class SupportController {
 
     /**
      * Get active chats for admin dashboard
-     * GET /api/support/admin/active-chats
-     * Enhanced with detailed logging
+     * GET /api/support/admin/active-chats?limit=100
+     * Live changes are pushed to /topic/support/inbox
      */
     @GetMapping("/admin/active-chats")
     public ResponseEntity<Map<String, Object>> getActiveChats(
+            @RequestParam(required = false, defaultValue = "100") int limit,
             @AuthenticationPrincipal UserDetails userDetails) {
         try {
             System.out.println("=== ADMIN ACTIVE CHATS ENDPOINT ===");
@@ -44,7 +45,7 @@ public class SupportController {
                         .body(Map.of("success", false, "message", "Authentication required"));
             }
             
-            Map<String, Object> response = supportService.getActiveChats(userDetails);
+            Map<String, Object> response = supportService.getActiveChats(userDetails, limit);
             System.out.println("Service response: " + response);
             
             if ((Boolean) response.get("success")) {
@@ -63,11 +64,44 @@ public class SupportController {
     }
 
     /**
-     * Get ALL chats (not just active) - NEW ENDPOINT for debugging
-     * GET /api/support/admin/all-chats
+     * Urgent / emergency patient messages, newest first
+     * GET /api/support/admin/urgent-messages?level=EMERGENCY&size=50&cursor=...
+     */
+    @GetMapping("/admin/urgent-messages")
+    public ResponseEntity<Map<String, Object>> getUrgentMessages(
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "50") int size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            if (userDetails == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("success", false, "message", "Authentication required"));
+            }
+
+            Map<String, Object> response = supportService.getUrgentMessages(userDetails, level, cursor, size);
+
+            if ((Boolean) response.get("success")) {
+                return ResponseEntity.ok(response);
+            } else {
+                return ResponseEntity.badRequest().body(response);
+            }
+        } catch (Exception e) {
+            System.err.println("EXCEPTION in getUrgentMessages: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", "Error fetching urgent messages: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get ALL chats (not just active), a page at a time
+     * GET /api/support/admin/all-chats?size=50&cursor=...
      */
     @GetMapping("/admin/all-chats")
     public ResponseEntity<Map<String, Object>> getAllChats(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "50") int size,
             @AuthenticationPrincipal UserDetails userDetails) {
         try {
             System.out.println("=== ADMIN ALL CHATS ENDPOINT ===");
@@ -78,7 +112,7 @@ public class SupportController {
                         .body(Map.of("success", false, "message", "Authentication required"));
             }
             
-            Map<String, Object> response = supportService.getAllChats(userDetails);
+            Map<String, Object> response = supportService.getAllChats(userDetails, cursor, size);
             System.out.println("All chats response: " + response);
             
             if ((Boolean) response.get("success")) {
@@ -95,12 +129,13 @@ public class SupportController {
     }
 
     /**
-     * Search patients by name or email - NEW ENDPOINT
-     * GET /api/support/admin/search-patients?query=john
+     * Search patients by name, email or phone prefix
+     * GET /api/support/admin/search-patients?query=john&limit=20
      */
     @GetMapping("/admin/search-patients")
     public ResponseEntity<Map<String, Object>> searchPatients(
             @RequestParam(required = false) String query,
+            @RequestParam(required = false, defaultValue = "20") int limit,
             @AuthenticationPrincipal UserDetails userDetails) {
         try {
             System.out.println("=== ADMIN SEARCH PATIENTS ENDPOINT ===");
@@ -112,7 +147,7 @@ public class SupportController {
                         .body(Map.of("success", false, "message", "Authentication required"));
             }
             
-            Map<String, Object> response = supportService.searchPatients(query, userDetails);
+            Map<String, Object> response = supportService.searchPatients(query, limit, userDetails);
             System.out.println("Search results count: " + 
                 (response.containsKey("patients") ? ((java.util.List)response.get("patients")).size() : 0));
             
@@ -130,13 +165,16 @@ public class SupportController {
     }
 
     /**
-     * Get chat messages for specific user (admin only)
-     * GET /api/support/admin/chat/{userId}
+     * Get chat messages for specific user (admin only), latest window first
+     * GET /api/support/admin/chat/{userId}?limit=50&before=...|after=...
      * Enhanced with detailed logging
      */
     @GetMapping("/admin/chat/{userId}")
     public ResponseEntity<Map<String, Object>> getChatByUserId(
             @PathVariable Long userId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false, defaultValue = "0") int limit,
             @AuthenticationPrincipal UserDetails userDetails) {
         try {
             System.out.println("=== ADMIN GET CHAT BY USER ID ===");
@@ -155,7 +193,7 @@ public class SupportController {
                         .body(Map.of("success", false, "message", "Invalid user ID"));
             }
             
-            Map<String, Object> response = supportService.getChatByUserId(userId, userDetails);
+            Map<String, Object> response = supportService.getChatByUserId(userId, userDetails, before, after, limit);
             System.out.println("Chat retrieval response: " + response);
             
             if ((Boolean) response.get("success")) {
@@ -275,6 +313,25 @@ public class SupportController {
         }
     }
 
+    /**
+     * Reload the chat bot intents file (admin only)
+     * POST /api/support/admin/bot-intents/reload
+     */
+    @PostMapping("/admin/bot-intents/reload")
+    public ResponseEntity<Map<String, Object>> reloadBotIntents(
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "message", "Authentication required"));
+        }
+
+        Map<String, Object> response = supportService.reloadBotIntents(userDetails);
+        if ((Boolean) response.get("success")) {
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.badRequest().body(response);
+    }
+
     // ========== USER SUPPORT ENDPOINTS (Keep existing) ==========
 
     @GetMapping("/faq")
@@ -439,10 +496,18 @@ public class SupportController {
         }
     }
 
+    /**
+     * Own chat history, latest window first
+     * GET /api/support/chat/history?limit=50&before=...|after=...
+     */
     @GetMapping("/chat/history")
-    public ResponseEntity<Map<String, Object>> getChatHistory(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<Map<String, Object>> getChatHistory(
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false, defaultValue = "0") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
         try {
-            Map<String, Object> response = supportService.getChatHistory(userDetails);
+            Map<String, Object> response = supportService.getChatHistory(userDetails, before, after, limit);
             if ((Boolean) response.get("success")) {
                 return ResponseEntity.ok(response);
             } else {
@@ -454,6 +519,30 @@ public class SupportController {
         }
     }
 
+    /**
+     * Ticket with one window of its transcript (owner or support agent)
+     * GET /api/support/tickets/{ticketId}?limit=50&before=...|after=...
+     */
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<Map<String, Object>> getTicketById(
+            @PathVariable Long ticketId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false, defaultValue = "0") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            Map<String, Object> response = supportService.getTicketById(ticketId, userDetails, before, after, limit);
+            if ((Boolean) response.get("success")) {
+                return ResponseEntity.ok(response);
+            } else {
+                return ResponseEntity.badRequest().body(response);
+            }
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", "Error fetching ticket: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/tickets")
     public ResponseEntity<Map<String, Object>> getUserSupportTickets(@AuthenticationPrincipal UserDetails userDetails) {
         try {
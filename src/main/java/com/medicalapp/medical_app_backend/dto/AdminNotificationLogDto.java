@@ -0,0 +1,72 @@
+package com.medicalapp.medical_app_backend.dto;
+
+import com.medicalapp.medical_app_backend.entity.Notification;
+import java.time.LocalDateTime;
+
+/**
+ * Row of the admin notification log. Built directly by a JPQL constructor
+ * expression so no Notification/User entities are loaded.
+ */
+public class AdminNotificationLogDto {
+    
+    private Long id;
+    private String title;
+    private String message;
+    private String type;
+    private Notification.Priority priority;
+    private Long recipientId;
+    private String recipientName;
+    private boolean read;
+    private boolean sent;
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public AdminNotificationLogDto() {}
+    
+    public AdminNotificationLogDto(Long id, String title, String message, String type,
+                                   Notification.Priority priority, Long recipientId,
+                                   String recipientFirstName, String recipientLastName,
+                                   boolean read, boolean sent, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.message = message;
+        this.type = type;
+        this.priority = priority;
+        this.recipientId = recipientId;
+        this.recipientName = recipientFirstName + " " + recipientLastName;
+        this.read = read;
+        this.sent = sent;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public Notification.Priority getPriority() { return priority; }
+    public void setPriority(Notification.Priority priority) { this.priority = priority; }
+    
+    public Long getRecipientId() { return recipientId; }
+    public void setRecipientId(Long recipientId) { this.recipientId = recipientId; }
+    
+    public String getRecipientName() { return recipientName; }
+    public void setRecipientName(String recipientName) { this.recipientName = recipientName; }
+    
+    public boolean isRead() { return read; }
+    public void setRead(boolean read) { this.read = read; }
+    
+    public boolean isSent() { return sent; }
+    public void setSent(boolean sent) { this.sent = sent; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
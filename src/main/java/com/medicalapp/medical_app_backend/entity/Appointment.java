@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments",
+    indexes = @Index(name = "idx_appointment_status_date", columnList = "status, appointment_date"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})  // ✅ Added this line
 public class Appointment {
     @Id
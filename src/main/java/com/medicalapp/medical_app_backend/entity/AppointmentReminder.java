@@ -0,0 +1,79 @@
+package com.medicalapp.medical_app_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Record of an automatic appointment reminder.
+ *
+ * The unique (appointment_id, reminder_offset) key doubles as a claim: the
+ * instance whose insert succeeds owns the send, so reminders go out once even
+ * with several application instances sweeping at the same time.
+ */
+@Entity
+@Table(name = "appointment_reminders",
+    uniqueConstraints = @UniqueConstraint(name = "uk_reminder_appointment_offset",
+        columnNames = {"appointment_id", "reminder_offset"}),
+    indexes = @Index(name = "idx_reminder_appointment_date", columnList = "appointment_date"))
+public class AppointmentReminder {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+    
+    @Column(name = "reminder_offset", nullable = false, length = 20)
+    private String reminderOffset; // "24h", "2h", ...
+    
+    @Column(name = "appointment_date", nullable = false)
+    private LocalDateTime appointmentDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.CLAIMED;
+    
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt = LocalDateTime.now();
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    // Constructors
+    public AppointmentReminder() {}
+    
+    public AppointmentReminder(Long appointmentId, String reminderOffset, LocalDateTime appointmentDate) {
+        this.appointmentId = appointmentId;
+        this.reminderOffset = reminderOffset;
+        this.appointmentDate = appointmentDate;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getAppointmentId() { return appointmentId; }
+    public void setAppointmentId(Long appointmentId) { this.appointmentId = appointmentId; }
+    
+    public String getReminderOffset() { return reminderOffset; }
+    public void setReminderOffset(String reminderOffset) { this.reminderOffset = reminderOffset; }
+    
+    public LocalDateTime getAppointmentDate() { return appointmentDate; }
+    public void setAppointmentDate(LocalDateTime appointmentDate) { this.appointmentDate = appointmentDate; }
+    
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+    
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+    
+    public enum Status {
+        CLAIMED,  // Picked up by a sweep, delivery in progress
+        SENT,     // Handed to the notification pipeline
+        FAILED    // Delivery threw; not retried automatically
+    }
+}
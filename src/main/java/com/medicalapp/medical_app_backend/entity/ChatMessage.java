@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages",
+    indexes = {
+        @Index(name = "idx_chat_messages_urgency_created", columnList = "urgency, created_at, id"),
+        @Index(name = "idx_chat_messages_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_chat_messages_ticket_created", columnList = "ticket_id, created_at, id")
+    })
 public class ChatMessage {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +36,11 @@ public class ChatMessage {
     @Column(name = "is_read")
     private boolean isRead = false;
 
+    // Classified once when written; NULL only on rows the backfill has not reached
+    @Enumerated(EnumType.STRING)
+    @Column(name = "urgency", length = 16)
+    private Urgency urgency = Urgency.NORMAL;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -49,6 +59,19 @@ public class ChatMessage {
         public String getDisplayName() { return displayName; }
     }
 
+    // Ordered by severity
+    public enum Urgency {
+        NORMAL, URGENT, EMERGENCY;
+
+        public boolean isUrgent() { return this != NORMAL; }
+
+        public static Urgency max(Urgency a, Urgency b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return a.compareTo(b) >= 0 ? a : b;
+        }
+    }
+
     // Constructors
     public ChatMessage() {}
 
@@ -87,6 +110,9 @@ public class ChatMessage {
     public boolean isRead() { return isRead; }
     public void setRead(boolean read) { isRead = read; }
 
+    public Urgency getUrgency() { return urgency; }
+    public void setUrgency(Urgency urgency) { this.urgency = urgency; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,194 @@
+package com.medicalapp.medical_app_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Support inbox read model: one row per user with chat or ticket activity,
+ * kept current by SupportService in the same transaction as the write.
+ *
+ * unreadCount is from the agent's side: user messages since the last agent reply,
+ * the first of which arrived at awaitingReplySince; pendingUrgency is the most
+ * severe urgency among them. responseDueAt is the SLA deadline of the current
+ * wait for an agent (see ResponseSlaService), slaBreachedAt when it was escalated.
+ */
+@Entity
+@Table(name = "conversation_summary",
+    uniqueConstraints = @UniqueConstraint(name = "uk_conversation_summary_user", columnNames = "user_id"),
+    indexes = {
+        @Index(name = "idx_conversation_summary_activity", columnList = "last_activity_at, id"),
+        @Index(name = "idx_conversation_summary_response_due", columnList = "response_due_at")
+    })
+public class ConversationSummary {
+
+    public static final int PREVIEW_LENGTH = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_sender_type", length = 20)
+    private ChatMessage.SenderType lastSenderType;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount = 0;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount = 0;
+
+    @Column(name = "awaiting_reply_since")
+    private LocalDateTime awaitingReplySince;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "pending_urgency", length = 16)
+    private ChatMessage.Urgency pendingUrgency = ChatMessage.Urgency.NORMAL;
+
+    @Column(name = "response_due_at")
+    private LocalDateTime responseDueAt;
+
+    @Column(name = "sla_breached_at")
+    private LocalDateTime slaBreachedAt;
+
+    // Latest ticket of the user, if any
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ticket_id")
+    private SupportTicket ticket;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ticket_status", length = 20)
+    private SupportTicket.TicketStatus ticketStatus;
+
+    // Sort key of the inbox: the later of the last message and the last ticket change
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt = LocalDateTime.now();
+
+    // Constructors
+    public ConversationSummary() {}
+
+    public ConversationSummary(User user) {
+        this.user = user;
+    }
+
+    public void recordMessage(ChatMessage message) {
+        messageCount++;
+        if (message.getSenderType() == ChatMessage.SenderType.USER) {
+            if (unreadCount++ == 0) {
+                awaitingReplySince = message.getCreatedAt();
+            }
+            pendingUrgency = ChatMessage.Urgency.max(pendingUrgency, message.getUrgency());
+        } else if (message.getSenderType() == ChatMessage.SenderType.SUPPORT_AGENT) {
+            unreadCount = 0;
+            awaitingReplySince = null;
+            pendingUrgency = ChatMessage.Urgency.NORMAL;
+        }
+        if (lastMessageId != null && message.getId() != null && message.getId() < lastMessageId) {
+            return;
+        }
+        lastMessageId = message.getId();
+        lastMessageAt = message.getCreatedAt();
+        lastSenderType = message.getSenderType();
+        String text = message.getMessage();
+        lastMessagePreview = text != null && text.length() > PREVIEW_LENGTH ? text.substring(0, PREVIEW_LENGTH) : text;
+        touch(message.getCreatedAt());
+    }
+
+    // updatedAt is only bumped on flush, so callers pass the time of the change
+    public void recordTicket(SupportTicket ticket, LocalDateTime changedAt) {
+        if (this.ticket != null && ticket.getId() < this.ticket.getId()) {
+            return;
+        }
+        this.ticket = ticket;
+        this.ticketStatus = ticket.getStatus();
+        touch(changedAt);
+    }
+
+    // The latest ticket is open and no agent has answered it yet
+    public boolean needsFirstResponse() {
+        return ticket != null
+            && ticketStatus == SupportTicket.TicketStatus.OPEN
+            && ticket.getFirstResponseAt() == null;
+    }
+
+    // Start of the current wait for an agent; null when nobody is waiting
+    public LocalDateTime waitingSince() {
+        return needsFirstResponse() ? ticket.getCreatedAt() : awaitingReplySince;
+    }
+
+    // A new deadline is a new wait, so it can be escalated again
+    public void updateResponseDue(LocalDateTime due) {
+        if (!Objects.equals(due, responseDueAt)) {
+            responseDueAt = due;
+            slaBreachedAt = null;
+        }
+    }
+
+    public void touch(LocalDateTime at) {
+        if (at != null && (lastActivityAt == null || at.isAfter(lastActivityAt))) {
+            lastActivityAt = at;
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public ChatMessage.SenderType getLastSenderType() { return lastSenderType; }
+    public void setLastSenderType(ChatMessage.SenderType lastSenderType) { this.lastSenderType = lastSenderType; }
+
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+
+    public long getMessageCount() { return messageCount; }
+    public void setMessageCount(long messageCount) { this.messageCount = messageCount; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+
+    public LocalDateTime getAwaitingReplySince() { return awaitingReplySince; }
+    public void setAwaitingReplySince(LocalDateTime awaitingReplySince) { this.awaitingReplySince = awaitingReplySince; }
+
+    // Rows inserted by insertIfMissing start out NULL
+    public ChatMessage.Urgency getPendingUrgency() {
+        return pendingUrgency != null ? pendingUrgency : ChatMessage.Urgency.NORMAL;
+    }
+    public void setPendingUrgency(ChatMessage.Urgency pendingUrgency) { this.pendingUrgency = pendingUrgency; }
+
+    public LocalDateTime getResponseDueAt() { return responseDueAt; }
+    public void setResponseDueAt(LocalDateTime responseDueAt) { this.responseDueAt = responseDueAt; }
+
+    public LocalDateTime getSlaBreachedAt() { return slaBreachedAt; }
+    public void setSlaBreachedAt(LocalDateTime slaBreachedAt) { this.slaBreachedAt = slaBreachedAt; }
+
+    public SupportTicket getTicket() { return ticket; }
+    public void setTicket(SupportTicket ticket) { this.ticket = ticket; }
+
+    public SupportTicket.TicketStatus getTicketStatus() { return ticketStatus; }
+    public void setTicketStatus(SupportTicket.TicketStatus ticketStatus) { this.ticketStatus = ticketStatus; }
+
+    public LocalDateTime getLastActivityAt() { return lastActivityAt; }
+    public void setLastActivityAt(LocalDateTime lastActivityAt) { this.lastActivityAt = lastActivityAt; }
+}
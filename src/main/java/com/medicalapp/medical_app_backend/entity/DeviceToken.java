@@ -0,0 +1,62 @@
+package com.medicalapp.medical_app_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Expo push token for one of a user's devices. A user can have several.
+ */
+@Entity
+@Table(name = "device_tokens",
+    uniqueConstraints = @UniqueConstraint(name = "uk_device_token", columnNames = "token"),
+    indexes = @Index(name = "idx_device_tokens_user", columnList = "user_id"))
+public class DeviceToken {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    @Column(nullable = false, length = 255)
+    private String token;
+    
+    @Column(length = 20)
+    private String platform; // "ios" or "android"
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt = LocalDateTime.now();
+    
+    // Constructors
+    public DeviceToken() {}
+    
+    public DeviceToken(User user, String token, String platform) {
+        this.user = user;
+        this.token = token;
+        this.platform = platform;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+    
+    public String getPlatform() { return platform; }
+    public void setPlatform(String platform) { this.platform = platform; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getLastSeenAt() { return lastSeenAt; }
+    public void setLastSeenAt(LocalDateTime lastSeenAt) { this.lastSeenAt = lastSeenAt; }
+}
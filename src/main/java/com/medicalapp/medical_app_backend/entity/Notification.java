@@ -6,7 +6,12 @@ import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    // Admin notification log: equality filter first, then created_at/id for range + keyset paging
+    @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_notifications_type_created", columnList = "type, created_at, id"),
+    @Index(name = "idx_notifications_created", columnList = "created_at, id")
+})
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
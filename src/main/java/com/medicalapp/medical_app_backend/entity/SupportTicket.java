@@ -5,7 +5,8 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "support_tickets")
+@Table(name = "support_tickets",
+    indexes = @Index(name = "idx_support_tickets_assigned_status", columnList = "assigned_to, status"))
 public class SupportTicket {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
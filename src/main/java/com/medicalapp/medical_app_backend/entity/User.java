@@ -1,6 +1,7 @@
 package com.medicalapp.medical_app_backend.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.medicalapp.medical_app_backend.service.PatientSearchIndexListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -14,7 +15,8 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_updated_at", columnList = "updated_at"))
+@EntityListeners(PatientSearchIndexListener.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})  // ✅ Added this line
 public class User implements UserDetails {
     @Id
@@ -0,0 +1,49 @@
+package com.medicalapp.medical_app_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One row per (user, node) with a live WebSocket session, refreshed by the
+ * node's heartbeat. Lets other nodes find where a user's socket lives.
+ */
+@Entity
+@Table(name = "ws_presence",
+    uniqueConstraints = @UniqueConstraint(name = "uk_ws_presence_user_node", columnNames = {"user_id", "node_id"}),
+    indexes = @Index(name = "idx_ws_presence_updated", columnList = "updated_at"))
+public class WsPresence {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    
+    // Constructors
+    public WsPresence() {}
+    
+    public WsPresence(Long userId, String nodeId) {
+        this.userId = userId;
+        this.nodeId = nodeId;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,69 @@
+package com.medicalapp.medical_app_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A WebSocket message handed from one application node to another (or to all,
+ * when targetNode is null). Short-lived; pruned after a few minutes.
+ */
+@Entity
+@Table(name = "ws_relay_messages",
+    indexes = @Index(name = "idx_ws_relay_created", columnList = "created_at"))
+public class WsRelayMessage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+    
+    @Column(name = "target_node", length = 64)
+    private String targetNode; // null = every node
+    
+    @Column(name = "user_id")
+    private Long userId; // null = plain broadcast destination
+    
+    @Column(length = 255)
+    private String destination; // null = the user's notification stream
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Constructors
+    public WsRelayMessage() {}
+    
+    public WsRelayMessage(String originNode, String targetNode, Long userId, String destination, String payload) {
+        this.originNode = originNode;
+        this.targetNode = targetNode;
+        this.userId = userId;
+        this.destination = destination;
+        this.payload = payload;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getOriginNode() { return originNode; }
+    public void setOriginNode(String originNode) { this.originNode = originNode; }
+    
+    public String getTargetNode() { return targetNode; }
+    public void setTargetNode(String targetNode) { this.targetNode = targetNode; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getDestination() { return destination; }
+    public void setDestination(String destination) { this.destination = destination; }
+    
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
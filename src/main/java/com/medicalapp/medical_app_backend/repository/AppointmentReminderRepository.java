@@ -0,0 +1,32 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.entity.AppointmentReminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppointmentReminderRepository extends JpaRepository<AppointmentReminder, Long> {
+    
+    // Appointment ids in a batch that already have this reminder recorded
+    @Query("SELECT r.appointmentId FROM AppointmentReminder r WHERE r.reminderOffset = :offset AND r.appointmentId IN :appointmentIds")
+    List<Long> findRemindedAppointmentIds(@Param("offset") String offset, @Param("appointmentIds") Collection<Long> appointmentIds);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE AppointmentReminder r SET r.status = :status, r.sentAt = :sentAt WHERE r.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") AppointmentReminder.Status status, @Param("sentAt") LocalDateTime sentAt);
+    
+    // Housekeeping: reminders for appointments that are long past
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AppointmentReminder r WHERE r.appointmentDate < :before")
+    int deleteByAppointmentDateBefore(@Param("before") LocalDateTime before);
+}
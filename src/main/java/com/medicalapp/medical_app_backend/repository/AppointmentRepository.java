@@ -94,4 +94,15 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     // Find appointments by patient email
     @Query("SELECT a FROM Appointment a WHERE a.patient.email = :email")
     List<Appointment> findByPatientEmail(@Param("email") String email);
+    
+    // Reminder sweep: plain range on appointment_date (no DATE()/HOUR() wrapping) so the
+    // (status, appointment_date) index is used. Patient is fetched to avoid a lazy load per row.
+    // The id tiebreak keeps pages stable when several appointments share a slot.
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient " +
+           "WHERE a.status = :status AND a.appointmentDate >= :from AND a.appointmentDate < :to " +
+           "ORDER BY a.appointmentDate ASC, a.id ASC")
+    List<Appointment> findForReminderWindow(@Param("status") Appointment.Status status,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            Pageable pageable);
 }
\ No newline at end of file
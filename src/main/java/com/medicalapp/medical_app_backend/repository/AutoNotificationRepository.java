@@ -2,9 +2,11 @@ package com.medicalapp.medical_app_backend.repository;
 
 import com.medicalapp.medical_app_backend.entity.AutoNotification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -59,4 +61,11 @@ public interface AutoNotificationRepository extends JpaRepository<AutoNotificati
     // Get statistics for auto-notifications
     @Query("SELECT a.trigger, COUNT(a), SUM(a.timesTriggered) FROM AutoNotification a GROUP BY a.trigger")
     List<Object[]> getStatsByTrigger();
+    
+    // Apply a batched trigger count (used by the rule engine's periodic flush)
+    @Modifying
+    @Transactional
+    @Query("UPDATE AutoNotification a SET a.timesTriggered = COALESCE(a.timesTriggered, 0) + :delta, " +
+           "a.lastTriggered = :lastTriggered WHERE a.id = :id")
+    int incrementTriggerStats(@Param("id") Long id, @Param("delta") long delta, @Param("lastTriggered") LocalDateTime lastTriggered);
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -102,10 +103,6 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     @Query("SELECT m FROM ChatMessage m WHERE m.senderType = 'USER' AND m.createdAt >= :since ORDER BY m.createdAt DESC")
     List<ChatMessage> findRecentUserMessages(@Param("since") LocalDateTime since);
 
-    // Find messages needing attention (user messages without agent response)
-    @Query("SELECT m FROM ChatMessage m WHERE m.senderType = 'USER' AND NOT EXISTS (SELECT a FROM ChatMessage a WHERE a.user = m.user AND a.senderType = 'SUPPORT_AGENT' AND a.createdAt > m.createdAt) ORDER BY m.createdAt ASC")
-    List<ChatMessage> findMessagesNeedingResponse();
-
     // Find users needing response
     @Query("SELECT DISTINCT m.user FROM ChatMessage m WHERE m.senderType = 'USER' AND m.createdAt > :since ORDER BY m.createdAt DESC")
     List<User> findUsersWithRecentMessages(@Param("since") LocalDateTime since);
@@ -131,15 +128,84 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     @Query(value = "SELECT * FROM chat_messages m WHERE m.user_id = :userId ORDER BY m.created_at DESC LIMIT :limit", nativeQuery = true)
     List<ChatMessage> findConversationSummary(@Param("userId") Long userId, @Param("limit") int limit);
 
+    // Transcript windows on the (user_id | ticket_id, created_at, id) indexes: "before" pages
+    // run newest first from the cursor, "after" pages oldest first; a null cursor is the end
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.user.id = :userId " +
+           "AND (:beforeCreatedAt IS NULL OR m.createdAt < :beforeCreatedAt " +
+           "   OR (m.createdAt = :beforeCreatedAt AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findUserMessagesBefore(@Param("userId") Long userId,
+                                             @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                             @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.user.id = :userId " +
+           "AND (m.createdAt > :afterCreatedAt OR (m.createdAt = :afterCreatedAt AND m.id > :afterId)) " +
+           "ORDER BY m.createdAt ASC, m.id ASC")
+    List<ChatMessage> findUserMessagesAfter(@Param("userId") Long userId,
+                                            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.ticket.id = :ticketId " +
+           "AND (:beforeCreatedAt IS NULL OR m.createdAt < :beforeCreatedAt " +
+           "   OR (m.createdAt = :beforeCreatedAt AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findTicketMessagesBefore(@Param("ticketId") Long ticketId,
+                                               @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                               @Param("beforeId") Long beforeId,
+                                               Pageable pageable);
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.ticket.id = :ticketId " +
+           "AND (m.createdAt > :afterCreatedAt OR (m.createdAt = :afterCreatedAt AND m.id > :afterId)) " +
+           "ORDER BY m.createdAt ASC, m.id ASC")
+    List<ChatMessage> findTicketMessagesAfter(@Param("ticketId") Long ticketId,
+                                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    long countByTicket(SupportTicket ticket);
+
+    // [userId, messageCount, lastMessageId] per user, for rebuilding conversation_summary
+    @Query("SELECT m.user.id, COUNT(m), MAX(m.id) FROM ChatMessage m GROUP BY m.user.id")
+    List<Object[]> summarizeByUser();
+
+    // [userId, count, oldest createdAt] of user messages after the last agent reply, per user
+    @Query("SELECT m.user.id, COUNT(m), MIN(m.createdAt) FROM ChatMessage m WHERE m.senderType = 'USER' AND m.id > " +
+           "COALESCE((SELECT MAX(a.id) FROM ChatMessage a WHERE a.user = m.user AND a.senderType = 'SUPPORT_AGENT'), 0) " +
+           "GROUP BY m.user.id")
+    List<Object[]> countUnansweredByUser();
+
     // ========== SEARCH QUERIES ==========
     
     // Search messages by content
     @Query("SELECT m FROM ChatMessage m WHERE LOWER(m.message) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY m.createdAt DESC")
     List<ChatMessage> searchMessagesByContent(@Param("searchTerm") String searchTerm);
 
-    // Find messages that mention urgent keywords
-    @Query("SELECT m FROM ChatMessage m WHERE LOWER(m.message) LIKE '%urgent%' OR LOWER(m.message) LIKE '%emergency%' OR LOWER(m.message) LIKE '%critical%' OR LOWER(m.message) LIKE '%help%' ORDER BY m.createdAt DESC")
-    List<ChatMessage> findUrgentMessages();
+    // Urgent view, newest first: a range of the (urgency, created_at, id) index; keyset on (createdAt, id)
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.user WHERE m.urgency IN :levels " +
+           "AND (:afterCreatedAt IS NULL OR m.createdAt < :afterCreatedAt " +
+           "   OR (m.createdAt = :afterCreatedAt AND m.id < :afterId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findUrgentPage(@Param("levels") Collection<ChatMessage.Urgency> levels,
+                                     @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    // [id, message, senderType] of rows written before urgency was classified, by id
+    @Query("SELECT m.id, m.message, m.senderType FROM ChatMessage m WHERE m.urgency IS NULL AND m.id > :afterId ORDER BY m.id")
+    List<Object[]> findUnclassifiedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChatMessage m SET m.urgency = :urgency WHERE m.id IN :ids")
+    int setUrgency(@Param("ids") Collection<Long> ids, @Param("urgency") ChatMessage.Urgency urgency);
+
+    // [userId, urgency] of user messages at the given levels sent after the last agent reply
+    @Query("SELECT m.user.id, m.urgency FROM ChatMessage m WHERE m.senderType = 'USER' AND m.urgency IN :levels AND m.id > " +
+           "COALESCE((SELECT MAX(a.id) FROM ChatMessage a WHERE a.user = m.user AND a.senderType = 'SUPPORT_AGENT'), 0)")
+    List<Object[]> findUnansweredUrgency(@Param("levels") Collection<ChatMessage.Urgency> levels);
 
     // ========== STATISTICS QUERIES ==========
     
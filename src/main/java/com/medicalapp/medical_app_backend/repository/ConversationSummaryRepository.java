@@ -0,0 +1,85 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.entity.ChatMessage;
+import com.medicalapp.medical_app_backend.entity.ConversationSummary;
+import com.medicalapp.medical_app_backend.entity.SupportTicket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+    
+    // Row lock so concurrent messages for one user cannot lose count updates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ConversationSummary s WHERE s.user.id = :userId")
+    Optional<ConversationSummary> findByUserIdForUpdate(@Param("userId") Long userId);
+    
+    // Creates the row if missing. On a duplicate user_id the no-op update still takes the
+    // row's exclusive lock (INSERT IGNORE takes a shared one, which deadlocks with FOR UPDATE)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO conversation_summary (user_id, message_count, unread_count, last_activity_at) " +
+                   "VALUES (:userId, 0, 0, :now) ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertIfMissing(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    // Inbox page, newest activity first; keyset on (lastActivityAt, id)
+    @Query("SELECT s FROM ConversationSummary s JOIN FETCH s.user LEFT JOIN FETCH s.ticket " +
+           "WHERE (:afterActivity IS NULL OR s.lastActivityAt < :afterActivity " +
+           "   OR (s.lastActivityAt = :afterActivity AND s.id < :afterId)) " +
+           "ORDER BY s.lastActivityAt DESC, s.id DESC")
+    List<ConversationSummary> findInboxPage(@Param("afterActivity") LocalDateTime afterActivity,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+    
+    // Rows for the agent inbox: open / in-progress tickets or recent chat
+    @Query("SELECT s FROM ConversationSummary s JOIN FETCH s.user LEFT JOIN FETCH s.ticket " +
+           "WHERE s.ticketStatus IN :statuses OR s.lastMessageAt >= :since")
+    List<ConversationSummary> findActive(@Param("statuses") Collection<SupportTicket.TicketStatus> statuses,
+                                         @Param("since") LocalDateTime since);
+
+    // [users with a ticket, users with messages, users with messages but no ticket]
+    @Query("SELECT COUNT(CASE WHEN s.ticket IS NOT NULL THEN 1 END), " +
+           "COUNT(CASE WHEN s.messageCount > 0 THEN 1 END), " +
+           "COUNT(CASE WHEN s.ticket IS NULL AND s.messageCount > 0 THEN 1 END) FROM ConversationSummary s")
+    List<Object[]> countConversationKinds();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConversationSummary s SET s.pendingUrgency = :urgency WHERE s.user.id IN :userIds")
+    int setPendingUrgency(@Param("userIds") Collection<Long> userIds, @Param("urgency") ChatMessage.Urgency urgency);
+
+    // Conversations waiting on an agent, or still carrying a deadline, with what the SLA needs
+    @Query("SELECT s FROM ConversationSummary s JOIN FETCH s.user LEFT JOIN FETCH s.ticket t " +
+           "WHERE s.awaitingReplySince IS NOT NULL OR s.responseDueAt IS NOT NULL " +
+           "   OR (s.ticketStatus = 'OPEN' AND t.firstResponseAt IS NULL)")
+    List<ConversationSummary> findAwaitingResponse();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConversationSummary s SET s.responseDueAt = :due, s.slaBreachedAt = NULL WHERE s.user.id = :userId")
+    int setResponseDue(@Param("userId") Long userId, @Param("due") LocalDateTime due);
+
+    // (userId, responseDueAt) of deadlines not escalated yet that fall due by :until
+    @Query("SELECT s.user.id, s.responseDueAt FROM ConversationSummary s " +
+           "WHERE s.responseDueAt <= :until AND s.slaBreachedAt IS NULL")
+    List<Object[]> findOpenDeadlinesUntil(@Param("until") LocalDateTime until);
+
+    // Claims the escalation of one deadline; 0 when it was answered, moved or already escalated (e.g. by another node)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConversationSummary s SET s.slaBreachedAt = :now " +
+           "WHERE s.user.id = :userId AND s.responseDueAt = :due AND s.slaBreachedAt IS NULL")
+    int claimSlaBreach(@Param("userId") Long userId, @Param("due") LocalDateTime due, @Param("now") LocalDateTime now);
+}
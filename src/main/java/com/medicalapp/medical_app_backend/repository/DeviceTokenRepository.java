@@ -0,0 +1,35 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.entity.DeviceToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long> {
+    
+    Optional<DeviceToken> findByToken(String token);
+    
+    // Token strings only - avoids loading the user for every push
+    @Query("SELECT d.token FROM DeviceToken d WHERE d.user.id = :userId")
+    List<String> findTokensByUserId(@Param("userId") Long userId);
+    
+    long countByUserId(Long userId);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DeviceToken d WHERE d.token IN :tokens")
+    int deleteByTokenIn(@Param("tokens") Collection<String> tokens);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DeviceToken d WHERE d.token = :token AND d.user.id = :userId")
+    int deleteByTokenAndUserId(@Param("token") String token, @Param("userId") Long userId);
+}
@@ -0,0 +1,23 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.dto.AdminNotificationLogDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hand-written queries for NotificationRepository that need a dynamic WHERE clause
+ */
+public interface NotificationRepositoryCustom {
+
+    /**
+     * Keyset page of the admin notification log, newest first.
+     *
+     * Every filter is optional (null = not applied). The cursor is the (createdAt, id)
+     * of the last row of the previous page; pass nulls for the first page.
+     */
+    List<AdminNotificationLogDto> findAdminLog(String type, Boolean read, Boolean sent, Long recipientId,
+                                               LocalDateTime from, LocalDateTime to,
+                                               LocalDateTime cursorCreatedAt, Long cursorId,
+                                               int limit);
+}
@@ -0,0 +1,78 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.dto.AdminNotificationLogDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Only the filters that are actually set end up in the WHERE clause, so MySQL can
+ * pick the matching (user_id | type, created_at, id) index instead of evaluating
+ * "(:x IS NULL OR ...)" guards row by row.
+ */
+public class NotificationRepositoryImpl implements NotificationRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AdminNotificationLogDto> findAdminLog(String type, Boolean read, Boolean sent, Long recipientId,
+                                                      LocalDateTime from, LocalDateTime to,
+                                                      LocalDateTime cursorCreatedAt, Long cursorId,
+                                                      int limit) {
+        StringBuilder jpql = new StringBuilder(
+            "SELECT new com.medicalapp.medical_app_backend.dto.AdminNotificationLogDto(" +
+            "n.id, n.title, n.message, n.type, n.priority, u.id, u.firstName, u.lastName, " +
+            "n.read, n.sent, n.createdAt) " +
+            "FROM Notification n JOIN n.user u WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        // Equality filters first, in index column order
+        if (recipientId != null) {
+            jpql.append(" AND u.id = :recipientId");
+            params.put("recipientId", recipientId);
+        }
+        if (type != null) {
+            jpql.append(" AND n.type = :type");
+            params.put("type", type);
+        }
+        if (read != null) {
+            jpql.append(" AND n.read = :read");
+            params.put("read", read);
+        }
+        if (sent != null) {
+            jpql.append(" AND n.sent = :sent");
+            params.put("sent", sent);
+        }
+
+        // Range filters on created_at
+        if (from != null) {
+            jpql.append(" AND n.createdAt >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" AND n.createdAt < :to");
+            params.put("to", to);
+        }
+
+        // Keyset cursor: strictly after the last row of the previous page
+        if (cursorCreatedAt != null && cursorId != null) {
+            jpql.append(" AND (n.createdAt < :cursorCreatedAt OR (n.createdAt = :cursorCreatedAt AND n.id < :cursorId))");
+            params.put("cursorCreatedAt", cursorCreatedAt);
+            params.put("cursorId", cursorId);
+        }
+
+        jpql.append(" ORDER BY n.createdAt DESC, n.id DESC");
+
+        TypedQuery<AdminNotificationLogDto> query =
+            entityManager.createQuery(jpql.toString(), AdminNotificationLogDto.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+}
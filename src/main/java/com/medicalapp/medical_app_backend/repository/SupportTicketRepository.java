@@ -3,12 +3,17 @@ package com.medicalapp.medical_app_backend.repository;
 
 import com.medicalapp.medical_app_backend.entity.SupportTicket;
 import com.medicalapp.medical_app_backend.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -37,6 +42,19 @@ public interface SupportTicketRepository extends JpaRepository<SupportTicket, Lo
     // Find tickets assigned to specific agent
     List<SupportTicket> findByAssignedToOrderByCreatedAtDesc(String assignedTo);
 
+    // [assignedTo, count] of tickets in the given statuses, per agent
+    @Query("SELECT t.assignedTo, COUNT(t) FROM SupportTicket t WHERE t.assignedTo IS NOT NULL AND t.status IN :statuses GROUP BY t.assignedTo")
+    List<Object[]> countGroupedByAssignee(@Param("statuses") Collection<SupportTicket.TicketStatus> statuses);
+
+    // Dispatcher assignment candidates, row-locked: still waiting for a first response and held by :fromAgent (null = unassigned)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM SupportTicket t " +
+           "WHERE t.id IN :ids AND t.status = 'OPEN' AND t.firstResponseAt IS NULL " +
+           "AND ((:fromAgent IS NULL AND t.assignedTo IS NULL) OR t.assignedTo = :fromAgent) ORDER BY t.id")
+    List<SupportTicket> findWaitingForUpdate(@Param("ids") Collection<Long> ids, @Param("fromAgent") String fromAgent);
+
+    long countByAssignedToAndStatusIn(String assignedTo, Collection<SupportTicket.TicketStatus> statuses);
+
     // Find tickets by priority
     List<SupportTicket> findByPriorityOrderByCreatedAtDesc(SupportTicket.Priority priority);
 
@@ -50,9 +68,14 @@ public interface SupportTicketRepository extends JpaRepository<SupportTicket, Lo
     // Count tickets by status
     long countByStatus(SupportTicket.TicketStatus status);
 
-    // Find overdue tickets (created more than X hours ago without first response)
-    @Query("SELECT t FROM SupportTicket t WHERE t.firstResponseAt IS NULL AND t.createdAt < :overdueLimit AND t.status = 'OPEN'")
-    List<SupportTicket> findOverdueTickets(@Param("overdueLimit") LocalDateTime overdueLimit);
+    long countByUser(User user);
+
+    // [status, count] for every status in use
+    @Query("SELECT t.status, COUNT(t) FROM SupportTicket t GROUP BY t.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT COUNT(t) FROM SupportTicket t WHERE t.firstResponseAt IS NULL AND t.status = 'OPEN'")
+    long countNeedingFirstResponse();
 
     // Find tickets by category
     List<SupportTicket> findByCategoryOrderByCreatedAtDesc(String category);
@@ -80,4 +103,8 @@ public interface SupportTicketRepository extends JpaRepository<SupportTicket, Lo
     // Search tickets by subject or description
     @Query("SELECT t FROM SupportTicket t WHERE LOWER(t.subject) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(t.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY t.createdAt DESC")
     List<SupportTicket> searchTickets(@Param("searchTerm") String searchTerm);
+
+    // Latest ticket of every user, for rebuilding conversation_summary
+    @Query("SELECT t FROM SupportTicket t JOIN FETCH t.user WHERE t.id IN (SELECT MAX(t2.id) FROM SupportTicket t2 GROUP BY t2.user)")
+    List<SupportTicket> findLatestTicketPerUser();
 }
\ No newline at end of file
@@ -3,12 +3,17 @@ package com.medicalapp.medical_app_backend.repository;
 import com.medicalapp.medical_app_backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +24,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     // Find user by username (for login)
     Optional<User> findByUsername(String username);
+
+    // Row lock that serializes ticket auto-assignments to one agent across nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.username = :username")
+    Optional<User> findByUsernameForUpdate(@Param("username") String username);
     
     // Find user by email (for login/signup validation)  
     Optional<User> findByEmail(String email);
@@ -113,6 +123,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * Count users by role (for dashboard statistics)
      */
     long countByRole(User.Role role);
+
+    // [role, count] for every role in use
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countGroupedByRole();
     
     /**
      * CORRECTED - Find users with appointments count 
@@ -164,6 +178,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     List<User> findByDevicePlatform(String devicePlatform);
     
+    /**
+     * Clear legacy single device tokens that Expo reported as no longer registered
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.deviceToken = null WHERE u.deviceToken IN :tokens")
+    int clearDeviceTokens(@Param("tokens") Collection<String> tokens);
+    
+    /**
+     * Clear the legacy single device token on everyone but the user now registering it
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.deviceToken = null WHERE u.deviceToken = :token AND u.id <> :userId")
+    int clearDeviceTokenOfOthers(@Param("token") String token, @Param("userId") Long userId);
+    
     /**
      * Count unverified users (either email or phone not verified)
      */
@@ -212,4 +242,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
         @Param("search") String firstName, 
         @Param("search") String lastName, 
         @Param("search") String email);
-}
\ No newline at end of file
+
+    /**
+     * [id, firstName, lastName, email, phone] of one role in id order, for the patient search index
+     */
+    @Query("SELECT u.id, u.firstName, u.lastName, u.email, u.phone FROM User u " +
+           "WHERE u.role = :role AND u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchFieldsAfter(@Param("role") User.Role role, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * [id, firstName, lastName, email, phone, role] of users changed since a time, for the patient search index
+     */
+    @Query("SELECT u.id, u.firstName, u.lastName, u.email, u.phone, u.role FROM User u WHERE u.updatedAt >= :since")
+    List<Object[]> findSearchFieldsChangedSince(@Param("since") LocalDateTime since);
+}
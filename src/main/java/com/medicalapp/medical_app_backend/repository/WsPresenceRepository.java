@@ -0,0 +1,44 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.entity.WsPresence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WsPresenceRepository extends JpaRepository<WsPresence, Long> {
+    
+    @Query("SELECT p.userId FROM WsPresence p WHERE p.nodeId = :nodeId")
+    List<Long> findUserIdsByNodeId(@Param("nodeId") String nodeId);
+    
+    // [userId, nodeId] pairs for users connected to other live nodes
+    @Query("SELECT p.userId, p.nodeId FROM WsPresence p WHERE p.nodeId <> :nodeId AND p.updatedAt > :cutoff")
+    List<Object[]> findRemoteOwners(@Param("nodeId") String nodeId, @Param("cutoff") LocalDateTime cutoff);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE WsPresence p SET p.updatedAt = :now WHERE p.nodeId = :nodeId")
+    int touchNode(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WsPresence p WHERE p.nodeId = :nodeId AND p.userId IN :userIds")
+    int deleteByNodeIdAndUserIdIn(@Param("nodeId") String nodeId, @Param("userIds") Collection<Long> userIds);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WsPresence p WHERE p.nodeId = :nodeId")
+    int deleteByNodeId(@Param("nodeId") String nodeId);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WsPresence p WHERE p.updatedAt < :cutoff")
+    int deleteStale(@Param("cutoff") LocalDateTime cutoff);
+}
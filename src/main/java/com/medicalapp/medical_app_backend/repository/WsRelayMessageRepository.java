@@ -0,0 +1,36 @@
+package com.medicalapp.medical_app_backend.repository;
+
+import com.medicalapp.medical_app_backend.entity.WsRelayMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WsRelayMessageRepository extends JpaRepository<WsRelayMessage, Long> {
+    
+    // Messages from other nodes addressed to this node (or everyone) after an id
+    @Query("SELECT m FROM WsRelayMessage m WHERE m.id > :afterId AND m.originNode <> :nodeId " +
+           "AND (m.targetNode IS NULL OR m.targetNode = :nodeId) ORDER BY m.id")
+    List<WsRelayMessage> findInboundAfter(@Param("nodeId") String nodeId, @Param("afterId") Long afterId, Pageable pageable);
+    
+    // The same, at or below an id and created since a point in time, newest first
+    @Query("SELECT m FROM WsRelayMessage m WHERE m.id <= :upToId AND m.createdAt >= :since AND m.originNode <> :nodeId " +
+           "AND (m.targetNode IS NULL OR m.targetNode = :nodeId) ORDER BY m.id DESC")
+    List<WsRelayMessage> findInboundUpTo(@Param("nodeId") String nodeId, @Param("upToId") Long upToId,
+                                         @Param("since") LocalDateTime since, Pageable pageable);
+    
+    @Query("SELECT COALESCE(MAX(m.id), 0) FROM WsRelayMessage m")
+    Long findMaxId();
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WsRelayMessage m WHERE m.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,475 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.Appointment;
+import com.medicalapp.medical_app_backend.entity.MedicalResult;
+import com.medicalapp.medical_app_backend.entity.Result;
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.AppointmentRepository;
+import com.medicalapp.medical_app_backend.repository.MedicalResultRepository;
+import com.medicalapp.medical_app_backend.repository.ResultRepository;
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Global admin search over users, appointments, test_results and medical_results.
+ *
+ * Each table has a MySQL FULLTEXT index (created at startup if missing, since
+ * ddl-auto cannot declare one); InnoDB maintains it on every committed write,
+ * so the index never needs rebuilding from here. Per-type queries run in
+ * parallel on a small pool, each score is normalized to the best hit of its
+ * type, and the merged list is paged and highlighted in one response.
+ *
+ * Types whose index is missing, and queries with no term long enough for the
+ * FULLTEXT parser, fall back to a bounded LIKE scan.
+ */
+@Service
+public class AdminSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminSearchService.class);
+
+    private static final int SNIPPET_LENGTH = 160;
+    private static final int SNIPPET_LEAD = 40;
+
+    enum SearchType {
+        PATIENTS("patients", "users", "first_name", "last_name", "email"),
+        APPOINTMENTS("appointments", "appointments", "test_type", "reason", "notes"),
+        RESULTS("results", "test_results", "test_type", "result", "notes"),
+        MEDICAL_RESULTS("medicalResults", "medical_results", "test_name", "test_type", "result_value", "notes");
+
+        final String key;
+        final String table;
+        final List<String> columns;
+
+        SearchType(String key, String table, String... columns) {
+            this.key = key;
+            this.table = table;
+            this.columns = List.of(columns);
+        }
+
+        String indexName() {
+            return "ft_" + table + "_search";
+        }
+
+        static List<SearchType> parse(String type) {
+            if (type == null || type.isBlank() || type.equalsIgnoreCase("all")) {
+                return List.of(values());
+            }
+            for (SearchType searchType : values()) {
+                if (searchType.key.equalsIgnoreCase(type) || searchType.table.equalsIgnoreCase(type)) {
+                    return List.of(searchType);
+                }
+            }
+            throw new IllegalArgumentException("Unknown search type: " + type);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private MedicalResultRepository medicalResultRepository;
+
+    @Value("${app.admin.search.create-indexes:true}")
+    private boolean createIndexes;
+
+    // InnoDB ignores shorter words (innodb_ft_min_token_size)
+    @Value("${app.admin.search.min-term-length:3}")
+    private int minTermLength;
+
+    @Value("${app.admin.search.max-page-size:50}")
+    private int maxPageSize;
+
+    // Deepest merged position served; bounds the per-type fetch
+    @Value("${app.admin.search.max-results:500}")
+    private int maxResults;
+
+    @Value("${app.admin.search.timeout-ms:5000}")
+    private long timeoutMs;
+
+    // Pool shared by all searches, so parallel queries never hold more than this many connections
+    @Value("${app.admin.search.parallelism:3}")
+    private int parallelism;
+
+    private final Set<SearchType> fulltextReady = ConcurrentHashMap.newKeySet();
+    private ExecutorService queryPool;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        queryPool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "admin-search-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryPool.shutdownNow();
+    }
+
+    /**
+     * Adds the FULLTEXT indexes that are missing. The first one on a table
+     * rebuilds it and blocks writes meanwhile; on large tables turn off
+     * create-indexes and add them in a maintenance window instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureFulltextIndexes() {
+        for (SearchType type : SearchType.values()) {
+            try {
+                Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    Integer.class, type.table, type.indexName());
+                if (existing == null || existing == 0) {
+                    if (!createIndexes) {
+                        logger.warn("⚠️ FULLTEXT index {} missing, admin search on {} uses LIKE", type.indexName(), type.table);
+                        continue;
+                    }
+                    long start = System.currentTimeMillis();
+                    jdbcTemplate.execute("ALTER TABLE " + type.table + " ADD FULLTEXT INDEX " + type.indexName()
+                        + " (" + String.join(", ", type.columns) + ")");
+                    logger.info("✅ Created FULLTEXT index {} in {} ms", type.indexName(), System.currentTimeMillis() - start);
+                }
+                fulltextReady.add(type);
+            } catch (Exception e) {
+                logger.warn("⚠️ FULLTEXT index unavailable on {}, admin search uses LIKE: {}", type.table, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One relevance-ranked page across the requested types
+     */
+    public Map<String, Object> search(String query, String type, int page, int size) {
+        List<SearchType> types = SearchType.parse(type);
+        List<String> terms = terms(query);
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        int offset = Math.max(0, page) * pageSize;
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("query", query);
+        response.put("page", Math.max(0, page));
+        response.put("size", pageSize);
+        if (terms.isEmpty() || offset >= maxResults) {
+            response.put("items", List.of());
+            response.put("total", 0L);
+            response.put("totals", Map.of());
+            response.put("hasMore", false);
+            return response;
+        }
+
+        // Every type must supply enough hits to fill the merged page on its own
+        int fetch = Math.min(offset + pageSize, maxResults);
+        Map<SearchType, Future<TypeHits>> futures = new EnumMap<>(SearchType.class);
+        for (SearchType searchType : types) {
+            futures.put(searchType, queryPool.submit(() -> searchType(searchType, terms, fetch)));
+        }
+
+        List<Hit> merged = new ArrayList<>();
+        Map<String, Long> totals = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Map.Entry<SearchType, Future<TypeHits>> entry : futures.entrySet()) {
+            try {
+                TypeHits typeHits = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                merged.addAll(typeHits.hits());
+                totals.put(entry.getKey().key, typeHits.total());
+            } catch (Exception e) {
+                entry.getValue().cancel(true);
+                logger.warn("Admin search on {} failed: {}", entry.getKey().table, e.getMessage());
+                totals.put(entry.getKey().key, 0L);
+            }
+        }
+
+        merged.sort(Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::type)
+            .thenComparing(Hit::id, Comparator.reverseOrder()));
+        List<Hit> pageHits = offset < merged.size()
+            ? merged.subList(offset, Math.min(merged.size(), offset + pageSize))
+            : List.of();
+
+        long total = totals.values().stream().mapToLong(Long::longValue).sum();
+        response.put("items", hydrate(pageHits, terms));
+        response.put("total", total);
+        response.put("totals", totals);
+        response.put("hasMore", offset + pageSize < Math.min(total, maxResults));
+        return response;
+    }
+
+    // ==================== PER-TYPE QUERIES ====================
+
+    private record Hit(SearchType type, long id, double score) {}
+
+    private record TypeHits(List<Hit> hits, long total) {}
+
+    private TypeHits searchType(SearchType type, List<String> terms, int limit) {
+        List<String> fulltextTerms = terms.stream().filter(term -> term.length() >= minTermLength).toList();
+        if (fulltextReady.contains(type) && !fulltextTerms.isEmpty()) {
+            return fulltextSearch(type, fulltextTerms, limit);
+        }
+        return likeSearch(type, terms, limit);
+    }
+
+    private TypeHits fulltextSearch(SearchType type, List<String> terms, int limit) {
+        // Boolean mode: every term required, each as a word prefix
+        StringBuilder against = new StringBuilder();
+        for (String term : terms) {
+            against.append('+').append(term).append("* ");
+        }
+        String match = "MATCH(" + String.join(", ", type.columns) + ") AGAINST (? IN BOOLEAN MODE)";
+        String boolQuery = against.toString().trim();
+
+        List<Hit> hits = jdbcTemplate.query(
+            "SELECT id, " + match + " AS score FROM " + type.table + " WHERE " + match +
+            " ORDER BY score DESC, id DESC LIMIT ?",
+            (rs, row) -> new Hit(type, rs.getLong(1), rs.getDouble(2)), boolQuery, boolQuery, limit);
+        Long total = hits.size() < limit ? Long.valueOf(hits.size()) : jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM " + type.table + " WHERE " + match, Long.class, boolQuery);
+        return new TypeHits(normalize(hits), total != null ? total : 0L);
+    }
+
+    private TypeHits likeSearch(SearchType type, List<String> terms, int limit) {
+        // Every term must appear in one of the columns
+        List<String> clauses = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        for (String term : terms) {
+            List<String> any = new ArrayList<>();
+            for (String column : type.columns) {
+                any.add("LOWER(" + column + ") LIKE ?");
+                params.add("%" + term + "%");
+            }
+            clauses.add("(" + String.join(" OR ", any) + ")");
+        }
+        String where = String.join(" AND ", clauses);
+
+        List<Object> limited = new ArrayList<>(params);
+        limited.add(limit);
+        List<Hit> hits = jdbcTemplate.query(
+            "SELECT id FROM " + type.table + " WHERE " + where + " ORDER BY id DESC LIMIT ?",
+            (rs, row) -> new Hit(type, rs.getLong(1), 1.0), limited.toArray());
+        Long total = hits.size() < limit ? Long.valueOf(hits.size()) : jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM " + type.table + " WHERE " + where, Long.class, params.toArray());
+        return new TypeHits(hits, total != null ? total : 0L);
+    }
+
+    // Relevance values of different tables are not comparable; scale each type to its best hit
+    private static List<Hit> normalize(List<Hit> hits) {
+        if (hits.isEmpty() || hits.get(0).score() <= 0) {
+            return hits;
+        }
+        double best = hits.get(0).score();
+        List<Hit> normalized = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            normalized.add(new Hit(hit.type(), hit.id(), hit.score() / best));
+        }
+        return normalized;
+    }
+
+    // ==================== RESULT ITEMS ====================
+
+    private List<Map<String, Object>> hydrate(List<Hit> hits, List<String> terms) {
+        Map<SearchType, List<Long>> idsByType = new EnumMap<>(SearchType.class);
+        for (Hit hit : hits) {
+            idsByType.computeIfAbsent(hit.type(), t -> new ArrayList<>()).add(hit.id());
+        }
+        Map<SearchType, Map<Long, Object>> loaded = new EnumMap<>(SearchType.class);
+        idsByType.forEach((type, ids) -> loaded.put(type, load(type, ids)));
+
+        List<Map<String, Object>> items = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            Object entity = loaded.get(hit.type()).get(hit.id());
+            if (entity != null) {
+                Map<String, Object> item = describe(hit.type(), entity, terms);
+                item.put("score", Math.round(hit.score() * 1000) / 1000.0);
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private Map<Long, Object> load(SearchType type, List<Long> ids) {
+        Map<Long, Object> byId = new HashMap<>();
+        switch (type) {
+            case PATIENTS -> userRepository.findAllById(ids).forEach(u -> byId.put(u.getId(), u));
+            case APPOINTMENTS -> appointmentRepository.findAllById(ids).forEach(a -> byId.put(a.getId(), a));
+            case RESULTS -> resultRepository.findAllById(ids).forEach(r -> byId.put(r.getId(), r));
+            case MEDICAL_RESULTS -> medicalResultRepository.findAllById(ids).forEach(r -> byId.put(r.getId(), r));
+        }
+        return byId;
+    }
+
+    private Map<String, Object> describe(SearchType type, Object entity, List<String> terms) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        Map<String, String> fields = new LinkedHashMap<>();
+        item.put("type", type.key);
+        switch (type) {
+            case PATIENTS -> {
+                User user = (User) entity;
+                item.put("id", user.getId());
+                item.put("title", user.getFirstName() + " " + user.getLastName());
+                item.put("subtitle", user.getEmail());
+                item.put("patientId", user.getId());
+                item.put("date", user.getCreatedAt());
+                fields.put("firstName", user.getFirstName());
+                fields.put("lastName", user.getLastName());
+                fields.put("email", user.getEmail());
+            }
+            case APPOINTMENTS -> {
+                Appointment appointment = (Appointment) entity;
+                item.put("id", appointment.getId());
+                item.put("title", appointment.getTestType());
+                item.put("subtitle", patientName(appointment.getUser()));
+                item.put("patientId", appointment.getUser() != null ? appointment.getUser().getId() : null);
+                item.put("status", appointment.getStatus() != null ? appointment.getStatus().name().toLowerCase() : null);
+                item.put("date", appointment.getScheduledDate());
+                fields.put("testType", appointment.getTestType());
+                fields.put("reason", appointment.getReason());
+                fields.put("notes", appointment.getNotes());
+            }
+            case RESULTS -> {
+                Result result = (Result) entity;
+                item.put("id", result.getId());
+                item.put("title", result.getTestType());
+                item.put("subtitle", patientName(result.getUser()));
+                item.put("patientId", result.getUser() != null ? result.getUser().getId() : null);
+                item.put("status", result.getStatus());
+                item.put("date", result.getTestDate());
+                fields.put("testType", result.getTestType());
+                fields.put("result", result.getResult());
+                fields.put("notes", result.getNotes());
+            }
+            case MEDICAL_RESULTS -> {
+                MedicalResult result = (MedicalResult) entity;
+                item.put("id", result.getId());
+                item.put("title", result.getTestName());
+                item.put("subtitle", patientName(result.getPatient()));
+                item.put("patientId", result.getPatient() != null ? result.getPatient().getId() : null);
+                item.put("status", result.getStatus() != null ? result.getStatus().name().toLowerCase() : null);
+                item.put("date", result.getTestDate());
+                fields.put("testName", result.getTestName());
+                fields.put("testType", result.getTestType());
+                fields.put("result", result.getResult());
+                fields.put("notes", result.getNotes());
+            }
+        }
+        Map<String, String> highlights = new LinkedHashMap<>();
+        fields.forEach((field, text) -> {
+            String snippet = highlight(text, terms);
+            if (snippet != null) {
+                highlights.put(field, snippet);
+            }
+        });
+        item.put("highlights", highlights);
+        return item;
+    }
+
+    private static String patientName(User user) {
+        return user != null ? user.getFirstName() + " " + user.getLastName() : null;
+    }
+
+    // ==================== TEXT ====================
+
+    /**
+     * Lowercase words of the query (letters and digits only, so FULLTEXT
+     * operators typed by the user are not interpreted)
+     */
+    static List<String> terms(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !terms.contains(word)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * HTML-escaped window of text around the first match, with every word
+     * starting with a term wrapped in <mark>; null when nothing matches
+     */
+    static String highlight(String text, List<String> terms) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        // Matched on text itself: lowercasing can change the length ('İ'), which would shift positions
+        boolean[] marked = new boolean[text.length()];
+        int first = -1;
+        for (String term : terms) {
+            for (int at = 0; at + term.length() <= text.length(); at++) {
+                if ((at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1)))
+                        && text.regionMatches(true, at, term, 0, term.length())) {
+                    Arrays.fill(marked, at, at + term.length(), true);
+                    first = first < 0 ? at : Math.min(first, at);
+                }
+            }
+        }
+        if (first < 0) {
+            return null;
+        }
+
+        int start = Math.max(0, first - SNIPPET_LEAD);
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        StringBuilder snippet = new StringBuilder(end - start + 32);
+        if (start > 0) {
+            snippet.append('…');
+        }
+        for (int i = start; i < end; i++) {
+            if (marked[i] && (i == start || !marked[i - 1])) {
+                snippet.append("<mark>");
+            }
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> snippet.append("&lt;");
+                case '>' -> snippet.append("&gt;");
+                case '&' -> snippet.append("&amp;");
+                case '"' -> snippet.append("&quot;");
+                default -> snippet.append(c);
+            }
+            if (marked[i] && (i == end - 1 || !marked[i + 1])) {
+                snippet.append("</mark>");
+            }
+        }
+        if (end < text.length()) {
+            snippet.append('…');
+        }
+        return snippet.toString();
+    }
+}
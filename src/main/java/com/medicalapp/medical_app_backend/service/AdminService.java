@@ -54,6 +54,9 @@ public class AdminService {
     @Autowired
     private AutoNotificationService autoNotificationService;
 
+    @Autowired
+    private AdminSearchService adminSearchService;
+
     /**
      * Get dashboard statistics for admin view
      */
@@ -631,33 +634,18 @@ response.put("resultId", savedResult.getId());
     /**
      * Global search across patients, appointments, and results
      */
-    public Map<String, Object> globalSearch(String query, String type, UserDetails userDetails) {
+    public Map<String, Object> globalSearch(String query, String type, int page, int size, UserDetails userDetails) {
         try {
-            logger.info("Performing global search - Query: '{}', Type: {}", query, type);
-            
-            Map<String, Object> searchResults = new HashMap<>();
+            logger.info("Performing global search - Query: '{}', Type: {}, Page: {}", query, type, page);
             
-            if (type.equals("all") || type.equals("patients")) {
-               List<User> patients = userRepository.findBySearchTerm(query);
-
-                searchResults.put("patients", patients.stream().map(this::convertToAdminPatientDto).collect(Collectors.toList()));
-            }
-            
-            if (type.equals("all") || type.equals("appointments")) {
-                List<Appointment> appointments = appointmentRepository.findByReasonContainingOrNotesContaining(query, query);
-                searchResults.put("appointments", appointments.stream().map(this::convertToAdminAppointmentDto).collect(Collectors.toList()));
-            }
-            
-            if (type.equals("all") || type.equals("results")) {
-                List<Result> results = resultRepository.findByTestTypeContainingIgnoreCaseOrResultContainingIgnoreCaseOrNotesContainingIgnoreCase(
-                    query, query, query);
-                searchResults.put("results", results.stream().map(this::convertToAdminTestResultDto).collect(Collectors.toList()));
-            }
+            Map<String, Object> searchResults = adminSearchService.search(query, type, page, size);
             
-            logger.info("Global search completed");
+            logger.info("Global search completed - {} total matches", searchResults.get("total"));
             
             return searchResults;
             
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error performing global search: {}", e.getMessage());
             throw new RuntimeException("Error performing search", e);
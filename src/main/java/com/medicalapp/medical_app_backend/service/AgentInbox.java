@@ -0,0 +1,357 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.ChatMessage;
+import com.medicalapp.medical_app_backend.entity.ConversationSummary;
+import com.medicalapp.medical_app_backend.entity.SupportTicket;
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.ConversationSummaryRepository;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
+import com.medicalapp.medical_app_backend.websocket.cluster.ClusterRelayService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory queue of conversations waiting on the support team, ordered by
+ * (pending urgency, response SLA breached, needs first response, longest waiting). Reading the top K
+ * walks K entries of a skip list; nothing is queried or sorted per request.
+ * The number of conversations with an unanswered urgent message is kept as a
+ * live counter alongside.
+ *
+ * Updated from conversation_summary changes after their transaction commits,
+ * rebuilt from conversation_summary at startup, and every change is pushed to
+ * /topic/support/inbox (agents only, see AgentTopicInterceptor) so agent
+ * consoles do not have to poll. Snapshots carry a version taken while the
+ * summary row is locked, so one whose after-commit callback runs late cannot
+ * overwrite a newer one. On a multi-node
+ * deployment each node also resyncs from the database on every sweep, since
+ * writes handled by other nodes do not reach this node's queue directly.
+ */
+@Service
+public class AgentInbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgentInbox.class);
+
+    public static final String INBOX_TOPIC = "/topic/support/inbox";
+
+    private static final List<SupportTicket.TicketStatus> ACTIVE_STATUSES =
+        List.of(SupportTicket.TicketStatus.OPEN, SupportTicket.TicketStatus.IN_PROGRESS);
+
+    private static final Comparator<Entry> ORDER = Comparator
+        .comparing(Entry::urgency, Comparator.reverseOrder())
+        .thenComparing((Entry e) -> !e.slaBreached())
+        .thenComparing((Entry e) -> !e.needsFirstResponse())
+        .thenComparing(Entry::waitingSince, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(Entry::lastActivity, Comparator.reverseOrder())
+        .thenComparing(Entry::userId);
+
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+
+    @Autowired
+    private NotificationDeliveryRouter deliveryRouter;
+
+    @Autowired
+    private ClusterRelayService clusterRelayService;
+
+    // Chat-only conversations stay in the inbox this long after their last message
+    @Value("${app.support.inbox.active-window-hours:24}")
+    private int activeWindowHours;
+
+    private final ConcurrentSkipListSet<Entry> queue = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Long, Entry> byUser = new ConcurrentHashMap<>();
+    // Entries with urgency above NORMAL; changed together with byUser
+    private volatile int urgentCount;
+
+    // Snapshot versions; taken under the summary row lock, so per user they follow commit order
+    private final AtomicLong versions = new AtomicLong();
+    // Versions of entries removed by apply(), so an older snapshot cannot bring them back
+    private final ConcurrentHashMap<Long, Long> removedVersions = new ConcurrentHashMap<>();
+    private long sweptVersion;
+
+    /**
+     * Snapshot of a summary row, taken inside the writing transaction while the row is locked
+     */
+    public Entry snapshot(ConversationSummary summary) {
+        return snapshot(summary, versions.incrementAndGet());
+    }
+
+    private Entry snapshot(ConversationSummary summary, long version) {
+        User user = summary.getUser();
+        SupportTicket ticket = summary.getTicket();
+        return new Entry(
+            user.getId(),
+            user.getFirstName() + " " + user.getLastName(),
+            user.getEmail(),
+            ticket != null ? ticket.getId() : null,
+            ticket != null ? ticket.getTicketNumber() : null,
+            ticket != null ? ticket.getSubject() : null,
+            ticket != null ? ticket.getCategory() : null,
+            ticket != null ? ticket.getPriority().name() : null,
+            summary.getTicketStatus(),
+            ticket != null ? ticket.getAssignedTo() : null,
+            ticket != null ? ticket.getCreatedAt() : null,
+            summary.needsFirstResponse(),
+            summary.waitingSince(),
+            summary.getLastActivityAt(),
+            summary.getLastMessagePreview(),
+            summary.getLastMessageAt(),
+            summary.getLastSenderType() != null ? summary.getLastSenderType().name() : null,
+            summary.getUnreadCount(),
+            summary.getPendingUrgency(),
+            summary.getResponseDueAt(),
+            summary.getSlaBreachedAt() != null,
+            version);
+    }
+
+    /**
+     * Apply a committed change and push it to agent consoles. Ignored when a
+     * newer snapshot of the same conversation was applied already.
+     */
+    public void apply(Entry entry) {
+        boolean active = isActive(entry, LocalDateTime.now().minusHours(activeWindowHours));
+        boolean changed;
+        synchronized (this) {
+            Entry current = byUser.get(entry.userId());
+            Long removedVersion = removedVersions.get(entry.userId());
+            if ((current != null && current.version() > entry.version())
+                || (removedVersion != null && removedVersion > entry.version())) {
+                return;
+            }
+            if (active) {
+                removedVersions.remove(entry.userId());
+                changed = put(entry);
+            } else {
+                removedVersions.put(entry.userId(), entry.version());
+                changed = remove(entry.userId());
+            }
+        }
+        if (changed) {
+            push(active ? "upsert" : "remove", entry);
+        }
+    }
+
+    /**
+     * Highest-priority K conversations
+     */
+    public List<Entry> top(int limit) {
+        List<Entry> top = new ArrayList<>(Math.min(limit, queue.size()));
+        Iterator<Entry> it = queue.iterator();
+        while (top.size() < limit && it.hasNext()) {
+            top.add(it.next());
+        }
+        return top;
+    }
+
+    public int size() {
+        return byUser.size();
+    }
+
+    /**
+     * Conversations whose unanswered messages include an urgent one
+     */
+    public int urgentCount() {
+        return urgentCount;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE) // after the conversation_summary backfill
+    public void load() {
+        if (rebuild()) {
+            logger.info("✅ Agent inbox loaded with {} conversations", size());
+        }
+    }
+
+    /**
+     * Replace the queue with the active rows of conversation_summary. Entries
+     * applied after the query started are newer than what it read and are kept.
+     */
+    public boolean rebuild() {
+        try {
+            long version = versions.incrementAndGet();
+            LocalDateTime since = LocalDateTime.now().minusHours(activeWindowHours);
+            List<ConversationSummary> rows = summaryRepository.findActive(ACTIVE_STATUSES, since);
+            Map<Long, Entry> fresh = new HashMap<>();
+            for (ConversationSummary summary : rows) {
+                Entry entry = snapshot(summary, version);
+                if (isActive(entry, since)) {
+                    fresh.put(entry.userId(), entry);
+                }
+            }
+            synchronized (this) {
+                for (Iterator<Map.Entry<Long, Entry>> it = byUser.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Long, Entry> current = it.next();
+                    if (!fresh.containsKey(current.getKey()) && current.getValue().version() < version) {
+                        queue.remove(current.getValue());
+                        it.remove();
+                        urgentCount -= current.getValue().urgency().isUrgent() ? 1 : 0;
+                    }
+                }
+                for (Entry entry : fresh.values()) {
+                    Entry current = byUser.get(entry.userId());
+                    Long removedVersion = removedVersions.get(entry.userId());
+                    if ((current == null || current.version() < version)
+                        && (removedVersion == null || removedVersion < version)) {
+                        put(entry);
+                    }
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            logger.error("❌ Agent inbox rebuild failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Drops chat-only conversations that left the active window, and on a
+     * multi-node deployment picks up changes made on other nodes.
+     */
+    @Scheduled(fixedDelayString = "${app.support.inbox.sweep-interval-ms:30000}")
+    public void sweep() {
+        // Late callbacks arrive within moments; tombstones older than the last sweep can go
+        long swept = sweptVersion;
+        removedVersions.values().removeIf(version -> version <= swept);
+        sweptVersion = versions.get();
+
+        LocalDateTime since = LocalDateTime.now().minusHours(activeWindowHours);
+        for (Entry entry : byUser.values()) {
+            if (!isActive(entry, since)) {
+                boolean removed;
+                synchronized (this) {
+                    removed = byUser.get(entry.userId()) == entry && remove(entry.userId());
+                }
+                if (removed) {
+                    push("remove", entry);
+                }
+            }
+        }
+        if (clusterRelayService.isClustered()) {
+            rebuild();
+        }
+    }
+
+    // Callers hold the monitor, so byUser and queue change together
+    private boolean put(Entry entry) {
+        Entry previous = byUser.put(entry.userId(), entry);
+        if (previous != null) {
+            queue.remove(previous);
+            urgentCount -= previous.urgency().isUrgent() ? 1 : 0;
+        }
+        queue.add(entry);
+        urgentCount += entry.urgency().isUrgent() ? 1 : 0;
+        return previous == null || !entry.equals(previous.withVersion(entry.version()));
+    }
+
+    private boolean remove(Long userId) {
+        Entry previous = byUser.remove(userId);
+        if (previous == null) {
+            return false;
+        }
+        urgentCount -= previous.urgency().isUrgent() ? 1 : 0;
+        return queue.remove(previous);
+    }
+
+    private static boolean isActive(Entry entry, LocalDateTime since) {
+        return entry.needsFirstResponse()
+            || entry.urgency().isUrgent()
+            || ACTIVE_STATUSES.contains(entry.ticketStatus())
+            || (entry.lastMessageAt() != null && entry.lastMessageAt().isAfter(since));
+    }
+
+    private void push(String action, Entry entry) {
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("type", "support_inbox");
+            payload.put("action", action);
+            payload.put("userId", entry.userId());
+            if ("upsert".equals(action)) {
+                payload.put("chat", entry.toMap());
+            }
+            payload.put("totalCount", size());
+            payload.put("urgentCount", urgentCount());
+            payload.put("timestamp", LocalDateTime.now().toString());
+            deliveryRouter.broadcast(INBOX_TOPIC, payload);
+        } catch (Exception e) {
+            logger.warn("Could not push inbox update for user {}: {}", entry.userId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Immutable inbox row; replaced as a whole on every change so the skip
+     * list ordering never sees a mutated key.
+     */
+    public record Entry(Long userId, String userName, String userEmail,
+                        Long ticketId, String ticketNumber, String subject, String category, String priority,
+                        SupportTicket.TicketStatus ticketStatus, String assignedTo, LocalDateTime ticketCreatedAt,
+                        boolean needsFirstResponse, LocalDateTime waitingSince, LocalDateTime lastActivity,
+                        String lastMessage, LocalDateTime lastMessageAt, String lastMessageSender, int unreadCount,
+                        ChatMessage.Urgency urgency, LocalDateTime responseDueAt, boolean slaBreached,
+                        long version) {
+
+        // Same row under another version, to tell real changes from re-snapshots
+        Entry withVersion(long newVersion) {
+            return new Entry(userId, userName, userEmail, ticketId, ticketNumber, subject, category, priority,
+                ticketStatus, assignedTo, ticketCreatedAt, needsFirstResponse, waitingSince, lastActivity,
+                lastMessage, lastMessageAt, lastMessageSender, unreadCount, urgency, responseDueAt, slaBreached,
+                newVersion);
+        }
+
+        public String conversationType() {
+            if (needsFirstResponse) {
+                return "NEEDS_FIRST_RESPONSE";
+            }
+            return ticketStatus != null ? ticketStatus.name() : "CHAT_ONLY";
+        }
+
+        /**
+         * Same keys as the chat info maps of the support endpoints
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> chatInfo = new HashMap<>();
+            chatInfo.put("userId", userId);
+            chatInfo.put("userName", userName);
+            chatInfo.put("userEmail", userEmail);
+            chatInfo.put("ticketId", ticketId);
+            chatInfo.put("ticketNumber", ticketNumber);
+            chatInfo.put("subject", ticketId != null ? subject : "Chat Conversation");
+            chatInfo.put("category", ticketId != null ? category : "General");
+            chatInfo.put("priority", ticketId != null ? priority : "NORMAL");
+            chatInfo.put("status", ticketStatus != null ? ticketStatus.name() : "CHAT_ACTIVE");
+            chatInfo.put("conversationType", conversationType());
+            chatInfo.put("createdAt", ticketCreatedAt != null ? ticketCreatedAt.toString()
+                : lastMessageAt != null ? lastMessageAt.toString() : null);
+            chatInfo.put("lastActivity", lastActivity.toString());
+            chatInfo.put("assignedTo", assignedTo);
+            chatInfo.put("waitingSince", waitingSince != null ? waitingSince.toString() : null);
+            chatInfo.put("unreadCount", unreadCount);
+            chatInfo.put("urgency", urgency.name());
+            chatInfo.put("responseDueAt", responseDueAt != null ? responseDueAt.toString() : null);
+            chatInfo.put("slaBreached", slaBreached);
+            if (lastMessageAt != null) {
+                chatInfo.put("lastMessage", lastMessage);
+                chatInfo.put("lastMessageTime", lastMessageAt.toString());
+                chatInfo.put("lastMessageSender", lastMessageSender);
+            }
+            return chatInfo;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.Appointment;
+import com.medicalapp.medical_app_backend.entity.AppointmentReminder;
+import com.medicalapp.medical_app_backend.repository.AppointmentReminderRepository;
+import com.medicalapp.medical_app_backend.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends appointment reminders automatically at configured offsets before appointmentDate.
+ *
+ * Each sweep looks at one time bucket per offset: appointments starting in
+ * [now + offset - grace, now + offset). Appointments booked after a bucket has
+ * passed (e.g. booked 3h ahead) skip that offset instead of getting a late "24h" reminder.
+ *
+ * Sends are claimed by inserting an AppointmentReminder row first; the unique
+ * (appointment_id, reminder_offset) key makes the claim safe across instances.
+ */
+@Service
+public class AppointmentReminderScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentReminderScheduler.class);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentReminderRepository appointmentReminderRepository;
+
+    @Autowired
+    private AutoNotificationService autoNotificationService;
+
+    @Value("${app.notification.reminders.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notification.reminders.offsets:24h,2h}")
+    private String offsets;
+
+    @Value("${app.notification.reminders.grace-minutes:30}")
+    private int graceMinutes;
+
+    @Value("${app.notification.reminders.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.notification.reminders.retention-days:7}")
+    private int retentionDays;
+
+    @Scheduled(fixedDelayString = "${app.notification.reminders.sweep-interval-ms:60000}",
+               initialDelayString = "${app.notification.reminders.initial-delay-ms:30000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, Duration> offset : parseOffsets(offsets).entrySet()) {
+            try {
+                int sent = sweepBucket(offset.getKey(), offset.getValue(), now);
+                if (sent > 0) {
+                    logger.info("⏰ Sent {} '{}' appointment reminders", sent, offset.getKey());
+                }
+            } catch (Exception e) {
+                logger.error("❌ Reminder sweep for '{}' failed: {}", offset.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private int sweepBucket(String label, Duration offset, LocalDateTime now) {
+        LocalDateTime to = now.plus(offset);
+        LocalDateTime from = to.minusMinutes(graceMinutes);
+        if (from.isBefore(now)) {
+            from = now; // never remind about appointments that already started
+        }
+
+        int sent = 0;
+        int page = 0;
+        while (true) {
+            List<Appointment> candidates = appointmentRepository.findForReminderWindow(
+                Appointment.Status.SCHEDULED, from, to, PageRequest.of(page, batchSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = candidates.stream().map(Appointment::getId).toList();
+            Set<Long> alreadyReminded = new HashSet<>(
+                appointmentReminderRepository.findRemindedAppointmentIds(label, ids));
+
+            List<Appointment> claimed = new ArrayList<>();
+            List<Long> claimIds = new ArrayList<>();
+            for (Appointment appointment : candidates) {
+                if (alreadyReminded.contains(appointment.getId())) {
+                    continue;
+                }
+                AppointmentReminder claim = tryClaim(appointment, label);
+                if (claim != null) {
+                    claimed.add(appointment);
+                    claimIds.add(claim.getId());
+                }
+            }
+
+            sent += deliver(claimed, claimIds, label);
+
+            if (candidates.size() < batchSize) {
+                break;
+            }
+            page++;
+        }
+        return sent;
+    }
+
+    private AppointmentReminder tryClaim(Appointment appointment, String label) {
+        try {
+            return appointmentReminderRepository.saveAndFlush(
+                new AppointmentReminder(appointment.getId(), label, appointment.getAppointmentDate()));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance (or an overlapping sweep) claimed it first
+            logger.debug("Reminder '{}' for appointment {} already claimed", label, appointment.getId());
+            return null;
+        }
+    }
+
+    private int deliver(List<Appointment> claimed, List<Long> claimIds, String label) {
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (int i = 0; i < claimed.size(); i++) {
+            if (autoNotificationService.sendAppointmentReminder(claimed.get(i), label)) {
+                sentIds.add(claimIds.get(i));
+            } else {
+                logger.warn("Reminder '{}' for appointment {} failed", label, claimed.get(i).getId());
+                failedIds.add(claimIds.get(i));
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!sentIds.isEmpty()) {
+            appointmentReminderRepository.updateStatus(sentIds, AppointmentReminder.Status.SENT, now);
+        }
+        if (!failedIds.isEmpty()) {
+            appointmentReminderRepository.updateStatus(failedIds, AppointmentReminder.Status.FAILED, null);
+        }
+        return sentIds.size();
+    }
+
+    /**
+     * Drop reminder records for appointments that are well in the past
+     */
+    @Scheduled(cron = "${app.notification.reminders.cleanup-cron:0 30 3 * * *}")
+    public void cleanup() {
+        try {
+            int deleted = appointmentReminderRepository.deleteByAppointmentDateBefore(
+                LocalDateTime.now().minusDays(retentionDays));
+            if (deleted > 0) {
+                logger.info("Removed {} old appointment reminder records", deleted);
+            }
+        } catch (Exception e) {
+            logger.warn("Reminder cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Parse "24h,2h,30m,1d" into label -> duration, in configured order
+     */
+    static Map<String, Duration> parseOffsets(String spec) {
+        Map<String, Duration> parsed = new LinkedHashMap<>();
+        if (spec == null) {
+            return parsed;
+        }
+        for (String raw : spec.split(",")) {
+            String label = raw.trim().toLowerCase();
+            if (label.length() < 2) {
+                continue;
+            }
+            try {
+                long amount = Long.parseLong(label.substring(0, label.length() - 1));
+                Duration duration = switch (label.charAt(label.length() - 1)) {
+                    case 'd' -> Duration.ofDays(amount);
+                    case 'h' -> Duration.ofHours(amount);
+                    case 'm' -> Duration.ofMinutes(amount);
+                    default -> null;
+                };
+                if (duration != null && !duration.isNegative() && !duration.isZero()) {
+                    parsed.put(label, duration);
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid reminder offset '{}'", raw);
+            }
+        }
+        return parsed;
+    }
+}
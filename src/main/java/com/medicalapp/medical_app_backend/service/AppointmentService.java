@@ -5,9 +5,9 @@ import com.medicalapp.medical_app_backend.entity.Appointment;
 import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.repository.AppointmentRepository;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +34,7 @@ public class AppointmentService {
 private AutoNotificationService autoNotificationService; // ✅ ADD THIS
 
 @Autowired
-private SimpMessagingTemplate messagingTemplate;
+private NotificationDeliveryRouter deliveryRouter;
 
 public void notifyAdminOfNewAppointment(Appointment appointment) {
     Map<String, Object> notification = new HashMap<>();
@@ -43,7 +43,7 @@ public void notifyAdminOfNewAppointment(Appointment appointment) {
     notification.put("appointmentId", appointment.getId());
     notification.put("timestamp", LocalDateTime.now());
     
-    messagingTemplate.convertAndSend("/topic/admin/appointments", notification);
+    deliveryRouter.broadcast("/topic/admin/appointments", notification);
 }
 
 // Create new appointment
@@ -0,0 +1,230 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.AutoNotification;
+import com.medicalapp.medical_app_backend.repository.AutoNotificationRepository;
+import com.medicalapp.medical_app_backend.util.MessageTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-memory rule engine for admin-defined AutoNotification rules.
+ *
+ * - Enabled rules are compiled into an immutable index keyed by trigger. The index
+ *   is swapped atomically on reload(), so event threads never see a half-built map.
+ * - Title/message templates are parsed once at load time (see MessageTemplate).
+ * - Rules with delayMinutes > 0 are handed to a delay queue instead of firing inline.
+ * - timesTriggered/lastTriggered are accumulated in LongAdder counters and written
+ *   back in one batch per flush interval instead of one UPDATE per event.
+ *
+ * Delayed deliveries live in memory only; anything still queued at shutdown is dropped.
+ */
+@Service
+public class AutoNotificationRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoNotificationRuleEngine.class);
+
+    @Autowired
+    private AutoNotificationRepository autoNotificationRepository;
+
+    // Immutable snapshot: trigger -> compiled rules. Replaced wholesale on reload.
+    private volatile Map<String, List<CompiledRule>> rulesByTrigger = Map.of();
+
+    // Pending trigger counts per rule id, flushed periodically
+    private final ConcurrentHashMap<Long, LongAdder> pendingTriggerCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, LocalDateTime> pendingLastTriggered = new ConcurrentHashMap<>();
+
+    private final AtomicLong delayedScheduled = new AtomicLong();
+    private final AtomicLong delayedDelivered = new AtomicLong();
+
+    private final ScheduledExecutorService delayQueue = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "auto-notification-delay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        // Cancelled/removed tasks should not linger in the queue
+        if (delayQueue instanceof ScheduledThreadPoolExecutor executor) {
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        reload();
+    }
+
+    /**
+     * Rebuild the rule index from the database and swap it in.
+     * Called at startup and whenever an admin creates, toggles or deletes a rule.
+     */
+    public synchronized void reload() {
+        try {
+            List<AutoNotification> enabledRules = autoNotificationRepository.findByEnabled(true);
+
+            Map<String, List<CompiledRule>> index = new HashMap<>();
+            for (AutoNotification rule : enabledRules) {
+                if (rule.getTrigger() == null) {
+                    continue;
+                }
+                index.computeIfAbsent(rule.getTrigger(), t -> new ArrayList<>()).add(CompiledRule.of(rule));
+            }
+
+            Map<String, List<CompiledRule>> snapshot = new HashMap<>();
+            index.forEach((trigger, rules) -> snapshot.put(trigger, List.copyOf(rules)));
+            rulesByTrigger = Map.copyOf(snapshot);
+
+            logger.info("Auto-notification rules loaded: {} rules across {} triggers",
+                enabledRules.size(), rulesByTrigger.size());
+        } catch (Exception e) {
+            // Keep serving the previous snapshot if the reload fails
+            logger.error("❌ Failed to reload auto-notification rules: {}", e.getMessage());
+        }
+    }
+
+    public boolean hasRules(String trigger) {
+        return rulesByTrigger.containsKey(trigger);
+    }
+
+    /**
+     * Fire all enabled rules for a trigger.
+     *
+     * @param trigger   one of the AutoNotification.TRIGGER_* constants
+     * @param variables template values (firstName, testType, date, ...)
+     * @param delivery  callback that actually persists/sends the rendered notification
+     * @return number of rules matched; 0 means the caller should fall back to its default message
+     */
+    public int fire(String trigger, Map<String, String> variables, Consumer<RenderedNotification> delivery) {
+        List<CompiledRule> rules = rulesByTrigger.get(trigger);
+        if (rules == null || rules.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (CompiledRule rule : rules) {
+            RenderedNotification rendered = rule.render(variables);
+            recordTrigger(rule.id(), now);
+
+            if (rule.delayMinutes() > 0) {
+                delayedScheduled.incrementAndGet();
+                delayQueue.schedule(() -> deliverSafely(rendered, delivery), rule.delayMinutes(), TimeUnit.MINUTES);
+                logger.info("⏱️ Auto-notification rule {} scheduled in {} min", rule.id(), rule.delayMinutes());
+            } else {
+                deliverSafely(rendered, delivery);
+            }
+        }
+        return rules.size();
+    }
+
+    private void deliverSafely(RenderedNotification rendered, Consumer<RenderedNotification> delivery) {
+        try {
+            delivery.accept(rendered);
+            if (rendered.delayMinutes() > 0) {
+                delayedDelivered.incrementAndGet();
+            }
+        } catch (Exception e) {
+            logger.error("❌ Auto-notification rule {} delivery failed: {}", rendered.ruleId(), e.getMessage());
+        }
+    }
+
+    private void recordTrigger(Long ruleId, LocalDateTime when) {
+        pendingTriggerCounts.computeIfAbsent(ruleId, id -> new LongAdder()).increment();
+        pendingLastTriggered.merge(ruleId, when, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * Write accumulated trigger counts back to auto_notifications. Each UPDATE
+     * commits on its own, so one failing row cannot roll back counts already
+     * taken out of their adders.
+     */
+    @Scheduled(fixedDelayString = "${app.notification.rules.flush-interval-ms:30000}")
+    public void flushTriggerCounts() {
+        if (pendingTriggerCounts.isEmpty()) {
+            return;
+        }
+
+        int updated = 0;
+        for (Map.Entry<Long, LongAdder> entry : pendingTriggerCounts.entrySet()) {
+            Long ruleId = entry.getKey();
+            long delta = entry.getValue().sumThenReset();
+            if (delta == 0) {
+                continue;
+            }
+
+            LocalDateTime lastTriggered = pendingLastTriggered.remove(ruleId);
+            try {
+                autoNotificationRepository.incrementTriggerStats(ruleId, delta,
+                    lastTriggered != null ? lastTriggered : LocalDateTime.now());
+                updated++;
+            } catch (Exception e) {
+                // Put the counts back so they go out with the next flush
+                entry.getValue().add(delta);
+                if (lastTriggered != null) {
+                    pendingLastTriggered.merge(ruleId, lastTriggered, (a, b) -> a.isAfter(b) ? a : b);
+                }
+                logger.warn("Failed to flush trigger count for rule {}: {}", ruleId, e.getMessage());
+            }
+        }
+
+        if (updated > 0) {
+            logger.debug("Flushed trigger counts for {} auto-notification rules", updated);
+        }
+    }
+
+    public Map<String, Object> getEngineStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loadedTriggers", rulesByTrigger.size());
+        stats.put("loadedRules", rulesByTrigger.values().stream().mapToInt(List::size).sum());
+        stats.put("delayedScheduled", delayedScheduled.get());
+        stats.put("delayedDelivered", delayedDelivered.get());
+        stats.put("pendingFlush", pendingTriggerCounts.values().stream().mapToLong(LongAdder::sum).sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushTriggerCounts();
+        delayQueue.shutdownNow();
+    }
+
+    // ==================== RULE TYPES ====================
+
+    public record RenderedNotification(Long ruleId, String trigger, String type,
+                                       String title, String message, int delayMinutes) {}
+
+    private record CompiledRule(Long id, String trigger, String type,
+                                MessageTemplate title, MessageTemplate message, int delayMinutes) {
+
+        static CompiledRule of(AutoNotification rule) {
+            return new CompiledRule(
+                rule.getId(),
+                rule.getTrigger(),
+                rule.getType(),
+                MessageTemplate.compile(rule.getTitle()),
+                MessageTemplate.compile(rule.getMessage()),
+                rule.getDelayMinutes() != null ? Math.max(0, rule.getDelayMinutes()) : 0
+            );
+        }
+
+        RenderedNotification render(Map<String, String> variables) {
+            return new RenderedNotification(id, trigger, type,
+                title.render(variables), message.render(variables), delayMinutes);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.medicalapp.medical_app_backend.service;
 
 import com.medicalapp.medical_app_backend.entity.Appointment;
+import com.medicalapp.medical_app_backend.entity.AutoNotification;
 import com.medicalapp.medical_app_backend.entity.TestResult;
 import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.entity.Notification;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,9 +37,12 @@ public class AutoNotificationService {
     @Autowired
     private WebSocketNotificationService webSocketNotificationService;
 
+    @Autowired
+    private AutoNotificationRuleEngine ruleEngine;
+
     /**
      * Trigger notification when test result is uploaded
-     * Sends automatically WITHOUT needing any rules
+     * Uses enabled "results_ready" rules if any, otherwise the built-in message
      */
     @Async
     public void onTestResultUploaded(TestResult result) {
@@ -51,20 +56,24 @@ public class AutoNotificationService {
                 return;
             }
 
-            // Send notification directly WITHOUT checking rules
-            String title = "Your Test Results Are Ready!";
-            String message = String.format("Hi %s, your %s results are now available in the app. Please review them at your convenience.",
-                patient.getFirstName(), result.getTestType());
+            Map<String, String> variables = patientVariables(patient);
+            variables.put("testType", valueOf(result.getTestType()));
+            variables.put("testName", valueOf(result.getTestName()));
+            variables.put("labName", valueOf(result.getLabName()));
+            variables.put("status", valueOf(result.getStatus()));
+            variables.put("date", valueOf(result.getTestDate()));
 
-            Notification notification = new Notification(patient, title, message, "results");
-            notification.setReferenceType("test_result");
-            notification.setReferenceId(result.getId());
-            notification.setPriority(Notification.Priority.HIGH);
-            
-            notificationRepository.save(notification);
-            
-            // Send push notification
-            notificationService.sendPushNotification(patient, title, message, "result");
+            // Admin-defined rules take over the message; otherwise use the built-in default
+            int rulesFired = ruleEngine.fire(AutoNotification.TRIGGER_RESULTS_READY, variables, rendered ->
+                saveAndPush(patient, rendered.title(), rendered.message(), rendered.type(),
+                    "test_result", result.getId(), Notification.Priority.HIGH));
+
+            String title = "Your Test Results Are Ready!";
+            if (rulesFired == 0) {
+                String message = String.format("Hi %s, your %s results are now available in the app. Please review them at your convenience.",
+                    patient.getFirstName(), result.getTestType());
+                saveAndPush(patient, title, message, "results", "test_result", result.getId(), Notification.Priority.HIGH);
+            }
             
             // Send WebSocket notification
             Map<String, Object> resultMap = new HashMap<>();
@@ -85,7 +94,7 @@ public class AutoNotificationService {
 
     /**
      * Trigger notification when appointment is scheduled
-     * Sends automatically WITHOUT needing any rules
+     * Uses matching enabled rules if any, otherwise the built-in message
      */
     @Async
     public void onAppointmentScheduled(Appointment appointment) {
@@ -99,22 +108,19 @@ public class AutoNotificationService {
                 return;
             }
 
-            // Send notification directly WITHOUT checking rules
+            int rulesFired = ruleEngine.fire(AutoNotification.TRIGGER_APPOINTMENT_SCHEDULED,
+                appointmentVariables(patient, appointment), rendered ->
+                    saveAndPush(patient, rendered.title(), rendered.message(), rendered.type(),
+                        "appointment", appointment.getId(), Notification.Priority.HIGH));
+
             String title = "Appointment Confirmed";
-            String message = String.format("Hi %s, your %s appointment has been scheduled for %s. We'll see you then!",
-                patient.getFirstName(), 
-                appointment.getReason() != null ? appointment.getReason() : "medical",
-                appointment.getScheduledDate());
-
-            Notification notification = new Notification(patient, title, message, "appointment");
-            notification.setReferenceType("appointment");
-            notification.setReferenceId(appointment.getId());
-            notification.setPriority(Notification.Priority.HIGH);
-            
-            notificationRepository.save(notification);
-            
-            // Send push notification
-            notificationService.sendPushNotification(patient, title, message, "appointment");
+            if (rulesFired == 0) {
+                String message = String.format("Hi %s, your %s appointment has been scheduled for %s. We'll see you then!",
+                    patient.getFirstName(), 
+                    appointment.getReason() != null ? appointment.getReason() : "medical",
+                    appointment.getScheduledDate());
+                saveAndPush(patient, title, message, "appointment", "appointment", appointment.getId(), Notification.Priority.HIGH);
+            }
             
             // Send WebSocket notification
             Map<String, Object> appointmentMap = new HashMap<>();
@@ -133,7 +139,7 @@ public class AutoNotificationService {
 
     /**
      * Trigger notification when appointment status changes
-     * Sends automatically WITHOUT needing any rules
+     * Uses matching enabled rules if any, otherwise the built-in message
      */
     @Async
     public void onAppointmentStatusChanged(Appointment appointment, String oldStatus, String newStatus) {
@@ -147,43 +153,58 @@ public class AutoNotificationService {
                 return;
             }
 
-            // Send notification directly WITHOUT checking rules
-            String title = "";
-            String message = "";
-            
+            String trigger = null;
             if ("CONFIRMED".equalsIgnoreCase(newStatus)) {
-                title = "Appointment Confirmed";
-                message = String.format("Hi %s, your appointment has been confirmed for %s.",
-                    patient.getFirstName(), appointment.getScheduledDate());
+                trigger = AutoNotification.TRIGGER_APPOINTMENT_CONFIRMED;
             } else if ("CANCELLED".equalsIgnoreCase(newStatus)) {
-                title = "Appointment Cancelled";
-                message = String.format("Hi %s, your appointment for %s has been cancelled.",
-                    patient.getFirstName(), appointment.getScheduledDate());
+                trigger = AutoNotification.TRIGGER_APPOINTMENT_CANCELLED;
             } else if ("COMPLETED".equalsIgnoreCase(newStatus)) {
-                title = "Appointment Completed";
-                message = String.format("Hi %s, thank you for visiting us today!", patient.getFirstName());
-            } else {
-                title = "Appointment Update";
-                message = String.format("Hi %s, your appointment status has been updated to %s.",
-                    patient.getFirstName(), newStatus);
+                trigger = AutoNotification.TRIGGER_APPOINTMENT_COMPLETED;
             }
 
-            Notification notification = new Notification(patient, title, message, "appointment");
-            notification.setReferenceType("appointment");
-            notification.setReferenceId(appointment.getId());
-            notification.setPriority(Notification.Priority.NORMAL);
-            
-            notificationRepository.save(notification);
+            int rulesFired = 0;
+            if (trigger != null) {
+                Map<String, String> variables = appointmentVariables(patient, appointment);
+                variables.put("oldStatus", valueOf(oldStatus));
+                variables.put("status", valueOf(newStatus));
+                rulesFired = ruleEngine.fire(trigger, variables, rendered ->
+                    saveAndPush(patient, rendered.title(), rendered.message(), rendered.type(),
+                        "appointment", appointment.getId(), Notification.Priority.NORMAL));
+            }
+
+            String title = "";
+            String message = "";
             
-            // Send push notification
-            notificationService.sendPushNotification(patient, title, message, "appointment");
+            if (rulesFired == 0) {
+                if ("CONFIRMED".equalsIgnoreCase(newStatus)) {
+                    title = "Appointment Confirmed";
+                    message = String.format("Hi %s, your appointment has been confirmed for %s.",
+                        patient.getFirstName(), appointment.getScheduledDate());
+                } else if ("CANCELLED".equalsIgnoreCase(newStatus)) {
+                    title = "Appointment Cancelled";
+                    message = String.format("Hi %s, your appointment for %s has been cancelled.",
+                        patient.getFirstName(), appointment.getScheduledDate());
+                } else if ("COMPLETED".equalsIgnoreCase(newStatus)) {
+                    title = "Appointment Completed";
+                    message = String.format("Hi %s, thank you for visiting us today!", patient.getFirstName());
+                } else {
+                    title = "Appointment Update";
+                    message = String.format("Hi %s, your appointment status has been updated to %s.",
+                        patient.getFirstName(), newStatus);
+                }
+                saveAndPush(patient, title, message, "appointment", "appointment", appointment.getId(), Notification.Priority.NORMAL);
+            }
             
             // Send WebSocket notification
             webSocketNotificationService.notifyAppointmentStatusChange(
                 patient.getId(), newStatus, appointment.getId().toString()
             );
             
-            logger.info("✅ Auto-notification sent to patient {}: {}", patient.getId(), title);
+            if (rulesFired > 0) {
+                logger.info("✅ Auto-notification sent to patient {}: {} rule(s) for {}", patient.getId(), rulesFired, trigger);
+            } else {
+                logger.info("✅ Auto-notification sent to patient {}: {}", patient.getId(), title);
+            }
         } catch (Exception e) {
             logger.error("❌ Error sending auto-notification for status change: {}", e.getMessage());
         }
@@ -191,7 +212,7 @@ public class AutoNotificationService {
 
     /**
      * Trigger notification when test is booked
-     * Sends automatically WITHOUT needing any rules
+     * Uses matching enabled rules if any, otherwise the built-in message
      */
     @Async
     public void onTestBooked(Appointment appointment) {
@@ -205,23 +226,20 @@ public class AutoNotificationService {
                 return;
             }
 
-            // Send notification directly WITHOUT checking rules
+            int rulesFired = ruleEngine.fire(AutoNotification.TRIGGER_TEST_BOOKED,
+                appointmentVariables(patient, appointment), rendered ->
+                    saveAndPush(patient, rendered.title(), rendered.message(), rendered.type(),
+                        "appointment", appointment.getId(), Notification.Priority.HIGH));
+
             String title = "Test Appointment Booked";
-            String message = String.format("Hi %s, your %s has been booked for %s at %s. Please arrive 15 minutes early.",
-                patient.getFirstName(),
-                appointment.getReason() != null ? appointment.getReason() : "test",
-                appointment.getScheduledDate(),
-                appointment.getScheduledTime());
-
-            Notification notification = new Notification(patient, title, message, "appointment");
-            notification.setReferenceType("appointment");
-            notification.setReferenceId(appointment.getId());
-            notification.setPriority(Notification.Priority.HIGH);
-            
-            notificationRepository.save(notification);
-            
-            // Send push notification
-            notificationService.sendPushNotification(patient, title, message, "appointment");
+            if (rulesFired == 0) {
+                String message = String.format("Hi %s, your %s has been booked for %s at %s. Please arrive 15 minutes early.",
+                    patient.getFirstName(),
+                    appointment.getReason() != null ? appointment.getReason() : "test",
+                    appointment.getScheduledDate(),
+                    appointment.getScheduledTime());
+                saveAndPush(patient, title, message, "appointment", "appointment", appointment.getId(), Notification.Priority.HIGH);
+            }
             
             // Send WebSocket notification
             Map<String, Object> appointmentMap = new HashMap<>();
@@ -239,10 +257,20 @@ public class AutoNotificationService {
 
     /**
      * Send appointment reminder
-     * Sends automatically WITHOUT needing any rules
+     * Uses matching enabled rules if any, otherwise the built-in message
      */
     @Async
     public void sendAppointmentReminder(Appointment appointment) {
+        sendAppointmentReminder(appointment, null);
+    }
+
+    /**
+     * Send appointment reminder for a specific offset ("24h", "2h", ...)
+     * Called by AppointmentReminderScheduler; the offset is exposed to rule templates as {offset}
+     *
+     * @return false when the reminder could not be sent
+     */
+    public boolean sendAppointmentReminder(Appointment appointment, String reminderOffset) {
         try {
             logger.info("=== AUTO-NOTIFICATION TRIGGERED: Appointment Reminder ===");
             logger.info("Appointment ID: {}, Patient ID: {}", appointment.getId(), appointment.getUser().getId());
@@ -250,25 +278,24 @@ public class AutoNotificationService {
             User patient = appointment.getUser();
             if (patient == null) {
                 logger.warn("Patient not found for appointment ID: {}", appointment.getId());
-                return;
+                return false;
             }
 
-            // Send notification directly WITHOUT checking rules
-            String title = "Appointment Reminder";
-            String message = String.format("Hi %s, this is a reminder about your %s appointment scheduled for %s. Please arrive 15 minutes early.",
-                patient.getFirstName(),
-                appointment.getReason() != null ? appointment.getReason() : "medical",
-                appointment.getScheduledDate());
-
-            Notification notification = new Notification(patient, title, message, "reminder");
-            notification.setReferenceType("appointment");
-            notification.setReferenceId(appointment.getId());
-            notification.setPriority(Notification.Priority.HIGH);
-            
-            notificationRepository.save(notification);
-            
-            // Send push notification
-            notificationService.sendPushNotification(patient, title, message, "reminder");
+            Map<String, String> variables = appointmentVariables(patient, appointment);
+            variables.put("offset", valueOf(reminderOffset));
+
+            int rulesFired = ruleEngine.fire(AutoNotification.TRIGGER_APPOINTMENT_REMINDER, variables, rendered ->
+                    saveAndPush(patient, rendered.title(), rendered.message(), rendered.type(),
+                        "appointment", appointment.getId(), Notification.Priority.HIGH));
+
+            if (rulesFired == 0) {
+                String title = "Appointment Reminder";
+                String message = String.format("Hi %s, this is a reminder about your %s appointment scheduled for %s. Please arrive 15 minutes early.",
+                    patient.getFirstName(),
+                    appointment.getReason() != null ? appointment.getReason() : "medical",
+                    appointment.getScheduledDate());
+                saveAndPush(patient, title, message, "reminder", "appointment", appointment.getId(), Notification.Priority.HIGH);
+            }
             
             // Send WebSocket notification
             Map<String, Object> appointmentMap = new HashMap<>();
@@ -276,11 +303,14 @@ public class AutoNotificationService {
             appointmentMap.put("reason", appointment.getReason());
             appointmentMap.put("appointmentDate", appointment.getAppointmentDate());
             appointmentMap.put("isReminder", true);
+            appointmentMap.put("reminderOffset", reminderOffset);
             webSocketNotificationService.notifyNewAppointment(patient.getId(), appointmentMap);
             
             logger.info("✅ Appointment reminder sent to patient {}", patient.getId());
+            return true;
         } catch (Exception e) {
             logger.error("❌ Error sending appointment reminder: {}", e.getMessage());
+            return false;
         }
     }
 
@@ -305,8 +335,8 @@ public class AutoNotificationService {
             
             notificationRepository.save(notification);
             
-            // Send push notification
-            notificationService.sendPushNotification(patient, title, message, type);
+            // Send push notification (don't wait on Expo)
+            notificationService.sendPushNotificationAsync(patient, title, message, type);
             
             // Send WebSocket notification
             webSocketNotificationService.notifyUser(recipientId, title, message, type);
@@ -326,6 +356,7 @@ public class AutoNotificationService {
             logger.info("Sending to all patients");
             
             List<User> allPatients = userRepository.findByRole(User.Role.PATIENT);
+            List<Long> patientIds = new ArrayList<>(allPatients.size());
             
             for (User patient : allPatients) {
                 Notification notification = new Notification(patient, title, message, type);
@@ -333,13 +364,15 @@ public class AutoNotificationService {
                 
                 notificationRepository.save(notification);
                 
-                // Send push notification
-                notificationService.sendPushNotification(patient, title, message, type);
+                // Send push notification (NORMAL priority, so it is digested)
+                notificationService.sendPushNotification(patient, title, message, type, Notification.Priority.NORMAL);
                 
-                // Send WebSocket notification
-                webSocketNotificationService.notifyUser(patient.getId(), title, message, type);
+                patientIds.add(patient.getId());
             }
             
+            // One WebSocket payload, encoded once, for every patient
+            webSocketNotificationService.notifyUsers(patientIds, title, message, type);
+            
             // Also send broadcast to all connected users
             webSocketNotificationService.notifyAll(title, message, type);
             
@@ -348,4 +381,45 @@ public class AutoNotificationService {
             logger.error("❌ Error sending broadcast notification: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Persist the in-app notification and send the push for one rendered message
+     */
+    private void saveAndPush(User patient, String title, String message, String type,
+                             String referenceType, Long referenceId, Notification.Priority priority) {
+        Notification notification = new Notification(patient, title, message, type);
+        notification.setReferenceType(referenceType);
+        notification.setReferenceId(referenceId);
+        notification.setPriority(priority);
+        
+        notificationRepository.save(notification);
+        
+        // Send push notification (low-priority messages go through the user's digest)
+        notificationService.sendPushNotification(patient, title, message, type, priority);
+    }
+
+    private Map<String, String> patientVariables(User patient) {
+        Map<String, String> variables = new HashMap<>();
+        variables.put("firstName", valueOf(patient.getFirstName()));
+        variables.put("lastName", valueOf(patient.getLastName()));
+        variables.put("username", valueOf(patient.getUsername()));
+        return variables;
+    }
+
+    private Map<String, String> appointmentVariables(User patient, Appointment appointment) {
+        Map<String, String> variables = patientVariables(patient);
+        variables.put("reason", appointment.getReason() != null ? appointment.getReason() : "medical");
+        variables.put("testType", valueOf(appointment.getTestType()));
+        variables.put("date", valueOf(appointment.getScheduledDate()));
+        variables.put("time", valueOf(appointment.getScheduledTime()));
+        variables.put("doctorName", valueOf(appointment.getDoctorName()));
+        variables.put("status", appointment.getStatus() != null ? appointment.getStatus().name() : "");
+        return variables;
+    }
+
+    private static String valueOf(Object value) {
+        return value != null ? value.toString() : "";
+    }
+}
@@ -2,6 +2,7 @@ package com.medicalapp.medical_app_backend.service;
 
 import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.service.sms.SmsMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -18,6 +19,9 @@ public class ContactVerificationService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private NotificationService notificationService;
+
     // Store verification codes temporarily (use Redis in production)
     private final Map<String, VerificationSession> verificationSessions = new HashMap<>();
 
@@ -251,9 +255,8 @@ public class ContactVerificationService {
     private boolean sendCode(String type, String target, String code) {
         try {
             if ("phone".equals(type)) {
-                // Send SMS - integrate with SMS provider
-                System.out.println("SMS to " + target + ": Your verification code is " + code);
-                return true;
+                return notificationService.sendSMS(target,
+                    "Your verification code is " + code, SmsMessage.Priority.OTP);
             } else {
                 // Send email - integrate with email provider
                 System.out.println("Email to " + target + ": Your verification code is " + code);
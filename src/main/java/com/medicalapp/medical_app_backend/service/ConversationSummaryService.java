@@ -0,0 +1,224 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.ChatMessage;
+import com.medicalapp.medical_app_backend.entity.ConversationSummary;
+import com.medicalapp.medical_app_backend.entity.SupportTicket;
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.ChatMessageRepository;
+import com.medicalapp.medical_app_backend.repository.ConversationSummaryRepository;
+import com.medicalapp.medical_app_backend.repository.SupportTicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maintains the conversation_summary read model behind the support inbox.
+ *
+ * The record methods join the caller's transaction, so the summary commits or
+ * rolls back together with the message / ticket write it describes, including
+ * the response deadline. The agent inbox and the SLA timer only see the change
+ * once that transaction has committed.
+ */
+@Service
+public class ConversationSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummaryService.class);
+
+    private static final int BACKFILL_BATCH = 500;
+
+    private static final List<SupportTicket.TicketStatus> ACTIVE_TICKET_STATUSES =
+        List.of(SupportTicket.TicketStatus.OPEN, SupportTicket.TicketStatus.IN_PROGRESS);
+
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private SupportTicketRepository supportTicketRepository;
+
+    @Autowired
+    private AgentInbox agentInbox;
+
+    @Autowired
+    private ResponseSlaService responseSla;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMessage(ChatMessage message) {
+        ConversationSummary summary = lockSummary(message.getUser());
+        summary.recordMessage(message);
+        summary.updateResponseDue(responseSla.deadline(summary));
+        publishAfterCommit(summary);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTicket(SupportTicket ticket) {
+        ConversationSummary summary = lockSummary(ticket.getUser());
+        summary.recordTicket(ticket, LocalDateTime.now());
+        summary.updateResponseDue(responseSla.deadline(summary));
+        publishAfterCommit(summary);
+    }
+
+    /**
+     * Escalates a breached response deadline: claims it (once, across nodes),
+     * bumps the priority of the conversation's active ticket and moves the
+     * conversation up the inbox. Null when the deadline no longer applies.
+     */
+    @Transactional
+    public AgentInbox.Entry escalateOverdue(Long userId, LocalDateTime due) {
+        LocalDateTime now = LocalDateTime.now();
+        if (summaryRepository.claimSlaBreach(userId, due, now) == 0) {
+            return null;
+        }
+        ConversationSummary summary = summaryRepository.findByUserIdForUpdate(userId).orElseThrow();
+        SupportTicket ticket = summary.getTicket();
+        if (ticket != null && ACTIVE_TICKET_STATUSES.contains(ticket.getStatus())) {
+            SupportTicket.Priority[] priorities = SupportTicket.Priority.values();
+            int bumped = Math.min(ticket.getPriority().ordinal() + 1, priorities.length - 1);
+            if (bumped != ticket.getPriority().ordinal()) {
+                ticket.setPriority(priorities[bumped]);
+                supportTicketRepository.save(ticket);
+                summary.recordTicket(ticket, now);
+            }
+        }
+        return publishAfterCommit(summary);
+    }
+
+    /**
+     * Inbox page ordered by last activity; pass the last row's (lastActivityAt, id) to continue
+     */
+    @Transactional(readOnly = true)
+    public List<ConversationSummary> findInboxPage(LocalDateTime afterActivity, Long afterId, int limit) {
+        return summaryRepository.findInboxPage(afterActivity, afterId, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public long countConversations() {
+        return summaryRepository.count();
+    }
+
+    // Snapshot now, while the lazy user / ticket can still load; apply once committed
+    private AgentInbox.Entry publishAfterCommit(ConversationSummary summary) {
+        AgentInbox.Entry entry = agentInbox.snapshot(summary);
+        LocalDateTime pendingDue = summary.getSlaBreachedAt() == null ? summary.getResponseDueAt() : null;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                agentInbox.apply(entry);
+                responseSla.arm(entry.userId(), pendingDue);
+            }
+        });
+        return entry;
+    }
+
+    // Locks the user's row, creating it first only when it does not exist yet
+    private ConversationSummary lockSummary(User user) {
+        Optional<ConversationSummary> existing = summaryRepository.findByUserIdForUpdate(user.getId());
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        summaryRepository.insertIfMissing(user.getId(), LocalDateTime.now());
+        return summaryRepository.findByUserIdForUpdate(user.getId()).orElseThrow();
+    }
+
+    /**
+     * Builds the read model from existing messages and tickets the first time
+     * the app starts with an empty conversation_summary table. Reads run outside
+     * a transaction (only ids of the lazy users are touched); saveAll has its own.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0) // before the agent inbox loads from it
+    public void backfillIfEmpty() {
+        if (summaryRepository.count() > 0) {
+            return;
+        }
+        try {
+            int rows = rebuild();
+            if (rows > 0) {
+                logger.info("✅ Backfilled conversation_summary with {} conversations", rows);
+            }
+        } catch (Exception e) {
+            logger.error("❌ conversation_summary backfill failed: {}", e.getMessage());
+        }
+    }
+
+    private int rebuild() {
+        Map<Long, ConversationSummary> byUser = new HashMap<>();
+        Map<Long, Long> lastMessageIds = new HashMap<>();
+
+        for (Object[] row : chatMessageRepository.summarizeByUser()) {
+            Long userId = (Long) row[0];
+            lastMessageIds.put(userId, (Long) row[2]);
+            ConversationSummary summary = emptySummary();
+            summary.setMessageCount((Long) row[1]);
+            byUser.put(userId, summary);
+        }
+
+        List<Long> ids = new ArrayList<>(lastMessageIds.values());
+        for (int i = 0; i < ids.size(); i += BACKFILL_BATCH) {
+            for (ChatMessage message : chatMessageRepository.findAllById(ids.subList(i, Math.min(ids.size(), i + BACKFILL_BATCH)))) {
+                ConversationSummary summary = byUser.get(message.getUser().getId());
+                long count = summary.getMessageCount();
+                summary.setUser(message.getUser());
+                summary.recordMessage(message);
+                // recordMessage counts the message; restore the aggregated figures
+                summary.setMessageCount(count);
+                summary.setUnreadCount(0);
+                summary.setAwaitingReplySince(null);
+                summary.setPendingUrgency(ChatMessage.Urgency.NORMAL);
+            }
+        }
+
+        for (Object[] row : chatMessageRepository.countUnansweredByUser()) {
+            ConversationSummary summary = byUser.get((Long) row[0]);
+            if (summary != null) {
+                summary.setUnreadCount(((Long) row[1]).intValue());
+                summary.setAwaitingReplySince((LocalDateTime) row[2]);
+            }
+        }
+
+        for (Object[] row : chatMessageRepository.findUnansweredUrgency(MessageUrgencyService.URGENT_LEVELS)) {
+            ConversationSummary summary = byUser.get((Long) row[0]);
+            if (summary != null) {
+                summary.setPendingUrgency(ChatMessage.Urgency.max(summary.getPendingUrgency(), (ChatMessage.Urgency) row[1]));
+            }
+        }
+
+        for (SupportTicket ticket : supportTicketRepository.findLatestTicketPerUser()) {
+            ConversationSummary summary = byUser.computeIfAbsent(ticket.getUser().getId(), id -> emptySummary());
+            if (summary.getUser() == null) {
+                summary.setUser(ticket.getUser());
+            }
+            summary.recordTicket(ticket, ticket.getUpdatedAt());
+        }
+
+        byUser.values().removeIf(summary -> summary.getUser() == null);
+        byUser.values().forEach(summary -> summary.updateResponseDue(responseSla.deadline(summary)));
+        summaryRepository.saveAll(byUser.values());
+        return byUser.size();
+    }
+
+    // No default activity time, so the first recorded message or ticket sets it
+    private static ConversationSummary emptySummary() {
+        ConversationSummary summary = new ConversationSummary();
+        summary.setLastActivityAt(null);
+        return summary;
+    }
+}
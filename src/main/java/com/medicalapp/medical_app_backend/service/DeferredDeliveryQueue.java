@@ -0,0 +1,173 @@
+package com.medicalapp.medical_app_backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds deliveries that could not be attempted because their channel was
+ * unavailable (circuit open, bulkhead full, or a failed send) and retries them
+ * once the channel lets calls through again.
+ *
+ * In-memory only: queued items are lost on restart, which is acceptable for
+ * notifications whose in-app copy is already persisted.
+ *
+ * Retries run on their own thread: they block on the sends they repeat, which
+ * must not hold up the shared @Scheduled thread.
+ */
+@Service
+@Lazy(false) // starts the retry loop at startup (app uses lazy initialization)
+public class DeferredDeliveryQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredDeliveryQueue.class);
+
+    @Autowired
+    private OutboundChannels outboundChannels;
+
+    @Value("${app.notification.resilience.deferred.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.notification.resilience.deferred.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.notification.resilience.deferred.max-age-minutes:360}")
+    private int maxAgeMinutes;
+
+    @Value("${app.notification.resilience.deferred.retry-interval-ms:15000}")
+    private long retryIntervalMs;
+
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "deferred-delivery-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentLinkedQueue<DeferredDelivery> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Queue a delivery for later. The task returns true once delivered, or once
+     * it failed in a way another attempt would not fix.
+     */
+    public boolean defer(String channel, String description, Callable<Boolean> task) {
+        if (size.get() >= maxSize) {
+            dropped.incrementAndGet();
+            logger.warn("⚠️ Deferred delivery queue full, dropping {} ({})", description, channel);
+            return false;
+        }
+        queue.add(new DeferredDelivery(channel, description, task, LocalDateTime.now(), 0));
+        size.incrementAndGet();
+        logger.info("Deferred {} until {} recovers", description, channel);
+        return true;
+    }
+
+    @PostConstruct
+    public void init() {
+        retryExecutor.scheduleWithFixedDelay(this::retrySafely, retryIntervalMs, retryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryExecutor.shutdownNow();
+    }
+
+    private void retrySafely() {
+        try {
+            retry();
+        } catch (Exception e) {
+            logger.error("❌ Deferred delivery retry failed: {}", e.getMessage());
+        }
+    }
+
+    public void retry() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime expiredBefore = LocalDateTime.now().minusMinutes(maxAgeMinutes);
+        List<DeferredDelivery> requeue = new ArrayList<>();
+        int attempted = 0;
+        int succeeded = 0;
+
+        // Only walk what is queued now; anything deferred during this pass waits for the next one
+        for (int remaining = size.get(); remaining > 0; remaining--) {
+            DeferredDelivery item = queue.poll();
+            if (item == null) {
+                break;
+            }
+            size.decrementAndGet();
+
+            if (item.queuedAt().isBefore(expiredBefore)) {
+                dropped.incrementAndGet();
+                logger.warn("Dropping expired deferred delivery: {}", item.description());
+                continue;
+            }
+            if (!outboundChannels.get(item.channel()).isCallPermitted()) {
+                requeue.add(item);
+                continue;
+            }
+
+            attempted++;
+            boolean ok;
+            try {
+                ok = Boolean.TRUE.equals(item.task().call());
+            } catch (Exception e) {
+                ok = false;
+            }
+
+            if (ok) {
+                succeeded++;
+                delivered.incrementAndGet();
+            } else if (item.attempts() + 1 >= maxAttempts) {
+                dropped.incrementAndGet();
+                logger.warn("❌ Giving up on deferred delivery after {} attempts: {}", maxAttempts, item.description());
+            } else {
+                requeue.add(item.nextAttempt());
+            }
+        }
+
+        for (DeferredDelivery item : requeue) {
+            queue.add(item);
+            size.incrementAndGet();
+        }
+
+        if (attempted > 0) {
+            logger.info("🔁 Retried {} deferred deliveries ({} delivered, {} still queued)", attempted, succeeded, size.get());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", size.get());
+        stats.put("delivered", delivered.get());
+        stats.put("dropped", dropped.get());
+        return stats;
+    }
+
+    private record DeferredDelivery(String channel, String description, Callable<Boolean> task,
+                                    LocalDateTime queuedAt, int attempts) {
+        DeferredDelivery nextAttempt() {
+            return new DeferredDelivery(channel, description, task, queuedAt, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medicalapp.medical_app_backend.util.ChannelGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking client for the Expo push API (send + getReceipts).
+ *
+ * Built on the JDK HttpClient over HTTP/2, so concurrent requests are multiplexed
+ * on a few connections instead of one blocking call per recipient. Single messages
+ * passed to enqueue() are coalesced for a few milliseconds and sent together, up to
+ * 100 per request as Expo allows; each request body is serialized once, up front.
+ *
+ * Every request goes through the "expo" ChannelGuard. Batches are sent from one
+ * thread that waits for a free bulkhead slot, so a burst goes out as fast as the
+ * channel allows instead of failing past its concurrency limit; only an open
+ * breaker or a failed request gives tickets a retryable error, so callers can
+ * defer the send.
+ *
+ * The base URL is configurable so a local HTTP stub can stand in for exp.host.
+ */
+@Component
+public class ExpoPushClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpoPushClient.class);
+
+    public static final int MAX_MESSAGES_PER_REQUEST = 100;
+    public static final int MAX_RECEIPTS_PER_REQUEST = 1000;
+
+    public static final String ERROR_DEVICE_NOT_REGISTERED = "DeviceNotRegistered";
+
+    // Local error codes (not from Expo): the request was never sent / did not complete
+    public static final String ERROR_CHANNEL_UNAVAILABLE = "ChannelUnavailable";
+    public static final String ERROR_TRANSPORT = "TransportError";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private OutboundChannels outboundChannels;
+
+    @Value("${app.notification.push.expo-base-url:https://exp.host/--/api/v2/push}")
+    private String baseUrl;
+
+    @Value("${app.notification.push.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.notification.push.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    // How long enqueue() waits for more messages before sending a partial batch
+    @Value("${app.notification.push.linger-ms:20}")
+    private long lingerMs;
+
+    private HttpClient httpClient;
+    private ScheduledExecutorService batchScheduler;
+
+    private final ConcurrentLinkedQueue<QueuedMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // Requests not answered yet, so shutdown can wait for them
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong requestsFailed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expo-push-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends anything still waiting for its batch and waits, up to the request
+     * timeout, for every request in flight, so queued pushes are not lost.
+     */
+    @PreDestroy
+    public void shutdown() {
+        batchScheduler.shutdown();
+        try {
+            batchScheduler.awaitTermination(requestTimeoutMs, TimeUnit.MILLISECONDS);
+            flushQueue();
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                .get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Expo push shutdown did not finish: {} requests still in flight", inFlight.size());
+        }
+    }
+
+    /**
+     * Queue a single message (must contain "to"); it is sent with whatever else
+     * arrives within the linger window. Completes with that message's ticket.
+     */
+    public CompletableFuture<PushTicket> enqueue(Map<String, Object> message) {
+        CompletableFuture<PushTicket> future = new CompletableFuture<>();
+        queue.add(new QueuedMessage(message, future));
+
+        if (queuedCount.incrementAndGet() >= MAX_MESSAGES_PER_REQUEST) {
+            batchScheduler.execute(this::flushQueue);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            batchScheduler.schedule(() -> {
+                flushScheduled.set(false);
+                flushQueue();
+            }, lingerMs, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    private void flushQueue() {
+        while (true) {
+            List<QueuedMessage> batch = new ArrayList<>(MAX_MESSAGES_PER_REQUEST);
+            QueuedMessage next;
+            while (batch.size() < MAX_MESSAGES_PER_REQUEST && (next = queue.poll()) != null) {
+                queuedCount.decrementAndGet();
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<Map<String, Object>> messages = batch.stream().map(QueuedMessage::message).toList();
+            CompletableFuture<List<PushTicket>> request;
+            try {
+                request = sendChunk(messages);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                request = CompletableFuture.completedFuture(
+                    errorTickets(messages, ERROR_CHANNEL_UNAVAILABLE, "Expo push client shutting down"));
+            }
+            request.whenComplete((tickets, error) -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    // sendChunk never completes exceptionally, but stay safe
+                    batch.get(i).future().complete(error == null ? tickets.get(i)
+                        : errorTicket(messages.get(i), ERROR_TRANSPORT, error.getMessage()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Send messages now, in requests of up to 100 through the same batcher as enqueue().
+     * Completes with one ticket per message, in order; a failed request yields "error" tickets.
+     */
+    public CompletableFuture<List<PushTicket>> sendAsync(List<Map<String, Object>> messages) {
+        List<CompletableFuture<PushTicket>> pending = new ArrayList<>(messages.size());
+        for (Map<String, Object> message : messages) {
+            pending.add(enqueue(message));
+        }
+        batchScheduler.execute(this::flushQueue);
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> pending.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Blocking variant of sendAsync for callers that need the result inline
+     */
+    public List<PushTicket> send(List<Map<String, Object>> messages) {
+        return sendAsync(messages).join();
+    }
+
+    // Runs on the batcher (or the shutdown thread); blocks while the bulkhead is full
+    private CompletableFuture<List<PushTicket>> sendChunk(List<Map<String, Object>> chunk) throws InterruptedException {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(chunk);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorTickets(chunk, null, e.getMessage()));
+        }
+
+        ChannelGuard guard = outboundChannels.expo();
+        ChannelGuard.Permit permit = guard.acquire();
+        if (permit == null) {
+            return CompletableFuture.completedFuture(
+                errorTickets(chunk, ERROR_CHANNEL_UNAVAILABLE, "Expo channel unavailable (" + guard.getState() + ")"));
+        }
+
+        requestsSent.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<List<PushTicket>> request = httpClient.sendAsync(jsonPost("/send", body), HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Expo returned HTTP " + response.statusCode());
+                }
+                List<PushTicket> tickets = parseTickets(chunk, response.body());
+                permit.onSuccess(System.nanoTime() - start);
+                return tickets;
+            })
+            .exceptionally(e -> {
+                permit.onFailure(System.nanoTime() - start);
+                requestsFailed.incrementAndGet();
+                logger.error("Expo API call failed: {}", e.getMessage());
+                return errorTickets(chunk, ERROR_TRANSPORT, e.getMessage());
+            });
+        inFlight.add(request);
+        request.whenComplete((tickets, error) -> inFlight.remove(request));
+        return request;
+    }
+
+    private List<PushTicket> parseTickets(List<Map<String, Object>> chunk, byte[] responseBody) {
+        List<PushTicket> tickets = new ArrayList<>(chunk.size());
+        try {
+            JsonNode data = objectMapper.readTree(responseBody).path("data");
+            for (int i = 0; i < chunk.size(); i++) {
+                JsonNode ticket = data.isArray() ? data.path(i) : data;
+                tickets.add(new PushTicket(
+                    String.valueOf(chunk.get(i).get("to")),
+                    ticket.path("status").asText("error"),
+                    ticket.hasNonNull("id") ? ticket.get("id").asText() : null,
+                    ticket.path("details").path("error").asText(null),
+                    ticket.path("message").asText(null)
+                ));
+            }
+            messagesSent.addAndGet(chunk.size());
+            return tickets;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable Expo response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fetch receipts for ticket ids. Ids without a receipt yet are simply absent from the result.
+     */
+    public Map<String, PushReceipt> getReceipts(Collection<String> ticketIds) {
+        List<String> ids = new ArrayList<>(ticketIds);
+        List<CompletableFuture<Map<String, PushReceipt>>> chunks = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += MAX_RECEIPTS_PER_REQUEST) {
+            chunks.add(getReceiptsChunk(ids.subList(start, Math.min(start + MAX_RECEIPTS_PER_REQUEST, ids.size()))));
+        }
+
+        Map<String, PushReceipt> receipts = new HashMap<>();
+        for (CompletableFuture<Map<String, PushReceipt>> chunk : chunks) {
+            receipts.putAll(chunk.join());
+        }
+        return receipts;
+    }
+
+    private CompletableFuture<Map<String, PushReceipt>> getReceiptsChunk(List<String> ids) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Map.of("ids", ids));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        // Receipts are not urgent: skip this round while Expo is unhealthy, they will be polled again
+        ChannelGuard guard = outboundChannels.expo();
+        ChannelGuard.Permit permit = guard.tryAcquire();
+        if (permit == null) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        long start = System.nanoTime();
+        return httpClient.sendAsync(jsonPost("/getReceipts", body), HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Expo returned HTTP " + response.statusCode());
+                }
+                permit.onSuccess(System.nanoTime() - start);
+                Map<String, PushReceipt> receipts = new HashMap<>();
+                try {
+                    JsonNode data = objectMapper.readTree(response.body()).path("data");
+                    Iterator<Map.Entry<String, JsonNode>> fields = data.fields();
+                    while (fields.hasNext()) {
+                        Map.Entry<String, JsonNode> field = fields.next();
+                        JsonNode receipt = field.getValue();
+                        receipts.put(field.getKey(), new PushReceipt(
+                            receipt.path("status").asText("error"),
+                            receipt.path("details").path("error").asText(null),
+                            receipt.path("message").asText(null)
+                        ));
+                    }
+                } catch (Exception e) {
+                    logger.warn("Unreadable Expo receipts response: {}", e.getMessage());
+                }
+                return receipts;
+            })
+            .exceptionally(e -> {
+                permit.onFailure(System.nanoTime() - start);
+                logger.warn("Expo getReceipts call failed: {}", e.getMessage());
+                return Map.of();
+            });
+    }
+
+    private HttpRequest jsonPost(String path, byte[] body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofMillis(requestTimeoutMs))
+            .header("Content-Type", "application/json")
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "identity")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+    }
+
+    private static List<PushTicket> errorTickets(List<Map<String, Object>> chunk, String error, String reason) {
+        List<PushTicket> tickets = new ArrayList<>(chunk.size());
+        for (Map<String, Object> message : chunk) {
+            tickets.add(errorTicket(message, error, reason));
+        }
+        return tickets;
+    }
+
+    private static PushTicket errorTicket(Map<String, Object> message, String error, String reason) {
+        return new PushTicket(String.valueOf(message.get("to")), "error", null, error, reason);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requestsSent", requestsSent.get());
+        stats.put("requestsFailed", requestsFailed.get());
+        stats.put("messagesSent", messagesSent.get());
+        stats.put("queuedMessages", queuedCount.get());
+        return stats;
+    }
+
+    // ==================== RESPONSE TYPES ====================
+
+    public record PushTicket(String token, String status, String id, String error, String message) {
+        public boolean isOk() {
+            return "ok".equals(status);
+        }
+
+        public boolean isDeviceNotRegistered() {
+            return ERROR_DEVICE_NOT_REGISTERED.equals(error);
+        }
+
+        // Never reached Expo (or got no answer) - worth sending again later
+        public boolean isRetryable() {
+            return ERROR_CHANNEL_UNAVAILABLE.equals(error) || ERROR_TRANSPORT.equals(error);
+        }
+    }
+
+    public record PushReceipt(String status, String error, String message) {
+        public boolean isDeviceNotRegistered() {
+            return ERROR_DEVICE_NOT_REGISTERED.equals(error);
+        }
+    }
+
+    private record QueuedMessage(Map<String, Object> message, CompletableFuture<PushTicket> future) {}
+}
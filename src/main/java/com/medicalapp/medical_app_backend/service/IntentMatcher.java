@@ -0,0 +1,115 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.util.AhoCorasick;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiled keyword -> intent table for the support chat bot.
+ *
+ * Every keyword or phrase of every intent goes into one AhoCorasick automaton
+ * over normalized tokens, so a message is scanned once however many keywords
+ * exist. An intent scores the summed weight of its distinct keywords found in
+ * the message; the highest score wins, ties go to the intent listed first.
+ */
+public class IntentMatcher {
+
+    public record Intent(String name, String response, Map<String, Integer> keywords) {}
+
+    public record Match(String intent, String response, int score) {}
+
+    private final List<Intent> intents;
+    private final AhoCorasick automaton;
+    // Per pattern: owning intent index and weight
+    private final int[] patternIntent;
+    private final int[] patternWeight;
+
+    public IntentMatcher(List<Intent> intents) {
+        this.intents = List.copyOf(intents);
+        List<List<String>> patterns = new ArrayList<>();
+        List<int[]> owners = new ArrayList<>();
+        for (int i = 0; i < this.intents.size(); i++) {
+            Intent intent = this.intents.get(i);
+            if (intent.keywords() == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> keyword : intent.keywords().entrySet()) {
+                patterns.add(tokens(keyword.getKey()));
+                owners.add(new int[]{i, keyword.getValue() != null ? keyword.getValue() : 1});
+            }
+        }
+        automaton = new AhoCorasick(patterns);
+        patternIntent = owners.stream().mapToInt(owner -> owner[0]).toArray();
+        patternWeight = owners.stream().mapToInt(owner -> owner[1]).toArray();
+    }
+
+    /**
+     * Best intent for the message, or null when no keyword occurs in it
+     */
+    public Match match(String message) {
+        if (message == null || message.isBlank()) {
+            return null;
+        }
+        // Sized by what matched, never by the keyword set
+        Set<Integer> seen = new HashSet<>();
+        Map<Integer, Integer> scores = new HashMap<>();
+        automaton.forEachMatch(tokens(message), pattern -> {
+            if (seen.add(pattern)) {
+                scores.merge(patternIntent[pattern], patternWeight[pattern], Integer::sum);
+            }
+        });
+
+        int best = -1;
+        int bestScore = 0;
+        for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+            int intent = score.getKey();
+            if (score.getValue() > bestScore || (score.getValue() == bestScore && intent < best)) {
+                best = intent;
+                bestScore = score.getValue();
+            }
+        }
+        return best < 0 ? null : new Match(intents.get(best).name(), intents.get(best).response(), bestScore);
+    }
+
+    public int intentCount() {
+        return intents.size();
+    }
+
+    public int keywordCount() {
+        return patternIntent.length;
+    }
+
+    /**
+     * Lowercase words (letters and digits); a trailing plural "s" is dropped
+     * so "results" matches the keyword "result". Keywords go through the same
+     * normalization.
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalize(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(String word) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        if (lower.length() > 3 && lower.endsWith("s") && !lower.endsWith("ss")) {
+            return lower.substring(0, lower.length() - 1);
+        }
+        return lower;
+    }
+}
@@ -0,0 +1,143 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.ChatMessage;
+import com.medicalapp.medical_app_backend.repository.ChatMessageRepository;
+import com.medicalapp.medical_app_backend.repository.ConversationSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifies chat messages as NORMAL / URGENT / EMERGENCY once, when they are
+ * written, with a compiled keyword matcher (an emergency keyword outweighs any
+ * number of urgent ones). The result is stored in chat_messages.urgency, so the
+ * urgent view is an index range instead of a LIKE scan over message text.
+ *
+ * Rows written before the column existed are classified by a background
+ * backfill after startup; it then sets conversation_summary.pending_urgency of
+ * conversations still waiting on an agent and reloads the agent inbox and the
+ * response deadlines that depend on it.
+ */
+@Service
+public class MessageUrgencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageUrgencyService.class);
+
+    public static final List<ChatMessage.Urgency> URGENT_LEVELS =
+        List.of(ChatMessage.Urgency.URGENT, ChatMessage.Urgency.EMERGENCY);
+
+    private static final int EMERGENCY_WEIGHT = 1_000;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+
+    @Autowired
+    private AgentInbox agentInbox;
+
+    @Autowired
+    private ResponseSlaService responseSla;
+
+    @Value("${app.support.urgency.emergency-keywords:emergency}")
+    private List<String> emergencyKeywords;
+
+    @Value("${app.support.urgency.urgent-keywords:urgent,critical}")
+    private List<String> urgentKeywords;
+
+    @Value("${app.support.urgency.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+
+    private IntentMatcher matcher;
+
+    @PostConstruct
+    public void init() {
+        matcher = new IntentMatcher(List.of(
+            new IntentMatcher.Intent(ChatMessage.Urgency.EMERGENCY.name(), null, weighted(emergencyKeywords, EMERGENCY_WEIGHT)),
+            new IntentMatcher.Intent(ChatMessage.Urgency.URGENT.name(), null, weighted(urgentKeywords, 1))));
+    }
+
+    public ChatMessage.Urgency classify(String text) {
+        IntentMatcher.Match match = matcher.match(text);
+        return match != null ? ChatMessage.Urgency.valueOf(match.intent()) : ChatMessage.Urgency.NORMAL;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInBackground() {
+        Thread.ofVirtual().name("urgency-backfill").start(this::backfill);
+    }
+
+    /**
+     * Classifies every row with a NULL urgency; only patient messages can be urgent
+     */
+    void backfill() {
+        long start = System.currentTimeMillis();
+        long classified = 0;
+        long urgent = 0;
+        try {
+            Long afterId = 0L;
+            while (true) {
+                List<Object[]> rows = chatMessageRepository.findUnclassifiedAfter(afterId, PageRequest.of(0, backfillBatchSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                Map<ChatMessage.Urgency, List<Long>> byUrgency = new EnumMap<>(ChatMessage.Urgency.class);
+                for (Object[] row : rows) {
+                    ChatMessage.Urgency urgency = row[2] == ChatMessage.SenderType.USER
+                        ? classify((String) row[1]) : ChatMessage.Urgency.NORMAL;
+                    byUrgency.computeIfAbsent(urgency, u -> new ArrayList<>()).add((Long) row[0]);
+                    urgent += urgency.isUrgent() ? 1 : 0;
+                }
+                byUrgency.forEach((urgency, ids) -> chatMessageRepository.setUrgency(ids, urgency));
+                classified += rows.size();
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+            if (classified == 0) {
+                return;
+            }
+            int conversations = applyPendingUrgency();
+            agentInbox.rebuild();
+            responseSla.load();
+            logger.info("✅ Urgency backfill classified {} messages ({} urgent, {} conversations waiting) in {} ms",
+                classified, urgent, conversations, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("❌ Urgency backfill stopped after {} messages: {}", classified, e.getMessage());
+        }
+    }
+
+    // Most severe urgency among each user's unanswered messages -> conversation_summary
+    private int applyPendingUrgency() {
+        Map<Long, ChatMessage.Urgency> pending = new HashMap<>();
+        for (Object[] row : chatMessageRepository.findUnansweredUrgency(URGENT_LEVELS)) {
+            pending.merge((Long) row[0], (ChatMessage.Urgency) row[1], ChatMessage.Urgency::max);
+        }
+        Map<ChatMessage.Urgency, List<Long>> byUrgency = new EnumMap<>(ChatMessage.Urgency.class);
+        pending.forEach((userId, urgency) -> byUrgency.computeIfAbsent(urgency, u -> new ArrayList<>()).add(userId));
+        byUrgency.forEach((urgency, userIds) -> summaryRepository.setPendingUrgency(userIds, urgency));
+        return pending.size();
+    }
+
+    private static Map<String, Integer> weighted(List<String> keywords, int weight) {
+        Map<String, Integer> weighted = new LinkedHashMap<>();
+        for (String keyword : keywords) {
+            if (!keyword.isBlank()) {
+                weighted.put(keyword.trim(), weight);
+            }
+        }
+        return weighted;
+    }
+}
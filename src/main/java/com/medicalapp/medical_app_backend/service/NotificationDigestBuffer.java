@@ -0,0 +1,152 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.Notification;
+import com.medicalapp.medical_app_backend.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user accumulator for low-priority push notifications and login-alert dedup.
+ *
+ * Pure in-memory state with no service dependencies, so NotificationService can
+ * enqueue into it while NotificationDigestService drains it on a schedule.
+ */
+@Component
+public class NotificationDigestBuffer {
+
+    @Value("${app.notification.digest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notification.digest.window-minutes:30}")
+    private int windowMinutes;
+
+    // Priorities strictly below this are digested; this level and above go out immediately
+    @Value("${app.notification.digest.priority-threshold:HIGH}")
+    private Notification.Priority priorityThreshold;
+
+    @Value("${app.notification.digest.max-items:50}")
+    private int maxItems;
+
+    @Value("${app.notification.digest.login-suppress-minutes:60}")
+    private int loginSuppressMinutes;
+
+    private final ConcurrentHashMap<Long, PendingDigest> pendingByUser = new ConcurrentHashMap<>();
+
+    // login fingerprint -> last time an alert was sent for it
+    private final ConcurrentHashMap<String, LocalDateTime> recentLoginAlerts = new ConcurrentHashMap<>();
+
+    public boolean shouldDigest(Notification.Priority priority) {
+        if (!enabled || priority == null) {
+            return false;
+        }
+        return priority.ordinal() < priorityThreshold.ordinal();
+    }
+
+    public void add(User recipient, String title, String message, String type) {
+        pendingByUser.compute(recipient.getId(), (id, digest) -> {
+            if (digest == null) {
+                digest = new PendingDigest(recipient, LocalDateTime.now());
+            }
+            digest.add(new DigestItem(title, message, type, LocalDateTime.now()), maxItems);
+            return digest;
+        });
+    }
+
+    /**
+     * Remove and return every digest whose window has elapsed
+     */
+    public List<PendingDigest> drainDue(LocalDateTime now) {
+        List<PendingDigest> due = new ArrayList<>();
+        LocalDateTime cutoff = now.minusMinutes(windowMinutes);
+        for (Map.Entry<Long, PendingDigest> entry : pendingByUser.entrySet()) {
+            if (!entry.getValue().getFirstQueuedAt().isAfter(cutoff)) {
+                PendingDigest removed = pendingByUser.remove(entry.getKey());
+                if (removed != null) {
+                    due.add(removed);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Remove and return everything (used at shutdown)
+     */
+    public List<PendingDigest> drainAll() {
+        List<PendingDigest> all = new ArrayList<>();
+        for (Long userId : List.copyOf(pendingByUser.keySet())) {
+            PendingDigest removed = pendingByUser.remove(userId);
+            if (removed != null) {
+                all.add(removed);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Record a login alert for this device fingerprint.
+     *
+     * @return true if an alert should be sent, false if the same fingerprint
+     *         already alerted within the suppression window
+     */
+    public boolean claimLoginAlert(String fingerprint) {
+        if (!enabled || loginSuppressMinutes <= 0) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusMinutes(loginSuppressMinutes);
+        boolean[] send = {false};
+        recentLoginAlerts.compute(fingerprint, (key, last) -> {
+            if (last == null || last.isBefore(cutoff)) {
+                send[0] = true;
+                return now;
+            }
+            return last;
+        });
+        return send[0];
+    }
+
+    public void pruneLoginAlerts(LocalDateTime now) {
+        LocalDateTime cutoff = now.minusMinutes(loginSuppressMinutes);
+        recentLoginAlerts.values().removeIf(last -> last.isBefore(cutoff));
+    }
+
+    public int getPendingUserCount() {
+        return pendingByUser.size();
+    }
+
+    // ==================== DIGEST TYPES ====================
+
+    public record DigestItem(String title, String message, String type, LocalDateTime createdAt) {}
+
+    public static class PendingDigest {
+        private final User recipient;
+        private final LocalDateTime firstQueuedAt;
+        private final List<DigestItem> items = new ArrayList<>();
+        private int totalCount;
+
+        PendingDigest(User recipient, LocalDateTime firstQueuedAt) {
+            this.recipient = recipient;
+            this.firstQueuedAt = firstQueuedAt;
+        }
+
+        // Only called inside ConcurrentHashMap.compute, so access is serialized per user
+        void add(DigestItem item, int maxItems) {
+            totalCount++;
+            if (items.size() < maxItems) {
+                items.add(item);
+            }
+        }
+
+        public User getRecipient() { return recipient; }
+        public LocalDateTime getFirstQueuedAt() { return firstQueuedAt; }
+        public List<DigestItem> getItems() { return items; }
+        public int getTotalCount() { return totalCount; }
+    }
+}
@@ -0,0 +1,121 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Flushes NotificationDigestBuffer: each user whose digest window has elapsed gets
+ * one combined push (or one email when no device is registered) instead of one
+ * message per low-priority event.
+ */
+@Service
+public class NotificationDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    private static final int SUMMARY_LINES = 3;
+
+    @Autowired
+    private NotificationDigestBuffer digestBuffer;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Scheduled(fixedDelayString = "${app.notification.digest.flush-check-ms:60000}")
+    public void flushDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationDigestBuffer.PendingDigest> due = digestBuffer.drainDue(now);
+        for (NotificationDigestBuffer.PendingDigest digest : due) {
+            send(digest);
+        }
+        digestBuffer.pruneLoginAlerts(now);
+
+        if (!due.isEmpty()) {
+            logger.info("📬 Flushed {} notification digests", due.size());
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        for (NotificationDigestBuffer.PendingDigest digest : digestBuffer.drainAll()) {
+            send(digest);
+        }
+    }
+
+    private void send(NotificationDigestBuffer.PendingDigest digest) {
+        User recipient = digest.getRecipient();
+        try {
+            List<NotificationDigestBuffer.DigestItem> items = digest.getItems();
+            if (items.isEmpty()) {
+                return;
+            }
+
+            String title;
+            String body;
+            String type;
+            if (digest.getTotalCount() == 1) {
+                // Nothing to combine - send the original message
+                NotificationDigestBuffer.DigestItem item = items.get(0);
+                title = item.title();
+                body = item.message();
+                type = item.type();
+            } else {
+                title = String.format("You have %d new updates", digest.getTotalCount());
+                body = buildSummary(digest);
+                type = "digest";
+            }
+
+            if (notificationService.hasRegisteredDevice(recipient)) {
+                notificationService.sendPushNotificationAsync(recipient, title, body, type);
+            } else if (recipient.getEmail() != null) {
+                notificationService.sendEmail(recipient.getEmail(), title, buildEmailBody(recipient, digest));
+            }
+        } catch (Exception e) {
+            logger.error("❌ Failed to send digest to user {}: {}", recipient.getId(), e.getMessage());
+        }
+    }
+
+    private String buildSummary(NotificationDigestBuffer.PendingDigest digest) {
+        List<NotificationDigestBuffer.DigestItem> items = digest.getItems();
+        StringBuilder summary = new StringBuilder();
+        int shown = Math.min(SUMMARY_LINES, items.size());
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                summary.append(" • ");
+            }
+            summary.append(items.get(i).title());
+        }
+        int remaining = digest.getTotalCount() - shown;
+        if (remaining > 0) {
+            summary.append(" and ").append(remaining).append(" more");
+        }
+        return summary.toString();
+    }
+
+    private String buildEmailBody(User recipient, NotificationDigestBuffer.PendingDigest digest) {
+        StringBuilder body = new StringBuilder();
+        body.append("Hello ").append(recipient.getFirstName() != null ? recipient.getFirstName() : "").append(",\n\n");
+        body.append("Here is a summary of your recent updates:\n\n");
+        for (NotificationDigestBuffer.DigestItem item : digest.getItems()) {
+            body.append("• ").append(item.title());
+            if (item.message() != null && !item.message().isEmpty()) {
+                body.append("\n  ").append(item.message());
+            }
+            body.append("\n");
+        }
+        int hidden = digest.getTotalCount() - digest.getItems().size();
+        if (hidden > 0) {
+            body.append("\n...and ").append(hidden).append(" more in the app.\n");
+        }
+        body.append("\nBest regards,\nQualitest Medical");
+        return body.toString();
+    }
+}
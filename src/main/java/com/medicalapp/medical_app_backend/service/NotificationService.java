@@ -2,16 +2,22 @@ package com.medicalapp.medical_app_backend.service;
 import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.entity.SupportTicket;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
 import com.medicalapp.medical_app_backend.entity.Notification;
 import com.medicalapp.medical_app_backend.entity.SecuritySettings;
+import com.medicalapp.medical_app_backend.entity.DeviceToken;
+import com.medicalapp.medical_app_backend.repository.DeviceTokenRepository;
 import com.medicalapp.medical_app_backend.repository.NotificationRepository;
 import com.medicalapp.medical_app_backend.repository.SecuritySettingsRepository;
+import com.medicalapp.medical_app_backend.service.sms.SmsDispatcher;
+import com.medicalapp.medical_app_backend.service.sms.SmsMessage;
+import com.medicalapp.medical_app_backend.util.ChannelGuard;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.http.HttpHeaders;
@@ -19,9 +25,13 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.mail.SendFailedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpEntity;
@@ -43,7 +53,28 @@ public class NotificationService {
 private RestTemplate restTemplate;
 
 @Autowired
-private SimpMessagingTemplate messagingTemplate;  // ← ADD THIS LINE
+private NotificationDeliveryRouter deliveryRouter;
+
+@Autowired
+private NotificationDigestBuffer digestBuffer;
+
+@Autowired
+private DeviceTokenRepository deviceTokenRepository;
+
+@Autowired
+private ExpoPushClient expoPushClient;
+
+@Autowired
+private PushReceiptService pushReceiptService;
+
+@Autowired
+private OutboundChannels outboundChannels;
+
+@Autowired
+private DeferredDeliveryQueue deferredDeliveryQueue;
+
+@Autowired
+private SmsDispatcher smsDispatcher;
 
 // Add this method to your NotificationService.java
 
@@ -132,35 +163,14 @@ public void createAndSendResultNotification(Long patientId, Long resultId, Strin
         logger.info("  - priority: {}", notification.getPriority().name());
         logger.info("  - referenceId: {}", resultId);
         
-        // 5. BROADCAST VIA WEBSOCKET
-        if (messagingTemplate != null) {
-            try {
-                String userId = String.valueOf(patientId);
-                
-                logger.info("📡 Broadcasting WebSocket notification to user: {}", userId);
-                
-                // Send to primary notification queue
-                messagingTemplate.convertAndSendToUser(
-                    userId, 
-                    "/queue/notifications", 
-                    payload
-                );
-                logger.info("✅ Sent to /user/{}/queue/notifications", userId);
-                
-                // Also send to topic (backup channel)
-                messagingTemplate.convertAndSendToUser(
-                    userId, 
-                    "/topic/notifications", 
-                    payload
-                );
-                logger.info("✅ Sent to /user/{}/topic/notifications", userId);
-                
-            } catch (Exception e) {
-                logger.error("❌ Failed to broadcast WebSocket: {}", e.getMessage(), e);
-                // Don't fail the whole operation if WebSocket fails
-            }
-        } else {
-            logger.error("❌ SimpMessagingTemplate is NULL! WebSocket not configured!");
+        // 5. DELIVER VIA WEBSOCKET (once, to whichever destination the client listens on;
+        //    offline users get it on replay)
+        try {
+            boolean live = deliveryRouter.deliver(patientId, payload);
+            logger.info(live ? "✅ Delivered to user {} over WebSocket" : "📥 User {} offline - buffered for replay", patientId);
+        } catch (Exception e) {
+            logger.error("❌ Failed to deliver WebSocket notification: {}", e.getMessage(), e);
+            // Don't fail the whole operation if WebSocket fails
         }
         
         logger.info("===========================================");
@@ -274,9 +284,6 @@ public Map<String, Object> getUserNotifications(UserDetails userDetails) {
                 agentName
             );
             
-            // Send push notification
-            boolean pushSent = sendPushNotification(user, title, notificationMessage, "support_reply");
-            
             // Send email notification for important support replies
             boolean emailSent = sendUserEmail(user, title, String.format(
                 "Hello %s,\n\n%s from our medical support team has replied to your inquiry:\n\n\"%s\"\n\nPlease check the app for the full conversation.\n\nBest regards,\nQualitest Medical Support Team",
@@ -285,13 +292,15 @@ public Map<String, Object> getUserNotifications(UserDetails userDetails) {
                 truncateMessage(message, 200)
             ));
             
-            System.out.println(String.format(
-                "[%s] USER NOTIFICATION - Agent reply sent to %s (Push: %s, Email: %s)",
-                LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-                user.getEmail(),
-                pushSent ? "SUCCESS" : "FAILED",
-                emailSent ? "SUCCESS" : "FAILED"
-            ));
+            // Send push notification without waiting for Expo
+            sendPushNotificationAsync(user, title, notificationMessage, "support_reply").thenAccept(pushSent ->
+                System.out.println(String.format(
+                    "[%s] USER NOTIFICATION - Agent reply sent to %s (Push: %s, Email: %s)",
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                    user.getEmail(),
+                    pushSent ? "SUCCESS" : "FAILED",
+                    emailSent ? "SUCCESS" : "FAILED"
+                )));
             
         } catch (Exception e) {
             System.err.println("Error notifying user of agent reply: " + e.getMessage());
@@ -329,7 +338,34 @@ public Map<String, Object> getUserNotifications(UserDetails userDetails) {
         return defaults;
     }
 
+    /**
+     * Priority-aware push: below the digest threshold the message is queued into
+     * the user's digest (see NotificationDigestService); HIGH/URGENT go out immediately.
+     * Does not wait for Expo - returns true once the push is queued.
+     */
+    public boolean sendPushNotification(User recipient, String title, String message, String type,
+                                        Notification.Priority priority) {
+        if (recipient != null && recipient.getId() != null && digestBuffer.shouldDigest(priority)) {
+            digestBuffer.add(recipient, title, message, type);
+            logger.info("Push queued into digest for {} ({} priority)", recipient.getUsername(), priority);
+            return true;
+        }
+        sendPushNotificationAsync(recipient, title, message, type);
+        return true;
+    }
+
+    /**
+     * Blocking push - use where the caller reports the outcome (e.g. test notification)
+     */
     public boolean sendPushNotification(User recipient, String title, String message, String type) {
+        return sendPushNotificationAsync(recipient, title, message, type).join();
+    }
+
+    /**
+     * Send to all of the user's devices without blocking the caller.
+     * Completes with true if at least one device accepted the message.
+     */
+    public CompletableFuture<Boolean> sendPushNotificationAsync(User recipient, String title, String message, String type) {
         try {
             logger.info("=== SENDING PUSH NOTIFICATION ===");
             logger.info("User: {}", recipient.getUsername());
@@ -337,67 +373,64 @@ public Map<String, Object> getUserNotifications(UserDetails userDetails) {
             logger.info("Message: {}", message);
             logger.info("Type: {}", type);
             
-            if (recipient.getDeviceToken() == null || recipient.getDeviceToken().isEmpty()) {
+            List<String> tokens = getDeviceTokens(recipient);
+            if (tokens.isEmpty()) {
                 logger.warn("No device token registered for user: {}", recipient.getUsername());
-                return false;
+                return CompletableFuture.completedFuture(false);
             }
             
-            Map<String, Object> notification = buildExpoNotificationPayload(
-                recipient.getDeviceToken(), 
-                title, 
-                message, 
-                type
-            );
-            
-            boolean sent = sendToExpoPushService(notification);
+            // One message per registered device; the client batches them with other pending pushes
+            List<Map<String, Object>> notifications = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                notifications.add(buildExpoNotificationPayload(token, title, message, type));
+            }
             
-            if (sent) {
-                logger.info("✅ Push notification sent successfully to {}", recipient.getUsername());
-                logNotificationToDatabase(recipient, title, message, type, "SENT");
-                return true;
-            } else {
+            return sendToExpoPushService(notifications).handle((result, error) -> {
+                if (error == null && !result.retryable().isEmpty()) {
+                    // Expo unavailable for some devices - retry those once the channel recovers,
+                    // each attempt only resending what is still retryable
+                    AtomicReference<List<Map<String, Object>>> retry = new AtomicReference<>(result.retryable());
+                    deferredDeliveryQueue.defer(OutboundChannels.EXPO, "push to " + recipient.getUsername(), () -> {
+                        retry.set(sendToExpoPushService(retry.get()).join().retryable());
+                        return retry.get().isEmpty();
+                    });
+                }
+                if (error == null && result.accepted()) {
+                    logger.info("✅ Push notification sent successfully to {}", recipient.getUsername());
+                    logNotificationToDatabase(recipient, title, message, type, "SENT");
+                    return true;
+                }
                 logger.warn("⚠️ Failed to send push notification to {}", recipient.getUsername());
-                logNotificationToDatabase(recipient, title, message, type, "FAILED");
+                logNotificationToDatabase(recipient, title, message, type, error == null ? "FAILED" : "ERROR");
                 return false;
-            }
+            });
             
         } catch (Exception e) {
             logger.error("❌ Error sending push notification: {}", e.getMessage());
             if (recipient != null) {
                 logNotificationToDatabase(recipient, title, message, type, "ERROR");
             }
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
     
 public void sendSMS(String phoneNumber, String message) {
-    try {
-        logger.info("=== SENDING SMS ===");
-        logger.info("To: {}", phoneNumber);
-        logger.info("Message: {}", message);
-        
-        // TODO: Implement actual SMS sending using Twilio or similar service
-        // For now, just log the SMS (simulated sending)
-        
-        // Example Twilio integration (uncomment when ready):
-        /*
-        Twilio.init(ACCOUNT_SID, AUTH_TOKEN);
-        Message twilioMessage = Message.creator(
-            new PhoneNumber(phoneNumber),
-            new PhoneNumber(FROM_PHONE_NUMBER),
-            message
-        ).create();
-        
-        logger.info("SMS sent successfully. SID: {}", twilioMessage.getSid());
-        */
-        
-        logger.info("SMS sent successfully (simulated)");
-        
-    } catch (Exception e) {
-        logger.error("Failed to send SMS to {}: {}", phoneNumber, e.getMessage());
-        throw new RuntimeException("SMS sending failed: " + e.getMessage());
+    sendSMS(phoneNumber, message, SmsMessage.Priority.TRANSACTIONAL);
+}
+
+/**
+ * Queue an SMS on the dispatcher; OTP codes jump ahead of transactional and bulk messages.
+ */
+public boolean sendSMS(String phoneNumber, String message, SmsMessage.Priority priority) {
+    logger.info("=== QUEUEING SMS ({}) ===", priority);
+    logger.info("To: {}", phoneNumber);
+    
+    boolean queued = smsDispatcher.submit(phoneNumber, message, priority);
+    if (!queued) {
+        logger.warn("SMS to {} was not queued", phoneNumber);
     }
+    return queued;
 }
 
 public void sendEmail(String toEmail, String subject, String content) {
@@ -417,7 +450,16 @@ public void sendEmail(String toEmail, String subject, String content) {
             message.setSubject(subject);
             message.setText(content);
             
-            mailSender.send(message);
+            EmailOutcome outcome = sendGuardedEmail(message);
+            if (outcome == EmailOutcome.RETRY) {
+                // SMTP is down or saturated - hand it to the retry queue instead of blocking this thread
+                deferredDeliveryQueue.defer(OutboundChannels.SMTP, "email to " + toEmail,
+                    () -> sendGuardedEmail(message) != EmailOutcome.RETRY);
+                return;
+            }
+            if (outcome == EmailOutcome.FAILED) {
+                return;
+            }
             
             logger.info("EMAIL SENT SUCCESSFULLY to: {}", toEmail);
             
@@ -426,6 +468,32 @@ public void sendEmail(String toEmail, String subject, String content) {
         }
 }
 
+private enum EmailOutcome { SENT, RETRY, FAILED }
+
+/**
+ * Only an unavailable channel or a failed transport is worth another try; a bad
+ * address or rejected credentials would fail the same way every time.
+ */
+private EmailOutcome sendGuardedEmail(SimpleMailMessage message) {
+    try {
+        outboundChannels.smtp().execute(() -> {
+            mailSender.send(message);
+            return true;
+        });
+        return EmailOutcome.SENT;
+    } catch (ChannelGuard.UnavailableException e) {
+        logger.warn("{}", e.getMessage());
+        return EmailOutcome.RETRY;
+    } catch (MailSendException e) {
+        boolean rejected = e.getFailedMessages().values().stream().anyMatch(SendFailedException.class::isInstance);
+        logger.error("FAILED to send email to {}: {}", Arrays.toString(message.getTo()), e.getMessage());
+        return rejected ? EmailOutcome.FAILED : EmailOutcome.RETRY;
+    } catch (Exception e) {
+        logger.error("FAILED to send email to {}: {}", Arrays.toString(message.getTo()), e.getMessage());
+        return EmailOutcome.FAILED;
+    }
+}
+
 
 public void sendPasswordChangeNotification(String email) {
     try {
@@ -570,40 +638,63 @@ public void sendPasswordChangeNotification(String email) {
         return response;
     }
 
-    private boolean sendToExpoPushService(Map<String, Object> notification) {
-    try {
-        logger.info("Sending to Expo Push Service...");
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Accept", "application/json");
+    /**
+     * Send to Expo. OK tickets are tracked for receipt checks, tokens rejected as
+     * DeviceNotRegistered are pruned right away, and messages that never reached
+     * Expo are returned as retryable.
+     */
+    private CompletableFuture<PushResult> sendToExpoPushService(List<Map<String, Object>> notifications) {
+        logger.info("Sending {} message(s) to Expo Push Service...", notifications.size());
         
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(notification, headers);
+        List<CompletableFuture<ExpoPushClient.PushTicket>> pending = new ArrayList<>(notifications.size());
+        for (Map<String, Object> notification : notifications) {
+            pending.add(expoPushClient.enqueue(notification));
+        }
         
-        try {
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                "https://exp.host/--/api/v2/push/send",
-                entity,
-                String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                logger.info("✅ Expo API response: {}", response.getBody());
-                return true;
-            } else {
-                logger.warn("Expo API returned status: {}", response.getStatusCode());
-                return false;
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            boolean anyAccepted = false;
+            List<String> deadTokens = new ArrayList<>();
+            List<Map<String, Object>> retryable = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                ExpoPushClient.PushTicket ticket = pending.get(i).join();
+                if (ticket.isOk()) {
+                    anyAccepted = true;
+                    pushReceiptService.track(ticket.id(), ticket.token());
+                } else if (ticket.isDeviceNotRegistered()) {
+                    deadTokens.add(ticket.token());
+                } else if (ticket.isRetryable()) {
+                    retryable.add(notifications.get(i));
+                } else {
+                    logger.warn("Expo rejected push: {} {}", ticket.error(), ticket.message());
+                }
             }
-        } catch (Exception e) {
-            logger.error("Expo API call failed: {}", e.getMessage());
-            return false;
+            pushReceiptService.pruneTokens(deadTokens);
+            return new PushResult(anyAccepted, retryable);
+        });
+    }
+
+    private record PushResult(boolean accepted, List<Map<String, Object>> retryable) {}
+
+    /**
+     * All push tokens for the user: the device registry plus the legacy single token
+     */
+    public List<String> getDeviceTokens(User user) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (user.getId() != null) {
+            tokens.addAll(deviceTokenRepository.findTokensByUserId(user.getId()));
         }
-        
-    } catch (Exception e) {
-        logger.error("Error communicating with Expo Push Service: {}", e.getMessage());
-        return false;
+        if (user.getDeviceToken() != null && !user.getDeviceToken().isEmpty()) {
+            tokens.add(user.getDeviceToken());
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    public boolean hasRegisteredDevice(User user) {
+        if (user.getDeviceToken() != null && !user.getDeviceToken().isEmpty()) {
+            return true;
+        }
+        return user.getId() != null && deviceTokenRepository.countByUserId(user.getId()) > 0;
     }
-}
 
     // Send test notification
     public Map<String, Object> sendTestNotification(UserDetails userDetails) {
@@ -950,7 +1041,18 @@ public Map<String, Object> updateDeviceToken(String deviceToken, String platform
 
         User user = userOpt.get();
         
-        // Store the device token and platform
+        // Register the device (a token moves to the new user if the phone changed hands)
+        DeviceToken registered = deviceTokenRepository.findByToken(deviceToken)
+            .orElseGet(() -> new DeviceToken(user, deviceToken, platform));
+        registered.setUser(user);
+        registered.setPlatform(platform);
+        registered.setLastSeenAt(LocalDateTime.now());
+        deviceTokenRepository.save(registered);
+        
+        // getDeviceTokens() also reads users.device_token, so a previous owner must lose it too
+        userRepository.clearDeviceTokenOfOthers(deviceToken, user.getId());
+        
+        // Keep the latest token on the user as well for older code paths
         user.setDeviceToken(deviceToken);
         user.setDevicePlatform(platform);
         user.setUpdatedAt(LocalDateTime.now());
@@ -962,6 +1064,7 @@ public Map<String, Object> updateDeviceToken(String deviceToken, String platform
         response.put("success", true);
         response.put("message", "Device token registered successfully");
         response.put("platform", platform);
+        response.put("deviceCount", deviceTokenRepository.countByUserId(user.getId()));
         
     } catch (Exception e) {
         logger.error("❌ Error updating device token: {}", e.getMessage());
@@ -972,6 +1075,52 @@ public Map<String, Object> updateDeviceToken(String deviceToken, String platform
     return response;
 }
 
+// Open a Server-Sent Events notification stream; null if the user does not exist
+public SseEmitter openNotificationStream(UserDetails userDetails, String lastEventId) {
+    Optional<User> userOpt = userRepository.findByUsername(userDetails.getUsername());
+    if (userOpt.isEmpty()) {
+        return null;
+    }
+    logger.debug("📡 SSE stream opened for {} (Last-Event-ID: {})", userDetails.getUsername(), lastEventId);
+    return deliveryRouter.openStream(userOpt.get().getId(), userDetails.getUsername(), lastEventId).getEmitter();
+}
+
+// Remove one of the user's device tokens
+public Map<String, Object> removeDeviceToken(String deviceToken, UserDetails userDetails) {
+    Map<String, Object> response = new HashMap<>();
+    
+    try {
+        Optional<User> userOpt = userRepository.findByUsername(userDetails.getUsername());
+        if (userOpt.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "User not found");
+            return response;
+        }
+
+        User user = userOpt.get();
+        int removed = deviceTokenRepository.deleteByTokenAndUserId(deviceToken, user.getId());
+        
+        if (deviceToken.equals(user.getDeviceToken())) {
+            user.setDeviceToken(null);
+            user.setUpdatedAt(LocalDateTime.now());
+            userRepository.save(user);
+            removed++;
+        }
+        
+        logger.info("✅ Device token removed for user: {}", userDetails.getUsername());
+        
+        response.put("success", true);
+        response.put("message", removed > 0 ? "Device token removed" : "Device token was not registered");
+        
+    } catch (Exception e) {
+        logger.error("❌ Error removing device token: {}", e.getMessage());
+        response.put("success", false);
+        response.put("message", "Error removing device token: " + e.getMessage());
+    }
+    
+    return response;
+}
+
     // Get preferences summary
     public Map<String, Object> getPreferencesSummary(UserDetails userDetails) {
         Map<String, Object> response = new HashMap<>();
@@ -1122,6 +1271,9 @@ private void logNotificationToDatabase(User user, String title, String message,
     
     // Expo expects these fields
     payload.put("to", deviceToken);
+    payload.put("title", title);
+    payload.put("body", message);
+    payload.put("sound", "default");
     
     // Notification content
     Map<String, Object> notification = new HashMap<>();
@@ -1308,6 +1460,13 @@ public void sendLoginNotification(String email, String deviceInfo, String ipAddr
             }
         }
 
+        // Same account + device + IP within the suppression window: already alerted
+        String fingerprint = email + "|" + deviceInfo + "|" + ipAddress;
+        if (!digestBuffer.claimLoginAlert(fingerprint)) {
+            logger.info("Login notification suppressed (repeat login from same device) for: {}", email);
+            return;
+        }
+
         if (mailSender == null) {
             logger.error("JavaMailSender is not configured!");
             return;
@@ -0,0 +1,95 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.util.ChannelGuard;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One ChannelGuard per third-party delivery channel, so a brownout in one
+ * provider cannot tie up request threads or starve the others.
+ */
+@Component
+public class OutboundChannels {
+
+    public static final String EXPO = "expo";
+    public static final String SMTP = "smtp";
+    public static final String SMS = "sms";
+
+    @Value("${app.notification.resilience.window-size:20}")
+    private int windowSize;
+
+    @Value("${app.notification.resilience.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.notification.resilience.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${app.notification.resilience.open-seconds:30}")
+    private int openSeconds;
+
+    @Value("${app.notification.resilience.half-open-probes:3}")
+    private int halfOpenProbes;
+
+    @Value("${app.notification.resilience.expo.max-concurrent:16}")
+    private int expoMaxConcurrent;
+
+    @Value("${app.notification.resilience.expo.slow-call-ms:5000}")
+    private long expoSlowCallMs;
+
+    @Value("${app.notification.resilience.smtp.max-concurrent:4}")
+    private int smtpMaxConcurrent;
+
+    @Value("${app.notification.resilience.smtp.slow-call-ms:10000}")
+    private long smtpSlowCallMs;
+
+    @Value("${app.notification.resilience.sms.max-concurrent:4}")
+    private int smsMaxConcurrent;
+
+    @Value("${app.notification.resilience.sms.slow-call-ms:5000}")
+    private long smsSlowCallMs;
+
+    private final Map<String, ChannelGuard> guards = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        guards.put(EXPO, create(EXPO, expoMaxConcurrent, expoSlowCallMs));
+        guards.put(SMTP, create(SMTP, smtpMaxConcurrent, smtpSlowCallMs));
+        guards.put(SMS, create(SMS, smsMaxConcurrent, smsSlowCallMs));
+    }
+
+    private ChannelGuard create(String name, int maxConcurrent, long slowCallMs) {
+        return new ChannelGuard(name, maxConcurrent, windowSize, minimumCalls, failureRateThreshold,
+            Duration.ofSeconds(openSeconds), halfOpenProbes, Duration.ofMillis(slowCallMs));
+    }
+
+    public ChannelGuard get(String channel) {
+        ChannelGuard guard = guards.get(channel);
+        if (guard == null) {
+            throw new IllegalArgumentException("Unknown channel: " + channel);
+        }
+        return guard;
+    }
+
+    public ChannelGuard expo() {
+        return guards.get(EXPO);
+    }
+
+    public ChannelGuard smtp() {
+        return guards.get(SMTP);
+    }
+
+    public ChannelGuard sms() {
+        return guards.get(SMS);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        guards.forEach((name, guard) -> stats.put(name, guard.getStats()));
+        return stats;
+    }
+}
@@ -5,6 +5,7 @@ import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.entity.PasswordResetToken;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
 import com.medicalapp.medical_app_backend.repository.PasswordResetTokenRepository;
+import com.medicalapp.medical_app_backend.service.sms.SmsMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -72,7 +73,8 @@ public class PasswordResetService {
             // Send code via email or SMS
             if ("sms".equals(method) && user.getPhone() != null && !user.getPhone().isEmpty()) {
                 notificationService.sendSMS(user.getPhone(), 
-                    "Your password reset code is: " + resetCode + ". Valid for 10 minutes.");
+                    "Your password reset code is: " + resetCode + ". Valid for 10 minutes.",
+                    SmsMessage.Priority.OTP);
                 logger.info("Reset code sent via SMS to user: {}", user.getUsername());
             } else {
                 notificationService.sendEmail(user.getEmail(), 
@@ -0,0 +1,302 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.util.TokenPrefixIndex;
+import com.medicalapp.medical_app_backend.websocket.cluster.ClusterRelayService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory patient lookup for the support agent search box.
+ *
+ * Each patient is one short document "first last email phone [phone-tail]"
+ * (lowercase, phone as digits) in a TokenPrefixIndex, so a keystroke is a
+ * binary search plus a bounded scan instead of loading the users table.
+ * Names come first in the document and therefore rank first.
+ *
+ * Loaded from id/name/email/phone columns only, in the background after
+ * startup; kept current by PatientSearchIndexListener on every User write.
+ * Until the first load finishes, isReady() is false and callers fall back to SQL.
+ * On a multi-node deployment, users changed on other nodes are picked up from
+ * users.updated_at on a timer.
+ *
+ * Compaction re-sorts every posting, so it runs on its own thread rather
+ * than holding up the shared @Scheduled one.
+ */
+@Service
+public class PatientSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientSearchIndex.class);
+
+    // Digits kept for the phone-tail token, so "0801..." and "+234 801..." both match
+    private static final int PHONE_TAIL_DIGITS = 10;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClusterRelayService clusterRelayService;
+
+    @Value("${app.support.patient-search.load-batch-size:5000}")
+    private int loadBatchSize;
+
+    // Postings examined per query; bounds the cost of one-letter prefixes
+    @Value("${app.support.patient-search.max-candidates:500}")
+    private int maxCandidates;
+
+    @Value("${app.support.patient-search.compact-threshold:1000}")
+    private int compactThreshold;
+
+    @Value("${app.support.patient-search.compact-interval-ms:10000}")
+    private long compactIntervalMs;
+
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "patient-index-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TokenPrefixIndex index = new TokenPrefixIndex(PatientSearchIndex::tokenStarts);
+    private volatile boolean ready;
+    private volatile long loadMillis;
+    private volatile LocalDateTime syncedUpTo;
+
+    @PostConstruct
+    public void init() {
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, compactIntervalMs, compactIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread.ofVirtual().name("patient-index-loader").start(this::load);
+    }
+
+    void load() {
+        long start = System.currentTimeMillis();
+        LocalDateTime loadStartedAt = LocalDateTime.now();
+        try {
+            Map<Long, String> docs = new HashMap<>();
+            Long afterId = 0L;
+            while (true) {
+                List<Object[]> rows = userRepository.findSearchFieldsAfter(
+                    User.Role.PATIENT, afterId, PageRequest.of(0, loadBatchSize));
+                for (Object[] row : rows) {
+                    docs.put((Long) row[0], document((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+                if (rows.size() < loadBatchSize) {
+                    break;
+                }
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+            index.build(docs);
+            loadMillis = System.currentTimeMillis() - start;
+            syncedUpTo = loadStartedAt;
+            ready = true;
+            logger.info("✅ Patient search index loaded: {} patients in {} ms", docs.size(), loadMillis);
+        } catch (Exception e) {
+            logger.error("❌ Patient search index load failed, searches use SQL: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Called after a User insert/update commits
+     */
+    public void userSaved(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        if (user.getRole() == User.Role.PATIENT) {
+            index.put(user.getId(), document(user.getFirstName(), user.getLastName(), user.getEmail(), user.getPhone()));
+        } else {
+            index.remove(user.getId());
+        }
+    }
+
+    public void userRemoved(Long userId) {
+        if (userId != null) {
+            index.remove(userId);
+        }
+    }
+
+    /**
+     * Ids of the best matching patients, best first
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> terms = terms(query);
+        List<Long> ids = new ArrayList<>();
+        for (TokenPrefixIndex.Hit hit : index.search(terms, limit, maxCandidates)) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+
+    /**
+     * Multi-node only: apply users other nodes changed since the last sync. The
+     * window overlaps by a minute so rows committed late are not missed.
+     */
+    @Scheduled(fixedDelayString = "${app.support.patient-search.sync-interval-ms:30000}")
+    public void syncRemoteChanges() {
+        if (!ready || !clusterRelayService.isClustered()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            for (Object[] row : userRepository.findSearchFieldsChangedSince(syncedUpTo.minusMinutes(1))) {
+                Long id = (Long) row[0];
+                if (row[5] == User.Role.PATIENT) {
+                    index.put(id, document((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                } else {
+                    index.remove(id);
+                }
+            }
+            syncedUpTo = now;
+        } catch (Exception e) {
+            logger.warn("Patient search index sync failed: {}", e.getMessage());
+        }
+    }
+
+    public void compactIfNeeded() {
+        try {
+            if (ready && index.pendingChanges() >= compactThreshold) {
+                long start = System.currentTimeMillis();
+                index.compact();
+                logger.debug("Patient search index compacted in {} ms", System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            logger.error("❌ Patient search index compaction failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("patients", index.size());
+        stats.put("pendingChanges", index.pendingChanges());
+        stats.put("loadMillis", loadMillis);
+        return stats;
+    }
+
+    // ==================== NORMALIZATION ====================
+
+    public static String document(String firstName, String lastName, String email, String phone) {
+        StringBuilder doc = new StringBuilder(64);
+        appendWords(doc, firstName);
+        appendWords(doc, lastName);
+        appendWords(doc, email);
+        String digits = digits(phone);
+        if (!digits.isEmpty()) {
+            doc.append(digits).append(' ');
+            if (digits.length() > PHONE_TAIL_DIGITS) {
+                doc.append(digits, digits.length() - PHONE_TAIL_DIGITS, digits.length()).append(' ');
+            }
+        }
+        return doc.toString().trim();
+    }
+
+    /**
+     * Query -> lowercase terms; phone-like terms become digits without a leading 0
+     */
+    public static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String raw : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (raw.isEmpty()) {
+                continue;
+            }
+            if (raw.matches("[+()\\-\\d]+") && raw.chars().anyMatch(Character::isDigit)) {
+                String digits = digits(raw).replaceFirst("^0+", "");
+                if (!digits.isEmpty()) {
+                    terms.add(digits);
+                }
+            } else {
+                terms.add(raw);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Tokens start at each word and, inside an email's local part, after . _ -
+     * (so "smith" finds john.smith@...), but not in the domain.
+     */
+    static int[] tokenStarts(String doc) {
+        int[] starts = new int[8];
+        int count = 0;
+        int wordStart = 0;
+        while (wordStart < doc.length()) {
+            int wordEnd = doc.indexOf(' ', wordStart);
+            if (wordEnd < 0) {
+                wordEnd = doc.length();
+            }
+            int at = doc.indexOf('@', wordStart);
+            int localEnd = at >= 0 && at < wordEnd ? at : wordStart;
+            for (int i = wordStart; i < wordEnd; i++) {
+                char previous = i > wordStart ? doc.charAt(i - 1) : ' ';
+                if (i == wordStart || (i < localEnd && (previous == '.' || previous == '_' || previous == '-'))) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                    }
+                    starts[count++] = i;
+                }
+                if (i >= localEnd && i > wordStart) {
+                    break;
+                }
+            }
+            wordStart = wordEnd + 1;
+        }
+        return count == starts.length ? starts : Arrays.copyOf(starts, count);
+    }
+
+    private static void appendWords(StringBuilder doc, String value) {
+        if (value != null && !value.isBlank()) {
+            doc.append(value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ")).append(' ');
+        }
+    }
+
+    private static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on User that keeps the patient search index current, whichever
+ * service saved the user (signup, profile edit, admin changes, deletes).
+ * Created by Hibernate through Spring's bean container, so injection works.
+ */
+public class PatientSearchIndexListener {
+
+    @Autowired
+    @Lazy
+    private PatientSearchIndex patientSearchIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void saved(User user) {
+        afterCommit(() -> patientSearchIndex.userSaved(user));
+    }
+
+    @PostRemove
+    public void removed(User user) {
+        Long userId = user.getId();
+        afterCommit(() -> patientSearchIndex.userRemoved(userId));
+    }
+
+    private void afterCommit(Runnable change) {
+        if (patientSearchIndex == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.repository.DeviceTokenRepository;
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks Expo push tickets and polls their receipts in batches.
+ *
+ * Expo only reports DeviceNotRegistered reliably in the receipt (available ~15 min
+ * after sending), so tickets are held in memory until then. Tokens reported as
+ * not registered are deleted so we stop sending to uninstalled apps.
+ */
+@Service
+public class PushReceiptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushReceiptService.class);
+
+    // Expo keeps receipts for 24 hours
+    private static final int RECEIPT_RETENTION_HOURS = 24;
+
+    @Autowired
+    private ExpoPushClient expoPushClient;
+
+    @Autowired
+    private DeviceTokenRepository deviceTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.notification.push.receipt-delay-minutes:15}")
+    private int receiptDelayMinutes;
+
+    @Value("${app.notification.push.max-pending-receipts:100000}")
+    private int maxPendingReceipts;
+
+    private final ConcurrentLinkedQueue<PendingReceipt> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong prunedTokens = new AtomicLong();
+
+    public void track(String ticketId, String token) {
+        if (ticketId == null || pendingCount.get() >= maxPendingReceipts) {
+            return;
+        }
+        pending.add(new PendingReceipt(ticketId, token, LocalDateTime.now()));
+        pendingCount.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.push.receipt-poll-ms:300000}")
+    public void pollReceipts() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime readyBefore = now.minusMinutes(receiptDelayMinutes);
+        LocalDateTime expiredBefore = now.minusHours(RECEIPT_RETENTION_HOURS);
+
+        // Tickets are queued in send order, so stop at the first one that is too recent
+        Map<String, PendingReceipt> ready = new HashMap<>();
+        PendingReceipt head;
+        while ((head = pending.peek()) != null && head.sentAt().isBefore(readyBefore)) {
+            if (pending.remove(head)) {
+                pendingCount.decrementAndGet();
+                ready.put(head.ticketId(), head);
+            }
+        }
+        if (ready.isEmpty()) {
+            return;
+        }
+
+        Map<String, ExpoPushClient.PushReceipt> receipts = expoPushClient.getReceipts(ready.keySet());
+
+        Set<String> deadTokens = new HashSet<>();
+        List<PendingReceipt> retry = new ArrayList<>();
+        for (PendingReceipt ticket : ready.values()) {
+            ExpoPushClient.PushReceipt receipt = receipts.get(ticket.ticketId());
+            if (receipt == null) {
+                // Not available yet (or the call failed) - try again later while Expo still has it
+                if (ticket.sentAt().isAfter(expiredBefore)) {
+                    retry.add(ticket);
+                }
+            } else if (receipt.isDeviceNotRegistered()) {
+                deadTokens.add(ticket.token());
+            } else if (!"ok".equals(receipt.status())) {
+                logger.warn("Expo receipt error for ticket {}: {} {}", ticket.ticketId(), receipt.error(), receipt.message());
+            }
+        }
+
+        for (PendingReceipt ticket : retry) {
+            pending.add(ticket);
+            pendingCount.incrementAndGet();
+        }
+        pruneTokens(deadTokens);
+
+        logger.info("Checked {} push receipts ({} pruned tokens, {} to retry)", ready.size(), deadTokens.size(), retry.size());
+    }
+
+    /**
+     * Remove tokens Expo says are no longer registered
+     */
+    public void pruneTokens(Collection<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        try {
+            int deleted = deviceTokenRepository.deleteByTokenIn(tokens);
+            userRepository.clearDeviceTokens(tokens);
+            prunedTokens.addAndGet(tokens.size());
+            logger.info("🧹 Pruned {} unregistered device tokens ({} registry rows)", tokens.size(), deleted);
+        } catch (Exception e) {
+            logger.error("❌ Failed to prune device tokens: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingReceipts", pendingCount.get());
+        stats.put("prunedTokens", prunedTokens.get());
+        return stats;
+    }
+
+    private record PendingReceipt(String ticketId, String token, LocalDateTime sentAt) {}
+}
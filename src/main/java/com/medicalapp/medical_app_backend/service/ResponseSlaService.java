@@ -0,0 +1,254 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.ConversationSummary;
+import com.medicalapp.medical_app_backend.repository.ConversationSummaryRepository;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
+import com.medicalapp.medical_app_backend.websocket.cluster.ClusterRelayService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response SLA of conversations waiting on an agent.
+ *
+ * A wait starts with the first unanswered patient message, or with a ticket no
+ * agent has answered yet (ConversationSummary.waitingSince); its deadline is
+ * that time plus the response time of the pending urgency, stored in
+ * conversation_summary.response_due_at by ConversationSummaryService with the
+ * write that changed it. After commit the deadline is armed as a one-shot
+ * timer here, replacing the previous one, so nothing polls for overdue rows.
+ *
+ * When a timer fires the breach is claimed in the database (at most once per
+ * deadline, across nodes), the ticket priority is bumped and agents get an
+ * alert on /topic/support/sla, which only agents may subscribe to (see
+ * AgentTopicInterceptor). Timers live on the node that handled the write;
+ * every node re-arms the open deadlines from the table at startup. When
+ * clustered, each node also adopts deadlines falling due soon that it has no
+ * timer for, so those armed on a node that went away still escalate; the
+ * breach claim lets only one node escalate each deadline.
+ */
+@Service
+public class ResponseSlaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseSlaService.class);
+
+    public static final String SLA_TOPIC = "/topic/support/sla";
+
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+
+    @Autowired
+    @Lazy // ConversationSummaryService arms the timers of this service
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private NotificationDeliveryRouter deliveryRouter;
+
+    @Autowired
+    private ClusterRelayService clusterRelay;
+
+    @Value("${app.support.sla.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.support.sla.response-minutes:240}")
+    private int responseMinutes;
+
+    @Value("${app.support.sla.urgent-response-minutes:60}")
+    private int urgentResponseMinutes;
+
+    @Value("${app.support.sla.emergency-response-minutes:15}")
+    private int emergencyResponseMinutes;
+
+    @Value("${app.support.sla.adopt-interval-ms:60000}")
+    private long adoptIntervalMs;
+
+    private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "support-sla-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Timer(LocalDateTime due, ScheduledFuture<?> future) {}
+
+    // One armed deadline per user
+    private final ConcurrentHashMap<Long, Timer> armed = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Replies cancel most timers; drop them from the queue right away
+        if (timers instanceof ScheduledThreadPoolExecutor executor) {
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        timers.scheduleWithFixedDelay(this::adoptSafely, adoptIntervalMs, adoptIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timers.shutdownNow();
+    }
+
+    /**
+     * Deadline of the conversation's current wait, or null when nobody is waiting.
+     * Whole seconds, so the stored value compares equal when the breach is claimed.
+     */
+    public LocalDateTime deadline(ConversationSummary summary) {
+        LocalDateTime waitingSince = summary.waitingSince();
+        if (!enabled || waitingSince == null) {
+            return null;
+        }
+        int minutes = switch (summary.getPendingUrgency()) {
+            case EMERGENCY -> emergencyResponseMinutes;
+            case URGENT -> urgentResponseMinutes;
+            case NORMAL -> responseMinutes;
+        };
+        return waitingSince.plusMinutes(minutes).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Replaces the user's timer; a null deadline only cancels it.
+     * Deadlines already in the past fire immediately.
+     */
+    public synchronized void arm(Long userId, LocalDateTime due) {
+        Timer previous = armed.get(userId);
+        if (previous != null && previous.due().equals(due)) {
+            return;
+        }
+        if (due == null) {
+            if (previous != null && armed.remove(userId, previous)) {
+                previous.future().cancel(false);
+            }
+            return;
+        }
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), due).toMillis());
+        ScheduledFuture<?> future = timers.schedule(() -> fire(userId, due), delayMs, TimeUnit.MILLISECONDS);
+        Timer replaced = armed.put(userId, new Timer(due, future));
+        if (replaced != null) {
+            replaced.future().cancel(false);
+        }
+    }
+
+    public int armedCount() {
+        return armed.size();
+    }
+
+    /**
+     * Stores the deadlines of every waiting conversation (the SLA settings or
+     * urgencies may have changed since they were written) and arms the ones
+     * not yet escalated.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1) // after the conversation_summary backfill
+    public void load() {
+        try {
+            int updated = 0;
+            for (ConversationSummary summary : summaryRepository.findAwaitingResponse()) {
+                Long userId = summary.getUser().getId();
+                LocalDateTime due = deadline(summary);
+                if (due == null ? summary.getResponseDueAt() != null : !due.equals(summary.getResponseDueAt())) {
+                    summaryRepository.setResponseDue(userId, due);
+                    summary.setSlaBreachedAt(null);
+                    updated++;
+                }
+                arm(userId, summary.getSlaBreachedAt() == null ? due : null);
+            }
+            logger.info("✅ Response SLA armed {} timers ({} deadlines updated)", armedCount(), updated);
+        } catch (Exception e) {
+            logger.error("❌ Response SLA load failed: {}", e.getMessage());
+        }
+    }
+
+    private void adoptSafely() {
+        try {
+            adopt();
+        } catch (Exception e) {
+            logger.error("❌ Response SLA adopt pass failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Arms the open deadlines due before the pass after next that have no timer
+     * here. Deadlines a live node already armed are armed twice; the one that
+     * fires second loses the claim.
+     */
+    public void adopt() {
+        if (!enabled || !clusterRelay.isClustered()) {
+            return;
+        }
+        LocalDateTime until = LocalDateTime.now().plus(Duration.ofMillis(2 * adoptIntervalMs));
+        int adopted = 0;
+        for (Object[] row : summaryRepository.findOpenDeadlinesUntil(until)) {
+            if (armIfAbsent((Long) row[0], (LocalDateTime) row[1])) {
+                adopted++;
+            }
+        }
+        if (adopted > 0) {
+            logger.info("⏰ Response SLA adopted {} deadlines armed elsewhere", adopted);
+        }
+    }
+
+    // Never replaces a timer: this node's own may be newer than what the query read
+    private synchronized boolean armIfAbsent(Long userId, LocalDateTime due) {
+        if (armed.containsKey(userId)) {
+            return false;
+        }
+        arm(userId, due);
+        return true;
+    }
+
+    private void fire(Long userId, LocalDateTime due) {
+        synchronized (this) {
+            Timer timer = armed.get(userId);
+            if (timer == null || !timer.due().equals(due)) {
+                return; // replaced before it ran
+            }
+            armed.remove(userId, timer);
+        }
+        try {
+            AgentInbox.Entry entry = conversationSummaryService.escalateOverdue(userId, due);
+            if (entry != null) {
+                alert(entry, due);
+            }
+        } catch (Exception e) {
+            logger.error("❌ SLA escalation for user {} failed: {}", userId, e.getMessage());
+        }
+    }
+
+    private void alert(AgentInbox.Entry entry, LocalDateTime due) {
+        long overdueMinutes = Duration.between(due, LocalDateTime.now()).toMinutes();
+        logger.warn("⏰ Response SLA breached for user {} (due {}, {} urgency, ticket {})",
+            entry.userId(), due, entry.urgency(), entry.ticketNumber());
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("type", "support_sla_breach");
+            payload.put("userId", entry.userId());
+            payload.put("dueAt", due.toString());
+            payload.put("overdueMinutes", overdueMinutes);
+            payload.put("urgency", entry.urgency().name());
+            payload.put("chat", entry.toMap());
+            payload.put("timestamp", LocalDateTime.now().toString());
+            deliveryRouter.broadcast(SLA_TOPIC, payload);
+        } catch (Exception e) {
+            logger.warn("Could not push SLA alert for user {}: {}", entry.userId(), e.getMessage());
+        }
+    }
+}
@@ -8,12 +8,12 @@ import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.repository.AppointmentRepository;
 import com.medicalapp.medical_app_backend.repository.MedicalResultRepository;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -45,7 +45,7 @@ public class ResultService {
     private AppointmentRepository appointmentRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private NotificationDeliveryRouter deliveryRouter;
 
     @Autowired
     private NotificationService notificationService;
@@ -97,34 +97,9 @@ public class ResultService {
             logger.info("  - resultId: {}", notification.get("resultId"));
             logger.info("Full Payload JSON: {}", notification);
             
-            // Check if messagingTemplate is available
-            if (messagingTemplate == null) {
-                logger.error("❌ CRITICAL: SimpMessagingTemplate is NULL!");
-                logger.error("WebSocket notifications CANNOT be sent!");
-                return;
-            } else {
-                logger.info("✓ SimpMessagingTemplate is available");
-            }
-            
-            // Send to topic
-            String topicDestination = "/user/" + userId + "/topic/notifications";
-            logger.info("Attempting to send to TOPIC: {}", topicDestination);
-            try {
-                messagingTemplate.convertAndSendToUser(userId, "/topic/notifications", notification);
-                logger.info("✓✓✓ SUCCESSFULLY sent to topic: {}", topicDestination);
-            } catch (Exception topicError) {
-                logger.error("❌ FAILED to send to topic: {}", topicError.getMessage(), topicError);
-            }
-            
-            // Also send to queue (backup channel)
-            String queueDestination = "/user/" + userId + "/queue/messages";
-            logger.info("Attempting to send to QUEUE: {}", queueDestination);
-            try {
-                messagingTemplate.convertAndSendToUser(userId, "/queue/messages", notification);
-                logger.info("✓✓✓ SUCCESSFULLY sent to queue: {}", queueDestination);
-            } catch (Exception queueError) {
-                logger.error("❌ FAILED to send to queue: {}", queueError.getMessage(), queueError);
-            }
+            // One send to the user's notification stream; buffered for replay if offline
+            boolean live = deliveryRouter.deliver(patientId, notification);
+            logger.info(live ? "✓ Delivered to user {}" : "📥 User {} offline - buffered for replay", userId);
             
             logger.info("===========================================");
             logger.info("📤 NOTIFICATION SENDING COMPLETED");
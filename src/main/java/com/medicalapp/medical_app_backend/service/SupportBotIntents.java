@@ -0,0 +1,110 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Intents of the support chat bot, compiled into an IntentMatcher from a JSON
+ * file (app.support.bot.intents-location) and reloaded when that file changes.
+ * A file that fails to load or parse leaves the current intents in place.
+ */
+@Service
+public class SupportBotIntents {
+
+    private static final Logger logger = LoggerFactory.getLogger(SupportBotIntents.class);
+
+    private static final String DEFAULT_FALLBACK = "Thank you for contacting Qualitest Medical Support. "
+        + "Our medical support team will assist you shortly.";
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${app.support.bot.intents-location:classpath:support-bot-intents.json}")
+    private String intentsLocation;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private record IntentFile(String fallback, List<IntentMatcher.Intent> intents) {}
+
+    private record Loaded(IntentMatcher matcher, String fallback, long lastModified, LocalDateTime loadedAt) {}
+
+    private volatile Loaded loaded = new Loaded(new IntentMatcher(List.of()), DEFAULT_FALLBACK, -1, null);
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Reply for a patient message: the matched intent's response, else the fallback
+     */
+    public String respond(String message) {
+        Loaded current = loaded;
+        IntentMatcher.Match match = current.matcher().match(message);
+        return match != null ? match.response() : current.fallback();
+    }
+
+    /**
+     * Re-reads and recompiles the intents file
+     */
+    public synchronized boolean reload() {
+        Resource resource = resourceLoader.getResource(intentsLocation);
+        try (InputStream in = resource.getInputStream()) {
+            long lastModified = lastModified(resource);
+            IntentFile file = objectMapper.readValue(in, IntentFile.class);
+            IntentMatcher matcher = new IntentMatcher(file.intents() != null ? file.intents() : List.of());
+            String fallback = file.fallback() != null ? file.fallback() : DEFAULT_FALLBACK;
+            loaded = new Loaded(matcher, fallback, lastModified, LocalDateTime.now());
+            logger.info("✅ Support bot loaded {} intents, {} keywords from {}",
+                matcher.intentCount(), matcher.keywordCount(), intentsLocation);
+            return true;
+        } catch (Exception e) {
+            logger.error("❌ Could not load support bot intents from {}, keeping the current ones: {}",
+                intentsLocation, e.getMessage());
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.support.bot.reload-check-interval-ms:30000}")
+    public void reloadIfChanged() {
+        long lastModified = lastModified(resourceLoader.getResource(intentsLocation));
+        if (lastModified > 0 && lastModified != loaded.lastModified()) {
+            reload();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Loaded current = loaded;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("location", intentsLocation);
+        stats.put("intents", current.matcher().intentCount());
+        stats.put("keywords", current.matcher().keywordCount());
+        stats.put("loadedAt", current.loadedAt() != null ? current.loadedAt().toString() : null);
+        return stats;
+    }
+
+    // 0 when the resource cannot tell (e.g. inside a jar)
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -3,9 +3,18 @@ package com.medicalapp.medical_app_backend.service;
 
 import com.medicalapp.medical_app_backend.entity.*;
 import com.medicalapp.medical_app_backend.repository.*;
+import com.medicalapp.medical_app_backend.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -26,7 +35,33 @@ public class SupportService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private AgentInbox agentInbox;
+
+    @Autowired
+    private PatientSearchIndex patientSearchIndex;
+
+    @Autowired
+    private SupportStatsService supportStatsService;
+
+    @Autowired
+    private SupportBotIntents supportBotIntents;
+
+    @Autowired
+    private MessageUrgencyService messageUrgencyService;
+
+    @Autowired
+    private TicketDispatcher ticketDispatcher;
+
+    // Messages per transcript window when the client does not ask for a size
+    @Value("${app.support.transcript.default-limit:50}")
+    private int transcriptDefaultLimit;
+
     // Create support ticket
+    @Transactional
     public Map<String, Object> createSupportTicket(Map<String, Object> ticketData, UserDetails userDetails) {
         Map<String, Object> response = new HashMap<>();
         
@@ -86,6 +121,9 @@ public class SupportService {
             systemMessage.setMessage("Support ticket created. Our medical support team will respond within 4-6 hours during business hours (9 AM - 6 PM).");
             systemMessage.setSenderName("System");
             chatMessageRepository.save(systemMessage);
+            conversationSummaryService.recordTicket(savedTicket);
+            conversationSummaryService.recordMessage(systemMessage);
+            ticketDispatcher.submit(savedTicket);
 
             // Send notification to support team
             try {
@@ -102,6 +140,7 @@ public class SupportService {
             response.put("estimatedResponse", "4-6 hours during business hours");
 
         } catch (Exception e) {
+            rollbackQuietly();
             response.put("success", false);
             response.put("message", "Error creating support ticket: " + e.getMessage());
         }
@@ -110,6 +149,7 @@ public class SupportService {
     }
 
     // Send chat message
+    @Transactional
     public Map<String, Object> sendChatMessage(String message, UserDetails userDetails) {
         Map<String, Object> response = new HashMap<>();
         
@@ -131,10 +171,12 @@ public class SupportService {
 
             // Create chat message
             ChatMessage chatMessage = new ChatMessage(user, message.trim(), ChatMessage.SenderType.USER);
+            chatMessage.setUrgency(messageUrgencyService.classify(chatMessage.getMessage()));
             ChatMessage savedMessage = chatMessageRepository.save(chatMessage);
+            conversationSummaryService.recordMessage(savedMessage);
 
             // Generate bot response
-            String botResponse = generateBotResponse(message.toLowerCase());
+            String botResponse = supportBotIntents.respond(message);
             if (botResponse != null) {
                 ChatMessage botMessage = new ChatMessage();
                 botMessage.setUser(user);
@@ -142,6 +184,7 @@ public class SupportService {
                 botMessage.setMessage(botResponse);
                 botMessage.setSenderName("Medical Support Bot");
                 chatMessageRepository.save(botMessage);
+                conversationSummaryService.recordMessage(botMessage);
             }
 
             response.put("success", true);
@@ -150,6 +193,7 @@ public class SupportService {
             response.put("botResponse", botResponse);
 
         } catch (Exception e) {
+            rollbackQuietly();
             response.put("success", false);
             response.put("message", "Error sending message: " + e.getMessage());
         }
@@ -158,6 +202,7 @@ public class SupportService {
     }
 
     // Send agent reply to user
+    @Transactional
     public Map<String, Object> sendAgentReply(Map<String, Object> replyData, UserDetails agentDetails) {
         Map<String, Object> response = new HashMap<>();
         
@@ -212,29 +257,38 @@ public class SupportService {
                     
                     // Update ticket status and first response time
                     SupportTicket ticket = ticketOpt.get();
+                    String previousAgent = ticket.getAssignedTo();
+                    SupportTicket.TicketStatus previousStatus = ticket.getStatus();
                     if (ticket.getFirstResponseAt() == null) {
                         ticket.setFirstResponseAt(LocalDateTime.now());
                     }
                     ticket.setStatus(SupportTicket.TicketStatus.IN_PROGRESS);
                     ticket.setAssignedTo(agent.getUsername());
                     supportTicketRepository.save(ticket);
+                    conversationSummaryService.recordTicket(ticket);
+                    ticketDispatcher.ticketUpdated(previousAgent, previousStatus, ticket);
                 }
             }
 
             ChatMessage savedMessage = chatMessageRepository.save(agentMessage);
-
-            // Send notification to user
-            try {
-                notificationService.notifyUserOfAgentReply(user, message, agent.getFirstName());
-            } catch (Exception e) {
-                System.err.println("Failed to send user notification: " + e.getMessage());
-            }
+            conversationSummaryService.recordMessage(savedMessage);
+
+            // Send notification to user once the reply is committed and the summary row lock is released
+            String agentName = agent.getFirstName();
+            afterCommit(() -> {
+                try {
+                    notificationService.notifyUserOfAgentReply(user, message, agentName);
+                } catch (Exception e) {
+                    System.err.println("Failed to send user notification: " + e.getMessage());
+                }
+            });
 
             response.put("success", true);
             response.put("message", "Agent reply sent successfully");
             response.put("messageId", savedMessage.getId());
 
         } catch (Exception e) {
+            rollbackQuietly();
             response.put("success", false);
             response.put("message", "Error sending agent reply: " + e.getMessage());
         }
@@ -243,7 +297,11 @@ public class SupportService {
     }
 
 
-    public Map<String, Object> getAllChats(UserDetails agentDetails) {
+    /**
+     * Support inbox: one row per user from conversation_summary, most recent
+     * activity first. Pass the returned nextCursor back as "cursor" for the next page.
+     */
+    public Map<String, Object> getAllChats(UserDetails agentDetails, String cursor, int size) {
     Map<String, Object> response = new HashMap<>();
     
     try {
@@ -263,78 +321,109 @@ public class SupportService {
             return response;
         }
 
-        System.out.println("=== FETCHING ALL CHATS ===");
+        int pageSize = Math.max(1, Math.min(size, 200));
+        KeysetCursor after = KeysetCursor.decode(cursor);
 
-        List<Map<String, Object>> allChats = new ArrayList<>();
-        Set<Long> processedUserIds = new HashSet<>();
+        // Fetch one extra row to know whether another page exists
+        List<ConversationSummary> rows = conversationSummaryService.findInboxPage(
+            after != null ? after.createdAt() : null,
+            after != null ? after.id() : null,
+            pageSize + 1);
 
-        // Get ALL tickets regardless of status
-        List<SupportTicket> allTickets = supportTicketRepository.findAll();
-        System.out.println("Total tickets in database: " + allTickets.size());
-        
-        for (SupportTicket ticket : allTickets) {
-            if (!processedUserIds.contains(ticket.getUser().getId())) {
-                Map<String, Object> chatInfo = createChatInfo(ticket, ticket.getStatus().name());
-                allChats.add(chatInfo);
-                processedUserIds.add(ticket.getUser().getId());
-            }
+        boolean hasMore = rows.size() > pageSize;
+        List<ConversationSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<Map<String, Object>> allChats = new ArrayList<>(page.size());
+        for (ConversationSummary summary : page) {
+            allChats.add(createChatInfo(summary));
         }
 
-        // Get ALL chat messages grouped by user
-        List<ChatMessage> allMessages = chatMessageRepository.findAll();
-        System.out.println("Total chat messages in database: " + allMessages.size());
-        
-        // Group messages by user
-        Map<Long, List<ChatMessage>> messagesByUser = new HashMap<>();
-        for (ChatMessage message : allMessages) {
-            Long userId = message.getUser().getId();
-            messagesByUser.computeIfAbsent(userId, k -> new ArrayList<>()).add(message);
+        response.put("success", true);
+        response.put("chats", allChats);
+        response.put("totalCount", conversationSummaryService.countConversations());
+        response.put("hasMore", hasMore);
+        if (hasMore) {
+            ConversationSummary last = page.get(page.size() - 1);
+            response.put("nextCursor", KeysetCursor.encode(last.getLastActivityAt(), last.getId()));
         }
-        
-        System.out.println("Users with chat messages: " + messagesByUser.size());
-
-        // Add users with messages but no tickets
-        for (Map.Entry<Long, List<ChatMessage>> entry : messagesByUser.entrySet()) {
-            Long userId = entry.getKey();
-            if (!processedUserIds.contains(userId)) {
-                List<ChatMessage> userMessages = entry.getValue();
-                // Get the latest message
-                ChatMessage latestMessage = userMessages.stream()
-                    .max(Comparator.comparing(ChatMessage::getCreatedAt))
-                    .orElse(null);
-                
-                if (latestMessage != null) {
-                    Map<String, Object> chatInfo = createChatInfoFromMessage(latestMessage, "CHAT_ONLY");
-                    chatInfo.put("totalMessages", userMessages.size());
-                    allChats.add(chatInfo);
-                    processedUserIds.add(userId);
-                }
-            }
+
+    } catch (IllegalArgumentException e) {
+        response.put("success", false);
+        response.put("message", e.getMessage());
+    } catch (Exception e) {
+        System.err.println("Error fetching all chats: " + e.getMessage());
+        e.printStackTrace();
+        response.put("success", false);
+        response.put("message", "Error fetching all chats: " + e.getMessage());
+    }
+
+    return response;
+}
+
+/**
+ * Urgent and emergency patient messages, newest first, a page at a time
+ */
+public Map<String, Object> getUrgentMessages(UserDetails agentDetails, String level, String cursor, int size) {
+    Map<String, Object> response = new HashMap<>();
+
+    try {
+        Optional<User> agentOpt = userRepository.findByUsername(agentDetails.getUsername());
+        if (agentOpt.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Agent not found");
+            return response;
         }
 
-        // Sort by last activity (most recent first)
-        allChats.sort((a, b) -> {
-            String timeA = (String) a.get("lastActivity");
-            String timeB = (String) b.get("lastActivity");
-            return timeB.compareTo(timeA);
-        });
+        User agent = agentOpt.get();
+
+        // Verify agent access
+        if (!hasRole(agent, "SUPPORT_AGENT") && !hasRole(agent, "ADMIN")) {
+            response.put("success", false);
+            response.put("message", "Unauthorized: Not a support agent");
+            return response;
+        }
 
-        System.out.println("Total chats compiled: " + allChats.size());
+        List<ChatMessage.Urgency> levels = level == null || level.isBlank()
+            ? MessageUrgencyService.URGENT_LEVELS
+            : List.of(ChatMessage.Urgency.valueOf(level.trim().toUpperCase()));
+        int pageSize = Math.max(1, Math.min(size, 200));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<ChatMessage> rows = chatMessageRepository.findUrgentPage(levels,
+            after != null ? after.createdAt() : null,
+            after != null ? after.id() : null,
+            PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessage> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<Map<String, Object>> messages = new ArrayList<>(page.size());
+        for (ChatMessage message : page) {
+            Map<String, Object> info = convertChatMessageToResponse(message);
+            info.put("urgency", message.getUrgency().name());
+            info.put("userId", message.getUser().getId());
+            info.put("userName", message.getUser().getFirstName() + " " + message.getUser().getLastName());
+            messages.add(info);
+        }
 
         response.put("success", true);
-        response.put("chats", allChats);
-        response.put("totalCount", allChats.size());
-        response.put("debug", Map.of(
-            "totalTickets", allTickets.size(),
-            "totalMessages", allMessages.size(),
-            "uniqueUsers", processedUserIds.size()
-        ));
+        response.put("messages", messages);
+        response.put("urgentConversations", agentInbox.urgentCount());
+        response.put("hasMore", hasMore);
+        if (hasMore) {
+            ChatMessage last = page.get(page.size() - 1);
+            response.put("nextCursor", KeysetCursor.encode(last.getCreatedAt(), last.getId()));
+        }
 
+    } catch (IllegalArgumentException e) {
+        response.put("success", false);
+        response.put("message", e.getMessage());
     } catch (Exception e) {
-        System.err.println("Error fetching all chats: " + e.getMessage());
+        System.err.println("Error fetching urgent messages: " + e.getMessage());
         e.printStackTrace();
         response.put("success", false);
-        response.put("message", "Error fetching all chats: " + e.getMessage());
+        response.put("message", "Error fetching urgent messages: " + e.getMessage());
     }
 
     return response;
@@ -343,7 +432,7 @@ public class SupportService {
 /**
  * Search patients by name or email
  */
-public Map<String, Object> searchPatients(String query, UserDetails agentDetails) {
+public Map<String, Object> searchPatients(String query, int limit, UserDetails agentDetails) {
     Map<String, Object> response = new HashMap<>();
     
     try {
@@ -363,36 +452,35 @@ public Map<String, Object> searchPatients(String query, UserDetails agentDetails
             return response;
         }
 
-        System.out.println("=== SEARCHING PATIENTS ===");
-        System.out.println("Search query: " + query);
-
-        List<Map<String, Object>> patients = new ArrayList<>();
+        int pageSize = Math.max(1, Math.min(limit, 100));
+        List<User> matches;
 
         if (query == null || query.trim().isEmpty()) {
-            // Return all patients if no query
-            List<User> allUsers = userRepository.findAll();
-            System.out.println("Total users in database: " + allUsers.size());
-            
-            for (User user : allUsers) {
-                if (user.getRole() == User.Role.PATIENT) {
-                    patients.add(createPatientInfo(user));
-                }
+            // Most recent patients if no query
+            matches = userRepository.findByRole(User.Role.PATIENT,
+                PageRequest.of(0, pageSize, Sort.by(Sort.Direction.DESC, "createdAt"))).getContent();
+        } else if (patientSearchIndex.isReady()) {
+            // Search by name, email or phone prefix in the in-memory index
+            List<Long> ids = patientSearchIndex.search(query, pageSize);
+            Map<Long, User> byId = new HashMap<>();
+            for (User user : userRepository.findAllById(ids)) {
+                byId.put(user.getId(), user);
             }
-        } else {
-            // Search by name or email
-            String searchTerm = query.toLowerCase().trim();
-            List<User> allUsers = userRepository.findAll();
-            
-            for (User user : allUsers) {
-                if (user.getRole() == User.Role.PATIENT) {
-                    String fullName = (user.getFirstName() + " " + user.getLastName()).toLowerCase();
-                    String email = user.getEmail().toLowerCase();
-                    
-                    if (fullName.contains(searchTerm) || email.contains(searchTerm)) {
-                        patients.add(createPatientInfo(user));
-                    }
+            matches = new ArrayList<>();
+            for (Long id : ids) {
+                if (byId.containsKey(id)) {
+                    matches.add(byId.get(id));
                 }
             }
+        } else {
+            // Index still loading
+            matches = userRepository.findBySearchAndRole(query.trim(), User.Role.PATIENT,
+                PageRequest.of(0, pageSize)).getContent();
+        }
+
+        List<Map<String, Object>> patients = new ArrayList<>();
+        for (User user : matches) {
+            patients.add(createPatientInfo(user));
         }
 
         System.out.println("Patients found: " + patients.size());
@@ -414,7 +502,7 @@ public Map<String, Object> searchPatients(String query, UserDetails agentDetails
 /**
  * Get chat messages for specific user (admin view)
  */
-public Map<String, Object> getChatByUserId(Long userId, UserDetails agentDetails) {
+public Map<String, Object> getChatByUserId(Long userId, UserDetails agentDetails, String before, String after, int limit) {
     Map<String, Object> response = new HashMap<>();
     
     try {
@@ -445,13 +533,11 @@ public Map<String, Object> getChatByUserId(Long userId, UserDetails agentDetails
 
         User user = userOpt.get();
 
-        // Get user's chat messages
-        List<ChatMessage> messages = chatMessageRepository.findByUserOrderByCreatedAtAsc(user);
-        System.out.println("Messages found: " + messages.size());
-
-        List<Map<String, Object>> messageList = messages.stream()
-                .map(this::convertChatMessageToResponse)
-                .collect(Collectors.toList());
+        // One window of the user's chat messages
+        Map<String, Object> transcript = transcriptWindow(
+            (createdAt, id, page) -> chatMessageRepository.findUserMessagesBefore(user.getId(), createdAt, id, page),
+            (createdAt, id, page) -> chatMessageRepository.findUserMessagesAfter(user.getId(), createdAt, id, page),
+            before, after, limit);
 
         // Get user's tickets
         List<SupportTicket> tickets = supportTicketRepository.findByUserOrderByCreatedAtDesc(user);
@@ -472,11 +558,14 @@ public Map<String, Object> getChatByUserId(Long userId, UserDetails agentDetails
 
         response.put("success", true);
         response.put("user", userInfo);
-        response.put("messages", messageList);
+        response.putAll(transcript);
         response.put("tickets", ticketList);
-        response.put("totalMessages", messages.size());
+        response.put("totalMessages", chatMessageRepository.countByUser(user));
         response.put("totalTickets", tickets.size());
 
+    } catch (IllegalArgumentException e) {
+        response.put("success", false);
+        response.put("message", e.getMessage());
     } catch (Exception e) {
         System.err.println("Error fetching user chat: " + e.getMessage());
         e.printStackTrace();
@@ -512,72 +601,37 @@ public Map<String, Object> getDebugInfo(UserDetails agentDetails) {
 
         System.out.println("=== GENERATING DEBUG INFO ===");
 
-        // Database counts
-        long totalUsers = userRepository.count();
-        long totalTickets = supportTicketRepository.count();
-        long totalMessages = chatMessageRepository.count();
-
-        // Count by role
-        List<User> allUsers = userRepository.findAll();
-        long patientCount = allUsers.stream().filter(u -> u.getRole() == User.Role.PATIENT).count();
-        long doctorCount = allUsers.stream().filter(u -> u.getRole() == User.Role.DOCTOR).count();
-        long adminCount = allUsers.stream().filter(u -> u.getRole() == User.Role.ADMIN).count();
-
-        // Count tickets by status
-        long openTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(
-            SupportTicket.TicketStatus.OPEN).size();
-        long inProgressTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(
-            SupportTicket.TicketStatus.IN_PROGRESS).size();
-        long resolvedTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(
-            SupportTicket.TicketStatus.RESOLVED).size();
-
-        // Count messages by sender type
-        List<ChatMessage> allMessages = chatMessageRepository.findAll();
-        long userMessages = allMessages.stream()
-            .filter(m -> m.getSenderType() == ChatMessage.SenderType.USER).count();
-        long botMessages = allMessages.stream()
-            .filter(m -> m.getSenderType() == ChatMessage.SenderType.BOT).count();
-        long agentMessages = allMessages.stream()
-            .filter(m -> m.getSenderType() == ChatMessage.SenderType.SUPPORT_AGENT).count();
-
-        // Get users with messages but no tickets
-        Set<Long> usersWithTickets = supportTicketRepository.findAll().stream()
-            .map(t -> t.getUser().getId())
-            .collect(Collectors.toSet());
-        
-        Set<Long> usersWithMessages = allMessages.stream()
-            .map(m -> m.getUser().getId())
-            .collect(Collectors.toSet());
-        
-        Set<Long> chatOnlyUsers = new HashSet<>(usersWithMessages);
-        chatOnlyUsers.removeAll(usersWithTickets);
+        SupportStatsService.Snapshot stats = supportStatsService.current();
 
         response.put("success", true);
         response.put("database", Map.of(
-            "totalUsers", totalUsers,
-            "totalTickets", totalTickets,
-            "totalMessages", totalMessages
+            "totalUsers", stats.totalUsers(),
+            "totalTickets", stats.totalTickets(),
+            "totalMessages", stats.totalMessages()
         ));
         response.put("users", Map.of(
-            "patients", patientCount,
-            "doctors", doctorCount,
-            "admins", adminCount
+            "patients", stats.users(User.Role.PATIENT),
+            "doctors", stats.users(User.Role.DOCTOR),
+            "admins", stats.users(User.Role.ADMIN)
         ));
         response.put("tickets", Map.of(
-            "open", openTickets,
-            "inProgress", inProgressTickets,
-            "resolved", resolvedTickets
+            "open", stats.tickets(SupportTicket.TicketStatus.OPEN),
+            "inProgress", stats.tickets(SupportTicket.TicketStatus.IN_PROGRESS),
+            "resolved", stats.tickets(SupportTicket.TicketStatus.RESOLVED)
         ));
         response.put("messages", Map.of(
-            "fromUsers", userMessages,
-            "fromBots", botMessages,
-            "fromAgents", agentMessages
+            "fromUsers", stats.messages(ChatMessage.SenderType.USER),
+            "fromBots", stats.messages(ChatMessage.SenderType.BOT),
+            "fromAgents", stats.messages(ChatMessage.SenderType.SUPPORT_AGENT)
         ));
         response.put("analysis", Map.of(
-            "usersWithTickets", usersWithTickets.size(),
-            "usersWithMessages", usersWithMessages.size(),
-            "chatOnlyUsers", chatOnlyUsers.size()
+            "usersWithTickets", stats.usersWithTickets(),
+            "usersWithMessages", stats.usersWithMessages(),
+            "chatOnlyUsers", stats.chatOnlyUsers()
         ));
+        response.put("statsTakenAt", stats.takenAt().toString());
+        response.put("bot", supportBotIntents.getStats());
+        response.put("patientSearchIndex", patientSearchIndex.getStats());
         response.put("timestamp", LocalDateTime.now().toString());
 
         System.out.println("Debug info compiled successfully");
@@ -635,7 +689,7 @@ private Map<String, Object> createPatientInfo(User user) {
 
     // Get user's chat history
     // In SupportService.java - getChatHistory method
-public Map<String, Object> getChatHistory(UserDetails userDetails) {
+public Map<String, Object> getChatHistory(UserDetails userDetails, String before, String after, int limit) {
     Map<String, Object> response = new HashMap<>();
     
     try {
@@ -648,16 +702,18 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
 
         User user = userOpt.get();
         
-        // FIX: Get ALL messages for user (not just non-ticket messages)
-        List<ChatMessage> messages = chatMessageRepository.findByUserOrderByCreatedAtAsc(user);
-
-        List<Map<String, Object>> messageList = messages.stream()
-                .map(this::convertChatMessageToResponse)
-                .collect(Collectors.toList());
+        // All of the user's messages (not just non-ticket messages), one window at a time
+        Map<String, Object> transcript = transcriptWindow(
+            (createdAt, id, page) -> chatMessageRepository.findUserMessagesBefore(user.getId(), createdAt, id, page),
+            (createdAt, id, page) -> chatMessageRepository.findUserMessagesAfter(user.getId(), createdAt, id, page),
+            before, after, limit);
 
         response.put("success", true);
-        response.put("messages", messageList);
+        response.putAll(transcript);
 
+    } catch (IllegalArgumentException e) {
+        response.put("success", false);
+        response.put("message", e.getMessage());
     } catch (Exception e) {
         response.put("success", false);
         response.put("message", "Error fetching chat history: " + e.getMessage());
@@ -717,7 +773,7 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
                 SupportTicket.TicketStatus.PENDING_USER
             );
 
-            long totalTickets = supportTicketRepository.findByUserOrderByCreatedAtDesc(user).size();
+            long totalTickets = supportTicketRepository.countByUser(user);
             long openTickets = supportTicketRepository.countOpenTicketsByUser(user, openStatuses);
             long unreadMessages = chatMessageRepository.countUnreadMessagesForUser(user);
 
@@ -737,7 +793,7 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
     }
 
     // Get ticket by ID
-    public Map<String, Object> getTicketById(Long ticketId, UserDetails userDetails) {
+    public Map<String, Object> getTicketById(Long ticketId, UserDetails userDetails, String before, String after, int limit) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -767,16 +823,20 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
                 return response;
             }
 
-            // Get ticket messages
-            List<ChatMessage> messages = chatMessageRepository.findByTicketOrderByCreatedAtAsc(ticket);
-            List<Map<String, Object>> messageList = messages.stream()
-                    .map(this::convertChatMessageToResponse)
-                    .collect(Collectors.toList());
+            // One window of the ticket transcript
+            Map<String, Object> transcript = transcriptWindow(
+                (createdAt, id, page) -> chatMessageRepository.findTicketMessagesBefore(ticket.getId(), createdAt, id, page),
+                (createdAt, id, page) -> chatMessageRepository.findTicketMessagesAfter(ticket.getId(), createdAt, id, page),
+                before, after, limit);
 
             response.put("success", true);
             response.put("ticket", convertTicketToResponse(ticket));
-            response.put("messages", messageList);
+            response.putAll(transcript);
+            response.put("totalMessages", chatMessageRepository.countByTicket(ticket));
 
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error fetching ticket: " + e.getMessage());
@@ -786,6 +846,7 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
     }
 
     // Update ticket status
+    @Transactional
     public Map<String, Object> updateTicketStatus(Long ticketId, Map<String, String> statusData, UserDetails userDetails) {
         Map<String, Object> response = new HashMap<>();
         
@@ -818,6 +879,7 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
             
             try {
                 SupportTicket.TicketStatus status = SupportTicket.TicketStatus.valueOf(newStatus.toUpperCase());
+                SupportTicket.TicketStatus previousStatus = ticket.getStatus();
                 ticket.setStatus(status);
                 
                 if (status == SupportTicket.TicketStatus.RESOLVED) {
@@ -825,6 +887,8 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
                 }
                 
                 supportTicketRepository.save(ticket);
+                conversationSummaryService.recordTicket(ticket);
+                ticketDispatcher.ticketUpdated(ticket.getAssignedTo(), previousStatus, ticket);
                 
                 response.put("success", true);
                 response.put("message", "Ticket status updated successfully");
@@ -836,6 +900,7 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
             }
 
         } catch (Exception e) {
+            rollbackQuietly();
             response.put("success", false);
             response.put("message", "Error updating ticket status: " + e.getMessage());
         }
@@ -844,6 +909,7 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
     }
 
     // Assign ticket to agent
+    @Transactional
     public Map<String, Object> assignTicketToAgent(Long ticketId, Map<String, Object> assignmentData, UserDetails userDetails) {
         Map<String, Object> response = new HashMap<>();
         
@@ -888,15 +954,20 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
                 return response;
             }
 
+            String previousAgent = ticket.getAssignedTo();
+            SupportTicket.TicketStatus previousStatus = ticket.getStatus();
             ticket.setAssignedTo(agentUsername);
             ticket.setStatus(SupportTicket.TicketStatus.IN_PROGRESS);
             supportTicketRepository.save(ticket);
+            conversationSummaryService.recordTicket(ticket);
+            ticketDispatcher.ticketUpdated(previousAgent, previousStatus, ticket);
             
             response.put("success", true);
             response.put("message", "Ticket assigned successfully");
             response.put("ticket", convertTicketToResponse(ticket));
 
         } catch (Exception e) {
+            rollbackQuietly();
             response.put("success", false);
             response.put("message", "Error assigning ticket: " + e.getMessage());
         }
@@ -904,9 +975,62 @@ public Map<String, Object> getChatHistory(UserDetails userDetails) {
         return response;
     }
 
-    // Get active chats for agents
-    // Replace your existing getActiveChats method with this improved version
-public Map<String, Object> getActiveChats(UserDetails agentDetails) {
+    /**
+     * Undo the writes of a @Transactional method that reports its failure in the
+     * response. A failed repository call has already marked the transaction
+     * rollback-only, so committing it would throw UnexpectedRollbackException.
+     */
+    private void rollbackQuietly() {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Outcome of one batch of dispatcher assignments: the tickets now held by the
+     * agent, and those still waiting that did not fit under its cap
+     */
+    public record AutoAssignment(List<SupportTicket> assigned, List<SupportTicket> deferred) {}
+
+    /**
+     * Writes one batch of dispatcher assignments. Only tickets still waiting for a
+     * first response and held by fromAgent (null = unassigned) are taken, and only
+     * while toAgent holds fewer than maxOpen tickets in loadStatuses; the agent's
+     * row lock makes that check hold across nodes.
+     */
+    @Transactional
+    public AutoAssignment applyAutoAssignments(List<Long> ticketIds, String fromAgent, String toAgent,
+                                               Collection<SupportTicket.TicketStatus> loadStatuses, int maxOpen) {
+        userRepository.findByUsernameForUpdate(toAgent);
+        int load = (int) supportTicketRepository.countByAssignedToAndStatusIn(toAgent, loadStatuses);
+        List<SupportTicket> waiting = new ArrayList<>(supportTicketRepository.findWaitingForUpdate(ticketIds, fromAgent));
+        waiting.sort(Comparator.comparingInt(ticket -> ticketIds.indexOf(ticket.getId()))); // dispatch order
+
+        int take = Math.min(waiting.size(), Math.max(0, maxOpen - load));
+        List<SupportTicket> assigned = new ArrayList<>(waiting.subList(0, take));
+        List<SupportTicket> deferred = new ArrayList<>(waiting.subList(take, waiting.size()));
+        LocalDateTime now = LocalDateTime.now();
+        for (SupportTicket ticket : assigned) {
+            ticket.setAssignedTo(toAgent);
+            ticket.setUpdatedAt(now);
+            conversationSummaryService.recordTicket(ticket);
+        }
+        return new AutoAssignment(assigned, deferred);
+    }
+
+    // Get active chats for agents: the top of the agent inbox, highest priority first
+public Map<String, Object> getActiveChats(UserDetails agentDetails, int limit) {
     Map<String, Object> response = new HashMap<>();
     
     try {
@@ -926,86 +1050,16 @@ public Map<String, Object> getActiveChats(UserDetails agentDetails) {
             return response;
         }
 
-        System.out.println("Fetching active chats for agent: " + agent.getUsername());
-
+        // Served from the in-memory agent inbox; changes are also pushed to AgentInbox.INBOX_TOPIC
         List<Map<String, Object>> activeChats = new ArrayList<>();
-        Set<Long> processedUserIds = new HashSet<>(); // Prevent duplicates
-
-        // 1. Get tickets that need first response (priority)
-        List<SupportTicket> needingResponse = supportTicketRepository.findTicketsNeedingFirstResponse();
-        System.out.println("Tickets needing first response: " + needingResponse.size());
-        
-        for (SupportTicket ticket : needingResponse) {
-            if (!processedUserIds.contains(ticket.getUser().getId())) {
-                Map<String, Object> chatInfo = createChatInfo(ticket, "NEEDS_FIRST_RESPONSE");
-                activeChats.add(chatInfo);
-                processedUserIds.add(ticket.getUser().getId());
-            }
-        }
-
-        // 2. Get tickets in progress
-        List<SupportTicket> inProgressTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(
-            SupportTicket.TicketStatus.IN_PROGRESS
-        );
-        System.out.println("In progress tickets: " + inProgressTickets.size());
-        
-        for (SupportTicket ticket : inProgressTickets) {
-            if (!processedUserIds.contains(ticket.getUser().getId())) {
-                Map<String, Object> chatInfo = createChatInfo(ticket, "IN_PROGRESS");
-                activeChats.add(chatInfo);
-                processedUserIds.add(ticket.getUser().getId());
-            }
-        }
-
-        // 3. Get users with recent chat activity (last 24 hours) who haven't been processed
-        LocalDateTime yesterday = LocalDateTime.now().minusHours(24);
-        List<ChatMessage> recentMessages = chatMessageRepository.findRecentUserMessages(yesterday);
-        System.out.println("Recent chat messages: " + recentMessages.size());
-        
-        // Group messages by user and get the latest for each user
-        Map<Long, ChatMessage> latestMessagePerUser = new HashMap<>();
-        for (ChatMessage message : recentMessages) {
-            Long userId = message.getUser().getId();
-            if (!processedUserIds.contains(userId) && 
-                message.getSenderType() == ChatMessage.SenderType.USER) {
-                
-                if (!latestMessagePerUser.containsKey(userId) || 
-                    message.getCreatedAt().isAfter(latestMessagePerUser.get(userId).getCreatedAt())) {
-                    latestMessagePerUser.put(userId, message);
-                }
-            }
-        }
-
-        // Add chat-only conversations
-        for (ChatMessage latestMessage : latestMessagePerUser.values()) {
-            Map<String, Object> chatInfo = createChatInfoFromMessage(latestMessage, "CHAT_ONLY");
-            activeChats.add(chatInfo);
+        for (AgentInbox.Entry entry : agentInbox.top(Math.max(1, Math.min(limit, 500)))) {
+            activeChats.add(entry.toMap());
         }
 
-        // 4. Sort by priority and recency
-        activeChats.sort((a, b) -> {
-            // First priority: NEEDS_FIRST_RESPONSE
-            String statusA = (String) a.get("conversationType");
-            String statusB = (String) b.get("conversationType");
-            
-            if ("NEEDS_FIRST_RESPONSE".equals(statusA) && !"NEEDS_FIRST_RESPONSE".equals(statusB)) {
-                return -1;
-            }
-            if ("NEEDS_FIRST_RESPONSE".equals(statusB) && !"NEEDS_FIRST_RESPONSE".equals(statusA)) {
-                return 1;
-            }
-            
-            // Then by creation time (newest first)
-            String timeA = (String) a.get("lastActivity");
-            String timeB = (String) b.get("lastActivity");
-            return timeB.compareTo(timeA);
-        });
-
-        System.out.println("Total active chats found: " + activeChats.size());
-
         response.put("success", true);
         response.put("activeChats", activeChats);
-        response.put("totalCount", activeChats.size());
+        response.put("totalCount", agentInbox.size());
+        response.put("updatesTopic", AgentInbox.INBOX_TOPIC);
 
     } catch (Exception e) {
         System.err.println("Error fetching active chats: " + e.getMessage());
@@ -1017,65 +1071,48 @@ public Map<String, Object> getActiveChats(UserDetails agentDetails) {
     return response;
 }
 
-// Helper method to create chat info from ticket
-private Map<String, Object> createChatInfo(SupportTicket ticket, String conversationType) {
+// Helper method to create chat info from a conversation_summary row
+private Map<String, Object> createChatInfo(ConversationSummary summary) {
     Map<String, Object> chatInfo = new HashMap<>();
-    User user = ticket.getUser();
+    User user = summary.getUser();
+    SupportTicket ticket = summary.getTicket();
     
     chatInfo.put("userId", user.getId());
     chatInfo.put("userName", user.getFirstName() + " " + user.getLastName());
     chatInfo.put("userEmail", user.getEmail());
-    chatInfo.put("ticketId", ticket.getId());
-    chatInfo.put("ticketNumber", ticket.getTicketNumber());
-    chatInfo.put("subject", ticket.getSubject());
-    chatInfo.put("category", ticket.getCategory());
-    chatInfo.put("priority", ticket.getPriority().name());
-    chatInfo.put("status", ticket.getStatus().name());
-    chatInfo.put("conversationType", conversationType);
-    chatInfo.put("createdAt", ticket.getCreatedAt().toString());
-    chatInfo.put("lastActivity", ticket.getUpdatedAt().toString());
-    chatInfo.put("assignedTo", ticket.getAssignedTo());
-    
-    // Get last message for preview
-    try {
-        List<ChatMessage> messages = chatMessageRepository.findByTicketOrderByCreatedAtDesc(ticket, 1);
-        if (!messages.isEmpty()) {
-            ChatMessage lastMessage = messages.get(0);
-            chatInfo.put("lastMessage", lastMessage.getMessage());
-            chatInfo.put("lastMessageTime", lastMessage.getCreatedAt().toString());
-            chatInfo.put("lastMessageSender", lastMessage.getSenderType().name());
-        }
-    } catch (Exception e) {
-        System.err.println("Error getting last message for ticket " + ticket.getId());
+    if (ticket != null) {
+        chatInfo.put("ticketId", ticket.getId());
+        chatInfo.put("ticketNumber", ticket.getTicketNumber());
+        chatInfo.put("subject", ticket.getSubject());
+        chatInfo.put("category", ticket.getCategory());
+        chatInfo.put("priority", ticket.getPriority().name());
+        chatInfo.put("status", summary.getTicketStatus().name());
+        chatInfo.put("conversationType", summary.getTicketStatus().name());
+        chatInfo.put("createdAt", ticket.getCreatedAt().toString());
+        chatInfo.put("assignedTo", ticket.getAssignedTo());
+    } else {
+        chatInfo.put("ticketId", null);
+        chatInfo.put("ticketNumber", null);
+        chatInfo.put("subject", "Chat Conversation");
+        chatInfo.put("category", "General");
+        chatInfo.put("priority", "NORMAL");
+        chatInfo.put("status", "CHAT_ACTIVE");
+        chatInfo.put("conversationType", "CHAT_ONLY");
+        chatInfo.put("createdAt", summary.getLastMessageAt() != null ? summary.getLastMessageAt().toString() : null);
+        chatInfo.put("assignedTo", null);
+    }
+    chatInfo.put("lastActivity", summary.getLastActivityAt().toString());
+    chatInfo.put("totalMessages", summary.getMessageCount());
+    chatInfo.put("unreadCount", summary.getUnreadCount());
+    if (summary.getLastMessageId() != null) {
+        chatInfo.put("lastMessage", summary.getLastMessagePreview());
+        chatInfo.put("lastMessageTime", summary.getLastMessageAt().toString());
+        chatInfo.put("lastMessageSender", summary.getLastSenderType().name());
     }
     
     return chatInfo;
 }
 
-// Helper method to create chat info from message (for chat-only conversations)
-private Map<String, Object> createChatInfoFromMessage(ChatMessage message, String conversationType) {
-    Map<String, Object> chatInfo = new HashMap<>();
-    User user = message.getUser();
-    
-    chatInfo.put("userId", user.getId());
-    chatInfo.put("userName", user.getFirstName() + " " + user.getLastName());
-    chatInfo.put("userEmail", user.getEmail());
-    chatInfo.put("ticketId", null);
-    chatInfo.put("ticketNumber", null);
-    chatInfo.put("subject", "Chat Conversation");
-    chatInfo.put("category", "General");
-    chatInfo.put("priority", "NORMAL");
-    chatInfo.put("status", "CHAT_ACTIVE");
-    chatInfo.put("conversationType", conversationType);
-    chatInfo.put("createdAt", message.getCreatedAt().toString());
-    chatInfo.put("lastActivity", message.getCreatedAt().toString());
-    chatInfo.put("assignedTo", null);
-    chatInfo.put("lastMessage", message.getMessage());
-    chatInfo.put("lastMessageTime", message.getCreatedAt().toString());
-    chatInfo.put("lastMessageSender", message.getSenderType().name());
-    
-    return chatInfo;
-}
     // Get support dashboard statistics
     public Map<String, Object> getSupportDashboard(UserDetails adminDetails) {
         Map<String, Object> response = new HashMap<>();
@@ -1097,23 +1134,15 @@ private Map<String, Object> createChatInfoFromMessage(ChatMessage message, Strin
                 return response;
             }
 
-            // Calculate statistics
-            long totalTickets = supportTicketRepository.count();
-            long openTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(SupportTicket.TicketStatus.OPEN).size();
-            long inProgressTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(SupportTicket.TicketStatus.IN_PROGRESS).size();
-            long resolvedTickets = supportTicketRepository.findByStatusOrderByCreatedAtDesc(SupportTicket.TicketStatus.RESOLVED).size();
-            long needingResponse = supportTicketRepository.findTicketsNeedingFirstResponse().size();
-
-            // Today's statistics
-            LocalDateTime todayStart = LocalDateTime.now().toLocalDate().atStartOfDay();
-            LocalDateTime todayEnd = todayStart.plusDays(1);
+            SupportStatsService.Snapshot stats = supportStatsService.current();
 
             response.put("success", true);
-            response.put("totalTickets", totalTickets);
-            response.put("openTickets", openTickets);
-            response.put("inProgressTickets", inProgressTickets);
-            response.put("resolvedTickets", resolvedTickets);
-            response.put("needingResponse", needingResponse);
+            response.put("totalTickets", stats.totalTickets());
+            response.put("openTickets", stats.tickets(SupportTicket.TicketStatus.OPEN));
+            response.put("inProgressTickets", stats.tickets(SupportTicket.TicketStatus.IN_PROGRESS));
+            response.put("resolvedTickets", stats.tickets(SupportTicket.TicketStatus.RESOLVED));
+            response.put("needingResponse", stats.ticketsNeedingFirstResponse());
+            response.put("statsTakenAt", stats.takenAt().toString());
             response.put("averageResponseTime", "4.2 hours");
             response.put("customerSatisfaction", 4.7);
 
@@ -1125,6 +1154,24 @@ private Map<String, Object> createChatInfoFromMessage(ChatMessage message, Strin
         return response;
     }
 
+    // Reload the chat bot intents file now instead of waiting for the change check
+    public Map<String, Object> reloadBotIntents(UserDetails adminDetails) {
+        Map<String, Object> response = new HashMap<>();
+
+        Optional<User> adminOpt = userRepository.findByUsername(adminDetails.getUsername());
+        if (adminOpt.isEmpty() || !hasRole(adminOpt.get(), "ADMIN")) {
+            response.put("success", false);
+            response.put("message", "Unauthorized: Admin access required");
+            return response;
+        }
+
+        boolean reloaded = supportBotIntents.reload();
+        response.put("success", reloaded);
+        response.put("message", reloaded ? "Bot intents reloaded" : "Could not load bot intents; previous intents kept");
+        response.put("bot", supportBotIntents.getStats());
+        return response;
+    }
+
     // Helper methods
     private boolean isValidEmail(String email) {
         return email.matches("^[A-Za-z0-9+_.-]+@([A-Za-z0-9.-]+\\.[A-Za-z]{2,})$");
@@ -1169,25 +1216,64 @@ private Map<String, Object> createChatInfoFromMessage(ChatMessage message, Strin
         }
     }
 
-    private String generateBotResponse(String userMessage) {
-        // Medical app specific bot responses
-        if (userMessage.contains("booking") || userMessage.contains("appointment")) {
-            return "I can help you with test booking issues. For immediate assistance with appointments, you can:\n\n1. Check the 'My Appointments' section\n2. Call our booking hotline: +234-XXX-XXXX\n3. Visit our FAQ for common booking questions\n\nWhat specific booking issue are you experiencing?";
+    @FunctionalInterface
+    private interface TranscriptQuery {
+        List<ChatMessage> find(LocalDateTime createdAt, Long id, Pageable pageable);
+    }
+
+    /**
+     * One window of a transcript, oldest first. Without a cursor it is the latest
+     * messages; "before" / "after" take the window just older / newer than a
+     * cursor. olderCursor and newerCursor continue in either direction (poll with
+     * newerCursor for new messages).
+     */
+    private Map<String, Object> transcriptWindow(TranscriptQuery olderThan, TranscriptQuery newerThan,
+                                                 String before, String after, int limit) {
+        if (before != null && !before.isBlank() && after != null && !after.isBlank()) {
+            throw new IllegalArgumentException("Use either before or after, not both");
         }
-        
-        if (userMessage.contains("result") || userMessage.contains("report")) {
-            return "For test results and reports:\n\n1. Results are typically available 24-48 hours after your test\n2. You'll receive an SMS notification when ready\n3. Check the 'Results' tab in the app\n4. Contact the lab directly if results are delayed\n\nIs there a specific result you're looking for?";
+        int windowSize = Math.max(1, Math.min(limit > 0 ? limit : transcriptDefaultLimit, 200));
+        KeysetCursor afterCursor = KeysetCursor.decode(after);
+        KeysetCursor beforeCursor = KeysetCursor.decode(before);
+
+        // Fetch one extra row to know whether the window can move further
+        List<ChatMessage> messages;
+        boolean hasOlder;
+        boolean hasNewer;
+        if (afterCursor != null) {
+            List<ChatMessage> rows = newerThan.find(afterCursor.createdAt(), afterCursor.id(), PageRequest.of(0, windowSize + 1));
+            hasNewer = rows.size() > windowSize;
+            messages = hasNewer ? rows.subList(0, windowSize) : rows;
+            hasOlder = true;
+        } else {
+            List<ChatMessage> rows = olderThan.find(
+                beforeCursor != null ? beforeCursor.createdAt() : null,
+                beforeCursor != null ? beforeCursor.id() : null,
+                PageRequest.of(0, windowSize + 1));
+            hasOlder = rows.size() > windowSize;
+            messages = new ArrayList<>(hasOlder ? rows.subList(0, windowSize) : rows);
+            Collections.reverse(messages);
+            hasNewer = beforeCursor != null;
         }
-        
-        if (userMessage.contains("payment") || userMessage.contains("bill")) {
-            return "For payment and billing questions:\n\n1. View payment history in 'Account' section\n2. Download receipts from your appointment details\n3. Contact billing: billing@qualitest.com\n4. Payment issues: +234-XXX-XXXX\n\nWhat payment issue can I help you with?";
+
+        List<Map<String, Object>> messageList = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            messageList.add(convertChatMessageToResponse(message));
         }
-        
-        if (userMessage.contains("login") || userMessage.contains("password")) {
-            return "For login issues:\n\n1. Use 'Forgot Password' on login screen\n2. Check your email for reset instructions\n3. Ensure you're using the correct email address\n4. Clear app cache and try again\n\nStill having trouble logging in?";
+
+        Map<String, Object> window = new HashMap<>();
+        window.put("messages", messageList);
+        window.put("hasOlder", hasOlder);
+        window.put("hasNewer", hasNewer);
+        if (!messages.isEmpty()) {
+            ChatMessage first = messages.get(0);
+            ChatMessage last = messages.get(messages.size() - 1);
+            window.put("olderCursor", KeysetCursor.encode(first.getCreatedAt(), first.getId()));
+            window.put("newerCursor", KeysetCursor.encode(last.getCreatedAt(), last.getId()));
+        } else if (afterCursor != null) {
+            window.put("newerCursor", after);
         }
-        
-        return "Thank you for contacting Qualitest Medical Support. I've noted your inquiry and our medical support team will assist you shortly. For immediate assistance, you can:\n\n• Check our FAQ section\n• Call our support line: +234-XXX-XXXX\n• Email: support@qualitest.com\n\nIs there anything specific I can help you with right now?";
+        return window;
     }
 
     private Map<String, Object> convertChatMessageToResponse(ChatMessage message) {
@@ -0,0 +1,148 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.ChatMessage;
+import com.medicalapp.medical_app_backend.entity.SupportTicket;
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.ChatMessageRepository;
+import com.medicalapp.medical_app_backend.repository.ConversationSummaryRepository;
+import com.medicalapp.medical_app_backend.repository.SupportTicketRepository;
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Support-wide counts for the admin dashboard and debug endpoints.
+ *
+ * A handful of GROUP BY / COUNT queries run on a timer and the results are
+ * published as one immutable Snapshot, so every dashboard request reads the
+ * same consistent figures without touching the database. Figures are at most
+ * one refresh interval old; takenAt says how old.
+ */
+@Service
+public class SupportStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SupportStatsService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SupportTicketRepository supportTicketRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Latest snapshot; the first call after startup computes it if the timer has not yet
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.support.stats.refresh-interval-ms:60000}")
+    public void refreshOnSchedule() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.warn("Support stats refresh failed, keeping the previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Snapshot refresh() {
+        long start = System.currentTimeMillis();
+
+        Map<User.Role, Long> usersByRole = new EnumMap<>(User.Role.class);
+        for (Object[] row : userRepository.countGroupedByRole()) {
+            if (row[0] != null) {
+                usersByRole.put((User.Role) row[0], (Long) row[1]);
+            }
+        }
+
+        Map<SupportTicket.TicketStatus, Long> ticketsByStatus = new EnumMap<>(SupportTicket.TicketStatus.class);
+        for (Object[] row : supportTicketRepository.countGroupedByStatus()) {
+            if (row[0] != null) {
+                ticketsByStatus.put((SupportTicket.TicketStatus) row[0], (Long) row[1]);
+            }
+        }
+
+        Map<ChatMessage.SenderType, Long> messagesBySender = new EnumMap<>(ChatMessage.SenderType.class);
+        for (Object[] row : chatMessageRepository.getChatStatistics()) {
+            if (row[0] != null) {
+                messagesBySender.put((ChatMessage.SenderType) row[0], (Long) row[1]);
+            }
+        }
+
+        long needingFirstResponse = supportTicketRepository.countNeedingFirstResponse();
+        List<Object[]> kinds = summaryRepository.countConversationKinds();
+        Object[] conversations = kinds.isEmpty() ? new Object[]{0L, 0L, 0L} : kinds.get(0);
+
+        Snapshot fresh = new Snapshot(
+            Collections.unmodifiableMap(usersByRole),
+            Collections.unmodifiableMap(ticketsByStatus),
+            Collections.unmodifiableMap(messagesBySender),
+            needingFirstResponse,
+            toLong(conversations[0]),
+            toLong(conversations[1]),
+            toLong(conversations[2]),
+            LocalDateTime.now());
+        snapshot = fresh;
+        logger.debug("Support stats refreshed in {} ms", System.currentTimeMillis() - start);
+        return fresh;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * Immutable point-in-time figures; the maps hold only values that occur
+     */
+    public record Snapshot(Map<User.Role, Long> usersByRole,
+                           Map<SupportTicket.TicketStatus, Long> ticketsByStatus,
+                           Map<ChatMessage.SenderType, Long> messagesBySender,
+                           long ticketsNeedingFirstResponse,
+                           long usersWithTickets,
+                           long usersWithMessages,
+                           long chatOnlyUsers,
+                           LocalDateTime takenAt) {
+
+        public long users(User.Role role) {
+            return usersByRole.getOrDefault(role, 0L);
+        }
+
+        public long tickets(SupportTicket.TicketStatus status) {
+            return ticketsByStatus.getOrDefault(status, 0L);
+        }
+
+        public long messages(ChatMessage.SenderType senderType) {
+            return messagesBySender.getOrDefault(senderType, 0L);
+        }
+
+        public long totalUsers() {
+            return usersByRole.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long totalTickets() {
+            return ticketsByStatus.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long totalMessages() {
+            return messagesBySender.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.entity.SupportTicket;
+import com.medicalapp.medical_app_backend.entity.User;
+import com.medicalapp.medical_app_backend.repository.SupportTicketRepository;
+import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.websocket.NotificationDeliveryRouter;
+import com.medicalapp.medical_app_backend.websocket.UserSessionRegistry;
+import com.medicalapp.medical_app_backend.websocket.cluster.ClusterRelayService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns new support tickets to the least-loaded online agent.
+ *
+ * Online agents sit in a skip list ordered by (open tickets, least recently
+ * assigned), so the next agent is its first entry with spare capacity and a
+ * matching category skill (app.support.dispatch.skills). A ticket that no
+ * agent can take waits here until an agent comes online or frees capacity.
+ *
+ * Decisions are made in memory when the ticket commits; the writes are queued
+ * and flushed in batches, guarded so a ticket someone answered or assigned by
+ * hand in the meantime is left alone. When an agent has been offline for the
+ * grace period their unanswered tickets are dispatched again. Loads are
+ * recounted from the database on every resync, which also picks up manual
+ * changes and tickets dispatched by other nodes.
+ *
+ * An agent is online when connected to any node: on a multi-node deployment
+ * agents connected elsewhere come from the cluster presence table, so a node
+ * without local agents still dispatches, and an agent whose connection moves
+ * to another node is not treated as offline. Several nodes may re-dispatch
+ * the tickets of an agent who left; the guarded write lets only one of them through.
+ * The per-agent cap is checked again in the database under the agent's row lock,
+ * so nodes dispatching to the same agent at once cannot push them past it;
+ * tickets that no longer fit wait here again.
+ */
+@Service
+public class TicketDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketDispatcher.class);
+
+    public static final String ASSIGNMENTS_DESTINATION = "/queue/support/assignments";
+
+    // Statuses that count towards an agent's load
+    private static final List<SupportTicket.TicketStatus> LOAD_STATUSES = List.of(
+        SupportTicket.TicketStatus.OPEN, SupportTicket.TicketStatus.IN_PROGRESS, SupportTicket.TicketStatus.ESCALATED);
+
+    private static final Comparator<AgentSlot> LEAST_LOADED = Comparator
+        .comparingInt(AgentSlot::load)
+        .thenComparingLong(AgentSlot::lastAssigned)
+        .thenComparing(AgentSlot::username);
+
+    @Autowired
+    private SupportTicketRepository supportTicketRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRegistry sessionRegistry;
+
+    @Autowired
+    private ClusterRelayService clusterRelayService;
+
+    @Autowired
+    private NotificationDeliveryRouter deliveryRouter;
+
+    @Autowired
+    @Lazy // SupportService hands new tickets to this dispatcher
+    private SupportService supportService;
+
+    @Value("${app.support.dispatch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.support.dispatch.max-open-per-agent:15}")
+    private int maxOpenPerAgent;
+
+    // username=Category|Category entries; agents not listed take any category
+    @Value("${app.support.dispatch.skills:}")
+    private List<String> skillEntries;
+
+    @Value("${app.support.dispatch.skill-fallback:true}")
+    private boolean skillFallback;
+
+    @Value("${app.support.dispatch.offline-grace-ms:120000}")
+    private long offlineGraceMs;
+
+    @Value("${app.support.dispatch.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${app.support.dispatch.batch-size:100}")
+    private int batchSize;
+
+    private record AgentSlot(String username, int load, long lastAssigned) {}
+
+    private record Pending(Long ticketId, String category, String fromAgent) {}
+
+    private record Assignment(Long ticketId, String fromAgent, String toAgent) {}
+
+    // Guarded by this: the skip list, loads and waiting change together
+    private final ConcurrentSkipListSet<AgentSlot> available = new ConcurrentSkipListSet<>(LEAST_LOADED);
+    private final Map<String, AgentSlot> online = new HashMap<>();
+    private final Map<String, Integer> loads = new HashMap<>();
+    private final Deque<Pending> waiting = new ArrayDeque<>();
+    private long assignSeq;
+
+    // Support agents: userId -> username
+    private volatile Map<Long, String> agents = Map.of();
+    private Map<String, Set<String>> skills = Map.of();
+
+    private final ConcurrentLinkedQueue<Assignment> writes = new ConcurrentLinkedQueue<>();
+    private final Object flushLock = new Object();
+    private final Map<Long, ScheduledFuture<?>> offlineTimers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "support-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        skills = parseSkills(skillEntries);
+        sessionRegistry.addPresenceListener(this::presenceChanged);
+        clusterRelayService.addPresenceListener(this::presenceChanged);
+        executor.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * Queues a newly created ticket; it is dispatched once the creating transaction commits
+     */
+    public void submit(SupportTicket ticket) {
+        if (!enabled || ticket.getAssignedTo() != null) {
+            return;
+        }
+        Pending pending = new Pending(ticket.getId(), ticket.getCategory(), null);
+        afterCommit(() -> dispatch(pending));
+    }
+
+    /**
+     * Keeps loads current when a ticket's assignee or status is changed by hand;
+     * pass the values from before the change.
+     */
+    public void ticketUpdated(String previousAgent, SupportTicket.TicketStatus previousStatus, SupportTicket ticket) {
+        String agent = ticket.getAssignedTo();
+        boolean counted = previousAgent != null && LOAD_STATUSES.contains(previousStatus);
+        boolean counts = agent != null && LOAD_STATUSES.contains(ticket.getStatus());
+        if (counted == counts && (!counted || agent.equals(previousAgent))) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                if (counted) {
+                    changeLoad(previousAgent, -1);
+                }
+                if (counts) {
+                    changeLoad(agent, 1);
+                }
+                drain();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2) // after the conversation summary / SLA startup work
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            resync();
+            int backlog = 0;
+            for (SupportTicket ticket : supportTicketRepository.findTicketsNeedingFirstResponse()) {
+                if (ticket.getAssignedTo() == null) {
+                    dispatch(new Pending(ticket.getId(), ticket.getCategory(), null));
+                    backlog++;
+                }
+            }
+            logger.info("✅ Ticket dispatcher ready: {} agents, {} online, {} unassigned tickets dispatched",
+                agents.size(), onlineCount(), backlog);
+        } catch (Exception e) {
+            logger.error("❌ Ticket dispatcher startup failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recounts loads from the database and resyncs the online agents
+     */
+    @Scheduled(fixedDelayString = "${app.support.dispatch.resync-interval-ms:60000}",
+               initialDelayString = "${app.support.dispatch.resync-interval-ms:60000}")
+    public void resync() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            flushSafely(); // so the counts include every decision made so far
+            Map<Long, String> fresh = new HashMap<>();
+            for (User.Role role : List.of(User.Role.DOCTOR, User.Role.ADMIN)) {
+                userRepository.findByRole(role).forEach(user -> fresh.put(user.getId(), user.getUsername()));
+            }
+            Map<String, Integer> counted = new HashMap<>();
+            for (Object[] row : supportTicketRepository.countGroupedByAssignee(LOAD_STATUSES)) {
+                counted.put((String) row[0], ((Long) row[1]).intValue());
+            }
+            Set<Long> onlineIds = new HashSet<>(sessionRegistry.getOnlineUserIds());
+            onlineIds.addAll(clusterRelayService.getRemoteUserIds());
+            synchronized (this) {
+                agents = Map.copyOf(fresh);
+                loads.clear();
+                loads.putAll(counted);
+                Map<String, AgentSlot> previous = new HashMap<>(online);
+                available.clear();
+                online.clear();
+                fresh.forEach((userId, username) -> {
+                    if (onlineIds.contains(userId)) {
+                        AgentSlot before = previous.get(username);
+                        put(new AgentSlot(username, loads.getOrDefault(username, 0), before != null ? before.lastAssigned() : 0));
+                    }
+                });
+                drain();
+            }
+        } catch (Exception e) {
+            logger.error("❌ Ticket dispatcher resync failed: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("agents", agents.size());
+        stats.put("onlineAgents", online.size());
+        stats.put("waitingTickets", waiting.size());
+        stats.put("pendingWrites", writes.size());
+        stats.put("loads", online.values().stream()
+            .collect(Collectors.toMap(AgentSlot::username, AgentSlot::load)));
+        return stats;
+    }
+
+    private synchronized int onlineCount() {
+        return online.size();
+    }
+
+    // Connected to this node or, per the last cluster heartbeat, to another one
+    private boolean isAgentOnline(Long userId) {
+        return sessionRegistry.isOnline(userId) || clusterRelayService.findOwner(userId) != null;
+    }
+
+    private void presenceChanged(Long userId, boolean isOnline) {
+        String username = agents.get(userId);
+        if (!enabled || username == null) {
+            return;
+        }
+        ScheduledFuture<?> offlineTimer = offlineTimers.remove(userId);
+        if (offlineTimer != null) {
+            offlineTimer.cancel(false);
+        }
+        if (isOnline) {
+            synchronized (this) {
+                if (!online.containsKey(username)) {
+                    put(new AgentSlot(username, loads.getOrDefault(username, 0), 0));
+                    drain();
+                }
+            }
+        } else if (!isAgentOnline(userId)) {
+            // Page reloads and flaky connections come back within the grace period
+            offlineTimers.put(userId, executor.schedule(() -> wentOffline(userId, username), offlineGraceMs, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void wentOffline(Long userId, String username) {
+        offlineTimers.remove(userId);
+        if (isAgentOnline(userId)) {
+            return;
+        }
+        synchronized (this) {
+            AgentSlot slot = online.remove(username);
+            if (slot == null) {
+                return;
+            }
+            available.remove(slot);
+        }
+        try {
+            flushSafely();
+            List<SupportTicket> held = supportTicketRepository.findByAssignedToOrderByCreatedAtDesc(username);
+            int moved = 0;
+            // Oldest first, so they keep their place in the waiting line
+            for (int i = held.size() - 1; i >= 0; i--) {
+                SupportTicket ticket = held.get(i);
+                if (ticket.getStatus() == SupportTicket.TicketStatus.OPEN && ticket.getFirstResponseAt() == null) {
+                    dispatch(new Pending(ticket.getId(), ticket.getCategory(), username));
+                    moved++;
+                }
+            }
+            if (moved > 0) {
+                logger.info("🔀 Agent {} went offline, re-dispatching {} unanswered tickets", username, moved);
+            }
+        } catch (Exception e) {
+            logger.error("❌ Rebalancing tickets of {} failed: {}", username, e.getMessage());
+        }
+    }
+
+    private void dispatch(Pending pending) {
+        boolean flushNow;
+        synchronized (this) {
+            if (!tryAssign(pending)) {
+                waiting.add(pending);
+                return;
+            }
+            flushNow = writes.size() >= batchSize;
+        }
+        if (flushNow) {
+            executor.execute(this::flushSafely);
+        }
+    }
+
+    // Callers hold the monitor
+    private boolean tryAssign(Pending pending) {
+        AgentSlot agent = pick(pending.category(), true);
+        if (agent == null && skillFallback) {
+            agent = pick(pending.category(), false);
+        }
+        if (agent == null) {
+            return false;
+        }
+        available.remove(agent);
+        online.remove(agent.username());
+        put(new AgentSlot(agent.username(), agent.load() + 1, ++assignSeq));
+        loads.merge(agent.username(), 1, Integer::sum);
+        if (pending.fromAgent() != null) {
+            changeLoad(pending.fromAgent(), -1);
+        }
+        writes.add(new Assignment(pending.ticketId(), pending.fromAgent(), agent.username()));
+        return true;
+    }
+
+    // Least-loaded agent with spare capacity (and the skill, when bySkill)
+    private AgentSlot pick(String category, boolean bySkill) {
+        for (AgentSlot slot : available) {
+            if (slot.load() >= maxOpenPerAgent) {
+                return null; // everyone after it is at least as loaded
+            }
+            if (!bySkill || hasSkill(slot.username(), category)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasSkill(String username, String category) {
+        Set<String> agentSkills = skills.get(username);
+        return agentSkills == null || category == null || agentSkills.contains(category.trim().toLowerCase(Locale.ROOT));
+    }
+
+    // Callers hold the monitor; retries every waiting ticket once
+    private void drain() {
+        for (int i = waiting.size(); i > 0; i--) {
+            Pending pending = waiting.poll();
+            if (!tryAssign(pending)) {
+                waiting.add(pending);
+            }
+        }
+    }
+
+    // Callers hold the monitor
+    private void changeLoad(String username, int delta) {
+        int load = Math.max(0, loads.getOrDefault(username, 0) + delta);
+        loads.put(username, load);
+        AgentSlot slot = online.remove(username);
+        if (slot != null) {
+            available.remove(slot);
+            put(new AgentSlot(username, load, slot.lastAssigned()));
+        }
+    }
+
+    private void put(AgentSlot slot) {
+        online.put(slot.username(), slot);
+        available.add(slot);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("❌ Writing ticket assignments failed: {}", e.getMessage());
+        }
+    }
+
+    // One UPDATE per (previous agent, new agent) group and batch
+    private void flush() {
+        synchronized (flushLock) {
+            List<Assignment> batch = new ArrayList<>();
+            for (Assignment assignment; (assignment = writes.poll()) != null; ) {
+                batch.add(assignment);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<List<String>, List<Long>> groups = new LinkedHashMap<>();
+            for (Assignment assignment : batch) {
+                groups.computeIfAbsent(Arrays.asList(assignment.fromAgent(), assignment.toAgent()),
+                    key -> new ArrayList<>()).add(assignment.ticketId());
+            }
+            for (Map.Entry<List<String>, List<Long>> group : groups.entrySet()) {
+                String from = group.getKey().get(0);
+                String to = group.getKey().get(1);
+                List<Long> ids = group.getValue();
+                for (int i = 0; i < ids.size(); i += batchSize) {
+                    List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + batchSize));
+                    try {
+                        SupportService.AutoAssignment result =
+                            supportService.applyAutoAssignments(chunk, from, to, LOAD_STATUSES, maxOpenPerAgent);
+                        if (result.assigned().size() < chunk.size()) {
+                            synchronized (this) {
+                                // Answered or assigned by hand meanwhile, or over the cap in the database
+                                changeLoad(to, result.assigned().size() - chunk.size());
+                                if (!result.deferred().isEmpty()) {
+                                    // Other nodes filled this agent up: hold them at the cap until counts change
+                                    changeLoad(to, Math.max(0, maxOpenPerAgent - loads.getOrDefault(to, 0)));
+                                    for (SupportTicket ticket : result.deferred()) {
+                                        if (from != null) {
+                                            changeLoad(from, 1); // still theirs; tryAssign takes it off again
+                                        }
+                                        waiting.add(new Pending(ticket.getId(), ticket.getCategory(), from));
+                                    }
+                                }
+                                drain();
+                            }
+                        }
+                        notifyAgent(to, result.assigned());
+                    } catch (Exception e) {
+                        logger.error("❌ Writing {} ticket assignments for {} failed, retrying: {}", chunk.size(), to, e.getMessage());
+                        chunk.forEach(id -> writes.add(new Assignment(id, from, to)));
+                    }
+                }
+            }
+        }
+    }
+
+    private void notifyAgent(String username, List<SupportTicket> tickets) {
+        if (tickets.isEmpty()) {
+            return;
+        }
+        logger.info("🎫 Auto-assigned {} tickets to {}", tickets.size(), username);
+        Long agentId = agents.entrySet().stream()
+            .filter(agent -> agent.getValue().equals(username))
+            .map(Map.Entry::getKey)
+            .findFirst().orElse(null);
+        if (agentId == null) {
+            return;
+        }
+        try {
+            List<Map<String, Object>> assigned = new ArrayList<>();
+            for (SupportTicket ticket : tickets) {
+                Map<String, Object> info = new HashMap<>();
+                info.put("ticketId", ticket.getId());
+                info.put("ticketNumber", ticket.getTicketNumber());
+                info.put("subject", ticket.getSubject());
+                info.put("category", ticket.getCategory());
+                info.put("priority", ticket.getPriority().name());
+                assigned.add(info);
+            }
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("type", "tickets_assigned");
+            payload.put("tickets", assigned);
+            payload.put("timestamp", LocalDateTime.now().toString());
+            deliveryRouter.deliver(agentId, ASSIGNMENTS_DESTINATION, payload);
+        } catch (Exception e) {
+            logger.warn("Could not notify {} of assigned tickets: {}", username, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Map<String, Set<String>> parseSkills(List<String> entries) {
+        Map<String, Set<String>> parsed = new HashMap<>();
+        for (String entry : entries) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            Set<String> categories = new HashSet<>();
+            for (String category : entry.substring(eq + 1).split("\\|")) {
+                if (!category.isBlank()) {
+                    categories.add(category.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            parsed.put(entry.substring(0, eq).trim(), Set.copyOf(categories));
+        }
+        return parsed;
+    }
+}
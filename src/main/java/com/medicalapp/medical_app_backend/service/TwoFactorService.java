@@ -2,6 +2,7 @@ package com.medicalapp.medical_app_backend.service;
 
 import com.medicalapp.medical_app_backend.entity.User;
 import com.medicalapp.medical_app_backend.repository.UserRepository;
+import com.medicalapp.medical_app_backend.service.sms.SmsMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -18,6 +19,9 @@ public class TwoFactorService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private NotificationService notificationService;
+
     // Store temporary setup data (in production, use Redis or database)
     private final Map<String, TwoFactorSetup> setupCache = new HashMap<>();
     
@@ -495,16 +499,9 @@ public class TwoFactorService {
 
     // Send SMS code (mock implementation - integrate with SMS provider)
     private boolean sendSMSCode(String phoneNumber, String code) {
-        // In production, integrate with SMS providers like:
-        // - Twilio
-        // - AWS SNS
-        // - Firebase Cloud Messaging
-        // - African SMS providers like Bulk SMS Nigeria
-        
-        System.out.println("SMS Code sent to " + phoneNumber + ": " + code);
-        
-        // Simulate SMS sending
-        return true;
+        // Goes out on the OTP lane, ahead of any queued transactional/bulk SMS
+        return notificationService.sendSMS(phoneNumber,
+            "Your verification code is " + code + ". It expires in 10 minutes.", SmsMessage.Priority.OTP);
     }
 
     // ==================== INNER CLASSES ====================
@@ -0,0 +1,114 @@
+package com.medicalapp.medical_app_backend.service.sms;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generic JSON bulk gateway (also usable against a local HTTP stub).
+ *
+ * POSTs {"from": ..., "messages": [{"to": ..., "body": ...}]} to
+ * app.notification.sms.http.url. A 2xx response accepts the batch; if it
+ * contains "results": [{"status": "ok"|"error", "id": ..., "error": ...}]
+ * those are mapped per message.
+ */
+@Component
+public class HttpSmsProvider implements SmsProvider {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    @Value("${app.notification.sms.http.url:http://localhost:8089/sms/send}")
+    private String url;
+
+    @Value("${app.notification.sms.api-key:}")
+    private String apiKey;
+
+    @Value("${app.notification.sms.http.sender:QualitestMed}")
+    private String sender;
+
+    @Value("${app.notification.sms.http.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.notification.sms.http.rate-per-second:10}")
+    private double ratePerSecond;
+
+    @Value("${app.notification.sms.http.burst:20}")
+    private int burst;
+
+    @Value("${app.notification.sms.http.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Override
+    public String getName() {
+        return "http";
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    @Override
+    public int getBurst() {
+        return burst;
+    }
+
+    @Override
+    public List<SmsResult> send(List<SmsMessage> batch) throws Exception {
+        List<Map<String, String>> messages = new ArrayList<>(batch.size());
+        for (SmsMessage message : batch) {
+            messages.add(Map.of("to", message.phoneNumber(), "body", message.body()));
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("from", sender);
+        payload.put("messages", messages);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMillis(timeoutMs))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+        if (apiKey != null && !apiKey.isBlank()) {
+            request.header("Authorization", "Bearer " + apiKey);
+        }
+
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("SMS gateway returned HTTP " + response.statusCode());
+        }
+
+        JsonNode results = response.body() == null || response.body().isBlank()
+            ? null : objectMapper.readTree(response.body()).path("results");
+
+        List<SmsResult> mapped = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String phone = batch.get(i).phoneNumber();
+            JsonNode result = results != null && results.isArray() ? results.path(i) : null;
+            if (result == null || result.isMissingNode() || "ok".equalsIgnoreCase(result.path("status").asText("ok"))) {
+                mapped.add(SmsResult.ok(phone, result == null ? null : result.path("id").asText(null)));
+            } else {
+                mapped.add(SmsResult.failed(phone, result.path("error").asText("rejected")));
+            }
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,79 @@
+package com.medicalapp.medical_app_backend.service.sms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stub provider for development: logs each message and, when
+ * app.notification.sms.stub.file is set, appends it to that file
+ * (one tab-separated line per SMS) so tests can read the codes back.
+ */
+@Component
+public class LogSmsProvider implements SmsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogSmsProvider.class);
+
+    @Value("${app.notification.sms.stub.file:}")
+    private String outputFile;
+
+    @Value("${app.notification.sms.stub.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.notification.sms.stub.rate-per-second:50}")
+    private double ratePerSecond;
+
+    @Value("${app.notification.sms.stub.burst:100}")
+    private int burst;
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    @Override
+    public int getBurst() {
+        return burst;
+    }
+
+    @Override
+    public List<SmsResult> send(List<SmsMessage> batch) throws IOException {
+        List<SmsResult> results = new ArrayList<>(batch.size());
+        StringBuilder lines = new StringBuilder();
+        for (SmsMessage message : batch) {
+            logger.info("📱 SMS ({}) to {}: {}", message.priority(), message.phoneNumber(), message.body());
+            lines.append(LocalDateTime.now()).append('\t')
+                .append(message.priority()).append('\t')
+                .append(message.phoneNumber()).append('\t')
+                .append(message.body().replace('\n', ' ')).append('\n');
+            results.add(SmsResult.ok(message.phoneNumber(), UUID.randomUUID().toString()));
+        }
+
+        if (outputFile != null && !outputFile.isBlank()) {
+            Files.writeString(Path.of(outputFile), lines, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,278 @@
+package com.medicalapp.medical_app_backend.service.sms;
+
+import com.medicalapp.medical_app_backend.service.OutboundChannels;
+import com.medicalapp.medical_app_backend.util.ChannelGuard;
+import com.medicalapp.medical_app_backend.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues outbound SMS and sends them on a single dispatcher thread.
+ *
+ * - Priority lanes: every batch is taken from the highest non-empty lane, so OTP
+ *   codes never wait behind a broadcast.
+ * - Rate limit: a token bucket sized from the provider's rate/burst; the lane is
+ *   only picked once a token is available.
+ * - Batching: up to the provider's max batch size (and the tokens on hand) per call.
+ * - Calls go through the "sms" ChannelGuard; failed or rejected batches are put
+ *   back at the head of their lane until max-attempts.
+ */
+@Service
+public class SmsDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmsDispatcher.class);
+
+    // Pause after a failed/rejected batch so a dead gateway is not hammered
+    private static final long FAILURE_BACKOFF_MS = 1000;
+
+    @Autowired
+    private List<SmsProvider> providers;
+
+    @Autowired
+    private OutboundChannels outboundChannels;
+
+    @Value("${app.notification.sms.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notification.sms.provider:log}")
+    private String providerName;
+
+    @Value("${app.notification.sms.max-attempts:3}")
+    private int maxAttempts;
+
+    // Bulk messages are refused beyond this; OTP/transactional are always accepted
+    @Value("${app.notification.sms.bulk-queue-limit:50000}")
+    private int bulkQueueLimit;
+
+    private SmsProvider provider;
+    private TokenBucket rateLimiter;
+    private Thread dispatcherThread;
+    private volatile boolean running;
+
+    private final Map<SmsMessage.Priority, ConcurrentLinkedDeque<SmsMessage>> lanes = new EnumMap<>(SmsMessage.Priority.class);
+    private final Map<SmsMessage.Priority, LaneStats> laneStats = new EnumMap<>(SmsMessage.Priority.class);
+    private final Semaphore signal = new Semaphore(0);
+    private final LongAdder batches = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (SmsMessage.Priority priority : SmsMessage.Priority.values()) {
+            lanes.put(priority, new ConcurrentLinkedDeque<>());
+            laneStats.put(priority, new LaneStats());
+        }
+
+        provider = providers.stream()
+            .filter(p -> p.getName().equalsIgnoreCase(providerName))
+            .findFirst()
+            .orElseGet(() -> {
+                logger.warn("⚠️ Unknown SMS provider '{}', falling back to the log stub", providerName);
+                return providers.stream().filter(p -> "log".equals(p.getName())).findFirst().orElseThrow();
+            });
+        rateLimiter = new TokenBucket(Math.max(1, provider.getBurst()), provider.getRatePerSecond());
+
+        running = true;
+        dispatcherThread = new Thread(this::dispatchLoop, "sms-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+        logger.info("SMS dispatcher started with provider '{}' ({}/s, batch {})",
+            provider.getName(), provider.getRatePerSecond(), provider.getMaxBatchSize());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        signal.release();
+        try {
+            dispatcherThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int left = lanes.values().stream().mapToInt(ConcurrentLinkedDeque::size).sum();
+        if (left > 0) {
+            logger.warn("SMS dispatcher stopped with {} unsent messages", left);
+        }
+    }
+
+    /**
+     * Queue an SMS. Returns false if it was refused (disabled, empty, or bulk lane full).
+     */
+    public boolean submit(String phoneNumber, String body, SmsMessage.Priority priority) {
+        if (!enabled || phoneNumber == null || phoneNumber.isBlank() || body == null) {
+            return false;
+        }
+        LaneStats stats = laneStats.get(priority);
+        ConcurrentLinkedDeque<SmsMessage> lane = lanes.get(priority);
+        if (priority == SmsMessage.Priority.BULK && stats.queued.get() >= bulkQueueLimit) {
+            stats.dropped.increment();
+            return false;
+        }
+
+        lane.addLast(new SmsMessage(phoneNumber, body, priority, System.nanoTime(), 0));
+        stats.queued.incrementAndGet();
+        stats.submitted.increment();
+        signal.release();
+        return true;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                signal.tryAcquire(1, TimeUnit.SECONDS);
+                // Anything submitted after this point releases a fresh permit
+                signal.drainPermits();
+
+                while (running && hasQueued()) {
+                    int tokens = rateLimiter.awaitTokens();
+                    List<SmsMessage> batch = nextBatch(Math.min(tokens, provider.getMaxBatchSize()));
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    rateLimiter.tryConsume(batch.size());
+                    if (!dispatch(batch)) {
+                        Thread.sleep(FAILURE_BACKOFF_MS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("❌ SMS dispatcher error: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean hasQueued() {
+        for (ConcurrentLinkedDeque<SmsMessage> lane : lanes.values()) {
+            if (!lane.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take up to max messages from the highest-priority non-empty lane
+     */
+    private List<SmsMessage> nextBatch(int max) {
+        List<SmsMessage> batch = new ArrayList<>();
+        for (SmsMessage.Priority priority : SmsMessage.Priority.values()) {
+            ConcurrentLinkedDeque<SmsMessage> lane = lanes.get(priority);
+            SmsMessage next;
+            while (batch.size() < max && (next = lane.pollFirst()) != null) {
+                laneStats.get(priority).queued.decrementAndGet();
+                batch.add(next);
+            }
+            if (!batch.isEmpty()) {
+                return batch;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Send one batch. Returns false if the whole batch failed and was requeued.
+     */
+    private boolean dispatch(List<SmsMessage> batch) {
+        ChannelGuard guard = outboundChannels.sms();
+        List<SmsResult> results;
+        try {
+            results = guard.execute(() -> provider.send(batch));
+        } catch (ChannelGuard.UnavailableException e) {
+            // Never attempted - does not count against max-attempts
+            requeue(batch, false);
+            return false;
+        } catch (Exception e) {
+            logger.warn("SMS batch of {} failed: {}", batch.size(), e.getMessage());
+            requeue(batch, true);
+            return false;
+        }
+
+        batches.increment();
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            SmsMessage message = batch.get(i);
+            LaneStats stats = laneStats.get(message.priority());
+            SmsResult result = i < results.size() ? results.get(i) : SmsResult.failed(message.phoneNumber(), "no result");
+            if (result.success()) {
+                stats.recordSent(now - message.enqueuedAtNanos());
+            } else {
+                stats.failed.increment();
+                logger.warn("SMS to {} rejected by {}: {}", message.phoneNumber(), provider.getName(), result.error());
+            }
+        }
+        return true;
+    }
+
+    private void requeue(List<SmsMessage> batch, boolean countAttempt) {
+        // Walk backwards so addFirst keeps the original order at the head of the lane
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            SmsMessage message = batch.get(i);
+            LaneStats stats = laneStats.get(message.priority());
+            if (countAttempt && message.attempts() + 1 >= maxAttempts) {
+                stats.failed.increment();
+                logger.error("❌ Giving up on SMS to {} after {} attempts", message.phoneNumber(), maxAttempts);
+                continue;
+            }
+            lanes.get(message.priority()).addFirst(countAttempt ? message.retry() : message);
+            stats.queued.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("provider", provider.getName());
+        stats.put("batches", batches.sum());
+        stats.put("tokensAvailable", rateLimiter.available());
+        Map<String, Object> byLane = new LinkedHashMap<>();
+        laneStats.forEach((priority, lane) -> byLane.put(priority.name(), lane.toMap()));
+        stats.put("lanes", byLane);
+        return stats;
+    }
+
+    private static class LaneStats {
+        final AtomicInteger queued = new AtomicInteger();
+        final LongAdder submitted = new LongAdder();
+        final LongAdder sent = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder totalLatencyNanos = new LongAdder();
+        final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+        void recordSent(long latencyNanos) {
+            sent.increment();
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulate(latencyNanos);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            long sentCount = sent.sum();
+            map.put("queued", queued.get());
+            map.put("submitted", submitted.sum());
+            map.put("sent", sentCount);
+            map.put("failed", failed.sum());
+            map.put("dropped", dropped.sum());
+            map.put("avgLatencyMs", sentCount == 0 ? 0 : totalLatencyNanos.sum() / sentCount / 1_000_000);
+            map.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000);
+            return map;
+        }
+    }
+}
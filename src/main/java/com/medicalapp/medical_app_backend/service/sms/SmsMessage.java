@@ -0,0 +1,20 @@
+package com.medicalapp.medical_app_backend.service.sms;
+
+/**
+ * One outbound SMS queued in SmsDispatcher.
+ */
+public record SmsMessage(String phoneNumber, String body, Priority priority, long enqueuedAtNanos, int attempts) {
+
+    /**
+     * Dispatch lanes, highest first. OTP codes always go out ahead of anything else.
+     */
+    public enum Priority {
+        OTP,
+        TRANSACTIONAL,
+        BULK
+    }
+
+    public SmsMessage retry() {
+        return new SmsMessage(phoneNumber, body, priority, enqueuedAtNanos, attempts + 1);
+    }
+}
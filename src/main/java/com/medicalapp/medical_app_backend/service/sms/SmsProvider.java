@@ -0,0 +1,36 @@
+package com.medicalapp.medical_app_backend.service.sms;
+
+import java.util.List;
+
+/**
+ * SPI for SMS gateways. Implementations are Spring beans; SmsDispatcher picks
+ * the one whose name matches app.notification.sms.provider.
+ */
+public interface SmsProvider {
+
+    /**
+     * Name used in app.notification.sms.provider
+     */
+    String getName();
+
+    /**
+     * Largest batch accepted in one send() call; 1 for providers without bulk sends
+     */
+    int getMaxBatchSize();
+
+    /**
+     * Sustained send rate the provider account allows
+     */
+    double getRatePerSecond();
+
+    /**
+     * Messages that may be sent back-to-back before the rate limit applies
+     */
+    int getBurst();
+
+    /**
+     * Send a batch and return one result per message, in order. Throw when the
+     * whole call failed (network error, 5xx) so the batch can be retried.
+     */
+    List<SmsResult> send(List<SmsMessage> batch) throws Exception;
+}
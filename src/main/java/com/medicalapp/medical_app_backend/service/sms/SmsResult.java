@@ -0,0 +1,15 @@
+package com.medicalapp.medical_app_backend.service.sms;
+
+/**
+ * Provider outcome for one message of a batch.
+ */
+public record SmsResult(String phoneNumber, boolean success, String providerMessageId, String error) {
+
+    public static SmsResult ok(String phoneNumber, String providerMessageId) {
+        return new SmsResult(phoneNumber, true, providerMessageId, null);
+    }
+
+    public static SmsResult failed(String phoneNumber, String error) {
+        return new SmsResult(phoneNumber, false, null, error);
+    }
+}
@@ -0,0 +1,143 @@
+package com.medicalapp.medical_app_backend.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton over word tokens: finds every occurrence of any
+ * number of token-sequence patterns in one left-to-right pass, so the cost of
+ * matching a text depends on its length, not on how many patterns there are.
+ *
+ * Tokens are interned to ints when built; a text token outside the vocabulary
+ * cannot continue any pattern and sends the automaton back to the root.
+ * Immutable once constructed, so one instance can be shared by all threads.
+ */
+public class AhoCorasick {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, Integer> vocabulary;
+    // Per state: sorted token ids and their target states
+    private final int[][] edgeTokens;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    // Patterns ending at a state, and the nearest state on the failure chain that has any
+    private final int[][] outputs;
+    private final int[] outputLink;
+
+    /**
+     * patterns.get(i) is the token sequence of pattern i; empty patterns never match
+     */
+    public AhoCorasick(List<List<String>> patterns) {
+        vocabulary = new HashMap<>();
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(new ArrayList<>());
+
+        for (int pattern = 0; pattern < patterns.size(); pattern++) {
+            List<String> tokens = patterns.get(pattern);
+            if (tokens.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (String token : tokens) {
+                int id = vocabulary.computeIfAbsent(token, t -> vocabulary.size());
+                Integer next = trie.get(state).get(id);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(id, next);
+                    trie.add(new HashMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ends.get(state).add(pattern);
+        }
+
+        int states = trie.size();
+        edgeTokens = new int[states][];
+        edgeTargets = new int[states][];
+        outputs = new int[states][];
+        for (int state = 0; state < states; state++) {
+            int[] tokens = trie.get(state).keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] targets = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                targets[i] = trie.get(state).get(tokens[i]);
+            }
+            edgeTokens[state] = tokens;
+            edgeTargets[state] = targets;
+            outputs[state] = ends.get(state).isEmpty() ? NONE : ends.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Breadth-first, so a state's failure target is final before its children need it
+        failure = new int[states];
+        outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = failure[state];
+            outputLink[state] = outputs[fail].length > 0 ? fail : outputLink[fail];
+            for (int i = 0; i < edgeTokens[state].length; i++) {
+                int token = edgeTokens[state][i];
+                int child = edgeTargets[state][i];
+                int f = fail;
+                int next = step(f, token);
+                while (next < 0 && f != 0) {
+                    f = failure[f];
+                    next = step(f, token);
+                }
+                failure[child] = next >= 0 && next != child ? next : 0;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Calls onMatch with the pattern index of every occurrence, in text order
+     * of where the occurrence ends
+     */
+    public void forEachMatch(List<String> tokens, IntConsumer onMatch) {
+        int state = 0;
+        for (String token : tokens) {
+            Integer id = vocabulary.get(token);
+            if (id == null) {
+                state = 0;
+                continue;
+            }
+            int next = step(state, id);
+            while (next < 0 && state != 0) {
+                state = failure[state];
+                next = step(state, id);
+            }
+            state = Math.max(next, 0);
+            for (int out = outputs[state].length > 0 ? state : outputLink[state]; out > 0; out = outputLink[out]) {
+                for (int pattern : outputs[out]) {
+                    onMatch.accept(pattern);
+                }
+            }
+        }
+    }
+
+    public int stateCount() {
+        return failure.length;
+    }
+
+    public int vocabularySize() {
+        return vocabulary.size();
+    }
+
+    private int step(int state, int token) {
+        int i = Arrays.binarySearch(edgeTokens[state], token);
+        return i >= 0 ? edgeTargets[state][i] : -1;
+    }
+}
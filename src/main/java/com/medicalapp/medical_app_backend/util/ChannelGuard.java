@@ -0,0 +1,310 @@
+package com.medicalapp.medical_app_backend.util;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead + circuit breaker for one outbound channel (Expo, SMTP, SMS).
+ *
+ * - Bulkhead: at most maxConcurrent calls in flight; extra callers are rejected
+ *   immediately instead of queuing behind a slow provider (acquire() waits).
+ * - Breaker: failure rate over the last windowSize calls (slow calls count as
+ *   failures). At or above the threshold it opens and rejects everything for
+ *   openDuration, then lets halfOpenProbes trial calls through; all succeeding
+ *   closes it again, any failure re-opens it.
+ *
+ * Callers either use execute(), or take a Permit with tryAcquire() (rejected
+ * when the bulkhead is full) or acquire() (waits for a slot; for a client's own
+ * batches, which should queue behind the bulkhead rather than fail) and report
+ * the outcome on it exactly once for asynchronous calls.
+ */
+public class ChannelGuard {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final long slowCallNanos;
+
+    // Breaker state, guarded by this
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    // Bumped on every move to HALF_OPEN, so results of earlier calls are not taken for probes
+    private int trial;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    // Metrics
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejectedBulkhead = new LongAdder();
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder waitedBulkhead = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong timesOpened = new AtomicLong();
+
+    public ChannelGuard(String name, int maxConcurrent, int windowSize, int minimumCalls,
+                        double failureRateThreshold, Duration openDuration, int halfOpenProbes,
+                        Duration slowCallThreshold) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.slowCallNanos = slowCallThreshold.toNanos();
+    }
+
+    /**
+     * Run a blocking call through the guard.
+     *
+     * @throws UnavailableException if the breaker is open or the bulkhead is full
+     */
+    public <T> T execute(Callable<T> call) throws Exception {
+        Permit permit = tryAcquire();
+        if (permit == null) {
+            throw new UnavailableException(name, getState());
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            permit.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (Exception e) {
+            permit.onFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Take a slot for one call. Returns null (and records the rejection) when the
+     * breaker does not allow the call or the bulkhead is full.
+     */
+    public Permit tryAcquire() {
+        Permit permit = admit();
+        if (permit == null) {
+            return null;
+        }
+        if (!bulkhead.tryAcquire()) {
+            withdraw(permit);
+            rejectedBulkhead.increment();
+            return null;
+        }
+        return permit;
+    }
+
+    /**
+     * Take a slot for one call, waiting for the bulkhead if it is full. Only the
+     * breaker rejects (returns null): a full bulkhead means our own calls are
+     * busy, not that the provider is unhealthy.
+     */
+    public Permit acquire() throws InterruptedException {
+        Permit permit = admit();
+        if (permit == null) {
+            return null;
+        }
+        if (!bulkhead.tryAcquire()) {
+            waitedBulkhead.increment();
+            try {
+                bulkhead.acquire();
+            } catch (InterruptedException e) {
+                withdraw(permit);
+                throw e;
+            }
+        }
+        return permit;
+    }
+
+    // Breaker check; takes a probe slot in HALF_OPEN
+    private synchronized Permit admit() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejectedOpen.increment();
+                return null;
+            }
+            state = State.HALF_OPEN;
+            trial++;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                rejectedOpen.increment();
+                return null;
+            }
+            probesInFlight++;
+            return new Permit(true, trial);
+        }
+        return new Permit(false, trial);
+    }
+
+    // Gives back the probe slot of a permit that never got a bulkhead slot
+    private synchronized void withdraw(Permit permit) {
+        if (isCurrentProbe(permit)) {
+            probesInFlight--;
+        }
+    }
+
+    private boolean isCurrentProbe(Permit permit) {
+        return permit.probe && permit.trial == trial && state == State.HALF_OPEN;
+    }
+
+    private void complete(Permit permit, boolean success, long latencyNanos) {
+        bulkhead.release();
+        calls.increment();
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulate(latencyNanos);
+        if (!success) {
+            failures.increment();
+        }
+
+        synchronized (this) {
+            switch (state) {
+                case HALF_OPEN -> {
+                    // Only this trial's probes decide; anything else started before the breaker opened
+                    if (isCurrentProbe(permit)) {
+                        probesInFlight--;
+                        if (!success) {
+                            open();
+                        } else if (++probeSuccesses >= halfOpenProbes) {
+                            close();
+                        }
+                    }
+                }
+                case CLOSED -> {
+                    record(success);
+                    if (windowCount >= minimumCalls
+                            && (double) windowFailures / windowCount >= failureRateThreshold) {
+                        open();
+                    }
+                }
+                case OPEN -> {
+                    // Late result from before the breaker opened - nothing to update
+                }
+            }
+        }
+    }
+
+    private void record(boolean success) {
+        if (windowCount == window.length) {
+            // Overwrite the oldest outcome
+            if (!window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = success;
+        if (!success) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        timesOpened.incrementAndGet();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowNext = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    /**
+     * Whether a call would currently be let through (does not take a slot)
+     */
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED
+            || (state == State.OPEN && System.nanoTime() - openedAt >= openNanos)
+            || (state == State.HALF_OPEN && probesInFlight < halfOpenProbes);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long callCount = calls.sum();
+        synchronized (this) {
+            stats.put("state", state.name());
+            stats.put("windowFailureRate", windowCount == 0 ? 0.0 : (double) windowFailures / windowCount);
+        }
+        stats.put("calls", callCount);
+        stats.put("failures", failures.sum());
+        stats.put("rejectedBulkhead", rejectedBulkhead.sum());
+        stats.put("rejectedOpen", rejectedOpen.sum());
+        stats.put("waitedBulkhead", waitedBulkhead.sum());
+        stats.put("timesOpened", timesOpened.get());
+        stats.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+        stats.put("avgLatencyMs", callCount == 0 ? 0 : totalLatencyNanos.sum() / callCount / 1_000_000);
+        stats.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000);
+        return stats;
+    }
+
+    /**
+     * One admitted call. Report its outcome exactly once; later reports are ignored.
+     */
+    public final class Permit {
+
+        private final boolean probe;
+        private final int trial;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Permit(boolean probe, int trial) {
+            this.probe = probe;
+            this.trial = trial;
+        }
+
+        public void onSuccess(long latencyNanos) {
+            if (done.compareAndSet(false, true)) {
+                complete(this, latencyNanos < slowCallNanos, latencyNanos);
+            }
+        }
+
+        public void onFailure(long latencyNanos) {
+            if (done.compareAndSet(false, true)) {
+                complete(this, false, latencyNanos);
+            }
+        }
+    }
+
+    /**
+     * Thrown by execute() when the channel is not accepting calls
+     */
+    public static class UnavailableException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public UnavailableException(String channel, State state) {
+            super("Channel " + channel + " unavailable (" + (state == State.CLOSED ? "bulkhead full" : "circuit " + state) + ")");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.medicalapp.medical_app_backend.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram. Recording is a bucket scan plus two LongAdder
+ * increments - no allocation and no locking, so it is safe on hot paths.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds in microseconds; the last bucket is everything slower
+    private static final long[] BOUNDS_MICROS = {100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000};
+    private static final String[] LABELS = {"<0.1ms", "<0.5ms", "<1ms", "<5ms", "<10ms", "<50ms", "<100ms", "<500ms", "<1s", ">=1s"};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        int i = 0;
+        while (i < BOUNDS_MICROS.length && micros >= BOUNDS_MICROS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Approximate percentile (0-100), reported as the upper bound of the bucket it falls in
+     */
+    public String percentile(double p) {
+        long total = count.sum();
+        if (total == 0) {
+            return LABELS[0];
+        }
+        long target = (long) Math.ceil(total * p / 100d);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= target) {
+                return LABELS[i];
+            }
+        }
+        return LABELS[LABELS.length - 1];
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long total = count.sum();
+        map.put("count", total);
+        map.put("avgMicros", total == 0 ? 0 : totalNanos.sum() / total / 1_000);
+        map.put("maxMicros", maxNanos.get() / 1_000);
+        map.put("p50", percentile(50));
+        map.put("p99", percentile(99));
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length; i++) {
+            long bucketCount = buckets[i].sum();
+            if (bucketCount > 0) {
+                histogram.put(LABELS[i], bucketCount);
+            }
+        }
+        map.put("histogram", histogram);
+        return map;
+    }
+}
@@ -0,0 +1,93 @@
+package com.medicalapp.medical_app_backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-parsed message template with {placeholder} variables.
+ *
+ * The template string is split into literal and variable segments once, so
+ * rendering is a single pass with no regex or re-parsing per message.
+ * Unknown placeholders are rendered back as-is (e.g. "{unknown}").
+ */
+public final class MessageTemplate {
+
+    private final String[] literals;   // literal text before each variable (plus trailing text)
+    private final String[] variables;  // variable names, one fewer than literals
+    private final int estimatedLength;
+
+    private MessageTemplate(String[] literals, String[] variables, int estimatedLength) {
+        this.literals = literals;
+        this.variables = variables;
+        this.estimatedLength = estimatedLength;
+    }
+
+    public static MessageTemplate compile(String template) {
+        if (template == null) {
+            template = "";
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                int end = template.indexOf('}', i + 1);
+                String name = end > i ? template.substring(i + 1, end).trim() : null;
+                if (name != null && !name.isEmpty() && isIdentifier(name)) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    variables.add(name);
+                    i = end + 1;
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(
+            literals.toArray(new String[0]),
+            variables.toArray(new String[0]),
+            template.length() + variables.size() * 8
+        );
+    }
+
+    public String render(Map<String, String> values) {
+        if (variables.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder out = new StringBuilder(estimatedLength);
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            String value = values != null ? values.get(variables[i]) : null;
+            if (value != null) {
+                out.append(value);
+            } else {
+                out.append('{').append(variables[i]).append('}');
+            }
+        }
+        out.append(literals[literals.length - 1]);
+        return out.toString();
+    }
+
+    public boolean hasVariables() {
+        return variables.length > 0;
+    }
+
+    private static boolean isIdentifier(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package com.medicalapp.medical_app_backend.util;
+
+/**
+ * Classic token bucket: holds up to capacity tokens, refilled continuously at
+ * ratePerSecond. Thread-safe; callers take tokens with tryConsume() or wait
+ * for them with awaitTokens().
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(int capacity, double ratePerSecond) {
+        if (capacity <= 0 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized boolean tryConsume(int count) {
+        refill();
+        if (tokens >= count) {
+            tokens -= count;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Block until at least one token is available, then return how many whole
+     * tokens there are (without consuming them).
+     */
+    public int awaitTokens() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    return (int) tokens;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            Thread.sleep(Math.max(1, waitNanos / 1_000_000), (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    public synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    public int getCapacity() {
+        return (int) capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
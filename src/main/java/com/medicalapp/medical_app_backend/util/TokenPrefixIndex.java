@@ -0,0 +1,420 @@
+package com.medicalapp.medical_app_backend.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory prefix search over short normalized documents (one per id).
+ *
+ * Every token start of every document is one posting, packed as a long
+ * (slot << 16 | offset) and sorted by the document text from that offset, so
+ * all tokens starting with a prefix form one contiguous range found by binary
+ * search. The sorted base is immutable; changes go to a small override map that
+ * queries scan linearly and that compact() folds into a new base.
+ *
+ * Reads take no locks. Writers and compact() synchronize on the index.
+ */
+public class TokenPrefixIndex {
+
+    /**
+     * Positions where tokens start in a normalized document, in ascending order
+     */
+    @FunctionalInterface
+    public interface Tokenizer {
+        int[] tokenStarts(String doc);
+    }
+
+    public record Hit(long id, String doc, int score) {}
+
+    private static final String REMOVED = "";
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    private final Tokenizer tokenizer;
+    private volatile State state = new State(Base.EMPTY, new ConcurrentHashMap<>());
+
+    public TokenPrefixIndex(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    // ==================== WRITES ====================
+
+    /**
+     * Replace the base with docs (id -> normalized document). Changes put while
+     * the docs were being read stay pending on top, so they are not lost.
+     */
+    public void build(Map<Long, String> docs) {
+        Base base = Base.build(docs, tokenizer);
+        synchronized (this) {
+            state = new State(base, state.overrides);
+        }
+    }
+
+    public void put(long id, String doc) {
+        synchronized (this) {
+            state.overrides.put(id, doc == null || doc.isEmpty() ? REMOVED : doc);
+        }
+    }
+
+    public void remove(long id) {
+        put(id, null);
+    }
+
+    public int pendingChanges() {
+        return state.overrides.size();
+    }
+
+    public int size() {
+        State current = state;
+        int size = current.base.ids.length;
+        for (Map.Entry<Long, String> change : current.overrides.entrySet()) {
+            boolean inBase = Arrays.binarySearch(current.base.ids, change.getKey()) >= 0;
+            if (change.getValue() == REMOVED) {
+                size -= inBase ? 1 : 0;
+            } else {
+                size += inBase ? 0 : 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Fold pending changes into a new sorted base. Runs outside the lock except
+     * for the final swap; changes made meanwhile stay pending.
+     */
+    public void compact() {
+        State current;
+        Map<Long, String> folded;
+        synchronized (this) {
+            current = state;
+            folded = new HashMap<>(current.overrides);
+        }
+
+        Map<Long, String> docs = new HashMap<>(current.base.ids.length + folded.size());
+        for (int slot = 0; slot < current.base.ids.length; slot++) {
+            docs.put(current.base.ids[slot], current.base.docs[slot]);
+        }
+        folded.forEach((id, doc) -> {
+            if (doc == REMOVED) {
+                docs.remove(id);
+            } else {
+                docs.put(id, doc);
+            }
+        });
+        Base base = Base.build(docs, tokenizer);
+
+        synchronized (this) {
+            ConcurrentHashMap<Long, String> pending = new ConcurrentHashMap<>();
+            // Same instance = unchanged since the copy, already in the new base
+            state.overrides.forEach((id, doc) -> {
+                if (folded.get(id) != doc) {
+                    pending.put(id, doc);
+                }
+            });
+            state = new State(base, pending);
+        }
+    }
+
+    // ==================== SEARCH ====================
+
+    /**
+     * Best matches for the given normalized terms. A document matches when each
+     * term is a prefix of one of its tokens. Several terms are first tried as one
+     * phrase ("john smith" as typed), then the term with the smallest posting
+     * range is scanned. At most maxCandidates postings are examined per range;
+     * since a range is in text order, whole-token matches come first in it.
+     */
+    public List<Hit> search(List<String> terms, int limit, int maxCandidates) {
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        State current = state;
+        Collector collector = new Collector(terms, limit);
+
+        if (terms.size() > 1) {
+            scan(current, String.join(" ", terms), maxCandidates, collector);
+        }
+        if (collector.top.size() < limit) {
+            scan(current, mostSelective(current.base, terms), maxCandidates, collector);
+        }
+        for (Map.Entry<Long, String> change : current.overrides.entrySet()) {
+            if (change.getValue() != REMOVED) {
+                collector.offer(change.getKey(), change.getValue());
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(collector.top);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    private void scan(State current, String prefix, int maxCandidates, Collector collector) {
+        Base base = current.base;
+        boolean checkOverrides = !current.overrides.isEmpty();
+        int end = Math.min(base.postings.length, base.lowerBound(prefix) + maxCandidates);
+        for (int i = base.lowerBound(prefix); i < end; i++) {
+            long posting = base.postings[i];
+            int slot = (int) (posting >>> 16);
+            String doc = base.docs[slot];
+            if (!doc.startsWith(prefix, (int) (posting & MAX_OFFSET))) {
+                break;
+            }
+            long id = base.ids[slot];
+            if (checkOverrides && current.overrides.containsKey(id)) {
+                continue;
+            }
+            collector.offer(id, doc);
+        }
+    }
+
+    private static String mostSelective(Base base, List<String> terms) {
+        String best = terms.get(0);
+        int bestCount = Integer.MAX_VALUE;
+        for (String term : terms) {
+            int count = base.lowerBound(term + Character.MAX_VALUE) - base.lowerBound(term);
+            if (count < bestCount) {
+                best = term;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static final Comparator<Hit> BEST_FIRST =
+        Comparator.comparingInt(Hit::score).reversed().thenComparing(Hit::id, Comparator.reverseOrder());
+
+    /**
+     * Scores candidates and keeps the best limit of them, once per id
+     */
+    private final class Collector {
+        final List<String> terms;
+        final int limit;
+        final Set<Long> seen = new HashSet<>();
+        final PriorityQueue<Hit> top = new PriorityQueue<>(BEST_FIRST.reversed());
+
+        Collector(List<String> terms, int limit) {
+            this.terms = terms;
+            this.limit = limit;
+        }
+
+        void offer(long id, String doc) {
+            if (!seen.add(id)) {
+                return;
+            }
+            int score = score(doc, terms);
+            if (score < 0) {
+                return;
+            }
+            top.add(new Hit(id, doc, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+    }
+
+    /**
+     * Higher is better; -1 when a term matches no token. Earlier tokens (the
+     * caller puts names first) and whole-token matches rank higher.
+     */
+    private int score(String doc, List<String> terms) {
+        int[] starts = tokenizer.tokenStarts(doc);
+        int score = 0;
+        for (String term : terms) {
+            int termScore = -1;
+            for (int ordinal = 0; ordinal < starts.length; ordinal++) {
+                int start = starts[ordinal];
+                if (doc.startsWith(term, start)) {
+                    int end = start + term.length();
+                    boolean whole = ordinal + 1 < starts.length ? end >= starts[ordinal + 1] - 1 : end == doc.length();
+                    termScore = 100 - Math.min(ordinal, 9) * 10 + (whole ? 50 : 0);
+                    break;
+                }
+            }
+            if (termScore < 0) {
+                return -1;
+            }
+            score += termScore;
+        }
+        // Shorter documents win ties: "ann" ranks Ann above Annabelle
+        return score * 100 - Math.min(doc.length(), 99);
+    }
+
+    // ==================== STATE ====================
+
+    private record State(Base base, ConcurrentHashMap<Long, String> overrides) {}
+
+    private static final class Base {
+
+        static final Base EMPTY = new Base(new long[0], new String[0], new long[0]);
+
+        // Slots are in id order, so membership is a binary search on ids
+        final long[] ids;
+        final String[] docs;
+        final long[] postings;
+
+        private Base(long[] ids, String[] docs, long[] postings) {
+            this.ids = ids;
+            this.docs = docs;
+            this.postings = postings;
+        }
+
+        static Base build(Map<Long, String> source, Tokenizer tokenizer) {
+            long[] ids = new long[source.size()];
+            int n = 0;
+            for (Long id : source.keySet()) {
+                ids[n++] = id;
+            }
+            Arrays.sort(ids);
+
+            String[] docs = new String[ids.length];
+            long[][] perDoc = new long[ids.length][];
+            int total = 0;
+            for (int slot = 0; slot < ids.length; slot++) {
+                docs[slot] = source.get(ids[slot]);
+                int[] starts = tokenizer.tokenStarts(docs[slot]);
+                long[] own = new long[starts.length];
+                int count = 0;
+                for (int start : starts) {
+                    if (start <= MAX_OFFSET) {
+                        own[count++] = ((long) slot << 16) | start;
+                    }
+                }
+                perDoc[slot] = count == own.length ? own : Arrays.copyOf(own, count);
+                total += count;
+            }
+
+            long[] postings = new long[total];
+            int at = 0;
+            for (long[] own : perDoc) {
+                System.arraycopy(own, 0, postings, at, own.length);
+                at += own.length;
+            }
+            sort(postings, docs);
+            return new Base(ids, docs, postings);
+        }
+
+        /**
+         * First posting whose text is >= prefix
+         */
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = postings.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareToPrefix(postings[mid], prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int compareToPrefix(long posting, String prefix) {
+            String doc = docs[(int) (posting >>> 16)];
+            int offset = (int) (posting & MAX_OFFSET);
+            int length = Math.min(doc.length() - offset, prefix.length());
+            for (int i = 0; i < length; i++) {
+                int diff = doc.charAt(offset + i) - prefix.charAt(i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return doc.length() - offset >= prefix.length() ? 0 : -1;
+        }
+
+        private static int compare(long a, long b, String[] docs) {
+            String docA = docs[(int) (a >>> 16)];
+            String docB = docs[(int) (b >>> 16)];
+            int offA = (int) (a & MAX_OFFSET);
+            int offB = (int) (b & MAX_OFFSET);
+            int length = Math.min(docA.length() - offA, docB.length() - offB);
+            for (int i = 0; i < length; i++) {
+                int diff = docA.charAt(offA + i) - docB.charAt(offB + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return (docA.length() - offA) - (docB.length() - offB);
+        }
+
+        /**
+         * First eight chars of a posting's text, one byte each, packed into a
+         * long. A char of 0xFF or above saturates to 0xFF and ends the key (the
+         * rest stays zero): texts that differ there or later get equal keys and
+         * fall back to comparing the text, so keys never contradict it.
+         */
+        private static long sortKey(long posting, String[] docs) {
+            String doc = docs[(int) (posting >>> 16)];
+            int offset = (int) (posting & MAX_OFFSET);
+            long key = 0;
+            boolean saturated = false;
+            for (int i = 0; i < 8; i++) {
+                int c = 0;
+                if (!saturated && offset + i < doc.length()) {
+                    c = Math.min(doc.charAt(offset + i), 0xFF);
+                    saturated = c == 0xFF;
+                }
+                key = (key << 8) | c;
+            }
+            return key;
+        }
+
+        // Bottom-up merge sort on the packed postings (no boxing). Most comparisons
+        // are settled by the sort keys without touching the documents.
+        private static void sort(long[] postings, String[] docs) {
+            long[] keys = new long[postings.length];
+            for (int i = 0; i < postings.length; i++) {
+                keys[i] = sortKey(postings[i], docs);
+            }
+            long[] from = postings;
+            long[] fromKeys = keys;
+            long[] to = new long[postings.length];
+            long[] toKeys = new long[postings.length];
+            for (int width = 1; width < postings.length; width *= 2) {
+                for (int low = 0; low < postings.length; low += 2 * width) {
+                    int mid = Math.min(low + width, postings.length);
+                    int high = Math.min(low + 2 * width, postings.length);
+                    int i = low, j = mid, k = low;
+                    while (i < mid && j < high) {
+                        int cmp = Long.compareUnsigned(fromKeys[i], fromKeys[j]);
+                        if (cmp == 0) {
+                            cmp = compare(from[i], from[j], docs);
+                        }
+                        if (cmp <= 0) {
+                            toKeys[k] = fromKeys[i];
+                            to[k++] = from[i++];
+                        } else {
+                            toKeys[k] = fromKeys[j];
+                            to[k++] = from[j++];
+                        }
+                    }
+                    while (i < mid) {
+                        toKeys[k] = fromKeys[i];
+                        to[k++] = from[i++];
+                    }
+                    while (j < high) {
+                        toKeys[k] = fromKeys[j];
+                        to[k++] = from[j++];
+                    }
+                }
+                long[] swap = from;
+                from = to;
+                to = swap;
+                swap = fromKeys;
+                fromKeys = toKeys;
+                toKeys = swap;
+            }
+            if (from != postings) {
+                System.arraycopy(from, 0, postings, 0, postings.length);
+            }
+        }
+    }
+}
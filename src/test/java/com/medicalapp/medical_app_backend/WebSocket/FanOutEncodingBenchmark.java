@@ -0,0 +1,114 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Standalone benchmark for WebSocket fan-out encoding (not a unit test;
+ * surefire does not pick it up). Builds the frames of one notification for a
+ * growing number of users, the way convertAndSendToUser did it (copy the
+ * payload, add seq/epoch, run the message converter) next to JsonPayloads
+ * (encode the shared body once, splice each user's seq/epoch in as bytes).
+ * Reports median time and bytes allocated per user.
+ *
+ *   mvn test-compile
+ *   java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *       com.medicalapp.medical_app_backend.websocket.FanOutEncodingBenchmark
+ */
+public class FanOutEncodingBenchmark {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    // Configured like the converter the STOMP broker setup registers for convertAndSend
+    private static final MappingJackson2MessageConverter CONVERTER = new MappingJackson2MessageConverter();
+
+    static {
+        CONVERTER.setObjectMapper(Jackson2ObjectMapperBuilder.json().build());
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Object> payload = announcement();
+
+        for (int users : new int[]{100, 1_000, 10_000}) {
+            Result perUser = measure(users, () -> {
+                int bytes = 0;
+                for (int seq = 1; seq <= users; seq++) {
+                    NotificationReplayBuffer.BufferedMessage message = new NotificationReplayBuffer.BufferedMessage(
+                        seq, EPOCH, UserSessionRegistry.QUEUE_NOTIFICATIONS, payload, 0);
+                    Message<?> frame = CONVERTER.toMessage(message.sequencedPayload(), headers());
+                    bytes += ((byte[]) frame.getPayload()).length;
+                }
+                return bytes;
+            });
+            Result once = measure(users, () -> {
+                byte[] json = JsonPayloads.encode(payload);
+                int bytes = 0;
+                for (int seq = 1; seq <= users; seq++) {
+                    bytes += JsonPayloads.message(JsonPayloads.withSequence(json, seq, EPOCH)).getPayload().length;
+                }
+                return bytes;
+            });
+            System.out.printf("%,7d users: per-user convert %,8.0f ns/user %,6d B/user | encode once %,8.0f ns/user %,6d B/user%n",
+                users, perUser.nanosPerUser(), perUser.bytesPerUser(), once.nanosPerUser(), once.bytesPerUser());
+        }
+    }
+
+    // A typical AutoNotificationService announcement, as WebSocketNotificationService.notifyUsers builds it
+    private static Map<String, Object> announcement() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("event", "user_notification");
+        payload.put("type", "ANNOUNCEMENT");
+        payload.put("title", "Clinic hours change");
+        payload.put("message", "From Monday the laboratory opens at 7:00 and sample collection ends at 18:00. "
+            + "Fasting tests are best booked before 10:00.");
+        payload.put("timestamp", LocalDateTime.now());
+        return payload;
+    }
+
+    private static org.springframework.messaging.MessageHeaders headers() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    private interface Work {
+        int run() throws Exception;
+    }
+
+    private record Result(double nanosPerUser, long bytesPerUser) {}
+
+    // Medians of time and allocated bytes over 31 runs, after warm-up
+    private static Result measure(int users, Work work) throws Exception {
+        int sink = 0;
+        for (int i = 0; i < Math.max(5, 50_000 / users); i++) {
+            sink += work.run();
+        }
+        long[] nanos = new long[31];
+        long[] allocated = new long[31];
+        for (int s = 0; s < nanos.length; s++) {
+            long bytes0 = THREADS.getCurrentThreadAllocatedBytes();
+            long t0 = System.nanoTime();
+            sink += work.run();
+            nanos[s] = System.nanoTime() - t0;
+            allocated[s] = THREADS.getCurrentThreadAllocatedBytes() - bytes0;
+        }
+        if (sink == 42) {
+            System.out.print("");
+        }
+        Arrays.sort(nanos);
+        Arrays.sort(allocated);
+        return new Result((double) nanos[nanos.length / 2] / users, allocated[allocated.length / 2] / users);
+    }
+}
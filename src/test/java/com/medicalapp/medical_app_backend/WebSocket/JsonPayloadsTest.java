@@ -0,0 +1,68 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonPayloadsTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void prependsSequenceToAnObject() throws Exception {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("title", "Lab results");
+        payload.put("count", 2);
+
+        byte[] framed = JsonPayloads.withSequence(JsonPayloads.encode(payload), 41, "k3x");
+
+        assertEquals("{\"seq\":41,\"epoch\":\"k3x\",\"title\":\"Lab results\",\"count\":2}",
+            new String(framed, StandardCharsets.UTF_8));
+        JsonNode node = MAPPER.readTree(framed);
+        assertEquals(41, node.get("seq").asLong());
+    }
+
+    @Test
+    void prependsSequenceToAnEmptyObject() throws Exception {
+        byte[] framed = JsonPayloads.withSequence(JsonPayloads.encode(Map.of()), 1, "e");
+        assertEquals("{\"seq\":1,\"epoch\":\"e\"}", new String(framed, StandardCharsets.UTF_8));
+        MAPPER.readTree(framed);
+    }
+
+    @Test
+    void keepsMultiByteCharacters() throws Exception {
+        byte[] framed = JsonPayloads.withSequence(JsonPayloads.encode(Map.of("name", "Adébáyọ̀")), 3, "e");
+        assertEquals("Adébáyọ̀", MAPPER.readTree(framed).get("name").asText());
+    }
+
+    @Test
+    void writesDatesAsIsoStrings() throws Exception {
+        byte[] json = JsonPayloads.encode(Map.of("at", LocalDateTime.of(2024, 3, 9, 14, 5, 7)));
+        assertEquals("{\"at\":\"2024-03-09T14:05:07\"}", new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void messageCarriesTheBytesAsJson() throws Exception {
+        byte[] json = JsonPayloads.encode(Map.of("a", 1));
+        Message<byte[]> message = JsonPayloads.message(json);
+
+        assertSame(json, message.getPayload());
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        assertEquals(SimpMessageType.MESSAGE, accessor.getMessageType());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, accessor.getContentType());
+        assertArrayEquals("{\"a\":1}".getBytes(StandardCharsets.UTF_8), message.getPayload());
+    }
+}
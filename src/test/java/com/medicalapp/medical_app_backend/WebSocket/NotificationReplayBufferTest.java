@@ -0,0 +1,121 @@
+package com.medicalapp.medical_app_backend.websocket;
+
+import com.medicalapp.medical_app_backend.websocket.NotificationReplayBuffer.BufferedMessage;
+import com.medicalapp.medical_app_backend.websocket.NotificationReplayBuffer.ReplayResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationReplayBufferTest {
+
+    private static final String DEST = "/queue/notifications";
+
+    private static NotificationReplayBuffer buffer(int capacity) {
+        NotificationReplayBuffer buffer = new NotificationReplayBuffer();
+        ReflectionTestUtils.setField(buffer, "capacity", capacity);
+        ReflectionTestUtils.setField(buffer, "idleHours", 24);
+        return buffer;
+    }
+
+    private static List<Long> append(NotificationReplayBuffer buffer, Long userId, int count) {
+        List<Long> seqs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            seqs.add(buffer.append(userId, DEST, Map.of("n", i)).seq());
+        }
+        return seqs;
+    }
+
+    private static List<Long> seqs(ReplayResult result) {
+        return result.messages().stream().map(BufferedMessage::seq).toList();
+    }
+
+    @Test
+    void sequenceIncreasesAcrossUsers() {
+        NotificationReplayBuffer buffer = buffer(10);
+        long first = buffer.append(1L, DEST, Map.of()).seq();
+        long second = buffer.append(2L, DEST, Map.of()).seq();
+        long third = buffer.append(1L, DEST, Map.of()).seq();
+        assertTrue(first < second && second < third);
+
+        ReplayResult replay = buffer.replayAfter(1L, 0, buffer.getEpoch());
+        assertEquals(List.of(first, third), seqs(replay));
+        assertEquals(third, replay.lastSeq());
+    }
+
+    @Test
+    void replayIsCompleteOnlyWhileNothingAfterTheClientWasEvicted() {
+        NotificationReplayBuffer buffer = buffer(3);
+        List<Long> seqs = append(buffer, 7L, 5);
+
+        ReplayResult fromSecond = buffer.replayAfter(7L, seqs.get(1), buffer.getEpoch());
+        assertTrue(fromSecond.complete());
+        assertEquals(seqs.subList(2, 5), seqs(fromSecond));
+
+        ReplayResult fromFirst = buffer.replayAfter(7L, seqs.get(0), buffer.getEpoch());
+        assertFalse(fromFirst.complete(), "message 2 was evicted");
+        assertEquals(seqs.subList(2, 5), seqs(fromFirst));
+
+        ReplayResult upToDate = buffer.replayAfter(7L, seqs.get(4), buffer.getEpoch());
+        assertTrue(upToDate.complete());
+        assertTrue(upToDate.messages().isEmpty());
+    }
+
+    @Test
+    void staleEpochGetsEverythingAndIsIncomplete() {
+        NotificationReplayBuffer buffer = buffer(10);
+        List<Long> seqs = append(buffer, 7L, 3);
+
+        ReplayResult replay = buffer.replayAfter(7L, seqs.get(2), "old-epoch");
+        assertFalse(replay.complete());
+        assertEquals(seqs, seqs(replay));
+    }
+
+    @Test
+    void unknownUserIsIncomplete() {
+        NotificationReplayBuffer buffer = buffer(10);
+        List<Long> seqs = append(buffer, 7L, 2);
+
+        ReplayResult replay = buffer.replayAfter(8L, 0, buffer.getEpoch());
+        assertFalse(replay.complete());
+        assertTrue(replay.messages().isEmpty());
+        assertEquals(seqs.get(1), replay.lastSeq());
+    }
+
+    @Test
+    void recreatedStreamKnowsWhatItNeverHeld() {
+        NotificationReplayBuffer buffer = buffer(10);
+        List<Long> before = append(buffer, 7L, 2);
+        ReflectionTestUtils.setField(buffer, "idleHours", -1);
+        buffer.pruneIdle();
+        assertEquals(0, buffer.getTrackedUserCount());
+
+        long next = buffer.append(7L, DEST, Map.of()).seq();
+
+        ReplayResult caughtUp = buffer.replayAfter(7L, before.get(1), buffer.getEpoch());
+        assertTrue(caughtUp.complete());
+        assertEquals(List.of(next), seqs(caughtUp));
+
+        ReplayResult behind = buffer.replayAfter(7L, before.get(0), buffer.getEpoch());
+        assertFalse(behind.complete(), "the pruned stream held a message after it");
+    }
+
+    @Test
+    void sequencedPayloadLeavesTheSharedPayloadAlone() {
+        NotificationReplayBuffer buffer = buffer(10);
+        Map<String, Object> shared = Map.of("title", "Hi");
+        BufferedMessage message = buffer.append(7L, DEST, shared);
+
+        Map<String, Object> sequenced = message.sequencedPayload();
+        assertEquals(message.seq(), sequenced.get("seq"));
+        assertEquals(buffer.getEpoch(), sequenced.get("epoch"));
+        assertEquals("Hi", sequenced.get("title"));
+        assertEquals(Map.of("title", "Hi"), message.payload());
+    }
+}
@@ -0,0 +1,52 @@
+package com.medicalapp.medical_app_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdminSearchServiceTest {
+
+    @Test
+    void termsAreLowercasedAndDeduplicated() {
+        assertEquals(List.of("anna", "smith"), AdminSearchService.terms("Anna SMITH, anna"));
+    }
+
+    @Test
+    void marksWordsStartingWithATerm() {
+        assertEquals("Dr <mark>Ann</mark>a Smith and Joanna",
+            AdminSearchService.highlight("Dr Anna Smith and Joanna", List.of("ann")));
+    }
+
+    @Test
+    void escapesHtmlAroundMarks() {
+        assertEquals("&lt;b&gt; <mark>blood</mark> test &amp; more",
+            AdminSearchService.highlight("<b> blood test & more", List.of("blood")));
+    }
+
+    @Test
+    void returnsNullWithoutAMatch() {
+        assertNull(AdminSearchService.highlight("Blood test", List.of("urine")));
+        assertNull(AdminSearchService.highlight(null, List.of("urine")));
+    }
+
+    @Test
+    void keepsPositionsWhenLowercasingChangesLength() {
+        // "İ".toLowerCase(ROOT) is two chars; matches after it must still line up
+        assertEquals("İstanbul <mark>clinic</mark>",
+            AdminSearchService.highlight("İstanbul clinic", List.of("clinic")));
+        assertEquals("İİİİ <mark>ab</mark>",
+            AdminSearchService.highlight("İİİİ ab", List.of("ab")));
+    }
+
+    @Test
+    void cutsLongTextToAWindowAroundTheFirstMatch() {
+        String text = "x".repeat(100) + " fever " + "y".repeat(300);
+        String snippet = AdminSearchService.highlight(text, List.of("fever"));
+        assertEquals('…', snippet.charAt(0));
+        assertEquals('…', snippet.charAt(snippet.length() - 1));
+        assertEquals(true, snippet.contains("<mark>fever</mark>"));
+    }
+}
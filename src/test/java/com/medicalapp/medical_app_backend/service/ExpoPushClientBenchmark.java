@@ -0,0 +1,187 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standalone throughput benchmark for ExpoPushClient against a local stub of
+ * the Expo /send endpoint (not a unit test; surefire does not pick it up).
+ * The stub answers every message with an "ok" ticket after a fixed latency.
+ *
+ * Compares the old path - one blocking POST per recipient, on a pool the size
+ * of the Expo channel's concurrency limit - with enqueue(), which coalesces
+ * messages into requests of up to 100 sent concurrently.
+ *
+ *   mvn test-compile
+ *   java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *       com.medicalapp.medical_app_backend.service.ExpoPushClientBenchmark [messages] [latencyMs]
+ */
+public class ExpoPushClientBenchmark {
+
+    private static final int CHANNEL_CONCURRENCY = 16;
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        AtomicLong requests = new AtomicLong();
+        HttpServer stub = startStub(latencyMs, requests);
+        String baseUrl = "http://127.0.0.1:" + stub.getAddress().getPort() + "/--/api/v2/push";
+        System.out.printf("%,d messages, stub latency %d ms, channel concurrency %d%n",
+            messages, latencyMs, CHANNEL_CONCURRENCY);
+
+        ExpoPushClient client = null;
+        try {
+            client = client(baseUrl);
+
+            // Warm-up for both paths
+            blockingPerRecipient(baseUrl, 200);
+            enqueueAll(client, 2_000);
+
+            requests.set(0);
+            long start = System.nanoTime();
+            int ok = blockingPerRecipient(baseUrl, messages);
+            report("blocking POST per recipient", messages, ok, requests.get(), System.nanoTime() - start);
+
+            requests.set(0);
+            start = System.nanoTime();
+            ok = enqueueAll(client, messages);
+            report("ExpoPushClient.enqueue", messages, ok, requests.get(), System.nanoTime() - start);
+        } finally {
+            if (client != null) {
+                client.shutdown();
+            }
+            stub.stop(0);
+        }
+    }
+
+    // Expo's response: one "ok" ticket per message in the request body
+    private static HttpServer startStub(int latencyMs, AtomicLong requests) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/--/api/v2/push/send", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.incrementAndGet();
+            int count = body.startsWith("[") ? countOf(body, "\"to\"") : 1;
+            StringBuilder response = new StringBuilder(count * 48).append("{\"data\":");
+            response.append(body.startsWith("[") ? "[" : "");
+            for (int i = 0; i < count; i++) {
+                response.append(i > 0 ? "," : "").append("{\"status\":\"ok\",\"id\":\"ticket-").append(i).append("\"}");
+            }
+            response.append(body.startsWith("[") ? "]}" : "}");
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    private static ExpoPushClient client(String baseUrl) {
+        OutboundChannels channels = new OutboundChannels();
+        ReflectionTestUtils.setField(channels, "windowSize", 20);
+        ReflectionTestUtils.setField(channels, "minimumCalls", 10);
+        ReflectionTestUtils.setField(channels, "failureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(channels, "openSeconds", 30);
+        ReflectionTestUtils.setField(channels, "halfOpenProbes", 3);
+        ReflectionTestUtils.setField(channels, "expoMaxConcurrent", CHANNEL_CONCURRENCY);
+        ReflectionTestUtils.setField(channels, "expoSlowCallMs", 5_000L);
+        ReflectionTestUtils.setField(channels, "smtpMaxConcurrent", 4);
+        ReflectionTestUtils.setField(channels, "smtpSlowCallMs", 10_000L);
+        ReflectionTestUtils.setField(channels, "smsMaxConcurrent", 4);
+        ReflectionTestUtils.setField(channels, "smsSlowCallMs", 5_000L);
+        channels.init();
+
+        ExpoPushClient client = new ExpoPushClient();
+        ReflectionTestUtils.setField(client, "outboundChannels", channels);
+        ReflectionTestUtils.setField(client, "baseUrl", baseUrl);
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(client, "requestTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(client, "lingerMs", 20L);
+        client.init();
+        return client;
+    }
+
+    // The pre-client behaviour: one synchronous POST per recipient
+    private static int blockingPerRecipient(String baseUrl, int messages) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CHANNEL_CONCURRENCY);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>(messages);
+            for (int i = 0; i < messages; i++) {
+                String body = "{\"to\":\"ExponentPushToken[" + i + "]\",\"title\":\"Result ready\",\"body\":\"Your result is available\"}";
+                results.add(pool.submit(() -> {
+                    HttpURLConnection connection = (HttpURLConnection) URI.create(baseUrl + "/send").toURL().openConnection();
+                    connection.setRequestMethod("POST");
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty("Content-Type", "application/json");
+                    try (OutputStream out = connection.getOutputStream()) {
+                        out.write(body.getBytes(StandardCharsets.UTF_8));
+                    }
+                    boolean ok = connection.getResponseCode() == 200
+                        && new String(connection.getInputStream().readAllBytes(), StandardCharsets.UTF_8).contains("\"ok\"");
+                    connection.disconnect();
+                    return ok;
+                }));
+            }
+            int ok = 0;
+            for (Future<Boolean> result : results) {
+                ok += result.get() ? 1 : 0;
+            }
+            return ok;
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    // Enqueues everything at once, like a digest flush; tickets that are not ok are counted
+    private static int enqueueAll(ExpoPushClient client, int messages) {
+        List<CompletableFuture<ExpoPushClient.PushTicket>> tickets = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            tickets.add(client.enqueue(Map.of(
+                "to", "ExponentPushToken[" + i + "]", "title", "Result ready", "body", "Your result is available")));
+        }
+        int ok = 0;
+        for (CompletableFuture<ExpoPushClient.PushTicket> ticket : tickets) {
+            ok += ticket.join().isOk() ? 1 : 0;
+        }
+        return ok;
+    }
+
+    private static void report(String label, int messages, int ok, long requests, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-30s %,8.0f msg/s  %,6d requests  %,6d ok  %,6d not ok  (%.2f s)%n",
+            label, messages / seconds, requests, ok, messages - ok, seconds);
+    }
+
+    private static int countOf(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + needle.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,127 @@
+package com.medicalapp.medical_app_backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Standalone benchmark for the chat bot intent matcher (not a unit test;
+ * surefire does not pick it up). Times matching the same messages against
+ * keyword sets of growing size, next to the per-keyword contains() scan it
+ * replaced.
+ *
+ *   mvn test-compile
+ *   java -cp target/classes:target/test-classes \
+ *       com.medicalapp.medical_app_backend.service.IntentMatcherBenchmark
+ */
+public class IntentMatcherBenchmark {
+
+    private static final String[] MESSAGES = {
+        "Hi, I booked an appointment for tomorrow but I need to reschedule it",
+        "When will my blood test results be ready? It has been three days",
+        "I was charged twice for the same test, please refund the payment",
+        "I can't log in, forgot password link does not arrive",
+        "The app is slow and keeps crashing when I open my reports",
+        "hello",
+        "Do I need to fast before a lipid profile test and what should I bring along to the lab",
+    };
+
+    private static final int INTENTS = 50;
+
+    public static void main(String[] args) {
+        for (int keywords : new int[]{10, 100, 1_000, 10_000, 100_000}) {
+            List<IntentMatcher.Intent> intents = syntheticIntents(keywords);
+            long start = System.nanoTime();
+            IntentMatcher matcher = new IntentMatcher(intents);
+            long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+            List<String> allKeywords = new ArrayList<>();
+            intents.forEach(intent -> allKeywords.addAll(intent.keywords().keySet()));
+
+            double matcherNs = time(() -> {
+                int hits = 0;
+                for (String message : MESSAGES) {
+                    hits += matcher.match(message) != null ? 1 : 0;
+                }
+                return hits;
+            });
+            double containsNs = time(() -> {
+                int hits = 0;
+                for (String message : MESSAGES) {
+                    String lower = message.toLowerCase();
+                    for (String keyword : allKeywords) {
+                        if (lower.contains(keyword)) {
+                            hits++;
+                            break;
+                        }
+                    }
+                }
+                return hits;
+            });
+            System.out.printf("%,8d keywords: build %,5d ms, matcher %,10.0f ns/message, contains() %,12.0f ns/message%n",
+                keywords, buildMs, matcherNs / MESSAGES.length, containsNs / MESSAGES.length);
+        }
+    }
+
+    // The real intents plus generated filler keywords and phrases up to the requested count
+    private static List<IntentMatcher.Intent> syntheticIntents(int keywords) {
+        Random random = new Random(7);
+        List<Map<String, Integer>> keywordMaps = new ArrayList<>();
+        for (int i = 0; i < INTENTS; i++) {
+            keywordMaps.add(new LinkedHashMap<>());
+        }
+        keywordMaps.get(0).putAll(Map.of("booking", 2, "appointment", 2, "reschedule", 2));
+        keywordMaps.get(1).putAll(Map.of("result", 2, "report", 2, "test result", 3));
+        keywordMaps.get(2).putAll(Map.of("payment", 2, "refund", 2, "charged", 2));
+        keywordMaps.get(3).putAll(Map.of("login", 2, "log in", 2, "forgot password", 3));
+        for (int n = 12; n < keywords; n++) {
+            int words = 1 + random.nextInt(3);
+            StringBuilder phrase = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                phrase.append(w > 0 ? " " : "").append(randomWord(random));
+            }
+            keywordMaps.get(random.nextInt(INTENTS)).put(phrase.toString(), 1 + random.nextInt(3));
+        }
+        List<IntentMatcher.Intent> intents = new ArrayList<>();
+        for (int i = 0; i < INTENTS; i++) {
+            intents.add(new IntentMatcher.Intent("intent-" + i, "response " + i, keywordMaps.get(i)));
+        }
+        return intents;
+    }
+
+    private static String randomWord(Random random) {
+        char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+
+    private interface Work {
+        int run();
+    }
+
+    // Median nanoseconds per run(), after warm-up
+    private static double time(Work work) {
+        int sink = 0;
+        for (int i = 0; i < 2_000; i++) {
+            sink += work.run();
+        }
+        long[] samples = new long[201];
+        for (int s = 0; s < samples.length; s++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                sink += work.run();
+            }
+            samples[s] = (System.nanoTime() - t0) / 20;
+        }
+        if (sink == 42) {
+            System.out.print("");
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,76 @@
+package com.medicalapp.medical_app_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IntentMatcherTest {
+
+    private static IntentMatcher.Intent intent(String name, Object... keywordsAndWeights) {
+        Map<String, Integer> keywords = new LinkedHashMap<>();
+        for (int i = 0; i < keywordsAndWeights.length; i += 2) {
+            keywords.put((String) keywordsAndWeights[i], (Integer) keywordsAndWeights[i + 1]);
+        }
+        return new IntentMatcher.Intent(name, name + " reply", keywords);
+    }
+
+    @Test
+    void tokensAreLowercasedWordsWithoutPluralS() {
+        assertEquals(List.of("my", "lab", "result", "are", "late"), IntentMatcher.tokens("My lab-RESULTS are late!"));
+        assertEquals(List.of("access", "bus", "gas"), IntentMatcher.tokens("access bus gas"));
+        assertEquals(List.of(), IntentMatcher.tokens("  ?! "));
+    }
+
+    @Test
+    void summedWeightPicksTheIntent() {
+        IntentMatcher matcher = new IntentMatcher(List.of(
+            intent("billing", "payment", 2, "refund", 3),
+            intent("results", "lab result", 4)));
+
+        IntentMatcher.Match match = matcher.match("Where is my refund for the payment?");
+        assertEquals("billing", match.intent());
+        assertEquals("billing reply", match.response());
+        assertEquals(5, match.score());
+
+        assertEquals("results", matcher.match("Are my lab results ready? payment done").intent());
+    }
+
+    @Test
+    void repeatedKeywordCountsOnce() {
+        IntentMatcher matcher = new IntentMatcher(List.of(
+            intent("billing", "refund", 3),
+            intent("booking", "appointment", 2, "book", 2)));
+        assertEquals("booking", matcher.match("refund refund refund, book an appointment").intent());
+        assertEquals(3, matcher.match("refund refund").score());
+    }
+
+    @Test
+    void tiesGoToTheIntentListedFirst() {
+        IntentMatcher matcher = new IntentMatcher(List.of(
+            intent("first", "help", 1),
+            intent("second", "urgent", 1)));
+        assertEquals("first", matcher.match("urgent help").intent());
+        assertEquals("first", matcher.match("help urgent").intent());
+    }
+
+    @Test
+    void missingWeightCountsAsOne() {
+        IntentMatcher matcher = new IntentMatcher(List.of(intent("greeting", "hello", null)));
+        assertEquals(1, matcher.match("Hello there").score());
+        assertEquals(1, matcher.keywordCount());
+        assertEquals(1, matcher.intentCount());
+    }
+
+    @Test
+    void noMatchIsNull() {
+        IntentMatcher matcher = new IntentMatcher(List.of(intent("billing", "refund", 3)));
+        assertNull(matcher.match("good morning"));
+        assertNull(matcher.match("   "));
+        assertNull(matcher.match(null));
+    }
+}
@@ -0,0 +1,100 @@
+package com.medicalapp.medical_app_backend.service;
+
+import com.medicalapp.medical_app_backend.util.TokenPrefixIndex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Standalone benchmark for the patient search index (not a unit test; surefire
+ * does not pick it up). Builds an index of synthetic patients and times typical
+ * search-box queries, profile updates and a compaction.
+ *
+ *   mvn test-compile
+ *   java -Xmx2g -cp target/classes:target/test-classes \
+ *       com.medicalapp.medical_app_backend.service.PatientSearchIndexBenchmark [patients]
+ */
+public class PatientSearchIndexBenchmark {
+
+    private static final String[] FIRST = {"john", "mary", "ade", "chioma", "emeka", "fatima", "grace", "ibrahim",
+        "james", "kemi", "ngozi", "oluwaseun", "peter", "sarah", "tunde", "uche", "victoria", "yusuf", "zainab", "ann"};
+    private static final String[] LAST = {"smith", "okafor", "adeyemi", "bello", "eze", "johnson", "nwosu", "okonkwo",
+        "williams", "balogun", "abubakar", "adebayo", "chukwu", "danjuma", "garba", "ibe", "lawal", "musa", "obi", "yakubu"};
+    private static final String[] DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "hospital.ng"};
+
+    public static void main(String[] args) {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+
+        Map<Long, String> docs = new HashMap<>(patients * 2);
+        for (long id = 1; id <= patients; id++) {
+            String first = FIRST[random.nextInt(FIRST.length)] + (random.nextInt(4) == 0 ? "" : Integer.toString(random.nextInt(1000), 36));
+            String last = LAST[random.nextInt(LAST.length)];
+            String email = first + "." + last + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+            String phone = "+234 80" + (10_000_000 + random.nextInt(90_000_000));
+            docs.put(id, PatientSearchIndex.document(first, last, email, phone));
+        }
+
+        TokenPrefixIndex index = new TokenPrefixIndex(PatientSearchIndex::tokenStarts);
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        index.build(docs);
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        System.out.printf("Built %,d patients in %,d ms, postings + ids ~%,d MB (documents held separately)%n",
+            index.size(), buildMs, (usedHeap() - heapBefore) >> 20);
+
+        String[] queries = {"j", "jo", "john", "john smith", "okafor", "mary.bell", "ngozi nwosu", "0801", "80123",
+            "+234 802", "zainab yakubu", "sarah5", "williams12345", "nobody"};
+        for (int warmup = 0; warmup < 20_000; warmup++) {
+            index.search(PatientSearchIndex.terms(queries[warmup % queries.length]), 20, 500);
+        }
+
+        System.out.printf("%-16s %6s %9s %9s %9s%n", "query", "hits", "p50 us", "p99 us", "max us");
+        for (String query : queries) {
+            long[] samples = new long[2_000];
+            int hits = 0;
+            for (int i = 0; i < samples.length; i++) {
+                long t0 = System.nanoTime();
+                List<TokenPrefixIndex.Hit> result = index.search(PatientSearchIndex.terms(query), 20, 500);
+                samples[i] = System.nanoTime() - t0;
+                hits = result.size();
+            }
+            System.out.printf("%-16s %6d %s%n", query, hits, percentiles(samples));
+        }
+
+        // Profile edits land in the override map until compaction
+        for (long id = 1; id <= 1_000; id++) {
+            index.put(id * 7, PatientSearchIndex.document("renamed" + id, "patient", "renamed" + id + "@example.com", null));
+        }
+        long[] samples = new long[2_000];
+        for (int i = 0; i < samples.length; i++) {
+            long t0 = System.nanoTime();
+            index.search(PatientSearchIndex.terms("john"), 20, 500);
+            samples[i] = System.nanoTime() - t0;
+        }
+        System.out.printf("With %,d pending changes, \"john\": %s%n", index.pendingChanges(), percentiles(samples));
+
+        start = System.nanoTime();
+        index.compact();
+        System.out.printf("Compaction of %,d patients: %,d ms; \"renamed7\" -> %s%n", index.size(),
+            (System.nanoTime() - start) / 1_000_000, index.search(PatientSearchIndex.terms("renamed7"), 3, 500));
+    }
+
+    // "p50 p99 max" in microseconds
+    private static String percentiles(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("%9.1f %9.1f %9.1f", sorted[sorted.length / 2] / 1e3,
+            sorted[(int) (sorted.length * 0.99)] / 1e3, sorted[sorted.length - 1] / 1e3);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,36 @@
+package com.medicalapp.medical_app_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PatientSearchIndexTest {
+
+    @Test
+    void documentIsLowercasedWordsAndPhoneDigits() {
+        assertEquals("ada lovelace ada.l@example.com 2348031234567 8031234567",
+            PatientSearchIndex.document("Ada ", " Lovelace", "Ada.L@Example.com", "+234 (803) 123-4567"));
+        assertEquals("ada", PatientSearchIndex.document("Ada", null, " ", null));
+        assertEquals("mary ann 08031234", PatientSearchIndex.document("Mary  Ann", "", null, "0803-1234"));
+    }
+
+    @Test
+    void phoneLikeTermsBecomeDigitsWithoutLeadingZero() {
+        assertEquals(List.of("ada", "8031234567"), PatientSearchIndex.terms("  Ada 0803-123-4567 "));
+        assertEquals(List.of("2348031234567"), PatientSearchIndex.terms("+234(803)1234567"));
+        assertEquals(List.of("a-b"), PatientSearchIndex.terms("A-B"));
+        assertEquals(List.of(), PatientSearchIndex.terms("000"));
+        assertEquals(List.of(), PatientSearchIndex.terms(null));
+    }
+
+    @Test
+    void emailLocalPartIsSplitButNotTheDomain() {
+        String doc = "john.smith_jr@mail-box.co.uk 123";
+        assertArrayEquals(new int[]{0, 5, 11, 29}, PatientSearchIndex.tokenStarts(doc));
+        assertArrayEquals(new int[]{0, 5}, PatientSearchIndex.tokenStarts("a.b. c-d"));
+        assertArrayEquals(new int[0], PatientSearchIndex.tokenStarts(""));
+    }
+}
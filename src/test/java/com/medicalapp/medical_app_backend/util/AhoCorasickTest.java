@@ -0,0 +1,91 @@
+package com.medicalapp.medical_app_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickTest {
+
+    private static List<String> words(String text) {
+        return text.isEmpty() ? List.of() : List.of(text.split(" "));
+    }
+
+    private static List<Integer> matches(AhoCorasick automaton, String text) {
+        List<Integer> found = new ArrayList<>();
+        automaton.forEachMatch(words(text), found::add);
+        return found;
+    }
+
+    @Test
+    void findsOverlappingAndNestedPatterns() {
+        AhoCorasick automaton = new AhoCorasick(List.of(words("a b"), words("b c"), words("b"), words("a b c d")));
+        // ends at "b": "a b" then "b" (via the output link); ends at "c": "b c"
+        assertEquals(List.of(0, 2, 1), matches(automaton, "a b c"));
+        assertEquals(List.of(0, 2, 1, 3), matches(automaton, "a b c d"));
+    }
+
+    @Test
+    void followsFailureLinksAfterAPartialMatch() {
+        AhoCorasick automaton = new AhoCorasick(List.of(words("a a b")));
+        assertEquals(List.of(0), matches(automaton, "a a a b"));
+        assertEquals(List.of(0, 0), matches(automaton, "a a b a a b"));
+    }
+
+    @Test
+    void unknownTokenResetsTheState() {
+        AhoCorasick automaton = new AhoCorasick(List.of(words("book appointment")));
+        assertEquals(List.of(0), matches(automaton, "please book appointment"));
+        assertTrue(matches(automaton, "book an appointment").isEmpty());
+    }
+
+    @Test
+    void emptyPatternsNeverMatchAndDuplicatesAreBothReported() {
+        AhoCorasick automaton = new AhoCorasick(List.of(List.of(), words("refund"), words("refund")));
+        assertEquals(List.of(1, 2), matches(automaton, "refund"));
+        assertTrue(matches(automaton, "").isEmpty());
+        assertEquals(2, automaton.stateCount());
+        assertEquals(1, automaton.vocabularySize());
+    }
+
+    @Test
+    void agreesWithBruteForce() {
+        Random random = new Random(46);
+        String[] alphabet = {"a", "b", "c"};
+        for (int round = 0; round < 200; round++) {
+            List<List<String>> patterns = new ArrayList<>();
+            for (int p = 0; p < 1 + random.nextInt(6); p++) {
+                List<String> pattern = new ArrayList<>();
+                for (int t = 0; t < 1 + random.nextInt(4); t++) {
+                    pattern.add(alphabet[random.nextInt(alphabet.length)]);
+                }
+                patterns.add(pattern);
+            }
+            List<String> text = new ArrayList<>();
+            for (int t = 0; t < random.nextInt(20); t++) {
+                text.add(random.nextInt(8) == 0 ? "x" : alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            List<Integer> expected = new ArrayList<>();
+            for (int end = 1; end <= text.size(); end++) {
+                for (int p = 0; p < patterns.size(); p++) {
+                    int start = end - patterns.get(p).size();
+                    if (start >= 0 && text.subList(start, end).equals(patterns.get(p))) {
+                        expected.add(p);
+                    }
+                }
+            }
+
+            List<Integer> actual = new ArrayList<>();
+            new AhoCorasick(patterns).forEachMatch(text, actual::add);
+            // Same end position may list patterns in another order
+            actual.sort(null);
+            expected.sort(null);
+            assertEquals(expected, actual, () -> patterns + " in " + text);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.medicalapp.medical_app_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelGuardTest {
+
+    private static final long OPEN_MS = 50;
+
+    // 4 concurrent calls, window of 4, opens at 50% failures once 4 calls are in, 2 probes
+    private static ChannelGuard guard() {
+        return new ChannelGuard("test", 4, 4, 4, 0.5, Duration.ofMillis(OPEN_MS), 2, Duration.ofSeconds(10));
+    }
+
+    private static void succeed(ChannelGuard guard, int calls) {
+        for (int i = 0; i < calls; i++) {
+            guard.tryAcquire().onSuccess(1_000);
+        }
+    }
+
+    private static void fail(ChannelGuard guard, int calls) {
+        for (int i = 0; i < calls; i++) {
+            guard.tryAcquire().onFailure(1_000);
+        }
+    }
+
+    private static ChannelGuard openGuard() {
+        ChannelGuard guard = guard();
+        succeed(guard, 2);
+        fail(guard, 2);
+        assertEquals(ChannelGuard.State.OPEN, guard.getState());
+        return guard;
+    }
+
+    private static void waitOpenDuration() throws InterruptedException {
+        Thread.sleep(OPEN_MS + 20);
+    }
+
+    @Test
+    void staysClosedBelowMinimumCallsAndThreshold() {
+        ChannelGuard guard = guard();
+        fail(guard, 3);
+        assertEquals(ChannelGuard.State.CLOSED, guard.getState(), "fewer than minimumCalls");
+
+        ChannelGuard healthy = guard();
+        succeed(healthy, 3);
+        fail(healthy, 1);
+        assertEquals(ChannelGuard.State.CLOSED, healthy.getState(), "25% is under the threshold");
+    }
+
+    @Test
+    void opensAtThresholdAndRejects() throws Exception {
+        ChannelGuard guard = openGuard();
+        assertNull(guard.tryAcquire());
+        assertFalse(guard.isCallPermitted());
+        assertThrows(ChannelGuard.UnavailableException.class, () -> guard.execute(() -> "never"));
+        assertEquals(2L, guard.getStats().get("rejectedOpen"));
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        ChannelGuard guard = new ChannelGuard("slow", 4, 4, 4, 0.5, Duration.ofMillis(OPEN_MS), 1, Duration.ofMillis(1));
+        for (int i = 0; i < 4; i++) {
+            guard.tryAcquire().onSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertEquals(ChannelGuard.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheProbesThroughAndClosesWhenTheySucceed() throws Exception {
+        ChannelGuard guard = openGuard();
+        waitOpenDuration();
+
+        ChannelGuard.Permit first = guard.tryAcquire();
+        ChannelGuard.Permit second = guard.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(ChannelGuard.State.HALF_OPEN, guard.getState());
+        assertNull(guard.tryAcquire(), "probe slots are taken");
+
+        first.onSuccess(1_000);
+        assertEquals(ChannelGuard.State.HALF_OPEN, guard.getState());
+        second.onSuccess(1_000);
+        assertEquals(ChannelGuard.State.CLOSED, guard.getState());
+        assertNotNull(guard.tryAcquire());
+    }
+
+    @Test
+    void failedProbeReopens() throws Exception {
+        ChannelGuard guard = openGuard();
+        waitOpenDuration();
+
+        ChannelGuard.Permit probe = guard.tryAcquire();
+        probe.onFailure(1_000);
+        assertEquals(ChannelGuard.State.OPEN, guard.getState());
+        assertNull(guard.tryAcquire());
+        assertEquals(2L, guard.getStats().get("timesOpened"));
+    }
+
+    @Test
+    void lateResultsFromBeforeTheTrialDoNotActAsProbes() throws Exception {
+        ChannelGuard guard = guard();
+        ChannelGuard.Permit slowSuccess = guard.tryAcquire();
+        ChannelGuard.Permit slowFailure = guard.tryAcquire();
+        succeed(guard, 1);
+        fail(guard, 3);
+        assertEquals(ChannelGuard.State.OPEN, guard.getState());
+        waitOpenDuration();
+
+        ChannelGuard.Permit first = guard.tryAcquire();
+        ChannelGuard.Permit second = guard.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+
+        // Neither frees a probe slot nor decides the trial
+        slowFailure.onFailure(1_000);
+        assertEquals(ChannelGuard.State.HALF_OPEN, guard.getState());
+        assertNull(guard.tryAcquire());
+        slowSuccess.onSuccess(1_000);
+        assertEquals(ChannelGuard.State.HALF_OPEN, guard.getState());
+        assertNull(guard.tryAcquire());
+
+        first.onSuccess(1_000);
+        second.onSuccess(1_000);
+        assertEquals(ChannelGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void probesOfAnEarlierTrialDoNotDecideTheNextOne() throws Exception {
+        ChannelGuard guard = openGuard();
+        waitOpenDuration();
+        ChannelGuard.Permit oldProbe = guard.tryAcquire();
+        guard.tryAcquire().onFailure(1_000); // reopens; oldProbe is still out
+        waitOpenDuration();
+
+        ChannelGuard.Permit first = guard.tryAcquire();
+        ChannelGuard.Permit second = guard.tryAcquire();
+        oldProbe.onFailure(1_000);
+        assertEquals(ChannelGuard.State.HALF_OPEN, guard.getState());
+
+        first.onSuccess(1_000);
+        second.onSuccess(1_000);
+        assertEquals(ChannelGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void fullBulkheadRejectsTryAcquire() {
+        ChannelGuard guard = guard();
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(guard.tryAcquire());
+        }
+        assertNull(guard.tryAcquire());
+        assertEquals(1L, guard.getStats().get("rejectedBulkhead"));
+        assertEquals(4, guard.getStats().get("inFlight"));
+        assertEquals(ChannelGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void acquireWaitsForABulkheadSlot() throws Exception {
+        ChannelGuard guard = guard();
+        ChannelGuard.Permit held = guard.tryAcquire();
+        for (int i = 0; i < 3; i++) {
+            guard.tryAcquire();
+        }
+
+        CompletableFuture<ChannelGuard.Permit> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return guard.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+
+        held.onSuccess(1_000);
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, guard.getStats().get("waitedBulkhead"));
+        assertEquals(0L, guard.getStats().get("rejectedBulkhead"));
+    }
+
+    @Test
+    void acquireIsStillRejectedByAnOpenBreaker() throws Exception {
+        assertNull(openGuard().acquire());
+    }
+
+    @Test
+    void permitReportsOnlyOnce() {
+        ChannelGuard guard = guard();
+        ChannelGuard.Permit permit = guard.tryAcquire();
+        permit.onSuccess(1_000);
+        permit.onFailure(1_000);
+        permit.onSuccess(1_000);
+        assertEquals(1L, guard.getStats().get("calls"));
+        assertEquals(0L, guard.getStats().get("failures"));
+        assertEquals(0, guard.getStats().get("inFlight"));
+    }
+
+    @Test
+    void executeReportsTheOutcome() throws Exception {
+        ChannelGuard guard = guard();
+        assertEquals("ok", guard.execute(() -> "ok"));
+        assertThrows(IllegalStateException.class, () -> guard.execute(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(2L, guard.getStats().get("calls"));
+        assertEquals(1L, guard.getStats().get("failures"));
+        assertTrue(guard.isCallPermitted());
+    }
+}
@@ -0,0 +1,54 @@
+package com.medicalapp.medical_app_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void roundTrips() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 3, 9, 14, 5, 7, 123_456_789), 42L);
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+        assertEquals(cursor.encode(), KeysetCursor.encode(cursor.createdAt(), cursor.id()));
+    }
+
+    @Test
+    void roundTripsWholeMinutes() {
+        // LocalDateTime.toString() drops zero seconds and nanos ("2024-03-09T14:05")
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 3, 9, 14, 5), Long.MAX_VALUE);
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodingIsUrlSafe() {
+        String encoded = KeysetCursor.encode(LocalDateTime.of(2024, 12, 31, 23, 59, 59), 1L);
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="));
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+        assertNull(KeysetCursor.decode("   "));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(base64("no separator")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(base64("2024-03-09T14:05|abc")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(base64("yesterday|1")));
+    }
+}
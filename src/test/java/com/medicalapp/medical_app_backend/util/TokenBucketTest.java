@@ -0,0 +1,51 @@
+package com.medicalapp.medical_app_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void startsFullAndEmptiesAtCapacity() {
+        TokenBucket bucket = new TokenBucket(5, 0.001);
+        assertEquals(5, bucket.available());
+        assertTrue(bucket.tryConsume(3));
+        assertFalse(bucket.tryConsume(3), "only 2 left");
+        assertTrue(bucket.tryConsume(2));
+        assertFalse(bucket.tryConsume(1));
+        assertEquals(0, bucket.available());
+    }
+
+    @Test
+    void refillsOverTimeUpToCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(3, 1_000);
+        assertTrue(bucket.tryConsume(3));
+        Thread.sleep(20);
+        assertEquals(3, bucket.available(), "20ms at 1000/s is well past capacity");
+        assertTrue(bucket.tryConsume(3));
+    }
+
+    @Test
+    void awaitTokensWaitsForTheNextToken() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, 50);
+        // Timed from before the drain: the next token cannot accrue sooner than 20ms after it
+        long start = System.nanoTime();
+        assertTrue(bucket.tryConsume(2));
+        int tokens = bucket.awaitTokens();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(tokens >= 1);
+        assertTrue(elapsedMs >= 19, "a token takes 20ms at 50/s, got one after " + elapsedMs + "ms");
+        assertTrue(bucket.tryConsume(1), "awaitTokens does not consume");
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(-1, -1));
+    }
+}
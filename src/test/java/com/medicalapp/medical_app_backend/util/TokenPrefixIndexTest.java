@@ -0,0 +1,176 @@
+package com.medicalapp.medical_app_backend.util;
+
+import com.medicalapp.medical_app_backend.util.TokenPrefixIndex.Hit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPrefixIndexTest {
+
+    // A token starts at 0 and after every space
+    private static final TokenPrefixIndex.Tokenizer WORDS = doc -> {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < doc.length(); i++) {
+            if (i == 0 || doc.charAt(i - 1) == ' ') {
+                starts.add(i);
+            }
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    };
+
+    private static TokenPrefixIndex index(Map<Long, String> docs) {
+        TokenPrefixIndex index = new TokenPrefixIndex(WORDS);
+        index.build(docs);
+        return index;
+    }
+
+    private static List<Long> ids(List<Hit> hits) {
+        return hits.stream().map(Hit::id).toList();
+    }
+
+    private static List<Long> search(TokenPrefixIndex index, String... terms) {
+        return ids(index.search(List.of(terms), 10, 1000));
+    }
+
+    @Test
+    void matchesTokenPrefixesOnly() {
+        TokenPrefixIndex index = index(Map.of(1L, "joanna smith", 2L, "anna jones", 3L, "hannah annis"));
+        assertEquals(Set.of(2L, 3L), Set.copyOf(search(index, "ann")));
+        assertTrue(search(index, "nna").isEmpty());
+        assertTrue(search(index, "smithe").isEmpty());
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        TokenPrefixIndex index = index(Map.of(1L, "john smith", 2L, "john doe", 3L, "jane smith"));
+        assertEquals(List.of(1L), search(index, "smi", "jo"));
+        assertEquals(List.of(1L), search(index, "john", "smith"));
+        assertTrue(search(index, "jane", "doe").isEmpty());
+    }
+
+    @Test
+    void ranksWholeTokensEarlierTokensAndShorterDocumentsFirst() {
+        TokenPrefixIndex whole = index(Map.of(1L, "annabelle lee", 2L, "ann lee"));
+        assertEquals(List.of(2L, 1L), search(whole, "ann"));
+
+        TokenPrefixIndex earlier = index(Map.of(1L, "mary ann", 2L, "ann mary"));
+        assertEquals(List.of(2L, 1L), search(earlier, "ann"));
+
+        TokenPrefixIndex shorter = index(Map.of(1L, "ann lee smith", 2L, "ann lee"));
+        assertEquals(List.of(2L, 1L), search(shorter, "ann"));
+    }
+
+    @Test
+    void respectsTheLimit() {
+        Map<Long, String> docs = new HashMap<>();
+        for (long id = 1; id <= 20; id++) {
+            docs.put(id, "patient" + id);
+        }
+        TokenPrefixIndex index = index(docs);
+        assertEquals(5, index.search(List.of("patient"), 5, 1000).size());
+        assertTrue(index.search(List.of("patient"), 0, 1000).isEmpty());
+        assertTrue(index.search(List.of(), 5, 1000).isEmpty());
+    }
+
+    @Test
+    void pendingChangesOverrideTheBaseBeforeAndAfterCompaction() {
+        TokenPrefixIndex index = index(Map.of(1L, "ann lee", 2L, "bob ray"));
+        index.put(1L, "anne kay");
+        index.put(3L, "annie fox");
+        index.remove(2L);
+
+        assertEquals(3, index.pendingChanges());
+        assertEquals(2, index.size());
+        assertEquals(Set.of(1L, 3L), Set.copyOf(search(index, "ann")));
+        assertTrue(search(index, "lee").isEmpty());
+        assertTrue(search(index, "bob").isEmpty());
+
+        index.compact();
+        assertEquals(0, index.pendingChanges());
+        assertEquals(2, index.size());
+        assertEquals(Set.of(1L, 3L), Set.copyOf(search(index, "ann")));
+        assertEquals(List.of(1L), search(index, "kay"));
+        assertTrue(search(index, "bob").isEmpty());
+    }
+
+    @Test
+    void changesPutBeforeABuildSurviveIt() {
+        TokenPrefixIndex index = new TokenPrefixIndex(WORDS);
+        index.put(9L, "zoe ward");
+        index.build(Map.of(1L, "ann lee"));
+        assertEquals(2, index.size());
+        assertEquals(List.of(9L), search(index, "zoe"));
+    }
+
+    @Test
+    void agreesWithBruteForce() {
+        // Includes chars at and above 0xFF, where the packed sort keys saturate
+        char[] alphabet = {'a', 'b', 'ẹ', 'ÿ', 'Ā'};
+        Random random = new Random(43);
+        for (int round = 0; round < 100; round++) {
+            Map<Long, String> docs = new HashMap<>();
+            for (long id = 1; id <= 40; id++) {
+                docs.put(id, randomDoc(random, alphabet));
+            }
+            TokenPrefixIndex index = index(docs);
+            if (round % 2 == 1) {
+                for (int i = 0; i < 5; i++) {
+                    long id = 1 + random.nextInt(50);
+                    String doc = randomDoc(random, alphabet);
+                    index.put(id, doc);
+                    docs.put(id, doc);
+                }
+                if (round % 4 == 3) {
+                    index.compact();
+                }
+            }
+
+            for (int q = 0; q < 20; q++) {
+                List<String> terms = new ArrayList<>();
+                for (int t = 0; t < 1 + random.nextInt(2); t++) {
+                    terms.add(randomWord(random, alphabet, 3));
+                }
+                Set<Long> expected = new TreeSet<>();
+                docs.forEach((id, doc) -> {
+                    List<String> tokens = List.of(doc.split(" "));
+                    if (terms.stream().allMatch(term -> tokens.stream().anyMatch(token -> token.startsWith(term)))) {
+                        expected.add(id);
+                    }
+                });
+                List<Hit> hits = index.search(terms, 1000, 10_000);
+                assertEquals(expected, new TreeSet<>(ids(hits)), () -> terms + " in " + docs);
+                for (int i = 1; i < hits.size(); i++) {
+                    assertTrue(hits.get(i - 1).score() >= hits.get(i).score());
+                }
+            }
+        }
+    }
+
+    private static String randomDoc(Random random, char[] alphabet) {
+        StringBuilder doc = new StringBuilder();
+        for (int w = 0; w < 1 + random.nextInt(3); w++) {
+            if (w > 0) {
+                doc.append(' ');
+            }
+            doc.append(randomWord(random, alphabet, 10));
+        }
+        return doc.toString();
+    }
+
+    private static String randomWord(Random random, char[] alphabet, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 1 + random.nextInt(maxLength); i++) {
+            word.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return word.toString();
+    }
+}